@@ -1,5 +1,8 @@
 package atm;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 /**
@@ -10,44 +13,235 @@ import java.util.Scanner;
  */
 public class ATM {
     private static Scanner scanner = new Scanner(System.in);
+    private static AccountRegistry accountRegistry;
+    private static TransferEngine transferEngine;
+    private static AccountStateStore stateStore;
+    private static SessionStateStore sessionStore;
+    private static String sessionId;
     private static ATMService atmService;
+    private static BankHost bankHost;
+    private static final CashInventory cashInventory = CashInventory.standard();
     private static final int MAX_PIN_ATTEMPTS = ATMConstants.MAX_PIN_ATTEMPTS;
 
     /**
      * Main entry point for ATM application
-     * @param args Command line arguments (not used)
+     * @param args Command line arguments: none for the console ATM, or
+     *             --server [port] to serve simulated terminals over loopback TCP, or
+     *             --nio-server [port] to serve the binary terminal protocol, or
+     *             --host address:port to run the console ATM against a remote host
      */
     public static void main(String[] args) {
-        // Initialize default account
-        Account account = new Account(
-            "987654321",
-            "Rajesh Kumar",
-            50000.00,
-            "1234"
-        );
-        
-        atmService = new ATMService(account);
+        // Restore accounts from the last snapshot and journal, seeding demo accounts on first run
+        accountRegistry = new AccountRegistry();
+        stateStore = openStateStore(accountRegistry);
+        sessionStore = openSessionStore(accountRegistry);
+        transferEngine = new TransferEngine(accountRegistry);
 
-        // Display welcome screen
-        displayWelcomeScreen();
+        try {
+            if (args.length > 0 && "--server".equals(args[0])) {
+                runServer(args.length > 1 ? Integer.parseInt(args[1]) : ATMConstants.SERVER_PORT);
+                return;
+            }
+            if (args.length > 0 && "--nio-server".equals(args[0])) {
+                runNioServer(args.length > 1 ? Integer.parseInt(args[1]) : ATMConstants.NIO_SERVER_PORT);
+                return;
+            }
+            if (args.length > 1 && "--host".equals(args[0]) && !connectHost(args[1])) {
+                return;
+            }
 
-        // Authenticate user with PIN
-        if (!authenticateUser()) {
-            System.out.println("\n[X] Maximum attempts exceeded! Card blocked for security.");
-            System.out.println("Please contact your bank.");
-            scanner.close();
-            return;
+            // Display welcome screen
+            displayWelcomeScreen();
+
+            // Authenticate user with PIN
+            if (!authenticateUser()) {
+                System.out.println("\n[X] Maximum attempts exceeded! Card blocked for security.");
+                System.out.println("Please contact your bank.");
+                scanner.close();
+                return;
+            }
+
+            // Main ATM menu loop
+            try {
+                runATM();
+            } finally {
+                scanner.close();
+                System.out.println("\nThank you for using our ATM service!");
+            }
+        } finally {
+            if (bankHost != null) {
+                bankHost.close();
+            }
+            closeSessionStore();
+            closeStateStore();
+        }
+    }
+
+    /**
+     * Connects to a remote core-banking host
+     * @param address Host address as host:port
+     * @return true if connected
+     */
+    private static boolean connectHost(String address) {
+        int colon = address.lastIndexOf(':');
+        try {
+            bankHost = new RemoteBankHost(new InetSocketAddress(address.substring(0, colon),
+                                                                Integer.parseInt(address.substring(colon + 1))),
+                                          ATMConstants.HOST_MAX_IN_FLIGHT);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("[X] Cannot connect to host " + address + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Serves simulated terminals until the JVM is shut down
+     * @param port Port to listen on
+     */
+    private static void runServer(int port) {
+        AffinityScheduler scheduler = new AffinityScheduler();
+        PinVerifier pinVerifier = new PinVerifier();
+        ATMServer server = new ATMServer(accountRegistry, transferEngine, scheduler, pinVerifier);
+        closeOnShutdown(server::close);
+        try {
+            System.out.println("ATM server listening on 127.0.0.1:" + server.start(port));
+            server.join();
+        } catch (IOException e) {
+            System.out.println("[X] Cannot start ATM server: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            server.close();
+            pinVerifier.close();
+            scheduler.close();
         }
+    }
 
-        // Main ATM menu loop
+    /**
+     * Serves the binary terminal protocol until the JVM is shut down
+     * @param port Port to listen on
+     */
+    private static void runNioServer(int port) {
+        // Journaled postings wait for the disk, so they run on the shards and not on the selector
+        AffinityScheduler scheduler = new AffinityScheduler();
+        ATMNioServer server = new ATMNioServer(accountRegistry, transferEngine, scheduler);
+        closeOnShutdown(server::close);
         try {
-            runATM();
+            System.out.println("ATM NIO server listening on 127.0.0.1:" + server.start(port));
+            server.join();
+        } catch (IOException e) {
+            System.out.println("[X] Cannot start ATM NIO server: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } finally {
-            scanner.close();
-            System.out.println("\nThank you for using our ATM service!");
+            server.close();
+            scheduler.close();
+        }
+    }
+
+    /**
+     * Stops a server on JVM shutdown and lets main finish its final snapshot first
+     * @param close Action that stops the server
+     */
+    private static void closeOnShutdown(Runnable close) {
+        Thread mainThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            close.run();
+            try {
+                mainThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "atm-server-shutdown"));
+    }
+
+    /**
+     * Recovers account state and starts journaling and periodic snapshots
+     * @param registry Registry to restore accounts into
+     * @return State store, or null if it cannot be opened (the ATM then runs without durability)
+     */
+    private static AccountStateStore openStateStore(AccountRegistry registry) {
+        AccountStateStore store = new AccountStateStore(Paths.get(ATMConstants.SNAPSHOT_FILE),
+                                                        Paths.get(ATMConstants.JOURNAL_FILE), registry,
+                                                        ATMConstants.JOURNAL_BATCH_WINDOW_MICROS);
+        if (!store.hasSnapshot()) {
+            registerDemoAccounts(registry);
+        }
+        try {
+            store.recover();
+            store.startPeriodicCheckpoints(ATMConstants.SNAPSHOT_INTERVAL_SECONDS);
+            return store;
+        } catch (IOException | RuntimeException e) {
+            ATMLogger.error("Cannot recover account state: " + e.getMessage());
+            if (registry.size() == 0) {
+                registerDemoAccounts(registry);
+            }
+            return null;
         }
     }
 
+    /**
+     * Recovers the sessions open when the last run died and starts recording sessions
+     * Sessions with a transaction in flight are rolled back; the others are
+     * resumed and expire unless a terminal picks them up
+     * @param registry Registry holding the recovered accounts
+     * @return Session store, or null if it cannot be opened (sessions are then not recorded)
+     */
+    private static SessionStateStore openSessionStore(AccountRegistry registry) {
+        try {
+            SessionStateStore store = new SessionStateStore(Paths.get(ATMConstants.SESSION_STATE_FILE), false);
+            SessionManager sessions = SessionManager.getInstance();
+            store.resume(sessions, registry, DailyLimitTracker.getInstance());
+            sessions.setStateStore(store);
+            return store;
+        } catch (IOException | RuntimeException e) {
+            ATMLogger.error("Cannot recover session state: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Ends the console session and closes the session store
+     */
+    private static void closeSessionStore() {
+        if (sessionId != null) {
+            SessionManager.getInstance().endSession(sessionId);
+        }
+        if (sessionStore == null) {
+            return;
+        }
+        try {
+            sessionStore.close();
+        } catch (IOException e) {
+            ATMLogger.error("Cannot close session state store: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Takes a final snapshot and closes the transaction journal
+     */
+    private static void closeStateStore() {
+        if (stateStore == null) {
+            return;
+        }
+        try {
+            stateStore.close();
+        } catch (IOException e) {
+            ATMLogger.error("Cannot close account state store: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Seeds the account registry with demo accounts
+     * @param registry Account registry
+     */
+    static void registerDemoAccounts(AccountRegistry registry) {
+        registry.register(new Account("987654321", "Rajesh Kumar", 50000.00, "1234"));
+        registry.register(new Account("123456789", "Priya Sharma", 25000.00, "4321"));
+        registry.register(new Account("555666777", "Amit Verma", 10000.00, "2468"));
+    }
+
     /**
      * Displays welcome screen with bank branding
      */
@@ -62,7 +256,7 @@ public class ATM {
     }
 
     /**
-     * Authenticates user with PIN (max 3 attempts)
+     * Looks up the card account in the registry and authenticates user with PIN (max 3 attempts)
      * @return true if authentication successful, false otherwise
      */
     private static boolean authenticateUser() {
@@ -71,6 +265,22 @@ public class ATM {
         System.out.println(Messages.MSG_AUTH_REQUIRED);
         System.out.println();
         
+        System.out.print(Messages.MSG_ENTER_CARD_ACCOUNT);
+        String accountNumber = scanner.next();
+        Account account = accountRegistry.find(accountNumber);
+        if (account == null) {
+            System.out.println(Messages.MSG_INVALID_ACCOUNT);
+            ATMLogger.warning("Authentication attempt for unknown account: " + ATMUtil.maskAccountNumber(accountNumber));
+            return false;
+        }
+        atmService = new ATMService(account, transferEngine);
+        atmService.setCashInventory(cashInventory);
+        if (bankHost != null) {
+            atmService.setBankHost(bankHost);
+        }
+        sessionId = SessionManager.getInstance().startSession(accountNumber);
+        atmService.setSessionStore(sessionStore, sessionId);
+        
         while (attempts > 0) {
             System.out.print(Messages.MSG_ENTER_PIN);
             String pin = scanner.next();
@@ -80,7 +290,7 @@ public class ATM {
                 System.out.println(String.format(Messages.MSG_WELCOME_USER, atmService.getAccountHolderName()));
                 System.out.println(String.format(Messages.MSG_ACCOUNT_NUMBER, atmService.getMaskedAccountNumber()));
                 System.out.println();
-                ATMLogger.logAuthentication("User", true);
+                ATMLogger.logAuthentication(accountNumber, true);
                 return true;
             } else {
                 attempts--;
@@ -88,7 +298,7 @@ public class ATM {
                     System.out.println(String.format(Messages.MSG_PIN_INCORRECT, attempts));
                     System.out.println();
                 }
-                ATMLogger.logAuthentication("User", false);
+                ATMLogger.logAuthentication(accountNumber, false);
             }
         }
         
@@ -107,6 +317,7 @@ public class ATM {
             System.out.print(LanguageManager.getEnterChoice());
             int choice = scanner.nextInt();
             System.out.println();
+            SessionManager.getInstance().updateActivity(sessionId);
 
             // Switch-case for menu handling
             switch (choice) {
@@ -209,6 +420,8 @@ public class ATM {
             System.out.println("\n  [X] Transaction failed!");
             if (amount <= 0) {
                 System.out.println("  Reason: Invalid amount entered.");
+            } else if (amount <= atmService.checkBalance() && cashInventory.plan((long) amount) == null) {
+                System.out.println("  Reason: Amount cannot be dispensed from the notes available.");
             } else {
                 System.out.println("  Reason: Insufficient balance in your account.");
                 System.out.printf("  Your current balance: Rs. %.2f%n", atmService.checkBalance());
@@ -245,7 +458,10 @@ public class ATM {
         }
         System.out.println("===============================================");
         System.out.println();
-    }Handles account statement export operation
+    }
+
+    /**
+     * Handles account statement export operation
      * Allows user to choose format and export transaction history
      */
     private static void exportStatement() {
@@ -317,7 +533,33 @@ public class ATM {
     }
 
     /**
-     * 
+     * Handles language selection
+     * Switches all LanguageManager prompts to the chosen language
+     */
+    private static void changeLanguage() {
+        System.out.println("===============================================");
+        System.out.println(LanguageManager.getSelectLanguage());
+        System.out.println("===============================================");
+        System.out.println(LanguageManager.getLanguageEnglish());
+        System.out.println(LanguageManager.getLanguageHindi());
+        System.out.print(LanguageManager.getEnterChoice());
+
+        int languageChoice = scanner.nextInt();
+        switch (languageChoice) {
+            case 1:
+                LanguageManager.setLanguage(LanguageManager.Language.ENGLISH);
+                System.out.println(LanguageManager.getLanguageChanged());
+                break;
+            case 2:
+                LanguageManager.setLanguage(LanguageManager.Language.HINDI);
+                System.out.println(LanguageManager.getLanguageChanged());
+                break;
+            default:
+                System.out.println(LanguageManager.getInvalidChoice());
+        }
+        System.out.println("===============================================");
+        System.out.println();
+    }
 
     /**
      * Displays exit message and terminates ATM session
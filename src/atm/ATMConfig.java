@@ -17,6 +17,7 @@ public class ATMConfig {
     private boolean enableSoundEffects;
     private int sessionTimeout; // in seconds
     private String language;
+    private volatile int pinHashIterations;
     
     /**
      * Private constructor for singleton pattern
@@ -29,6 +30,7 @@ public class ATMConfig {
         this.enableSoundEffects = false;  // Disable sounds by default
         this.sessionTimeout = 300;        // 5 minutes session timeout
         this.language = "English";        // Default language
+        this.pinHashIterations = ATMConstants.PIN_HASH_ITERATIONS;
     }
     
     /**
@@ -86,6 +88,20 @@ public class ATMConfig {
         this.language = language;
     }
     
+    public int getPinHashIterations() {
+        return pinHashIterations;
+    }
+    
+    /**
+     * Sets the work factor for newly hashed PINs; existing hashes keep theirs
+     * @param pinHashIterations PBKDF2 iterations per PIN hash
+     */
+    public void setPinHashIterations(int pinHashIterations) {
+        if (pinHashIterations > 0) {
+            this.pinHashIterations = pinHashIterations;
+        }
+    }
+    
     /**
      * Loads configuration from file (placeholder)
      */
@@ -111,6 +127,7 @@ public class ATMConfig {
         this.enableSoundEffects = false;
         this.sessionTimeout = 300;
         this.language = "English";
+        this.pinHashIterations = ATMConstants.PIN_HASH_ITERATIONS;
         ATMLogger.info("Configuration reset to defaults");
     }
 }
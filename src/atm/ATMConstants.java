@@ -9,6 +9,8 @@ public class ATMConstants {
     
     // PIN Configuration
     public static final int PIN_LENGTH = 4;
+    public static final int PIN_HASH_ITERATIONS = 10_000;
+    public static final int PIN_VERIFY_QUEUE_CAPACITY = 128;
     public static final int MAX_PIN_ATTEMPTS = 3;
     
     // Transaction Limits
@@ -16,8 +18,11 @@ public class ATMConstants {
     public static final double MAX_DEPOSIT_AMOUNT = 200000.0;
     public static final double MIN_WITHDRAWAL_AMOUNT = 100.0;
     public static final double MAX_WITHDRAWAL_AMOUNT = 50000.0;
+    public static final long WITHDRAWAL_AMOUNT_STEP = 100;
     public static final double MIN_TRANSFER_AMOUNT = 100.0;
     public static final double MAX_TRANSFER_AMOUNT = 100000.0;
+    public static final double DAILY_WITHDRAWAL_LIMIT = 50000.0;
+    public static final int MAX_DAILY_TRANSACTIONS = 20;
     
     // Account Configuration
     public static final double MIN_BALANCE = 500.0;
@@ -35,6 +40,7 @@ public class ATMConstants {
     // Session Configuration
     public static final int SESSION_TIMEOUT_MINUTES = 5;
     public static final int INACTIVITY_WARNING_SECONDS = 30;
+    public static final long SESSION_TICK_MILLIS = 1000;
     
     // Input Validation
     public static final int MAX_INPUT_LENGTH = 50;
@@ -51,6 +57,60 @@ public class ATMConstants {
     // Service Charges
     public static final double ATM_TRANSACTION_CHARGE = 0.0;
     public static final double INTER_BANK_TRANSFER_CHARGE = 5.0;
+    public static final int FREE_ATM_TRANSACTIONS_PER_MONTH = 5;
+    public static final double LARGE_TRANSFER_THRESHOLD = 10000.0;
+    public static final int LARGE_TRANSFER_FEE_BPS = 100;
+    
+    // Cash Cassettes
+    public static final int[] CASSETTE_DENOMINATIONS = {2000, 500, 200, 100};
+    public static final int CASSETTE_CAPACITY = 2500;
+    public static final int REPLENISH_HORIZON_DAYS = 60;
+    public static final int REPLENISH_LEAD_DAYS = 1;
+    public static final int REPLENISH_CYCLE_DAYS = 7;
+    public static final int REPLENISH_SAFETY_PERCENT = 20;
+    public static final double REPLENISH_HALF_LIFE_DAYS = 28.0;
+    
+    // Journal
+    public static final String JOURNAL_FILE = "atm_journal.dat";
+    public static final long JOURNAL_BATCH_WINDOW_MICROS = 200;
+    public static final String SNAPSHOT_FILE = "atm_snapshot.dat";
+    public static final long SNAPSHOT_INTERVAL_SECONDS = 300;
+    public static final String SESSION_STATE_FILE = "atm_sessions.dat";
+    public static final long SESSION_STATE_COMPACT_BYTES = 4L * 1024 * 1024;
+    
+    // Idempotency
+    public static final int IDEMPOTENCY_CACHE_CAPACITY = 1 << 18;
+    public static final int IDEMPOTENCY_CACHE_MAX_CAPACITY = 1 << 24; // Tens of thousands of keys/sec over the TTL
+    public static final long IDEMPOTENCY_TTL_SECONDS = 600;
+    
+    // Fraud Detection
+    public static final long VELOCITY_WINDOW_SECONDS = 60;
+    public static final int VELOCITY_BUCKETS = 6;
+    
+    // Pipelined Processing
+    public static final int PIPELINE_RING_SIZE = 4096;
+    
+    // Session Affinity
+    public static final int AFFINITY_QUEUE_CAPACITY = 1024;
+    public static final int AFFINITY_VIRTUAL_NODES = 64;
+    
+    // Server Mode
+    public static final int SERVER_PORT = 9090;
+    public static final int SERVER_BACKLOG = 1024;
+    public static final int SERVER_SESSION_STACK_KB = 256;
+    public static final String SERVER_EXPORT_DIRECTORY = ".";
+    public static final int NIO_SERVER_PORT = 9091;
+    public static final int NIO_BUFFER_BYTES = 4096;
+    public static final int NIO_MAX_POOLED_BUFFERS = 1024;
+    public static final int NIO_MAX_PENDING_REPLIES = 1024;
+    
+    // Core-Banking Host
+    public static final int HOST_PORT = 9100;
+    public static final long HOST_TIMEOUT_MILLIS = 30000;
+    public static final int HOST_MAX_IN_FLIGHT = 1024;
+    
+    // Interest
+    public static final int SAVINGS_INTEREST_RATE_BPS = 400;
     
     // Security
     public static final int PASSWORD_EXPIRY_DAYS = 90;
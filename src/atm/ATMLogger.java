@@ -36,6 +36,29 @@ public class ATMLogger {
         }
     }
     
+    /**
+     * Logs several messages with one open of the log file
+     * @param level Log level (INFO, ERROR, WARNING, TRANSACTION)
+     * @param messages Messages to log, in order
+     */
+    public static void logAll(String level, java.util.List<String> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        try (FileWriter fw = new FileWriter(LOG_FILE, true);
+             PrintWriter pw = new PrintWriter(fw)) {
+            
+            String timestamp = LocalDateTime.now().format(formatter);
+            for (String message : messages) {
+                pw.println(String.format("[%s] [%s] %s", timestamp, level, message));
+            }
+            pw.flush();
+            
+        } catch (IOException e) {
+            System.err.println("Error writing to log file: " + e.getMessage());
+        }
+    }
+    
     /**
      * Logs an INFO level message
      * @param message Message to log
@@ -69,11 +92,23 @@ public class ATMLogger {
      */
     public static void logTransaction(String accountNumber, String transactionType, 
                                      double amount, boolean success) {
+        log("TRANSACTION", formatTransaction(accountNumber, transactionType, amount, success));
+    }
+    
+    /**
+     * Formats a transaction log message, for callers that log in batches
+     * @param accountNumber Account number
+     * @param transactionType Type of transaction
+     * @param amount Transaction amount
+     * @param success Whether transaction was successful
+     * @return Log message
+     */
+    public static String formatTransaction(String accountNumber, String transactionType,
+                                           double amount, boolean success) {
         String maskedAccount = "XXXXX" + accountNumber.substring(accountNumber.length() - 4);
         String status = success ? "SUCCESS" : "FAILED";
-        String message = String.format("Transaction: %s | Account: %s | Amount: %.2f | Status: %s",
-                                      transactionType, maskedAccount, amount, status);
-        log("TRANSACTION", message);
+        return String.format("Transaction: %s | Account: %s | Amount: %.2f | Status: %s",
+                             transactionType, maskedAccount, amount, status);
     }
     
     /**
@@ -0,0 +1,639 @@
+package atm;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking terminal front end
+ * One selector thread owns every connection. Requests arrive as
+ * TerminalProtocol frames and are decoded and answered in place in pooled
+ * direct buffers; a terminal may pipeline any number of requests and gets the
+ * responses back in order. A connection first authenticates for an account
+ * with OP_AUTHENTICATE and may then only address that account. When a terminal
+ * stops reading its responses the connection stops reading requests until
+ * they drain.
+ *
+ * With an AffinityScheduler, PIN checks and money movements run on the
+ * account's shard, so waiting for the journal never stalls the selector; their
+ * responses are queued per connection and written in request order once the
+ * shard finishes. Balance inquiries with nothing queued ahead of them are still
+ * answered in place and allocate nothing. Without a scheduler everything runs
+ * on the selector thread, which only suits accounts without a journal
+ * @author ATM Machine Simulation
+ * @version 1.1
+ */
+public class ATMNioServer implements AutoCloseable {
+
+    private static final TransactionType[] OPERATIONS = TransactionType.values();
+
+    /**
+     * Response computed off the selector thread; fields are written before done is set
+     */
+    private static final class Reply {
+        final long requestKey;
+        final Account login;
+        byte status;
+        long balancePaise;
+        volatile boolean done;
+
+        Reply(long requestKey, Account login) {
+            this.requestKey = requestKey;
+            this.login = login;
+        }
+    }
+
+    /**
+     * State of one terminal connection, touched only by the selector thread
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final ArrayDeque<Reply> replies = new ArrayDeque<>();
+        SelectionKey key;
+        ByteBuffer in;
+        ByteBuffer out;
+        Account account;
+        ATMService service;
+        boolean authenticated;
+        boolean authenticating;
+
+        Connection(SocketChannel channel, ByteBuffer in, ByteBuffer out) {
+            this.channel = channel;
+            this.in = in;
+            this.out = out;
+        }
+    }
+
+    private final AccountRegistry registry;
+    private final TransferEngine transferEngine;
+    private final AffinityScheduler scheduler;
+    private final DirectBufferPool buffers;
+    private final Consumer<SelectionKey> onReady = this::dispatch;
+    private final ConcurrentLinkedQueue<Connection> finished = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+    private volatile int connections;
+    private volatile long messages;
+
+    /**
+     * Creates a server that runs every request on the selector thread
+     * @param registry Registry used to resolve account numbers
+     * @param transferEngine Engine used for transfers (may be null)
+     * @throws IllegalArgumentException if registry is null
+     */
+    public ATMNioServer(AccountRegistry registry, TransferEngine transferEngine) {
+        this(registry, transferEngine, null);
+    }
+
+    /**
+     * Creates a server over an account registry
+     * @param registry Registry used to resolve account numbers
+     * @param transferEngine Engine used for transfers (may be null)
+     * @param scheduler Scheduler running PIN checks and money movements (null runs them on the selector thread)
+     * @throws IllegalArgumentException if registry is null
+     */
+    public ATMNioServer(AccountRegistry registry, TransferEngine transferEngine, AffinityScheduler scheduler) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Account registry cannot be null");
+        }
+        this.registry = registry;
+        this.transferEngine = transferEngine;
+        this.scheduler = scheduler;
+        this.buffers = new DirectBufferPool(ATMConstants.NIO_BUFFER_BYTES, ATMConstants.NIO_MAX_POOLED_BUFFERS);
+    }
+
+    /**
+     * Binds to the loopback interface and starts the selector thread
+     * @param port Port to listen on, or 0 for any free port
+     * @return Port the server is listening on
+     * @throws IOException if the port cannot be bound
+     * @throws IllegalStateException if the server was already started
+     */
+    public synchronized int start(int port) throws IOException {
+        if (selector != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                           ATMConstants.SERVER_BACKLOG);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "atm-nio-selector");
+        selectorThread.start();
+        int bound = serverChannel.socket().getLocalPort();
+        ATMLogger.info("ATM NIO server listening on port " + bound);
+        return bound;
+    }
+
+    /**
+     * Selector loop: accepts, reads, handles and writes until closed
+     */
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select(onReady);
+                wakeupPending.set(false);
+                resumeFinished();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                ATMLogger.error("NIO selector failed: " + e.getMessage());
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                disconnect(key);
+            }
+            try {
+                selector.close();
+                serverChannel.close();
+            } catch (IOException e) {
+                ATMLogger.error("Cannot close NIO server: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Handles one ready key; a connection that fails is dropped
+     * @param key Ready selection key
+     */
+    private void dispatch(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        try {
+            if (key.isAcceptable()) {
+                accept();
+            } else {
+                serve(key);
+            }
+        } catch (IOException e) {
+            disconnect(key);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel, buffers.acquire(), buffers.acquire());
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections++;
+        }
+    }
+
+    /**
+     * Handles a readable or writable connection
+     * @param key Selection key of the connection
+     * @throws IOException if the connection fails
+     */
+    private void serve(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        if (key.isReadable() && connection.channel.read(connection.in) < 0) {
+            disconnect(key);
+            return;
+        }
+        pump(connection);
+    }
+
+    /**
+     * Writes out replies the shards finished and carries on with the connections they held up
+     */
+    private void resumeFinished() {
+        Connection connection;
+        while ((connection = finished.poll()) != null) {
+            if (connection.in == null) {
+                continue; // Disconnected while the shard was working
+            }
+            try {
+                pump(connection);
+            } catch (IOException e) {
+                disconnect(connection.key);
+            }
+        }
+    }
+
+    /**
+     * Answers buffered frames and writes responses until the connection has to wait
+     * @param connection Connection
+     * @throws IOException if the connection fails
+     */
+    private void pump(Connection connection) throws IOException {
+        // Answer every complete frame, flushing whenever the output buffer fills up
+        while (true) {
+            connection.in.flip();
+            boolean more = handleFrames(connection);
+            connection.in.compact();
+            boolean held = isHeld(connection);
+            if (!flush(connection)) {
+                connection.key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            // Writing a finished login releases the frames buffered behind it
+            if (!more && (!held || isHeld(connection))) {
+                break;
+            }
+        }
+        // A connection waiting for its shard reads nothing more until the shard finishes
+        connection.key.interestOps(isHeld(connection) ? 0 : SelectionKey.OP_READ);
+    }
+
+    /**
+     * Checks whether a connection must wait for its shard before handling more frames
+     * @param connection Connection
+     * @return true while a login is pending or too many replies are queued
+     */
+    private static boolean isHeld(Connection connection) {
+        return connection.authenticating
+               || connection.replies.size() >= ATMConstants.NIO_MAX_PENDING_REPLIES;
+    }
+
+    /**
+     * Handles buffered frames while there is room for their responses
+     * @param connection Connection with its input buffer in read mode
+     * @return true if complete frames are left because the output buffer is full
+     * @throws IOException if the terminal violated the framing
+     */
+    private boolean handleFrames(Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        while (!isHeld(connection)) {
+            int body = TerminalProtocol.completeFrame(in);
+            if (body < 0) {
+                throw new IOException("Invalid frame length");
+            }
+            if (body == 0) {
+                return false;
+            }
+            if (connection.replies.isEmpty() && connection.out.remaining() < TerminalProtocol.RESPONSE_BYTES) {
+                return true;
+            }
+            int end = in.position() + TerminalProtocol.HEADER_BYTES + body;
+            int limit = in.limit();
+            in.position(in.position() + TerminalProtocol.HEADER_BYTES).limit(end);
+            try {
+                handle(connection, in);
+            } catch (RuntimeException e) {
+                ATMLogger.error("NIO request failed: " + e.getMessage());
+                respond(connection, TerminalProtocol.STATUS_BAD_REQUEST, 0L, 0L);
+            }
+            in.limit(limit).position(end);
+            messages++;
+        }
+        return false;
+    }
+
+    /**
+     * Executes one request, or hands it to the account's shard, and queues its response
+     * @param connection Connection the request arrived on
+     * @param in Input buffer limited to the request body
+     */
+    private void handle(Connection connection, ByteBuffer in) {
+        int opcode = in.get();
+        long requestKey = in.getLong();
+        long amountPaise = in.getLong();
+        if (opcode == TerminalProtocol.OP_AUTHENTICATE) {
+            authenticate(connection, in, requestKey);
+            return;
+        }
+        if (!addressesLogin(connection, in)) {
+            respond(connection, TerminalProtocol.STATUS_NOT_AUTHENTICATED, requestKey, 0L);
+            return;
+        }
+        if (opcode < 0 || opcode >= OPERATIONS.length) {
+            respond(connection, TerminalProtocol.STATUS_BAD_REQUEST, requestKey, 0L);
+            return;
+        }
+        TransactionType type = OPERATIONS[opcode];
+        Account account = connection.account;
+        if (type == TransactionType.BALANCE_INQUIRY && connection.replies.isEmpty()) {
+            respond(connection, TerminalProtocol.STATUS_OK, requestKey, account.getBalancePaise());
+            return;
+        }
+        if (type == TransactionType.MINI_STATEMENT) {
+            respond(connection, TerminalProtocol.STATUS_BAD_REQUEST, requestKey, 0L);
+            return;
+        }
+        String target = type == TransactionType.TRANSFER ? BinaryCodec.getAscii(in) : null;
+        ATMService service = connection.service;
+        if (scheduler == null) {
+            byte status = execute(service, type, amountPaise, requestKey, target);
+            respond(connection, status, requestKey, balanceFor(status, account));
+            return;
+        }
+        Reply reply = new Reply(requestKey, null);
+        offload(connection, reply, () -> {
+            byte status = execute(service, type, amountPaise, requestKey, target);
+            complete(connection, reply, status, balanceFor(status, account));
+        });
+    }
+
+    /**
+     * Checks a PIN and binds the connection to the account if it matches
+     * Until the check finishes the connection handles no further frames
+     * @param connection Connection the request arrived on
+     * @param in Input buffer positioned at the account field
+     * @param requestKey Request key
+     */
+    private void authenticate(Connection connection, ByteBuffer in, long requestKey) {
+        String accountNumber = BinaryCodec.getAscii(in);
+        String pin = BinaryCodec.getAscii(in);
+        Account account = accountNumber == null ? null : registry.find(accountNumber);
+        connection.authenticated = false;
+        if (account == null) {
+            ATMLogger.warning("Authentication attempt for unknown account: "
+                              + ATMUtil.maskAccountNumber(accountNumber));
+            respond(connection, TerminalProtocol.STATUS_UNKNOWN_ACCOUNT, requestKey, 0L);
+            return;
+        }
+        if (account != connection.account) {
+            connection.account = account;
+            connection.service = new ATMService(account, transferEngine);
+        }
+        ATMService service = connection.service;
+        if (scheduler == null) {
+            byte status = checkPin(service, account, pin);
+            connection.authenticated = status == TerminalProtocol.STATUS_OK;
+            respond(connection, status, requestKey, loginBalance(status, account));
+            return;
+        }
+        Reply reply = new Reply(requestKey, account);
+        if (offload(connection, reply, () -> {
+            byte status = checkPin(service, account, pin);
+            complete(connection, reply, status, loginBalance(status, account));
+        })) {
+            connection.authenticating = true;
+        }
+    }
+
+    /**
+     * Queues a task on the account's shard, or answers busy if the shard is full
+     * @param connection Connection the request arrived on
+     * @param reply Reply the task completes
+     * @param task Task to run
+     * @return true if the task was queued
+     */
+    private boolean offload(Connection connection, Reply reply, Runnable task) {
+        boolean queued;
+        try {
+            queued = scheduler.tryExecute(connection.account.getAccountNumber(), task);
+        } catch (IllegalStateException e) {
+            queued = false; // Scheduler closed while the server shuts down
+        }
+        if (!queued) {
+            respond(connection, TerminalProtocol.STATUS_BUSY, reply.requestKey, 0L);
+            return false;
+        }
+        connection.replies.add(reply);
+        return true;
+    }
+
+    /**
+     * Publishes a reply computed on a shard and wakes the selector to write it
+     * @param connection Connection the reply belongs to
+     * @param reply Reply to complete
+     * @param status Status code
+     * @param balancePaise Balance field of the response
+     */
+    private void complete(Connection connection, Reply reply, byte status, long balancePaise) {
+        reply.status = status;
+        reply.balancePaise = balancePaise;
+        reply.done = true;
+        finished.add(connection);
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Writes a response now, or queues it behind replies still being computed
+     * @param connection Connection
+     * @param status Status code
+     * @param requestKey Key of the request being answered
+     * @param balancePaise Balance field of the response
+     */
+    private static void respond(Connection connection, byte status, long requestKey, long balancePaise) {
+        if (connection.replies.isEmpty()) {
+            TerminalProtocol.putResponse(connection.out, status, requestKey, balancePaise);
+            return;
+        }
+        Reply reply = new Reply(requestKey, null);
+        reply.status = status;
+        reply.balancePaise = balancePaise;
+        reply.done = true;
+        connection.replies.add(reply);
+    }
+
+    /**
+     * Checks that a request addresses the account the connection authenticated for
+     * @param connection Connection the request arrived on
+     * @param in Input buffer positioned at the account field; left after it on success
+     * @return true if the connection is logged in to the request's account
+     */
+    private static boolean addressesLogin(Connection connection, ByteBuffer in) {
+        if (!connection.authenticated
+            || !TerminalProtocol.asciiEquals(in, connection.account.getAccountNumber())) {
+            return false;
+        }
+        in.position(in.position() + BinaryCodec.asciiSize(connection.account.getAccountNumber()));
+        return true;
+    }
+
+    /**
+     * Runs a money movement or inquiry for an authenticated account
+     * @param service Service of the account
+     * @param type Operation
+     * @param amountPaise Amount in paise
+     * @param requestKey Request key, doubling as idempotency key unless 0
+     * @param target Target account of a transfer, or null
+     * @return Status code
+     */
+    private static byte execute(ATMService service, TransactionType type, long amountPaise, long requestKey,
+                                String target) {
+        double amount = MoneyUtil.toRupees(amountPaise);
+        // Only money movements consult the idempotency cache, which is keyed by string
+        String key = requestKey == 0L ? null : Long.toString(requestKey);
+        boolean success;
+        try {
+            switch (type) {
+                case BALANCE_INQUIRY:
+                    return TerminalProtocol.STATUS_OK;
+                case DEPOSIT:
+                    success = key == null ? service.depositMoney(amount) : service.depositMoney(amount, key);
+                    break;
+                case WITHDRAWAL:
+                    success = key == null ? service.withdrawMoney(amount) : service.withdrawMoney(amount, key);
+                    break;
+                case TRANSFER:
+                    success = key == null ? service.transferMoney(amount, target)
+                                          : service.transferMoney(amount, target, key);
+                    break;
+                default:
+                    return TerminalProtocol.STATUS_BAD_REQUEST;
+            }
+        } catch (RejectedExecutionException e) {
+            return TerminalProtocol.STATUS_BUSY;
+        } catch (RuntimeException e) {
+            ATMLogger.error("NIO request failed: " + e.getMessage());
+            return TerminalProtocol.STATUS_BAD_REQUEST;
+        }
+        return success ? TerminalProtocol.STATUS_OK : TerminalProtocol.STATUS_REJECTED;
+    }
+
+    /**
+     * Checks a PIN through the session, counting the attempt against the account
+     * @param service Session of the account
+     * @param account Account
+     * @param pin PIN sent by the terminal
+     * @return STATUS_OK, STATUS_REJECTED or STATUS_LOCKED
+     */
+    private static byte checkPin(ATMService service, Account account, String pin) {
+        boolean valid = service.authenticate(pin);
+        ATMLogger.logAuthentication(account.getAccountNumber(), valid);
+        if (valid) {
+            return TerminalProtocol.STATUS_OK;
+        }
+        return account.isPinLocked() ? TerminalProtocol.STATUS_LOCKED : TerminalProtocol.STATUS_REJECTED;
+    }
+
+    private static long balanceFor(byte status, Account account) {
+        return status == TerminalProtocol.STATUS_OK || status == TerminalProtocol.STATUS_REJECTED
+               ? account.getBalancePaise() : 0L;
+    }
+
+    private static long loginBalance(byte status, Account account) {
+        if (status == TerminalProtocol.STATUS_OK) {
+            return account.getBalancePaise();
+        }
+        return status == TerminalProtocol.STATUS_REJECTED
+               ? ATMConstants.MAX_PIN_ATTEMPTS - account.getFailedPinAttempts() : 0L;
+    }
+
+    /**
+     * Writes buffered responses and every finished reply at the head of the queue
+     * @param connection Connection
+     * @return true if everything finished was written
+     * @throws IOException if the connection fails
+     */
+    private boolean flush(Connection connection) throws IOException {
+        ByteBuffer out = connection.out;
+        while (true) {
+            Reply head;
+            while ((head = connection.replies.peek()) != null && head.done
+                   && out.remaining() >= TerminalProtocol.RESPONSE_BYTES) {
+                connection.replies.poll();
+                if (head.login != null) {
+                    connection.authenticating = false;
+                    connection.authenticated = head.status == TerminalProtocol.STATUS_OK
+                                               && head.login == connection.account;
+                }
+                TerminalProtocol.putResponse(out, head.status, head.requestKey, head.balancePaise);
+            }
+            out.flip();
+            connection.channel.write(out);
+            boolean drained = !out.hasRemaining();
+            out.compact();
+            if (!drained) {
+                return false;
+            }
+            head = connection.replies.peek();
+            if (head == null || !head.done) {
+                return true;
+            }
+        }
+    }
+
+    private void disconnect(SelectionKey key) {
+        Connection connection = (Connection) key.attachment();
+        key.cancel();
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Connection is already gone
+        }
+        if (connection.in != null) {
+            buffers.release(connection.in);
+            buffers.release(connection.out);
+            connection.in = null;
+            connection.out = null;
+            connections--;
+        }
+    }
+
+    /**
+     * Gets the port the server is listening on
+     * @return Port, or -1 if not started
+     */
+    public synchronized int getPort() {
+        return serverChannel == null ? -1 : serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Gets the number of connected terminals
+     * @return Open connection count
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * Gets the number of requests handled since the server started
+     * @return Handled request count
+     */
+    public long getMessagesHandled() {
+        return messages;
+    }
+
+    /**
+     * Blocks until the server has been closed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void join() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = selectorThread;
+        }
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Stops the selector thread and disconnects every terminal
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (selector == null || !running) {
+                return;
+            }
+            running = false;
+            selector.wakeup();
+            thread = selectorThread;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
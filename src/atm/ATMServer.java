@@ -0,0 +1,232 @@
+package atm;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-terminal server mode
+ * Accepts simulated terminals on the loopback interface and drives each
+ * connection with its own TerminalSession on its own thread. Virtual threads
+ * are used when the runtime provides them; otherwise sessions run on daemon
+ * platform threads with a small fixed stack, so an idle terminal costs one
+ * blocked thread, one socket and a few hundred bytes of buffers
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class ATMServer implements AutoCloseable {
+
+    private final AccountRegistry registry;
+    private final TransferEngine transferEngine;
+    private final AffinityScheduler scheduler;
+    private final PinVerifier pinVerifier;
+    private final ThreadFactory sessionThreads;
+    private final boolean virtualThreads;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+
+    /**
+     * Creates a server over an account registry
+     * @param registry Registry used to look up terminal logins
+     * @param transferEngine Engine used for transfers (may be null)
+     * @throws IllegalArgumentException if registry is null
+     */
+    public ATMServer(AccountRegistry registry, TransferEngine transferEngine) {
+        this(registry, transferEngine, null);
+    }
+
+    /**
+     * Creates a server that runs each account's commands on its affinity shard
+     * @param registry Registry used to look up terminal logins
+     * @param transferEngine Engine used for transfers (may be null)
+     * @param scheduler Scheduler owning the account shards, or null to run commands on the session thread
+     * @throws IllegalArgumentException if registry is null
+     */
+    public ATMServer(AccountRegistry registry, TransferEngine transferEngine, AffinityScheduler scheduler) {
+        this(registry, transferEngine, scheduler, null);
+    }
+
+    /**
+     * Creates a server that also checks login PINs on a dedicated verification pool
+     * @param registry Registry used to look up terminal logins
+     * @param transferEngine Engine used for transfers (may be null)
+     * @param scheduler Scheduler owning the account shards (may be null)
+     * @param pinVerifier Pool for PIN checks, or null to check PINs on the session or shard thread
+     * @throws IllegalArgumentException if registry is null
+     */
+    public ATMServer(AccountRegistry registry, TransferEngine transferEngine, AffinityScheduler scheduler,
+                     PinVerifier pinVerifier) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Account registry cannot be null");
+        }
+        this.registry = registry;
+        this.transferEngine = transferEngine;
+        this.scheduler = scheduler;
+        this.pinVerifier = pinVerifier;
+        ThreadFactory virtual = virtualThreadFactory();
+        this.virtualThreads = virtual != null;
+        this.sessionThreads = virtual != null ? virtual : platformThreadFactory();
+    }
+
+    /**
+     * Binds to the loopback interface and starts accepting terminals
+     * @param port Port to listen on, or 0 for any free port
+     * @return Port the server is listening on
+     * @throws IOException if the port cannot be bound
+     * @throws IllegalStateException if the server was already started
+     */
+    public synchronized int start(int port) throws IOException {
+        if (serverSocket != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        serverSocket = new ServerSocket(port, ATMConstants.SERVER_BACKLOG, InetAddress.getLoopbackAddress());
+        acceptor = new Thread(this::acceptLoop, "atm-server-accept");
+        acceptor.start();
+        ATMLogger.info("ATM server listening on port " + serverSocket.getLocalPort()
+                       + (virtualThreads ? " with virtual threads" : " with platform threads"));
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server socket is closed
+     */
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    ATMLogger.error("Cannot accept terminal connection: " + e.getMessage());
+                }
+                continue;
+            }
+            connections.add(socket);
+            activeSessions.incrementAndGet();
+            try {
+                sessionThreads.newThread(() -> runSession(socket)).start();
+            } catch (RuntimeException | OutOfMemoryError e) {
+                ATMLogger.error("Cannot start terminal session: " + e.getMessage());
+                endSession(socket);
+            }
+        }
+    }
+
+    /**
+     * Runs one terminal session and releases its connection afterwards
+     * @param socket Terminal connection
+     */
+    private void runSession(Socket socket) {
+        try {
+            new TerminalSession(socket, registry, transferEngine, scheduler, pinVerifier).run();
+        } finally {
+            endSession(socket);
+        }
+    }
+
+    private void endSession(Socket socket) {
+        if (connections.remove(socket)) {
+            activeSessions.decrementAndGet();
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Connection is already gone
+        }
+    }
+
+    /**
+     * Gets the port the server is listening on
+     * @return Port, or -1 if not started
+     */
+    public synchronized int getPort() {
+        return serverSocket == null ? -1 : serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the number of connected terminals
+     * @return Active session count
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * Checks whether sessions run on virtual threads
+     * @return true on runtimes that provide virtual threads
+     */
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Blocks until the server has been closed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void join() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = acceptor;
+        }
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Stops accepting terminals and disconnects every open session
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (serverSocket == null) {
+                return;
+            }
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                ATMLogger.error("Cannot close server socket: " + e.getMessage());
+            }
+        }
+        for (Socket socket : connections) {
+            endSession(socket);
+        }
+    }
+
+    /**
+     * Looks up the virtual thread factory of newer runtimes reflectively, so
+     * the simulator still builds and runs on Java 17
+     * @return Virtual thread factory, or null if the runtime has none
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "atm-session-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates daemon platform threads with a small stack for sessions
+     * @return Platform thread factory
+     */
+    private static ThreadFactory platformThreadFactory() {
+        AtomicInteger ids = new AtomicInteger();
+        long stackBytes = ATMConstants.SERVER_SESSION_STACK_KB * 1024L;
+        return task -> {
+            Thread thread = new Thread(null, task, "atm-session-" + ids.getAndIncrement(), stackBytes);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,5 +1,12 @@
 package atm;
 
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
 /**
  * ATMService class provides business logic for ATM operations
  * Handles deposit, withdrawal, balance inquiry, and fund transfers
@@ -11,19 +18,21 @@ package atm;
  */
 public class ATMService {
     private Account account;
-    private static final double DAILY_WITHDRAWAL_LIMIT = 50000.0;
-    private double dailyWithdrawnAmount = 0.0;
+    private BankHost bankHost;
+    private IdempotencyCache idempotencyCache = IdempotencyCache.getInstance();
+    private DailyLimitTracker dailyLimitTracker = DailyLimitTracker.getInstance();
+    private FeeEngine feeEngine = FeeEngine.getInstance();
+    private CashInventory cashInventory;
+    private SessionStateStore sessionStore;
+    private String sessionId;
     private boolean isAccountFrozen = false;
+    private UnresolvedTransaction unresolved;
     private static final double OVERDRAFT_LIMIT = 5000.0;
     private java.util.List<String> transactionLog = new java.util.ArrayList<>();
     private java.time.LocalDateTime sessionStartTime;
     private static final int SESSION_TIMEOUT_MINUTES = 5;
-    private int failedLoginAttempts = 0;
-    private static final int MAX_FAILED_ATTEMPTS = 3;
-    private int dailyTransactionCount = 0;
-    private static final int MAX_DAILY_TRANSACTIONS = 20;
     private static final double MINIMUM_BALANCE_REQUIRED = 500.0;
-    private String accountType = "SAVINGS"; // SAVINGS or CURRENT
+    private AccountType accountType = AccountType.SAVINGS;
     private String cardStatus = "ACTIVE"; // ACTIVE, BLOCKED, EXPIRED
     private java.util.List<String> beneficiaryList = new java.util.ArrayList<>();
     private boolean emailNotifications = true;
@@ -32,17 +41,29 @@ public class ATMService {
 
     /**
      * Constructor to initialize ATM service with an account
+     * Transfers are refused because no other accounts are reachable
      * @param account Account object associated with this ATM session
      * @throws IllegalArgumentException if account is null
      */
     public ATMService(Account account) {
+        this(account, null);
+    }
+
+    /**
+     * Constructor to initialize ATM service with an account and a transfer engine
+     * @param account Account object associated with this ATM session
+     * @param transferEngine Engine used for fund transfers (null disables transfers)
+     * @throws IllegalArgumentException if account is null
+     */
+    public ATMService(Account account, TransferEngine transferEngine) {
         if (account == null) {
             throw new IllegalArgumentException("Account cannot be null");
         }
         this.account = account;
+        this.bankHost = new LocalBankHost(transferEngine);
         this.sessionStartTime = java.time.LocalDateTime.now();
         this.lastActivityTime = java.time.LocalDateTime.now();
-        logTransaction("Session started for account: " + account.getAccountNumber());
+        logTransaction("SESSION_START", 0.0, "Started for account: " + account.getAccountNumber());
     }
 
     /**
@@ -51,32 +72,34 @@ public class ATMService {
      * @return true if authentication successful, false otherwise
      */
     public boolean authenticate(String pin) {
-        if (failedLoginAttempts >= MAX_FAILED_ATTEMPTS) {
+        if (account.isPinLocked()) {
             isAccountFrozen = true;
             return false;
         }
-        boolean isValid = account.validatePin(pin);
-        if (isValid) {
-            failedLoginAttempts = 0;
-        } else {
-            failedLoginAttempts++;
+        boolean isValid = account.authenticatePin(pin);
+        if (!isValid && account.isPinLocked()) {
+            isAccountFrozen = true;
+        }
+        if (sessionStore != null) {
+            sessionStore.authenticated(sessionId, account.getFailedPinAttempts(), System.currentTimeMillis());
         }
         return isValid;
     }
 
     /**
      * Gets the number of failed login attempts
+     * Counted on the account, so attempts from every session add up
      * @return Failed login attempts count
      */
     public int getFailedLoginAttempts() {
-        return failedLoginAttempts;
+        return account.getFailedPinAttempts();
     }
 
     /**
      * Resets failed login attempts counter
      */
     public void resetFailedLoginAttempts() {
-        this.failedLoginAttempts = 0;
+        account.resetFailedPinAttempts();
     }
 
     /**
@@ -84,7 +107,9 @@ public class ATMService {
      * @return Current balance in INR
      */
     public double checkBalance() {
-        return account.getBalance();
+        HostReply reply = callHost(TransactionType.BALANCE_INQUIRY, 0L, null, null);
+        return reply != null && !reply.isOutcomeUnknown() ? MoneyUtil.toRupees(reply.getBalancePaise())
+                                                          : account.getBalance();
     }
 
     /**
@@ -93,11 +118,26 @@ public class ATMService {
      * @return true if deposit successful, false if invalid amount
      */
     public boolean depositMoney(double amount) {
-        if (amount <= 0 || dailyTransactionCount >= MAX_DAILY_TRANSACTIONS) {
+        if (amount <= 0 || !MoneyUtil.isConvertible(amount) || unresolved != null) {
             return false;
         }
-        account.deposit(amount);
-        dailyTransactionCount++;
+        long amountPaise = MoneyUtil.toPaise(amount);
+        if (!dailyLimitTracker.tryReserve(account, 1, 0L)) {
+            return false;
+        }
+        String reference = beginInFlight(TransactionType.DEPOSIT, amountPaise);
+        HostReply reply = callHost(TransactionType.DEPOSIT, amountPaise, null, reference);
+        if (reply != null && reply.isOutcomeUnknown()) {
+            holdForReconciliation(TransactionType.DEPOSIT, amountPaise, 1, 0L, null);
+            return false;
+        }
+        if (reply == null || !reply.isApproved()) {
+            dailyLimitTracker.release(account, 1, 0L);
+            endInFlight();
+            return false;
+        }
+        endInFlight();
+        recordActivity();
         return true;
     }
 
@@ -107,20 +147,365 @@ public class ATMService {
      * @return true if withdrawal successful, false if invalid amount or insufficient balance
      */
     public boolean withdrawMoney(double amount) {
-        if (amount <= 0 || dailyTransactionCount >= MAX_DAILY_TRANSACTIONS) {
+        if (amount <= 0 || !MoneyUtil.isConvertible(amount) || unresolved != null) {
             return false;
         }
-        if (dailyWithdrawnAmount + amount > DAILY_WITHDRAWAL_LIMIT) {
+        long amountPaise = MoneyUtil.toPaise(amount);
+        if (!dailyLimitTracker.tryReserve(account, 1, amountPaise)) {
             return false; // Daily limit exceeded
         }
-        boolean success = account.withdraw(amount);
+        CashInventory.Reservation notes = null;
+        if (cashInventory != null) {
+            notes = amountPaise % MoneyUtil.PAISE_PER_RUPEE == 0
+                    ? cashInventory.reserve(amountPaise / MoneyUtil.PAISE_PER_RUPEE) : null;
+            if (notes == null) {
+                dailyLimitTracker.release(account, 1, amountPaise);
+                return false; // Cassettes cannot make up the amount
+            }
+        }
+        String reference = beginInFlight(TransactionType.WITHDRAWAL, amountPaise);
+        HostReply reply = callHost(TransactionType.WITHDRAWAL, amountPaise, null, reference);
+        if (reply != null && reply.isOutcomeUnknown()) {
+            holdForReconciliation(TransactionType.WITHDRAWAL, amountPaise, 1, amountPaise, notes);
+            return false;
+        }
+        boolean success = reply != null && reply.isApproved();
         if (success) {
-            dailyWithdrawnAmount += amount;
-            dailyTransactionCount++;
+            if (notes != null) {
+                notes.commit();
+            }
+            recordActivity();
+        } else {
+            if (notes != null) {
+                notes.rollback();
+            }
+            dailyLimitTracker.release(account, 1, amountPaise);
         }
+        endInFlight();
         return success;
     }
 
+    /**
+     * Sends a request to the core-banking host and waits for its reply
+     * @param type Request type
+     * @param amountPaise Amount in paise
+     * @param targetAccountNumber Target account for transfers, otherwise null
+     * @param reference Request reference from beginInFlight(), or null
+     * @return Reply; null if the request was never sent or an in-process host
+     *         failed and undid it; HostReply.OUTCOME_UNKNOWN if it was sent but
+     *         no answer arrived in time
+     */
+    private HostReply callHost(TransactionType type, long amountPaise, String targetAccountNumber, String reference) {
+        try {
+            return bankHost.submit(type, account, amountPaise, targetAccountNumber, reference)
+                           .get(ATMConstants.HOST_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            ATMLogger.error("Host request failed for account " + account.getMaskedAccountNumber() + ": " + e);
+            boolean undone = e.getCause() instanceof RejectedExecutionException || bankHost instanceof LocalBankHost;
+            return undone ? null : HostReply.OUTCOME_UNKNOWN;
+        } catch (TimeoutException e) {
+            ATMLogger.error("Host request timed out for account " + account.getMaskedAccountNumber());
+            return HostReply.OUTCOME_UNKNOWN;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return HostReply.OUTCOME_UNKNOWN;
+        }
+    }
+
+    /**
+     * Parks a transaction the host may or may not have applied
+     * Its daily limit reservation and notes stay held and its session record
+     * stays in flight until reconcile() says how it ended; the session refuses
+     * further money movements meanwhile
+     * @param type Transaction type
+     * @param amountPaise Amount in paise
+     * @param transactions Daily transactions reserved
+     * @param withdrawalPaise Daily withdrawal amount reserved
+     * @param notes Reserved notes, or null
+     */
+    private void holdForReconciliation(TransactionType type, long amountPaise, int transactions,
+                                       long withdrawalPaise, CashInventory.Reservation notes) {
+        unresolved = new UnresolvedTransaction(type, amountPaise, transactions, withdrawalPaise, notes);
+        logTransaction("OUTCOME_UNKNOWN", MoneyUtil.toRupees(amountPaise), type.getDisplayName());
+        ATMLogger.warning("Outcome of " + type.getDisplayName() + " unknown for account "
+                          + account.getMaskedAccountNumber() + "; held for reconciliation");
+    }
+
+    /**
+     * Checks whether a transaction awaits reconciliation with the host
+     * @return true if the host's answer to a transaction never arrived
+     */
+    public boolean hasUnresolvedTransaction() {
+        return unresolved != null;
+    }
+
+    /**
+     * Settles the transaction whose host answer never arrived
+     * If the host applied it, the notes are dispensed and it counts towards the
+     * daily limits; otherwise the notes and the limits are given back
+     * @param applied Whether the host's records show the transaction
+     * @throws IllegalStateException if no transaction awaits reconciliation
+     */
+    public void reconcile(boolean applied) {
+        UnresolvedTransaction pending = unresolved;
+        if (pending == null) {
+            throw new IllegalStateException("No transaction awaits reconciliation");
+        }
+        unresolved = null;
+        if (applied) {
+            if (pending.notes != null) {
+                pending.notes.commit();
+            }
+            recordActivity();
+        } else {
+            if (pending.notes != null) {
+                pending.notes.rollback();
+            }
+            dailyLimitTracker.release(account, pending.transactions, pending.withdrawalPaise);
+        }
+        endInFlight();
+        logTransaction(applied ? "RECONCILED_APPLIED" : "RECONCILED_DECLINED",
+                       MoneyUtil.toRupees(pending.amountPaise), pending.type.getDisplayName());
+    }
+
+    /**
+     * Records a transaction about to be sent to the host in the session store
+     * The in-process host keeps the returned reference with the posting, so
+     * recovery can tell whether it was applied; other hosts keep their own
+     * ledger and get none
+     * @param type Transaction type
+     * @param amountPaise Amount in paise
+     * @return Reference to send with the request, or null
+     */
+    private String beginInFlight(TransactionType type, long amountPaise) {
+        if (sessionStore == null) {
+            return null;
+        }
+        String reference = bankHost instanceof LocalBankHost ? ATMUtil.generateTransactionId() : null;
+        sessionStore.transactionBegun(sessionId, type, amountPaise, reference, account.getDailyUsage(),
+                                      System.currentTimeMillis());
+        return reference;
+    }
+
+    /**
+     * Records in the session store that the transaction in flight has finished
+     */
+    private void endInFlight() {
+        if (sessionStore != null) {
+            sessionStore.transactionEnded(sessionId, account.getDailyUsage(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Records a completed transaction in the account's velocity window and
+     * logs the moment the account crosses into suspicious activity
+     */
+    private void recordActivity() {
+        boolean wasSuspicious = SecurityUtil.isSuspiciousActivity(account);
+        VelocityTracker.getInstance().record(account);
+        if (!wasSuspicious && SecurityUtil.isSuspiciousActivity(account)) {
+            ATMLogger.warning("Suspicious transaction velocity on account: " + account.getMaskedAccountNumber());
+        }
+    }
+
+    /**
+     * Deposits money at most once per idempotency key
+     * A retry with the same key returns the original result without depositing again
+     * @param amount Amount to deposit
+     * @param idempotencyKey Key identifying the request, unique per account
+     * @return true if deposit successful, false if invalid amount
+     * @throws IllegalArgumentException if idempotencyKey is null or was used for a different request
+     * @throws java.util.concurrent.RejectedExecutionException if the idempotency cache is full; nothing was deposited
+     */
+    public boolean depositMoney(double amount, String idempotencyKey) {
+        return runOnce(idempotencyKey, TransactionType.DEPOSIT, amount, null, () -> depositMoney(amount));
+    }
+
+    /**
+     * Withdraws money at most once per idempotency key
+     * A retry with the same key returns the original result without debiting again
+     * @param amount Amount to withdraw
+     * @param idempotencyKey Key identifying the request, unique per account
+     * @return true if withdrawal successful, false if invalid amount or insufficient balance
+     * @throws IllegalArgumentException if idempotencyKey is null or was used for a different request
+     * @throws java.util.concurrent.RejectedExecutionException if the idempotency cache is full; nothing was debited
+     */
+    public boolean withdrawMoney(double amount, String idempotencyKey) {
+        return runOnce(idempotencyKey, TransactionType.WITHDRAWAL, amount, null, () -> withdrawMoney(amount));
+    }
+
+    /**
+     * Runs a money operation unless a request with the same key already ran
+     * The key is bound to the operation, amount and target it is first used
+     * for, so reusing it for a different request fails instead of replaying
+     * @param idempotencyKey Key identifying the request
+     * @param type Operation
+     * @param amount Requested amount
+     * @param target Target account of a transfer, or null
+     * @param operation Operation to run
+     * @return Result of the operation, or of the original request for a retry
+     */
+    private boolean runOnce(String idempotencyKey, TransactionType type, double amount, String target,
+                            BooleanSupplier operation) {
+        if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+            throw new IllegalArgumentException("Idempotency key cannot be null or empty");
+        }
+        String scope = account.getAccountNumber();
+        long amountPaise = MoneyUtil.isConvertible(amount) ? MoneyUtil.toPaise(amount) : Long.MIN_VALUE;
+        Boolean original = idempotencyCache.begin(scope, idempotencyKey, type, amountPaise, target);
+        if (original != null) {
+            return original;
+        }
+        boolean result;
+        try {
+            result = operation.getAsBoolean();
+        } catch (RuntimeException e) {
+            idempotencyCache.abandon(scope, idempotencyKey);
+            throw e;
+        }
+        idempotencyCache.complete(scope, idempotencyKey, result);
+        return result;
+    }
+
+    /**
+     * Submits several deposits and withdrawals in one call
+     * The batch is validated up front, the daily transaction and withdrawal
+     * limits are checked and reserved once for the whole batch in submission
+     * order, and the accepted items are posted under a single account lock
+     * and journal write. With cassettes set, each withdrawal reserves its
+     * notes like withdrawMoney and is CASH_UNAVAILABLE if they cannot make up
+     * the amount. Posting straight to the account is only right for
+     * the in-process host, so every item is REJECTED while another host keeps
+     * the ledger or a transaction awaits reconciliation
+     * @param batch Postings to apply, in order
+     * @return Outcome of each posting, in batch order
+     * @throws IllegalArgumentException if batch is null
+     */
+    public java.util.List<BatchResult> submitBatch(TransactionBatch batch) {
+        if (batch == null) {
+            throw new IllegalArgumentException("Batch cannot be null");
+        }
+        int size = batch.size();
+        BatchResult[] results = new BatchResult[size];
+        if (unresolved != null || !(bankHost instanceof LocalBankHost)) {
+            java.util.Arrays.fill(results, BatchResult.REJECTED);
+            return java.util.Arrays.asList(results);
+        }
+        byte[] types = new byte[size];
+        long[] amounts = new long[size];
+        int[] itemIndex = new int[size];
+        int accepted;
+        long reservedWithdrawalPaise;
+
+        // Other sessions may reserve concurrently; classify again if the reservation loses
+        do {
+            accepted = 0;
+            reservedWithdrawalPaise = 0L;
+            int remainingTransactions = dailyLimitTracker.getRemainingTransactions(account);
+            long remainingWithdrawalPaise = dailyLimitTracker.getRemainingWithdrawalPaise(account);
+            for (int i = 0; i < size; i++) {
+                TransactionType type = batch.getType(i);
+                double amount = batch.getAmount(i);
+                long amountPaise = MoneyUtil.isConvertible(amount) ? MoneyUtil.toPaise(amount) : 0L;
+                if (isAccountFrozen) {
+                    results[i] = BatchResult.ACCOUNT_FROZEN;
+                } else if (type != TransactionType.DEPOSIT && type != TransactionType.WITHDRAWAL) {
+                    results[i] = BatchResult.UNSUPPORTED_TYPE;
+                } else if (amountPaise <= 0) {
+                    results[i] = BatchResult.INVALID_AMOUNT;
+                } else if (accepted >= remainingTransactions) {
+                    results[i] = BatchResult.TRANSACTION_LIMIT_EXCEEDED;
+                } else if (type == TransactionType.WITHDRAWAL
+                           && reservedWithdrawalPaise + amountPaise > remainingWithdrawalPaise) {
+                    results[i] = BatchResult.WITHDRAWAL_LIMIT_EXCEEDED;
+                } else {
+                    if (type == TransactionType.WITHDRAWAL) {
+                        reservedWithdrawalPaise += amountPaise;
+                    }
+                    types[accepted] = type == TransactionType.DEPOSIT ? TransactionHistory.TYPE_DEPOSIT
+                                                                      : TransactionHistory.TYPE_WITHDRAWAL;
+                    amounts[accepted] = amountPaise;
+                    itemIndex[accepted] = i;
+                    accepted++;
+                }
+            }
+        } while (accepted > 0 && !dailyLimitTracker.tryReserve(account, accepted, reservedWithdrawalPaise));
+
+        // Each withdrawal holds its own notes, as withdrawMoney does; drop those the cassettes cannot make up
+        CashInventory.Reservation[] notes = new CashInventory.Reservation[accepted];
+        if (cashInventory != null) {
+            int kept = 0;
+            int refused = 0;
+            long refusedWithdrawalPaise = 0L;
+            for (int k = 0; k < accepted; k++) {
+                CashInventory.Reservation reservation = null;
+                if (types[k] == TransactionHistory.TYPE_WITHDRAWAL) {
+                    reservation = amounts[k] % MoneyUtil.PAISE_PER_RUPEE == 0
+                                  ? cashInventory.reserve(amounts[k] / MoneyUtil.PAISE_PER_RUPEE) : null;
+                    if (reservation == null) {
+                        results[itemIndex[k]] = BatchResult.CASH_UNAVAILABLE;
+                        refused++;
+                        refusedWithdrawalPaise += amounts[k];
+                        continue;
+                    }
+                }
+                types[kept] = types[k];
+                amounts[kept] = amounts[k];
+                itemIndex[kept] = itemIndex[k];
+                notes[kept] = reservation;
+                kept++;
+            }
+            if (refused > 0) {
+                dailyLimitTracker.release(account, refused, refusedWithdrawalPaise);
+                reservedWithdrawalPaise -= refusedWithdrawalPaise;
+            }
+            accepted = kept;
+        }
+
+        if (accepted > 0) {
+            boolean[] applied = new boolean[accepted];
+            try {
+                account.postBatch(types, amounts, applied, accepted);
+            } catch (IllegalStateException | UncheckedIOException e) {
+                // The account took the whole batch back
+                ATMLogger.error("Batch failed for account " + account.getMaskedAccountNumber() + ": " + e);
+                for (int k = 0; k < accepted; k++) {
+                    results[itemIndex[k]] = BatchResult.JOURNAL_FAILED;
+                    if (notes[k] != null) {
+                        notes[k].rollback();
+                    }
+                }
+                dailyLimitTracker.release(account, accepted, reservedWithdrawalPaise);
+                return java.util.Arrays.asList(results);
+            }
+            int unused = 0;
+            long unusedWithdrawalPaise = 0L;
+            for (int k = 0; k < accepted; k++) {
+                if (applied[k]) {
+                    results[itemIndex[k]] = BatchResult.APPLIED;
+                    if (notes[k] != null) {
+                        notes[k].commit();
+                    }
+                    recordActivity();
+                } else if (types[k] == TransactionHistory.TYPE_WITHDRAWAL) {
+                    if (notes[k] != null) {
+                        notes[k].rollback();
+                    }
+                    results[itemIndex[k]] = BatchResult.INSUFFICIENT_BALANCE;
+                    unused++;
+                    unusedWithdrawalPaise += amounts[k];
+                } else {
+                    results[itemIndex[k]] = BatchResult.INVALID_AMOUNT; // Would overflow the balance
+                    unused++;
+                }
+            }
+            if (unused > 0) {
+                dailyLimitTracker.release(account, unused, unusedWithdrawalPaise);
+            }
+        }
+        return java.util.Arrays.asList(results);
+    }
+
     /**
      * Returns account holder name
      * @return Account holder name
@@ -156,15 +541,79 @@ public class ATMService {
 
     /**
      * Transfers money to another account
+     * Debits this account and credits the target as one unit
      * @param amount Amount to transfer
      * @param targetAccountNumber Target account number
      * @return true if transfer successful, false otherwise
      */
     public boolean transferMoney(double amount, String targetAccountNumber) {
-        if (amount <= 0) {
+        if (amount <= 0 || !MoneyUtil.isConvertible(amount) || unresolved != null) {
+            return false;
+        }
+        long amountPaise = MoneyUtil.toPaise(amount);
+        String reference = beginInFlight(TransactionType.TRANSFER, amountPaise);
+        HostReply reply = callHost(TransactionType.TRANSFER, amountPaise, targetAccountNumber, reference);
+        if (reply != null && reply.isOutcomeUnknown()) {
+            holdForReconciliation(TransactionType.TRANSFER, amountPaise, 0, 0L, null);
             return false;
         }
-        return account.transfer(amount, targetAccountNumber);
+        boolean success = reply != null && reply.isApproved();
+        endInFlight();
+        if (success) {
+            recordActivity();
+        }
+        return success;
+    }
+
+    /**
+     * Transfers money at most once per idempotency key
+     * A retry with the same key returns the original result without transferring again
+     * @param amount Amount to transfer
+     * @param targetAccountNumber Target account number
+     * @param idempotencyKey Key identifying the request, unique per account
+     * @return true if transfer successful, false otherwise
+     * @throws IllegalArgumentException if idempotencyKey is null or was used for a different request
+     * @throws java.util.concurrent.RejectedExecutionException if the idempotency cache is full; nothing was transferred
+     */
+    public boolean transferMoney(double amount, String targetAccountNumber, String idempotencyKey) {
+        return runOnce(idempotencyKey, TransactionType.TRANSFER, amount, targetAccountNumber,
+                       () -> transferMoney(amount, targetAccountNumber));
+    }
+
+    /**
+     * Replaces the core-banking host that applies this session's requests
+     * @param bankHost Host, e.g. a RemoteBankHost shared by all sessions
+     * @throws IllegalArgumentException if bankHost is null
+     */
+    public void setBankHost(BankHost bankHost) {
+        if (bankHost == null) {
+            throw new IllegalArgumentException("Bank host cannot be null");
+        }
+        this.bankHost = bankHost;
+    }
+
+    /**
+     * Replaces the tracker that enforces the per-account daily limits
+     * @param dailyLimitTracker Tracker shared by all sessions of the account
+     * @throws IllegalArgumentException if dailyLimitTracker is null
+     */
+    public void setDailyLimitTracker(DailyLimitTracker dailyLimitTracker) {
+        if (dailyLimitTracker == null) {
+            throw new IllegalArgumentException("Daily limit tracker cannot be null");
+        }
+        this.dailyLimitTracker = dailyLimitTracker;
+    }
+
+    /**
+     * Replaces the cache used to deduplicate retried requests
+     * @param idempotencyCache Cache shared by the sessions that may see the same retries
+     * @throws IllegalArgumentException if idempotencyCache is null
+     */
+    public void setIdempotencyCache(IdempotencyCache idempotencyCache) {
+        if (idempotencyCache == null) {
+            throw new IllegalArgumentException("Idempotency cache cannot be null");
+        }
+        this.idempotencyCache = idempotencyCache;
     }
 
     /**
@@ -183,10 +632,95 @@ public class ATMService {
      * @return Calculated fee amount
      */
     public double calculateTransactionFee(double amount, String transactionType) {
-        if (transactionType.equals("TRANSFER") && amount > 10000) {
-            return amount * 0.01; // 1% fee for large transfers
+        TransactionType type;
+        try {
+            type = TransactionType.valueOf(transactionType);
+        } catch (IllegalArgumentException e) {
+            return 0.0; // No fee for unknown transactions
         }
-        return 0.0; // No fee for other transactions
+        return calculateTransactionFee(type, amount);
+    }
+
+    /**
+     * Calculates the fee the next transaction of a type would be charged
+     * Uses this session's account type and the account's posting counts this
+     * month for free quotas
+     * @param type Transaction type
+     * @param amount Transaction amount
+     * @return Calculated fee amount
+     */
+    public double calculateTransactionFee(TransactionType type, double amount) {
+        return MoneyUtil.toRupees(feeEngine.feePaise(type, accountType, MoneyUtil.toPaise(amount),
+                                                     countThisMonth(type)));
+    }
+
+    /**
+     * Counts the account's postings of a transaction type in the current month
+     * from its packed monthly counts
+     * @param type Transaction type
+     * @return Posting count; 0 for types that are not posted
+     */
+    private int countThisMonth(TransactionType type) {
+        byte postingType;
+        switch (type) {
+            case DEPOSIT: postingType = TransactionHistory.TYPE_DEPOSIT; break;
+            case WITHDRAWAL: postingType = TransactionHistory.TYPE_WITHDRAWAL; break;
+            case TRANSFER: postingType = TransactionHistory.TYPE_TRANSFER_OUT; break;
+            default: return 0;
+        }
+        return account.countPostingsThisMonth(postingType);
+    }
+
+    /**
+     * Attaches the terminal's cash cassettes
+     * Withdrawals then reserve their notes before the debit and fail when the
+     * stock cannot make up the amount
+     * @param cashInventory Cassettes to dispense from, or null for unlimited cash
+     */
+    public void setCashInventory(CashInventory cashInventory) {
+        this.cashInventory = cashInventory;
+    }
+
+    /**
+     * Replaces the fee engine used by calculateTransactionFee
+     * @param feeEngine Compiled fee schedule
+     * @throws IllegalArgumentException if feeEngine is null
+     */
+    public void setFeeEngine(FeeEngine feeEngine) {
+        if (feeEngine == null) {
+            throw new IllegalArgumentException("Fee engine cannot be null");
+        }
+        this.feeEngine = feeEngine;
+    }
+
+    /**
+     * Records this session's state in a crash-resumable store
+     * PIN attempts are recorded, and each deposit, withdrawal and transfer
+     * is recorded before it is sent to the host and again once it finishes
+     * @param sessionStore Store the session was started in, or null to stop recording
+     * @param sessionId Session ID
+     */
+    public void setSessionStore(SessionStateStore sessionStore, String sessionId) {
+        this.sessionStore = sessionStore;
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * Continues a session recovered after a restart
+     * @param sessionStore Store the session was recovered from
+     * @param state Recovered session state
+     * @throws IllegalArgumentException if the state belongs to another account
+     */
+    public void resumeSession(SessionStateStore sessionStore, SessionStateStore.SessionState state) {
+        if (state == null || !account.getAccountNumber().equals(state.getAccountNumber())) {
+            throw new IllegalArgumentException("Recovered session belongs to another account");
+        }
+        setSessionStore(sessionStore, state.getSessionId());
+        account.restoreFailedPinAttempts(state.getFailedAttempts());
+        this.sessionStartTime = java.time.LocalDateTime.ofInstant(
+            java.time.Instant.ofEpochMilli(state.getSessionStartTime()), java.time.ZoneId.systemDefault());
+        this.lastActivityTime = java.time.LocalDateTime.ofInstant(
+            java.time.Instant.ofEpochMilli(state.getLastActivityTime()), java.time.ZoneId.systemDefault());
     }
 
     /**
@@ -245,7 +779,13 @@ public class ATMService {
      * @return true if PIN change successful, false otherwise
      */
     public boolean changePin(String oldPin, String newPin) {
-        return account.changePin(oldPin, newPin);
+        try {
+            return account.changePin(oldPin, newPin);
+        } catch (IllegalStateException | UncheckedIOException e) {
+            // The account kept the old PIN
+            ATMLogger.error("PIN change failed for account " + account.getMaskedAccountNumber() + ": " + e);
+            return false;
+        }
     }
 
     /**
@@ -316,7 +856,7 @@ public class ATMService {
      * @return Account type (SAVINGS or CURRENT)
      */
     public String getAccountType() {
-        return accountType;
+        return accountType.name();
     }
 
     /**
@@ -324,8 +864,10 @@ public class ATMService {
      * @param accountType Account type (SAVINGS or CURRENT)
      */
     public void setAccountType(String accountType) {
-        if (accountType.equals("SAVINGS") || accountType.equals("CURRENT")) {
-            this.accountType = accountType;
+        for (AccountType type : AccountType.values()) {
+            if (type.name().equals(accountType)) {
+                this.accountType = type;
+            }
         }
     }
 
@@ -335,12 +877,10 @@ public class ATMService {
      */
     public double calculateInterest() {
         double balance = checkBalance();
-        if (accountType.equals("SAVINGS")) {
+        if (accountType == AccountType.SAVINGS) {
             return balance * 0.04; // 4% annual interest for savings
-        } else if (accountType.equals("CURRENT")) {
-            return 0.0; // No interest for current account
         }
-        return 0.0;
+        return 0.0; // No interest for current account
     }
 
     /**
@@ -414,11 +954,24 @@ public class ATMService {
 
     /**
      * Calculates cash denomination for withdrawal
+     * With cassettes attached the plan uses the fewest notes the remaining
+     * stock allows, and is empty if the stock cannot make up the amount.
+     * Valid withdrawal amounts are looked up in a precomputed plan table;
+     * the caller always gets its own copy
      * @param amount Amount to withdraw
-     * @return Map of denomination to count
+     * @return Map of denomination to count, largest note first
      */
     public java.util.Map<Integer, Integer> calculateDenomination(double amount) {
+        java.util.Map<Integer, Integer> plan = cashInventory != null
+                                               ? cashInventory.plan((long) amount)
+                                               : DenominationPlanTable.standard().plan((long) amount);
+        if (plan != null) {
+            return new java.util.LinkedHashMap<>(plan);
+        }
         java.util.Map<Integer, Integer> denominations = new java.util.LinkedHashMap<>();
+        if (cashInventory != null) {
+            return denominations;
+        }
         int[] notes = {2000, 500, 200, 100, 50, 20, 10};
         int remainingAmount = (int) amount;
         
@@ -438,12 +991,9 @@ public class ATMService {
      * @return Formatted denomination string
      */
     public String getDenominationBreakdown(double amount) {
-        java.util.Map<Integer, Integer> denominations = calculateDenomination(amount);
-        StringBuilder breakdown = new StringBuilder("Denomination Breakdown:\n");
-        for (java.util.Map.Entry<Integer, Integer> entry : denominations.entrySet()) {
-            breakdown.append("₹").append(entry.getKey()).append(" x ").append(entry.getValue()).append("\n");
-        }
-        return breakdown.toString();
+        String breakdown = cashInventory != null ? cashInventory.breakdown((long) amount)
+                                                 : DenominationPlanTable.standard().breakdown((long) amount);
+        return breakdown != null ? breakdown : DenominationPlanTable.render(calculateDenomination(amount));
     }
 
     /**
@@ -528,7 +1078,7 @@ public class ATMService {
      * @return Number of transactions performed today
      */
     public int getDailyTransactionCount() {
-        return dailyTransactionCount;
+        return dailyLimitTracker.getTransactionCount(account);
     }
     
     /**
@@ -536,6 +1086,26 @@ public class ATMService {
      * @return Remaining amount that can be withdrawn today
      */
     public double getRemainingDailyWithdrawalLimit() {
-        return DAILY_WITHDRAWAL_LIMIT - dailyWithdrawnAmount;
+        return MoneyUtil.toRupees(dailyLimitTracker.getRemainingWithdrawalPaise(account));
+    }
+
+    /**
+     * Transaction sent to the host whose answer never arrived
+     */
+    private static final class UnresolvedTransaction {
+        final TransactionType type;
+        final long amountPaise;
+        final int transactions;
+        final long withdrawalPaise;
+        final CashInventory.Reservation notes;
+
+        UnresolvedTransaction(TransactionType type, long amountPaise, int transactions, long withdrawalPaise,
+                              CashInventory.Reservation notes) {
+            this.type = type;
+            this.amountPaise = amountPaise;
+            this.transactions = transactions;
+            this.withdrawalPaise = withdrawalPaise;
+            this.notes = notes;
+        }
     }
 }
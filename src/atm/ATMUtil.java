@@ -92,23 +92,6 @@ public class ATMUtil {
         }
     }
     
-    /**
-     * Validates if string is numeric
-     * @param str String to validate
-     * @return true if numeric, false otherwise
-     */
-    public static boolean isNumeric(String str) {
-        if (str == null || str.isEmpty()) {
-            return false;
-        }
-        try {
-            Double.parseDouble(str);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
-    
     /**
      * Capitalizes first letter of each word
      * @param text Text to capitalize
@@ -138,9 +121,7 @@ public class ATMUtil {
      * @return Random transaction ID
      */
     public static String generateTransactionId() {
-        long timestamp = System.currentTimeMillis();
-        int random = (int) (Math.random() * 9000) + 1000;
-        return "TXN" + timestamp + random;
+        return IdGenerator.nextId("TXN");
     }
     
     /**
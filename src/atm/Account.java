@@ -1,28 +1,63 @@
 package atm;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.List;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.LongUnaryOperator;
 
 /**
  * Account class represents a bank account with account holder details and balance
+ * The balance is held as a long count of paise and updated with compare-and-set,
+ * so concurrent terminals working on the same account never lose updates.
+ * When a journal is attached, each mutation and its journal append happen under
+ * the account's monitor, so the journal order per account matches the order in
+ * which the balance changed and snapshots can tell which records they contain.
+ * Credits that would overflow the balance are refused like uncovered debits.
+ * Failed PIN attempts are counted on the account, so every session and
+ * connection shares one lockout
  * @author ATM Machine Simulation
- * @version 1.0
+ * @version 1.4
  */
 public class Account {
+    private static final AtomicLongFieldUpdater<Account> BALANCE_UPDATER =
+        AtomicLongFieldUpdater.newUpdater(Account.class, "balancePaise");
+    private static final AtomicLongFieldUpdater<Account> DAILY_USAGE_UPDATER =
+        AtomicLongFieldUpdater.newUpdater(Account.class, "dailyUsage");
+    private static final AtomicLongFieldUpdater<Account> MONTHLY_USAGE_UPDATER =
+        AtomicLongFieldUpdater.newUpdater(Account.class, "monthlyUsage");
+    private static final AtomicReferenceFieldUpdater<Account, AtomicLongArray> VELOCITY_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(Account.class, AtomicLongArray.class, "velocityWindow");
+    private static final AtomicIntegerFieldUpdater<Account> PIN_ATTEMPTS_UPDATER =
+        AtomicIntegerFieldUpdater.newUpdater(Account.class, "failedPinAttempts");
+    private static final long REFUSED = Long.MIN_VALUE;
+    /** Returned by accrueInterest when this day or a later one was already credited */
+    static final long ALREADY_ACCRUED = -1L;
+
     private String accountNumber;
     private String accountHolderName;
-    private double balance;
-    private String pin;
-    private List<String> transactionHistory;
+    private volatile long balancePaise;
+    private volatile String pinHash;
+    private TransactionHistory transactionHistory;
+    private volatile TransactionJournal journal;
+    private long journalSequence; // guarded by this
+    private long interestAccruedEpochDay = Long.MIN_VALUE; // guarded by this
+    private volatile long dailyUsage; // packed by DailyLimitTracker
+    private volatile long monthlyUsage; // packed by MonthlyUsage
+    private volatile AtomicLongArray velocityWindow; // owned by VelocityTracker
+    private volatile int failedPinAttempts;
 
     /**
      * Constructor to initialize account with default values
      * @param accountNumber The account number
      * @param accountHolderName Name of the account holder
      * @param balance Initial balance
-     * @param pin 4-digit PIN for authentication
+     * @param pin 4-digit PIN for authentication; only its salted hash is kept
      * @throws IllegalArgumentException if any parameter is invalid
      */
     public Account(String accountNumber, String accountHolderName, double balance, String pin) {
@@ -41,9 +76,62 @@ public class Account {
         
         this.accountNumber = accountNumber;
         this.accountHolderName = accountHolderName;
-        this.balance = balance;
-        this.pin = pin;
-        this.transactionHistory = new ArrayList<>();
+        this.balancePaise = MoneyUtil.toPaise(balance);
+        this.pinHash = PinHasher.hash(pin);
+        this.transactionHistory = new TransactionHistory(ATMConstants.MAX_TRANSACTION_HISTORY);
+    }
+
+    /**
+     * Creates an account around an already stored credential
+     */
+    private Account(String accountNumber, String accountHolderName, long balancePaise, String pinHash) {
+        this.accountNumber = accountNumber;
+        this.accountHolderName = accountHolderName;
+        this.balancePaise = balancePaise;
+        this.pinHash = pinHash;
+        this.transactionHistory = new TransactionHistory(ATMConstants.MAX_TRANSACTION_HISTORY);
+    }
+
+    /**
+     * Recreates an account loaded from a snapshot without hashing its PIN again
+     * @param accountNumber The account number
+     * @param accountHolderName Name of the account holder
+     * @param balancePaise Balance in paise
+     * @param pinHash Persisted PIN credential
+     * @param journalSequence Newest journal record contained in the snapshot
+     * @param interestAccruedEpochDay Latest business day credited with interest, or Long.MIN_VALUE
+     * @return Account with an empty history
+     * @throws IllegalArgumentException if the account number, holder name or credential is missing
+     */
+    static Account restored(String accountNumber, String accountHolderName, long balancePaise,
+                            String pinHash, long journalSequence, long interestAccruedEpochDay) {
+        if (accountNumber == null || accountNumber.isEmpty() || accountHolderName == null
+            || accountHolderName.isEmpty() || pinHash == null) {
+            throw new IllegalArgumentException("Restored account is missing its number, holder or PIN");
+        }
+        Account account = new Account(accountNumber, accountHolderName, balancePaise, credential(pinHash));
+        account.journalSequence = journalSequence;
+        account.interestAccruedEpochDay = interestAccruedEpochDay;
+        return account;
+    }
+
+    /**
+     * Recreates an account from the journal record written when it was opened
+     * @param accountNumber The account number
+     * @param balancePaise Opening balance in paise
+     * @param detail Credential and Base64 holder name, as written by openInJournal
+     * @param sequence Sequence number of the opening record
+     * @return Account with an empty history
+     * @throws IllegalArgumentException if the record is malformed
+     */
+    static Account opened(String accountNumber, long balancePaise, String detail, long sequence) {
+        int separator = detail == null ? -1 : detail.indexOf(' ');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed account opening record");
+        }
+        String holder = new String(Base64.getDecoder().decode(detail.substring(separator + 1)), StandardCharsets.UTF_8);
+        return restored(accountNumber, holder, balancePaise, detail.substring(0, separator), sequence,
+                        Long.MIN_VALUE);
     }
 
     // Getter methods
@@ -56,16 +144,28 @@ public class Account {
     }
 
     public double getBalance() {
-        return balance;
+        return MoneyUtil.toRupees(balancePaise);
+    }
+
+    /**
+     * Gets the exact balance
+     * @return Balance in paise
+     */
+    public long getBalancePaise() {
+        return balancePaise;
     }
 
-    public String getPin() {
-        return pin;
+    /**
+     * Gets the stored PIN credential
+     * @return Salted PIN hash, never the PIN itself
+     */
+    public String getPinHash() {
+        return pinHash;
     }
 
     // Setter methods
     public void setBalance(double balance) {
-        this.balance = balance;
+        this.balancePaise = MoneyUtil.toPaise(balance);
     }
 
     /**
@@ -84,27 +184,133 @@ public class Account {
         if (newPin.equals(oldPin)) {
             return false; // New PIN cannot be same as old PIN
         }
-        this.pin = newPin;
-        addTransaction("PIN CHANGE", 0.0, this.balance);
+        String newHash = PinHasher.hash(newPin);
+        TransactionJournal current = journal;
+        String oldHash;
+        long sequence = 0L;
+        synchronized (this) {
+            oldHash = pinHash;
+            this.pinHash = newHash;
+            long now = System.currentTimeMillis();
+            if (current != null) {
+                try {
+                    sequence = current.append(TransactionHistory.TYPE_PIN_CHANGE, accountNumber, 0L, balancePaise,
+                                              now, newHash);
+                } catch (RuntimeException e) {
+                    this.pinHash = oldHash; // Nothing was recorded
+                    throw e;
+                }
+                journalSequence = sequence;
+            }
+            transactionHistory.record(TransactionHistory.TYPE_PIN_CHANGE, 0L, balancePaise, now, null);
+        }
+        if (current != null) {
+            try {
+                current.awaitDurableUninterruptibly(sequence);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    if (newHash.equals(pinHash)) {
+                        this.pinHash = oldHash; // Replay would not know the new PIN either
+                    }
+                }
+                throw e;
+            }
+        }
         return true;
     }
 
     /**
-     * Validates the entered PIN
+     * Validates the entered PIN against the stored hash
+     * Costs one key stretch at the work factor the hash was made with
      * @param inputPin PIN entered by user
      * @return true if PIN matches, false otherwise
      */
     public boolean validatePin(String inputPin) {
-        return this.pin.equals(inputPin);
+        return PinHasher.verify(inputPin, pinHash);
+    }
+
+    /**
+     * Checks a PIN entered at a terminal, counting the attempt against the account
+     * The attempt is claimed before the PIN is checked, so concurrent sessions
+     * together get at most MAX_PIN_ATTEMPTS guesses; a correct PIN clears the count
+     * @param inputPin PIN entered by user
+     * @return true if PIN matches, false if it does not or the account is locked
+     */
+    public boolean authenticatePin(String inputPin) {
+        int attempts;
+        do {
+            attempts = failedPinAttempts;
+            if (attempts >= ATMConstants.MAX_PIN_ATTEMPTS) {
+                return false;
+            }
+        } while (!PIN_ATTEMPTS_UPDATER.compareAndSet(this, attempts, attempts + 1));
+        if (!validatePin(inputPin)) {
+            return false;
+        }
+        failedPinAttempts = 0;
+        return true;
+    }
+
+    /**
+     * Gets the number of failed PIN attempts since the last correct PIN
+     * @return Failed PIN attempts
+     */
+    public int getFailedPinAttempts() {
+        return failedPinAttempts;
+    }
+
+    /**
+     * Checks if too many wrong PINs locked the account
+     * @return true if the account is locked
+     */
+    public boolean isPinLocked() {
+        return failedPinAttempts >= ATMConstants.MAX_PIN_ATTEMPTS;
+    }
+
+    /**
+     * Restores the failed PIN attempts recorded by a recovered session
+     * Never lowers the current count
+     * @param attempts Recorded failed attempts
+     */
+    void restoreFailedPinAttempts(int attempts) {
+        PIN_ATTEMPTS_UPDATER.accumulateAndGet(this, attempts, Math::max);
+    }
+
+    /**
+     * Clears the failed PIN attempts, unlocking the account
+     */
+    public void resetFailedPinAttempts() {
+        failedPinAttempts = 0;
     }
 
     /**
      * Deposits amount to the account
      * @param amount Amount to deposit
+     * @throws IllegalArgumentException if the amount is out of range or would overflow the balance
      */
     public void deposit(double amount) {
-        this.balance += amount;
-        addTransaction("DEPOSIT", amount, this.balance);
+        if (!depositPaise(MoneyUtil.toPaise(amount))) {
+            throw new IllegalArgumentException("Deposit would overflow the balance");
+        }
+    }
+
+    /**
+     * Deposits an exact amount to the account
+     * @param amountPaise Amount to deposit in paise
+     * @return true if deposited, false if the balance would overflow
+     */
+    public boolean depositPaise(long amountPaise) {
+        return depositPaise(amountPaise, null);
+    }
+
+    /**
+     * Deposits an exact amount, keeping the reference of the request with the posting
+     * @param amountPaise Amount to deposit in paise
+     * @param reference Request reference, or null
+     * @return true if deposited, false if the balance would overflow
+     */
+    boolean depositPaise(long amountPaise, String reference) {
+        return post(TransactionHistory.TYPE_DEPOSIT, amountPaise, false, null, reference);
     }
 
     /**
@@ -113,12 +319,389 @@ public class Account {
      * @return true if withdrawal successful, false if insufficient balance
      */
     public boolean withdraw(double amount) {
-        if (amount <= this.balance) {
-            this.balance -= amount;
-            addTransaction("WITHDRAWAL", amount, this.balance);
-            return true;
+        return withdrawPaise(MoneyUtil.toPaise(amount));
+    }
+
+    /**
+     * Withdraws an exact amount from the account
+     * @param amountPaise Amount to withdraw in paise
+     * @return true if withdrawal successful, false if insufficient balance
+     */
+    public boolean withdrawPaise(long amountPaise) {
+        return withdrawPaise(amountPaise, null);
+    }
+
+    /**
+     * Withdraws an exact amount, keeping the reference of the request with the posting
+     * @param amountPaise Amount to withdraw in paise
+     * @param reference Request reference, or null
+     * @return true if withdrawal successful, false if insufficient balance
+     */
+    boolean withdrawPaise(long amountPaise, String reference) {
+        return post(TransactionHistory.TYPE_WITHDRAWAL, amountPaise, true, null, reference);
+    }
+
+    /**
+     * Applies a posting to the balance, records it and journals it if a journal is attached
+     * @param type Posting type code from TransactionHistory
+     * @param amountPaise Amount in paise
+     * @param isDebit true to debit (refused if balance is insufficient), false to credit
+     * @param counterparty Other account of a transfer, or null
+     * @param reference Reference of the request making the posting, or null
+     * @return true if posted, false if balance is insufficient for a debit or would overflow on a credit
+     */
+    private boolean post(byte type, long amountPaise, boolean isDebit, String counterparty, String reference) {
+        TransactionJournal current = journal;
+        long sequence = apply(current, type, amountPaise, isDebit, counterparty, reference);
+        if (sequence == REFUSED) {
+            return false;
+        }
+        if (current != null) {
+            // Wait outside the monitor so other postings can join the same group commit
+            try {
+                current.awaitDurableUninterruptibly(sequence);
+            } catch (RuntimeException e) {
+                revert(type, amountPaise, counterparty);
+                throw e;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Posts a deposit or withdrawal without waiting for its journal record to
+     * become durable; the caller must call awaitDurable() on the same journal
+     * before reporting success
+     * @param current Journal to write to, normally getJournal(); null for none
+     * @param type TYPE_DEPOSIT or TYPE_WITHDRAWAL
+     * @param amountPaise Amount in paise
+     * @return Journal sequence of the posting (0 without a journal), or
+     *         Long.MIN_VALUE if the balance does not cover a withdrawal or
+     *         would overflow on a deposit
+     */
+    long postDeferred(TransactionJournal current, byte type, long amountPaise) {
+        return apply(current, type, amountPaise, type == TransactionHistory.TYPE_WITHDRAWAL, null, null);
+    }
+
+    /**
+     * Takes back a deposit or withdrawal made with postDeferred whose journal
+     * record never became durable
+     * @param type TYPE_DEPOSIT or TYPE_WITHDRAWAL, as posted
+     * @param amountPaise Amount in paise, as posted
+     */
+    void revertDeferred(byte type, long amountPaise) {
+        revert(type, amountPaise, null);
+    }
+
+    /**
+     * Takes back a posting whose journal record never became durable. The
+     * journal has failed by then, so the reversal is not journaled; it is
+     * kept in the history as the opposite posting so the recorded balances
+     * stay consistent
+     * @param type Posting type code, as posted
+     * @param amountPaise Amount in paise, as posted
+     * @param counterparty Other account of a transfer, or null
+     */
+    private synchronized void revert(byte type, long amountPaise, String counterparty) {
+        byte reversal;
+        switch (type) {
+            case TransactionHistory.TYPE_WITHDRAWAL:
+                reversal = TransactionHistory.TYPE_DEPOSIT;
+                break;
+            case TransactionHistory.TYPE_TRANSFER_OUT:
+                reversal = TransactionHistory.TYPE_TRANSFER_IN;
+                break;
+            case TransactionHistory.TYPE_TRANSFER_IN:
+                reversal = TransactionHistory.TYPE_TRANSFER_OUT;
+                break;
+            default:
+                reversal = TransactionHistory.TYPE_WITHDRAWAL;
+                break;
+        }
+        boolean wasDebit = type == TransactionHistory.TYPE_WITHDRAWAL || type == TransactionHistory.TYPE_TRANSFER_OUT;
+        long balanceAfter = BALANCE_UPDATER.addAndGet(this, wasDebit ? amountPaise : -amountPaise);
+        long now = System.currentTimeMillis();
+        transactionHistory.record(reversal, amountPaise, balanceAfter, now, counterparty);
+        countPostings(type, now, -1);
+    }
+
+    /**
+     * Credits one business day of interest unless the account already has it
+     * The check against the latest credited day, the balance integral and the
+     * credit happen under the account's monitor, so concurrent runs for the
+     * same day credit once. The day travels in the journal record as its
+     * detail, so replay restores it. The credit is not waited for; the caller
+     * must call awaitDurable() on the same journal before reporting the
+     * accrual complete
+     * @param current Journal to write to, normally getJournal(); null for none
+     * @param businessDate Business day to accrue
+     * @param fromSecond Start of the day in epoch seconds, inclusive
+     * @param toSecond End of the day in epoch seconds, exclusive
+     * @param interestOn Turns the balance integral in paise-seconds into interest in paise
+     * @return Interest credited in paise; 0 if none was due; ALREADY_ACCRUED
+     *         if this day or a later one was already credited; Long.MIN_VALUE
+     *         if the balance would overflow
+     * @throws IllegalStateException if postings made during the day are no longer kept
+     */
+    synchronized long accrueInterest(TransactionJournal current, LocalDate businessDate, long fromSecond,
+                                     long toSecond, LongUnaryOperator interestOn) {
+        long epochDay = businessDate.toEpochDay();
+        if (epochDay <= interestAccruedEpochDay) {
+            return ALREADY_ACCRUED;
+        }
+        if (!transactionHistory.coversSince(fromSecond)) {
+            throw new IllegalStateException("History no longer covers " + businessDate + "; more than "
+                                            + transactionHistory.getCapacity() + " postings since");
+        }
+        long interest = interestOn.applyAsLong(transactionHistory.balanceSeconds(balancePaise, fromSecond, toSecond));
+        if (interest <= 0) {
+            return 0L;
+        }
+        if (apply(current, TransactionHistory.TYPE_INTEREST, interest, false, businessDate.toString(), null)
+            == REFUSED) {
+            return REFUSED;
+        }
+        interestAccruedEpochDay = epochDay;
+        return interest;
+    }
+
+    /**
+     * Takes back an interest credit whose journal record never became durable
+     * and moves the latest credited day back, unless a later day was credited since
+     * @param businessDate Day the credit was for
+     * @param interest Interest credited in paise
+     * @param previousEpochDay Latest credited day before the credit
+     */
+    synchronized void revertInterest(LocalDate businessDate, long interest, long previousEpochDay) {
+        revert(TransactionHistory.TYPE_INTEREST, interest, businessDate.toString());
+        if (interestAccruedEpochDay == businessDate.toEpochDay()) {
+            interestAccruedEpochDay = previousEpochDay;
+        }
+    }
+
+    /**
+     * Gets the latest business day this account was credited interest for
+     * Callers reading it together with other state must hold the account's monitor
+     * @return Day as LocalDate.toEpochDay(), or Long.MIN_VALUE if never
+     */
+    synchronized long getInterestAccruedEpochDay() {
+        return interestAccruedEpochDay;
+    }
+
+    /**
+     * Counts this month's postings of a type, for fee quotas
+     * Reads the packed monthly counts, so it neither scans the history nor
+     * misses postings the history has dropped
+     * @param type TYPE_DEPOSIT, TYPE_WITHDRAWAL or TYPE_TRANSFER_OUT
+     * @return Number of such postings; 0 for other types
+     */
+    int countPostingsThisMonth(byte type) {
+        return MonthlyUsage.count(monthlyUsage, type, System.currentTimeMillis());
+    }
+
+    /**
+     * Adds postings to the packed monthly counts
+     * @param type Posting type code from TransactionHistory; uncounted types are ignored
+     * @param epochMillis Time of the postings
+     * @param delta Number of postings; negative to take them back
+     */
+    private void countPostings(byte type, long epochMillis, int delta) {
+        while (true) {
+            long usage = monthlyUsage;
+            long updated = MonthlyUsage.add(usage, type, epochMillis, delta);
+            if (updated == usage || MONTHLY_USAGE_UPDATER.compareAndSet(this, usage, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the packed monthly posting counts, for snapshotting
+     * @return Packed usage
+     */
+    long getMonthlyUsage() {
+        return monthlyUsage;
+    }
+
+    /**
+     * Restores the packed monthly posting counts from a snapshot
+     * @param usage Packed usage, as returned by getMonthlyUsage
+     */
+    void restoreMonthlyUsage(long usage) {
+        monthlyUsage = usage;
+    }
+
+    /**
+     * Rebuilds the monthly posting counts from the kept history, for
+     * snapshots written before the counts were stored with the account
+     */
+    void restoreMonthlyUsageFromHistory() {
+        long now = System.currentTimeMillis();
+        long monthStart = MonthlyUsage.monthStartMillis(now);
+        long usage = 0L;
+        for (byte type : new byte[] {TransactionHistory.TYPE_DEPOSIT, TransactionHistory.TYPE_WITHDRAWAL,
+                                     TransactionHistory.TYPE_TRANSFER_OUT}) {
+            usage = MonthlyUsage.add(usage, type, now, transactionHistory.countPostingsSince(type, monthStart));
+        }
+        monthlyUsage = usage;
+    }
+
+    /**
+     * Applies a posting to the balance, records it and appends it to the journal
+     * @param current Journal to append to, or null
+     * @param type Posting type code from TransactionHistory
+     * @param amountPaise Amount in paise
+     * @param isDebit true to debit (refused if balance is insufficient), false to credit
+     *                (refused if the balance would overflow)
+     * @param counterparty Other account of a transfer, or detail of an interest credit, or null
+     * @param reference Reference of the request making the posting, or null
+     * @return Journal sequence (0 without a journal), or REFUSED
+     */
+    private long apply(TransactionJournal current, byte type, long amountPaise, boolean isDebit,
+                       String counterparty, String reference) {
+        if (current == null) {
+            long balanceAfter = isDebit ? debit(amountPaise) : credit(amountPaise);
+            if (balanceAfter == REFUSED) {
+                return REFUSED;
+            }
+            long now = System.currentTimeMillis();
+            transactionHistory.record(type, amountPaise, balanceAfter, now, counterparty, reference);
+            countPostings(type, now, 1);
+            return 0L;
+        }
+
+        synchronized (this) {
+            long balanceAfter = isDebit ? debit(amountPaise) : credit(amountPaise);
+            if (balanceAfter == REFUSED) {
+                return REFUSED;
+            }
+            long now = System.currentTimeMillis();
+            long sequence;
+            try {
+                sequence = current.append(type, accountNumber, amountPaise, balanceAfter, now,
+                                          journalDetail(counterparty, reference));
+            } catch (RuntimeException e) {
+                // Nothing was recorded, so the balance must not keep the change
+                BALANCE_UPDATER.addAndGet(this, isDebit ? amountPaise : -amountPaise);
+                throw e;
+            }
+            journalSequence = sequence;
+            transactionHistory.record(type, amountPaise, balanceAfter, now, counterparty, reference);
+            countPostings(type, now, 1);
+            return sequence;
+        }
+    }
+
+    /**
+     * Applies a batch of deposits and withdrawals in order as one unit
+     * The whole batch is posted under the account's monitor and journaled
+     * with a single append, so it waits for one group commit instead of one
+     * per posting. Withdrawals the balance cannot cover at their turn, and
+     * deposits that would overflow it, are skipped and the rest of the batch
+     * still applies
+     * @param types Posting type codes (TYPE_DEPOSIT or TYPE_WITHDRAWAL)
+     * @param amountsPaise Amounts in paise
+     * @param applied Receives for each posting whether it was applied
+     * @param count Number of postings to apply from the arrays
+     * @return Number of postings applied
+     * @throws IllegalArgumentException if a type is unsupported or an amount is not positive
+     */
+    public int postBatch(byte[] types, long[] amountsPaise, boolean[] applied, int count) {
+        for (int i = 0; i < count; i++) {
+            if (types[i] != TransactionHistory.TYPE_DEPOSIT && types[i] != TransactionHistory.TYPE_WITHDRAWAL) {
+                throw new IllegalArgumentException("Batch supports only deposits and withdrawals");
+            }
+            if (amountsPaise[i] <= 0) {
+                throw new IllegalArgumentException("Batch amounts must be positive");
+            }
+        }
+        TransactionJournal current = journal;
+        byte[] postedTypes = new byte[count];
+        long[] postedAmounts = new long[count];
+        long[] balancesAfter = new long[count];
+        int posted = 0;
+        long sequence = 0L;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                boolean isDebit = types[i] == TransactionHistory.TYPE_WITHDRAWAL;
+                long balanceAfter = isDebit ? debit(amountsPaise[i]) : credit(amountsPaise[i]);
+                applied[i] = balanceAfter != REFUSED;
+                if (!applied[i]) {
+                    continue;
+                }
+                postedTypes[posted] = types[i];
+                postedAmounts[posted] = amountsPaise[i];
+                balancesAfter[posted] = balanceAfter;
+                posted++;
+                transactionHistory.record(types[i], amountsPaise[i], balanceAfter, now, null);
+                countPostings(types[i], now, 1);
+            }
+            if (current != null && posted > 0) {
+                try {
+                    sequence = current.appendBatch(accountNumber, postedTypes, postedAmounts, balancesAfter, now,
+                                                   posted);
+                } catch (RuntimeException e) {
+                    revertBatch(postedTypes, postedAmounts, posted);
+                    throw e;
+                }
+                journalSequence = sequence;
+            }
+        }
+        if (current != null && posted > 0) {
+            try {
+                current.awaitDurableUninterruptibly(sequence);
+            } catch (RuntimeException e) {
+                revertBatch(postedTypes, postedAmounts, posted);
+                throw e;
+            }
+        }
+        return posted;
+    }
+
+    /**
+     * Takes back the postings of a batch whose journal record never became durable, newest first
+     */
+    private synchronized void revertBatch(byte[] postedTypes, long[] postedAmounts, int posted) {
+        for (int i = posted - 1; i >= 0; i--) {
+            revert(postedTypes[i], postedAmounts[i], null);
+        }
+    }
+
+    /**
+     * Atomically debits the balance if it covers the amount
+     * @param amountPaise Amount to debit in paise
+     * @return Balance after the debit, or REFUSED
+     */
+    private long debit(long amountPaise) {
+        while (true) {
+            long current = balancePaise;
+            if (amountPaise > current) {
+                return REFUSED;
+            }
+            long updated = current - amountPaise;
+            if (BALANCE_UPDATER.compareAndSet(this, current, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    /**
+     * Atomically credits the balance if the result fits in a long
+     * @param amountPaise Amount to credit in paise
+     * @return Balance after the credit, or REFUSED
+     */
+    private long credit(long amountPaise) {
+        while (true) {
+            long current = balancePaise;
+            if (amountPaise > Long.MAX_VALUE - current) {
+                return REFUSED;
+            }
+            long updated = current + amountPaise;
+            if (BALANCE_UPDATER.compareAndSet(this, current, updated)) {
+                return updated;
+            }
         }
-        return false;
     }
 
     /**
@@ -130,25 +713,247 @@ public class Account {
     }
 
     /**
-     * Adds a transaction to history
-     * @param type Transaction type
-     * @param amount Transaction amount
-     * @param balanceAfter Balance after transaction
+     * Attaches a journal that records every balance and PIN change of this account
+     * Mutations block until their journal record is durable; one whose record
+     * cannot be written is undone in memory and the journal's exception is thrown
+     * @param journal Journal to write to, or null to stop journaling
+     */
+    public void setJournal(TransactionJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Journals the account's existence and then attaches the journal, so an
+     * account registered after recovery can be recreated by the next replay
+     * Blocks until the opening record is durable
+     * @param current Journal to write to
+     */
+    void openInJournal(TransactionJournal current) {
+        String holder = Base64.getEncoder().encodeToString(accountHolderName.getBytes(StandardCharsets.UTF_8));
+        long sequence;
+        synchronized (this) {
+            sequence = current.append(TransactionHistory.TYPE_OPEN, accountNumber, balancePaise, balancePaise,
+                                      System.currentTimeMillis(), pinHash + ' ' + holder);
+            journalSequence = sequence;
+            journal = current;
+        }
+        current.awaitDurable(sequence);
+    }
+
+    /**
+     * Gets the journal this account writes to
+     * @return Journal, or null if none is attached
+     */
+    TransactionJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Gets the packed daily limit usage maintained by DailyLimitTracker
+     * @return Packed usage
+     */
+    long getDailyUsage() {
+        return dailyUsage;
+    }
+
+    /**
+     * Atomically replaces the packed daily limit usage
+     * @param expected Usage the caller read
+     * @param updated New usage
+     * @return true if replaced, false if another update won
+     */
+    boolean compareAndSetDailyUsage(long expected, long updated) {
+        return DAILY_USAGE_UPDATER.compareAndSet(this, expected, updated);
+    }
+
+    /**
+     * Gets the sliding-window state maintained by VelocityTracker
+     * @return Window array, or null if the account has not transacted yet
+     */
+    AtomicLongArray getVelocityWindow() {
+        return velocityWindow;
+    }
+
+    /**
+     * Installs the sliding-window state if none exists yet
+     * @param expected Window the caller read
+     * @param window New window
+     * @return true if installed, false if another thread installed one first
+     */
+    boolean compareAndSetVelocityWindow(AtomicLongArray expected, AtomicLongArray window) {
+        return VELOCITY_UPDATER.compareAndSet(this, expected, window);
+    }
+
+    /**
+     * Gets the sequence number of the newest journal record applied to this account
+     * Callers reading it together with other state must hold the account's monitor
+     * @return Journal sequence number, or 0 if none
+     */
+    synchronized long getJournalSequence() {
+        return journalSequence;
+    }
+
+    /**
+     * Gets the history store, for snapshotting
+     * @return Transaction history
      */
-    private void addTransaction(String type, double amount, double balanceAfter) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        String timestamp = LocalDateTime.now().format(formatter);
-        String transaction = String.format("%s | ₹%.2f | Balance: ₹%.2f | %s", 
-                                         type, amount, balanceAfter, timestamp);
-        transactionHistory.add(transaction);
+    TransactionHistory getHistoryStore() {
+        return transactionHistory;
+    }
+
+    /**
+     * Turns a persisted credential into a hash; snapshots and journals written
+     * before PINs were hashed hold the plaintext PIN
+     * @param stored Persisted credential
+     * @return Salted PIN hash
+     */
+    private static String credential(String stored) {
+        return PinHasher.isHash(stored) ? stored : PinHasher.hash(stored);
+    }
+
+    /**
+     * Re-applies a journal record during recovery without journaling it again
+     * Records the account already contains are skipped
+     * @param sequence Record sequence number
+     * @param type Posting type code from TransactionHistory
+     * @param amountPaise Amount in paise
+     * @param epochMillis Time of the mutation
+     * @param detail Counterparty or credential, or null
+     * @return true if applied, false if already contained
+     */
+    synchronized boolean applyJournalEntry(long sequence, byte type, long amountPaise, long epochMillis, String detail) {
+        if (sequence <= journalSequence) {
+            return false;
+        }
+        String counterparty = null;
+        String reference = null;
+        switch (type) {
+            case TransactionHistory.TYPE_DEPOSIT:
+                BALANCE_UPDATER.addAndGet(this, amountPaise);
+                reference = detailReference(detail);
+                break;
+            case TransactionHistory.TYPE_TRANSFER_IN:
+                BALANCE_UPDATER.addAndGet(this, amountPaise);
+                counterparty = detailCounterparty(detail);
+                reference = detailReference(detail);
+                break;
+            case TransactionHistory.TYPE_WITHDRAWAL:
+                BALANCE_UPDATER.addAndGet(this, -amountPaise);
+                reference = detailReference(detail);
+                break;
+            case TransactionHistory.TYPE_TRANSFER_OUT:
+                BALANCE_UPDATER.addAndGet(this, -amountPaise);
+                counterparty = detailCounterparty(detail);
+                reference = detailReference(detail);
+                break;
+            case TransactionHistory.TYPE_INTEREST:
+                BALANCE_UPDATER.addAndGet(this, amountPaise);
+                counterparty = detail;
+                noteInterestAccrued(detail, sequence);
+                break;
+            case TransactionHistory.TYPE_PIN_CHANGE:
+                pinHash = credential(detail);
+                break;
+            default:
+                ATMLogger.warning("Unknown journal record type " + type + " at sequence " + sequence);
+                return false;
+        }
+        transactionHistory.record(type, amountPaise, balancePaise, epochMillis, counterparty, reference);
+        countPostings(type, epochMillis, 1);
+        journalSequence = sequence;
+        return true;
+    }
+
+    /**
+     * Builds the journal detail of a posting: the counterparty, then a space
+     * and the request reference if there is one
+     * @param counterparty Other account of a transfer, or null
+     * @param reference Request reference, or null
+     * @return Journal detail, or null if both are null
+     */
+    static String journalDetail(String counterparty, String reference) {
+        if (reference == null) {
+            return counterparty;
+        }
+        return (counterparty == null ? "" : counterparty) + ' ' + reference;
+    }
+
+    /**
+     * Gets the counterparty from the journal detail of a deposit, withdrawal or transfer
+     * @param detail Journal detail
+     * @return Counterparty, or null if none
+     */
+    static String detailCounterparty(String detail) {
+        int space = detail == null ? -1 : detail.indexOf(' ');
+        if (space < 0) {
+            return detail;
+        }
+        return space == 0 ? null : detail.substring(0, space);
+    }
+
+    /**
+     * Gets the request reference from the journal detail of a deposit, withdrawal or transfer
+     * @param detail Journal detail
+     * @return Request reference, or null if the posting has none
+     */
+    static String detailReference(String detail) {
+        int space = detail == null ? -1 : detail.indexOf(' ');
+        return space < 0 ? null : detail.substring(space + 1);
+    }
+
+    /**
+     * Checks whether a kept posting was made under a request reference
+     * @param reference Request reference
+     * @return true if such a posting is kept
+     */
+    boolean hasPostingReference(String reference) {
+        return transactionHistory.hasReference(reference);
+    }
+
+    /**
+     * Checks whether every posting made at or after a time is still kept
+     * @param sinceMillis Time of interest
+     * @return true if no posting made since then was dropped
+     */
+    boolean keepsPostingsSince(long sinceMillis) {
+        return transactionHistory.keepsSince(sinceMillis);
+    }
+
+    /**
+     * Takes the latest credited interest day from the kept history, for
+     * snapshots written before the day was stored with the account
+     */
+    synchronized void restoreInterestAccruedFromHistory() {
+        String businessDate = transactionHistory.newestDetail(TransactionHistory.TYPE_INTEREST);
+        if (businessDate != null) {
+            noteInterestAccrued(businessDate, journalSequence);
+        }
+    }
+
+    /**
+     * Advances the latest credited interest day from a replayed interest record
+     * @param businessDate Business date carried by the record
+     * @param sequence Record sequence number, for the warning
+     */
+    private void noteInterestAccrued(String businessDate, long sequence) {
+        try {
+            if (businessDate != null) {
+                interestAccruedEpochDay = Math.max(interestAccruedEpochDay, LocalDate.parse(businessDate).toEpochDay());
+                return;
+            }
+        } catch (DateTimeParseException e) {
+            // Fall through to the warning
+        }
+        ATMLogger.warning("Interest record without a business date at sequence " + sequence);
     }
 
     /**
      * Returns transaction history
+     * Only the most recent ATMConstants.MAX_TRANSACTION_HISTORY postings are kept
      * @return List of transaction strings
      */
     public List<String> getTransactionHistory() {
-        return new ArrayList<>(transactionHistory);
+        return transactionHistory.render(Integer.MAX_VALUE);
     }
 
     /**
@@ -157,9 +962,15 @@ public class Account {
      * @return List of last N transactions
      */
     public List<String> getLastTransactions(int count) {
-        int size = transactionHistory.size();
-        int fromIndex = Math.max(0, size - count);
-        return new ArrayList<>(transactionHistory.subList(fromIndex, size));
+        return transactionHistory.render(count);
+    }
+
+    /**
+     * Visits the kept postings as structured records, oldest first
+     * @param consumer Posting consumer
+     */
+    public void forEachPosting(TransactionHistory.PostingConsumer consumer) {
+        transactionHistory.forEach(consumer);
     }
 
     /**
@@ -169,33 +980,108 @@ public class Account {
      * @return true if transfer successful, false otherwise
      */
     public boolean transfer(double amount, String targetAccountNumber) {
-        if (amount <= this.balance) {
-            this.balance -= amount;
-            addTransaction("TRANSFER OUT to " + maskAccountNumber(targetAccountNumber), amount, this.balance);
-            return true;
+        return transferPaise(MoneyUtil.toPaise(amount), targetAccountNumber);
+    }
+
+    /**
+     * Transfers an exact amount to another account
+     * @param amountPaise Amount to transfer in paise
+     * @param targetAccountNumber Target account number
+     * @return true if transfer successful, false otherwise
+     */
+    public boolean transferPaise(long amountPaise, String targetAccountNumber) {
+        return post(TransactionHistory.TYPE_TRANSFER_OUT, amountPaise, true, targetAccountNumber, null);
+    }
+
+    /**
+     * Moves an exact amount from one account to another as one journal record
+     * Both balances change under both accounts' monitors and a single
+     * TYPE_TRANSFER record is appended for the pair, so replay after a crash
+     * applies either both legs or neither. Callers must keep any other
+     * transfer touching either account out while this runs, as TransferEngine
+     * does with its stripe locks, so the nested monitors cannot deadlock
+     * @param source Account to debit
+     * @param target Account to credit
+     * @param amountPaise Amount to transfer in paise
+     * @param reference Reference of the request, kept with the source's posting, or null
+     * @return true if transferred, false if the source cannot cover the amount,
+     *         the target balance would overflow or the accounts use different journals
+     */
+    static boolean postTransfer(Account source, Account target, long amountPaise, String reference) {
+        TransactionJournal current = source.journal;
+        if (current != target.journal) {
+            ATMLogger.warning("Transfer refused: accounts are journaled to different files");
+            return false;
         }
-        return false;
+        long sequence = 0L;
+        synchronized (source) {
+            synchronized (target) {
+                long sourceAfter = source.debit(amountPaise);
+                if (sourceAfter == REFUSED) {
+                    return false;
+                }
+                long targetAfter = target.credit(amountPaise);
+                if (targetAfter == REFUSED) {
+                    BALANCE_UPDATER.addAndGet(source, amountPaise); // Nothing recorded yet
+                    return false;
+                }
+                long now = System.currentTimeMillis();
+                if (current != null) {
+                    try {
+                        sequence = current.append(TransactionHistory.TYPE_TRANSFER, source.accountNumber,
+                                                  amountPaise, sourceAfter, now,
+                                                  journalDetail(target.accountNumber, reference));
+                    } catch (RuntimeException e) {
+                        // Nothing recorded yet
+                        BALANCE_UPDATER.addAndGet(source, amountPaise);
+                        BALANCE_UPDATER.addAndGet(target, -amountPaise);
+                        throw e;
+                    }
+                    source.journalSequence = sequence;
+                    target.journalSequence = sequence;
+                }
+                source.transactionHistory.record(TransactionHistory.TYPE_TRANSFER_OUT, amountPaise, sourceAfter,
+                                                 now, target.accountNumber, reference);
+                source.countPostings(TransactionHistory.TYPE_TRANSFER_OUT, now, 1);
+                target.transactionHistory.record(TransactionHistory.TYPE_TRANSFER_IN, amountPaise, targetAfter,
+                                                 now, source.accountNumber);
+            }
+        }
+        if (current != null) {
+            try {
+                current.awaitDurableUninterruptibly(sequence);
+            } catch (RuntimeException e) {
+                synchronized (source) {
+                    synchronized (target) {
+                        source.revert(TransactionHistory.TYPE_TRANSFER_OUT, amountPaise, target.accountNumber);
+                        target.revert(TransactionHistory.TYPE_TRANSFER_IN, amountPaise, source.accountNumber);
+                    }
+                }
+                throw e;
+            }
+        }
+        return true;
     }
 
     /**
      * Receives transferred money
      * @param amount Amount to receive
      * @param sourceAccountNumber Source account number
+     * @throws IllegalArgumentException if the amount is out of range or would overflow the balance
      */
     public void receiveTransfer(double amount, String sourceAccountNumber) {
-        this.balance += amount;
-        addTransaction("TRANSFER IN from " + maskAccountNumber(sourceAccountNumber), amount, this.balance);
+        if (!receiveTransferPaise(MoneyUtil.toPaise(amount), sourceAccountNumber)) {
+            throw new IllegalArgumentException("Transfer would overflow the balance");
+        }
     }
 
     /**
-     * Masks account number for display
-     * @param accountNum Account number to mask
-     * @return Masked account number
+     * Receives an exact transferred amount
+     * @param amountPaise Amount to receive in paise
+     * @param sourceAccountNumber Source account number
+     * @return true if received, false if the balance would overflow
      */
-    private String maskAccountNumber(String accountNum) {
-        if (accountNum == null || accountNum.length() < 4) {
-            return "XXXXX";
-        }
-        return "XXXXX" + accountNum.substring(accountNum.length() - 4);
+    public boolean receiveTransferPaise(long amountPaise, String sourceAccountNumber) {
+        return post(TransactionHistory.TYPE_TRANSFER_IN, amountPaise, false, sourceAccountNumber, null);
     }
 }
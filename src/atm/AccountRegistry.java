@@ -0,0 +1,201 @@
+package atm;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Sharded, thread-safe registry of all accounts known to the ATM network
+ * Accounts are keyed by account number and spread across independent
+ * ConcurrentHashMap shards so that lookups stay O(1) and resizes of one
+ * shard never stall terminals working against the others
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class AccountRegistry {
+
+    private static final int DEFAULT_SHARD_COUNT = 64;
+    private static final int MAX_SHARD_COUNT = 1 << 16;
+
+    private final ConcurrentHashMap<String, Account>[] shards;
+    private final int shardShift;
+    private volatile TransactionJournal journal;
+
+    /**
+     * Creates a registry with the default number of shards
+     */
+    public AccountRegistry() {
+        this(DEFAULT_SHARD_COUNT, 0);
+    }
+
+    /**
+     * Creates a registry sized for an expected number of accounts
+     * @param shardCount Number of shards (rounded up to a power of two)
+     * @param expectedAccounts Expected total accounts, used to presize shards
+     * @throws IllegalArgumentException if shardCount or expectedAccounts is invalid
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public AccountRegistry(int shardCount, int expectedAccounts) {
+        if (shardCount <= 0 || shardCount > MAX_SHARD_COUNT) {
+            throw new IllegalArgumentException("Shard count must be between 1 and " + MAX_SHARD_COUNT);
+        }
+        if (expectedAccounts < 0) {
+            throw new IllegalArgumentException("Expected accounts cannot be negative");
+        }
+        int shardBits = 32 - Integer.numberOfLeadingZeros(shardCount - 1);
+        int count = 1 << shardBits;
+        int perShard = expectedAccounts / count + 1;
+
+        this.shards = new ConcurrentHashMap[count];
+        this.shardShift = 32 - shardBits;
+        for (int i = 0; i < count; i++) {
+            shards[i] = new ConcurrentHashMap<>(perShard);
+        }
+    }
+
+    /**
+     * Picks the shard for an account number
+     * Uses the high bits of a multiplicative hash so that the low bits,
+     * which ConcurrentHashMap uses for its own buckets, stay well spread
+     * @param accountNumber Account number
+     * @return Shard holding the account
+     */
+    private ConcurrentHashMap<String, Account> shardFor(String accountNumber) {
+        if (shardShift == 32) {
+            return shards[0];
+        }
+        int h = accountNumber.hashCode() * 0x9E3779B9;
+        return shards[h >>> shardShift];
+    }
+
+    /**
+     * Registers a new account
+     * With a journal attached, blocks until the account's opening record is durable
+     * @param account Account to register
+     * @return true if registered, false if the account number is already taken
+     * @throws IllegalArgumentException if account is null
+     */
+    public boolean register(Account account) {
+        if (account == null) {
+            throw new IllegalArgumentException("Account cannot be null");
+        }
+        if (shardFor(account.getAccountNumber()).putIfAbsent(account.getAccountNumber(), account) != null) {
+            return false;
+        }
+        TransactionJournal current = journal;
+        if (current != null) {
+            account.openInJournal(current);
+        }
+        return true;
+    }
+
+    /**
+     * Attaches a journal to every registered account and to every account
+     * registered from now on; those first journal an opening record
+     * @param journal Journal to write to, or null to stop journaling
+     */
+    void attachJournal(TransactionJournal journal) {
+        this.journal = journal;
+        forEach(account -> account.setJournal(journal));
+    }
+
+    /**
+     * Loads many accounts at once, spreading the inserts across worker threads
+     * @param accounts Accounts to load
+     * @return Number of accounts registered (duplicates are skipped)
+     */
+    public long bulkLoad(Collection<Account> accounts) {
+        if (accounts == null || accounts.isEmpty()) {
+            return 0;
+        }
+        return accounts.parallelStream().filter(this::register).count();
+    }
+
+    /**
+     * Looks up an account by account number
+     * @param accountNumber Account number
+     * @return Account, or null if not registered
+     */
+    public Account find(String accountNumber) {
+        if (accountNumber == null) {
+            return null;
+        }
+        return shardFor(accountNumber).get(accountNumber);
+    }
+
+    /**
+     * Authenticates a card holder against the registry
+     * The attempt counts against the account's shared PIN lockout, like a
+     * login at any terminal
+     * @param accountNumber Account number from the card
+     * @param pin PIN entered by user
+     * @return Authenticated account, or null if unknown account, wrong PIN or locked
+     */
+    public Account authenticate(String accountNumber, String pin) {
+        Account account = find(accountNumber);
+        if (account != null && account.authenticatePin(pin)) {
+            return account;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if an account number is registered
+     * @param accountNumber Account number
+     * @return true if registered
+     */
+    public boolean contains(String accountNumber) {
+        return find(accountNumber) != null;
+    }
+
+    /**
+     * Removes an account from the registry
+     * @param accountNumber Account number
+     * @return Removed account, or null if not registered
+     */
+    public Account remove(String accountNumber) {
+        if (accountNumber == null) {
+            return null;
+        }
+        return shardFor(accountNumber).remove(accountNumber);
+    }
+
+    /**
+     * Gets total number of registered accounts
+     * @return Account count
+     */
+    public long size() {
+        long total = 0;
+        for (ConcurrentHashMap<String, Account> shard : shards) {
+            total += shard.mappingCount();
+        }
+        return total;
+    }
+
+    /**
+     * Applies an action to every registered account
+     * @param action Action to apply
+     */
+    public void forEach(Consumer<Account> action) {
+        for (ConcurrentHashMap<String, Account> shard : shards) {
+            shard.values().forEach(action);
+        }
+    }
+
+    /**
+     * Applies an action to every account in one shard
+     * @param shardIndex Shard index (0 to getShardCount() - 1)
+     * @param action Action to apply
+     */
+    public void forEachInShard(int shardIndex, Consumer<Account> action) {
+        shards[shardIndex].values().forEach(action);
+    }
+
+    /**
+     * Gets the number of shards
+     * @return Shard count
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+}
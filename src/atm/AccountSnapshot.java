@@ -0,0 +1,376 @@
+package atm;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot of every account in a registry
+ * The file is a fixed header followed by independent, CRC-protected segments
+ * of a few megabytes each. Loading maps every segment into memory and decodes
+ * the segments in parallel, so cold start time is bounded by disk bandwidth
+ * rather than by a single decoding thread
+ *
+ * Header: int magic, int version, long journalPosition, long journalSequence,
+ * long accountCount, long journalBaseSequence (absent in version 1). Segment: int length, int accountCount, int crc32, bytes.
+ * Account: account number, UTF-8 holder name, long balancePaise,
+ * long journalSequence, PIN credential, long interestAccruedEpochDay and
+ * byte historyTruncated (both absent before version 3), long monthlyUsage
+ * (absent before version 5), encoded history; each posting carries its
+ * request reference from version 4 on
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class AccountSnapshot {
+
+    private static final int MAGIC = 0x41544D53; // "ATMS"
+    private static final int VERSION = 5;
+    private static final int VERSION_1_HEADER_SIZE = 4 + 4 + 8 + 8 + 8;
+    private static final int HEADER_SIZE = VERSION_1_HEADER_SIZE + 8;
+    private static final int SEGMENT_HEADER_SIZE = 4 + 4 + 4;
+    private static final int SEGMENT_TARGET_SIZE = 8 << 20;
+
+    private final long journalPosition;
+    private final long journalBaseSequence;
+    private final long journalSequence;
+    private final long accountCount;
+
+    /**
+     * Creates a description of a loaded snapshot
+     * @param journalPosition Journal offset from which replay must start
+     * @param journalBaseSequence Sequence of the last journal record before journalPosition
+     * @param journalSequence Newest journal sequence contained in the snapshot
+     * @param accountCount Number of accounts in the snapshot
+     */
+    private AccountSnapshot(long journalPosition, long journalBaseSequence, long journalSequence, long accountCount) {
+        this.journalPosition = journalPosition;
+        this.journalBaseSequence = journalBaseSequence;
+        this.journalSequence = journalSequence;
+        this.accountCount = accountCount;
+    }
+
+    /**
+     * Writes a snapshot of all accounts while terminals keep working
+     * Each account is captured under its own monitor together with the newest
+     * journal record it contains. The replay start offset is taken before the
+     * scan begins, and the file only replaces the previous snapshot once every
+     * journal record it may contain is durable
+     * @param registry Registry to snapshot
+     * @param path Snapshot file; replaced atomically
+     * @param journal Journal the accounts write to, or null if there is none
+     * @return Number of accounts written
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static long write(AccountRegistry registry, Path path, TransactionJournal journal) throws IOException {
+        return writeSnapshot(registry, path, journal).getAccountCount();
+    }
+
+    /**
+     * Writes a snapshot of all accounts and describes what it contains
+     * @param registry Registry to snapshot
+     * @param path Snapshot file; replaced atomically
+     * @param journal Journal the accounts write to, or null if there is none
+     * @return Description of the written snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    static AccountSnapshot writeSnapshot(AccountRegistry registry, Path path, TransactionJournal journal)
+            throws IOException {
+        long[] mark = journal == null ? new long[2] : journal.getDurableMark();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        long accountCount;
+        long journalSequence = 0L;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            SegmentWriter writer = new SegmentWriter(channel);
+            for (int shard = 0; shard < registry.getShardCount(); shard++) {
+                registry.forEachInShard(shard, writer::add);
+            }
+            writer.flush();
+            accountCount = writer.total;
+
+            if (journal != null) {
+                journalSequence = journal.getAppendedSequence();
+                journal.awaitDurable(journalSequence);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(mark[0]).putLong(journalSequence)
+                  .putLong(accountCount).putLong(mark[1]).flip();
+            writeFully(channel, header, 0L);
+            channel.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new AccountSnapshot(mark[0], mark[1], journalSequence, accountCount);
+    }
+
+    /**
+     * Loads a snapshot into a registry
+     * @param path Snapshot file
+     * @param registry Registry to load accounts into
+     * @return Snapshot description, or null if the file does not exist
+     * @throws IOException if the snapshot is unreadable or corrupt
+     */
+    public static AccountSnapshot load(Path path, AccountRegistry registry) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(VERSION_1_HEADER_SIZE);
+            readFully(channel, header, 0L);
+            int magic = header.getInt();
+            int version = header.getInt();
+            if (magic != MAGIC || version < 1 || version > VERSION) {
+                throw new IOException("Not a supported account snapshot: " + path);
+            }
+            long journalPosition = header.getLong();
+            long journalSequence = header.getLong();
+            long accountCount = header.getLong();
+            // Version 1 snapshots predate journal compaction, so their offset always fits the file
+            long journalBaseSequence = Long.MAX_VALUE;
+            if (version > 1) {
+                ByteBuffer base = ByteBuffer.allocate(HEADER_SIZE - VERSION_1_HEADER_SIZE);
+                readFully(channel, base, VERSION_1_HEADER_SIZE);
+                journalBaseSequence = base.getLong();
+            }
+
+            List<long[]> segments = new ArrayList<>();
+            ByteBuffer segmentHeader = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+            long position = version == 1 ? VERSION_1_HEADER_SIZE : HEADER_SIZE;
+            while (position + SEGMENT_HEADER_SIZE <= size) {
+                segmentHeader.clear();
+                readFully(channel, segmentHeader, position);
+                int length = segmentHeader.getInt();
+                int count = segmentHeader.getInt();
+                int crc = segmentHeader.getInt();
+                if (position + SEGMENT_HEADER_SIZE + length > size) {
+                    throw new IOException("Truncated account snapshot: " + path);
+                }
+                segments.add(new long[] {position + SEGMENT_HEADER_SIZE, length, count, crc});
+                position += SEGMENT_HEADER_SIZE + length;
+            }
+
+            AtomicLong loaded = new AtomicLong();
+            try {
+                segments.parallelStream()
+                        .forEach(segment -> loaded.addAndGet(loadSegment(channel, segment, version, registry)));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (loaded.get() != accountCount) {
+                throw new IOException("Snapshot holds " + loaded.get() + " accounts, header says " + accountCount);
+            }
+            return new AccountSnapshot(journalPosition, journalBaseSequence, journalSequence, accountCount);
+        }
+    }
+
+    /**
+     * Maps one segment, verifies it and registers its accounts
+     * @param channel Snapshot file
+     * @param segment Segment descriptor {offset, length, count, crc}
+     * @param version Snapshot format version
+     * @param registry Registry to load accounts into
+     * @return Number of accounts decoded
+     */
+    private static long loadSegment(FileChannel channel, long[] segment, int version, AccountRegistry registry) {
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, segment[0], segment[1]);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != (int) segment[3]) {
+                throw new IOException("Corrupt account snapshot segment at offset " + segment[0]);
+            }
+            for (long i = 0; i < segment[2]; i++) {
+                Account account = readAccount(buffer, version);
+                if (!registry.register(account)) {
+                    ATMLogger.warning("Duplicate account in snapshot: "
+                                      + ATMUtil.maskAccountNumber(account.getAccountNumber()));
+                }
+            }
+            return segment[2];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decodes one account
+     * @param buffer Segment buffer
+     * @param version Snapshot format version
+     * @return Restored account
+     */
+    private static Account readAccount(ByteBuffer buffer, int version) {
+        String accountNumber = BinaryCodec.getAscii(buffer);
+        byte[] name = new byte[buffer.getShort()];
+        buffer.get(name);
+        long balancePaise = buffer.getLong();
+        long journalSequence = buffer.getLong();
+        String pinHash = BinaryCodec.getAscii(buffer);
+        long interestAccruedEpochDay = version >= 3 ? buffer.getLong() : Long.MIN_VALUE;
+        // Older snapshots do not say whether postings were dropped, so a full history is assumed to have lost some
+        boolean truncated = version >= 3 && buffer.get() != 0;
+        long monthlyUsage = version >= 5 ? buffer.getLong() : 0L;
+
+        Account account = Account.restored(accountNumber, new String(name, StandardCharsets.UTF_8), balancePaise,
+                                           pinHash, journalSequence, interestAccruedEpochDay);
+        TransactionHistory history = account.getHistoryStore();
+        history.readFrom(buffer, version >= 4);
+        if (truncated || (version < 3 && history.size() == history.getCapacity())) {
+            history.markTruncated();
+        }
+        if (version < 3) {
+            account.restoreInterestAccruedFromHistory();
+        }
+        if (version < 5) {
+            account.restoreMonthlyUsageFromHistory();
+        } else {
+            account.restoreMonthlyUsage(monthlyUsage);
+        }
+        return account;
+    }
+
+    /**
+     * Accumulates encoded accounts into segments and writes full segments out
+     */
+    private static final class SegmentWriter {
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private final ByteBuffer segmentHeader = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        private ByteBuffer segment = ByteBuffer.allocate(SEGMENT_TARGET_SIZE);
+        private int count;
+        private long total;
+
+        SegmentWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void add(Account account) {
+            byte[] name = account.getAccountHolderName().getBytes(StandardCharsets.UTF_8);
+            synchronized (account) {
+                TransactionHistory history = account.getHistoryStore();
+                int size = BinaryCodec.asciiSize(account.getAccountNumber()) + 2 + name.length + 8 + 8
+                           + BinaryCodec.asciiSize(account.getPinHash()) + 8 + 1 + 8 + history.encodedSize();
+                if (segment.remaining() < size) {
+                    flush();
+                    if (segment.capacity() < size) {
+                        segment = ByteBuffer.allocate(size);
+                    }
+                }
+                BinaryCodec.putAscii(segment, account.getAccountNumber());
+                segment.putShort((short) name.length);
+                segment.put(name);
+                segment.putLong(account.getBalancePaise());
+                segment.putLong(account.getJournalSequence());
+                BinaryCodec.putAscii(segment, account.getPinHash());
+                segment.putLong(account.getInterestAccruedEpochDay());
+                segment.put((byte) (history.isTruncated() ? 1 : 0));
+                segment.putLong(account.getMonthlyUsage());
+                history.writeTo(segment);
+            }
+            count++;
+            total++;
+        }
+
+        void flush() {
+            if (count == 0) {
+                return;
+            }
+            segment.flip();
+            crc.reset();
+            crc.update(segment.duplicate());
+            segmentHeader.clear();
+            segmentHeader.putInt(segment.remaining()).putInt(count).putInt((int) crc.getValue()).flip();
+            try {
+                while (segmentHeader.hasRemaining()) {
+                    channel.write(segmentHeader);
+                }
+                while (segment.hasRemaining()) {
+                    channel.write(segment);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            segment.clear();
+            count = 0;
+        }
+    }
+
+    /**
+     * Reads until the buffer is full
+     * @param channel Source channel
+     * @param buffer Target buffer
+     * @param position File offset
+     * @throws IOException if the file ends early
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of account snapshot");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Writes the whole buffer at a file offset
+     * @param channel Target channel
+     * @param buffer Source buffer
+     * @param position File offset
+     * @throws IOException if the write fails
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Gets the journal offset from which replay must start
+     * @return Journal file offset
+     */
+    public long getJournalPosition() {
+        return journalPosition;
+    }
+
+    /**
+     * Gets the sequence number of the last journal record before the replay
+     * offset; a journal whose first record is newer has been cut at that
+     * offset and is replayed from its start
+     * @return Journal sequence number, or Long.MAX_VALUE for version 1 snapshots
+     */
+    public long getJournalBaseSequence() {
+        return journalBaseSequence;
+    }
+
+    /**
+     * Gets the newest journal sequence number the snapshot may contain
+     * @return Journal sequence number
+     */
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    /**
+     * Gets the number of accounts in the snapshot
+     * @return Account count
+     */
+    public long getAccountCount() {
+        return accountCount;
+    }
+}
@@ -0,0 +1,209 @@
+package atm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable store for account state built from a snapshot and a journal
+ * On start the latest snapshot is loaded and only the journal tail written
+ * after it is replayed; while running, every account writes to the journal,
+ * including accounts registered later, and each snapshot cuts the journal
+ * prefix it covers so both the file and the replayed tail stay short
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class AccountStateStore implements AutoCloseable {
+
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final AccountRegistry registry;
+    private final long batchWindowMicros;
+    private TransactionJournal journal;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a state store
+     * @param snapshotPath Snapshot file
+     * @param journalPath Journal file
+     * @param registry Registry holding the live accounts
+     * @param batchWindowMicros Journal group commit window in microseconds
+     * @throws IllegalArgumentException if any path or the registry is null
+     */
+    public AccountStateStore(Path snapshotPath, Path journalPath, AccountRegistry registry, long batchWindowMicros) {
+        if (snapshotPath == null || journalPath == null || registry == null) {
+            throw new IllegalArgumentException("Snapshot path, journal path and registry are required");
+        }
+        this.snapshotPath = snapshotPath;
+        this.journalPath = journalPath;
+        this.registry = registry;
+        this.batchWindowMicros = batchWindowMicros;
+    }
+
+    /**
+     * Checks if a snapshot exists; when it does not, callers seed the
+     * registry with the initial accounts before calling recover()
+     * @return true if a snapshot file exists
+     */
+    public boolean hasSnapshot() {
+        return Files.exists(snapshotPath);
+    }
+
+    /**
+     * Restores account state and starts journaling
+     * Loads the snapshot (if any), replays the journal tail on top of it,
+     * opens the journal after its last intact record and attaches it to
+     * every account in the registry and to accounts registered later
+     * @return Number of journal records applied during replay
+     * @throws IOException if the snapshot or journal cannot be read
+     * @throws IllegalStateException if the store was already recovered
+     */
+    public synchronized long recover() throws IOException {
+        if (journal != null) {
+            throw new IllegalStateException("State store already recovered");
+        }
+        long start = System.nanoTime();
+        AccountSnapshot snapshot = AccountSnapshot.load(snapshotPath, registry);
+        long loadedNanos = System.nanoTime() - start;
+
+        long fromPosition = 0L;
+        if (snapshot != null && snapshot.getJournalPosition() > 0) {
+            // A journal already cut at the snapshot starts after its base record and is replayed whole
+            long firstSequence = TransactionJournal.readFirstSequence(journalPath);
+            if (firstSequence > 0 && firstSequence <= snapshot.getJournalBaseSequence()) {
+                fromPosition = snapshot.getJournalPosition();
+            }
+        }
+        long[] applied = {0L};
+        long[] unknown = {0L};
+        long lastSequence = TransactionJournal.replay(journalPath, fromPosition,
+            (sequence, type, accountNumber, amountPaise, balanceAfterPaise, epochMillis, detail) -> {
+                if (type == TransactionHistory.TYPE_OPEN) {
+                    if (registry.find(accountNumber) == null
+                        && registry.register(Account.opened(accountNumber, amountPaise, detail, sequence))) {
+                        applied[0]++;
+                    }
+                } else if (type == TransactionHistory.TYPE_TRANSFER) {
+                    // One record holds both legs; each account skips the leg its snapshot already has
+                    replayLeg(sequence, TransactionHistory.TYPE_TRANSFER_OUT, accountNumber, amountPaise,
+                              epochMillis, detail, applied, unknown);
+                    replayLeg(sequence, TransactionHistory.TYPE_TRANSFER_IN, Account.detailCounterparty(detail),
+                              amountPaise, epochMillis, accountNumber, applied, unknown);
+                } else {
+                    replayLeg(sequence, type, accountNumber, amountPaise, epochMillis, detail, applied, unknown);
+                }
+            });
+        if (snapshot != null) {
+            lastSequence = Math.max(lastSequence, snapshot.getJournalSequence());
+        }
+
+        journal = new TransactionJournal(journalPath, batchWindowMicros, lastSequence);
+        registry.attachJournal(journal);
+
+        ATMLogger.info(String.format("State recovered: %d accounts from snapshot in %d ms, "
+                + "%d journal records replayed, %d for unknown accounts, total %d ms",
+                snapshot == null ? 0L : snapshot.getAccountCount(), loadedNanos / 1_000_000,
+                applied[0], unknown[0], (System.nanoTime() - start) / 1_000_000));
+        return applied[0];
+    }
+
+    /**
+     * Applies one replayed record to its account
+     * @param applied Counter of applied records
+     * @param unknown Counter of records for accounts not in the registry
+     */
+    private void replayLeg(long sequence, byte type, String accountNumber, long amountPaise,
+                           long epochMillis, String detail, long[] applied, long[] unknown) {
+        Account account = registry.find(accountNumber);
+        if (account == null) {
+            unknown[0]++;
+        } else if (account.applyJournalEntry(sequence, type, amountPaise, epochMillis, detail)) {
+            applied[0]++;
+        }
+    }
+
+    /**
+     * Writes a new snapshot of all accounts and drops the journal prefix it covers
+     * @return Number of accounts written
+     * @throws IOException if the snapshot cannot be written
+     * @throws IllegalStateException if the store has not been recovered
+     */
+    public synchronized long checkpoint() throws IOException {
+        if (journal == null) {
+            throw new IllegalStateException("State store not recovered");
+        }
+        AccountSnapshot written = AccountSnapshot.writeSnapshot(registry, snapshotPath, journal);
+        journal.discardBefore(written.getJournalPosition());
+        return written.getAccountCount();
+    }
+
+    /**
+     * Starts taking snapshots in the background at a fixed interval
+     * @param intervalSeconds Seconds between snapshots
+     * @throws IllegalArgumentException if intervalSeconds is not positive
+     */
+    public synchronized void startPeriodicCheckpoints(long intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "atm-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException | RuntimeException e) {
+                ATMLogger.error("Checkpoint failed: " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Gets the journal accounts write to
+     * @return Journal, or null before recovery
+     */
+    public synchronized TransactionJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Stops periodic snapshots, takes a final snapshot and closes the journal
+     * @throws IOException if the final snapshot or closing the journal fails
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = scheduler;
+            scheduler = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (journal == null) {
+                return;
+            }
+            try {
+                checkpoint();
+            } finally {
+                registry.attachJournal(null);
+                journal.close();
+                journal = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package atm;
+
+/**
+ * Enum representing the kinds of account a session can operate
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public enum AccountType {
+    /**
+     * Savings account, earns interest
+     */
+    SAVINGS("Savings"),
+
+    /**
+     * Current account, no interest
+     */
+    CURRENT("Current");
+
+    private final String displayName;
+
+    /**
+     * Constructor for AccountType
+     * @param displayName Human-readable name of the account type
+     */
+    AccountType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Gets the display name of the account type
+     * @return Display name
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,309 @@
+package atm;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Runs every operation of an account on one fixed worker shard
+ * Account numbers are placed on a consistent-hash ring holding
+ * AFFINITY_VIRTUAL_NODES points per shard. All work for an account, from
+ * any of its sessions, runs on the same worker thread in submission order,
+ * so it never runs concurrently with other work for that account and stays
+ * in one core's cache. Growing the shard count moves only the accounts
+ * that land on the new shard's points, about 1/shards of them
+ *
+ * Each shard has a bounded queue; submitters block while it is full, which
+ * applies backpressure to the terminals feeding a busy shard. Closing waits
+ * for submitters already past the open check before stopping the workers, so
+ * every accepted task runs on its shard
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class AffinityScheduler implements AutoCloseable {
+
+    private static final Runnable STOP = () -> { };
+    private static final long CLOSE_PARK_NANOS = 100_000L;
+
+    /**
+     * One worker thread and its queue
+     */
+    private static final class Shard {
+        final ArrayBlockingQueue<Runnable> queue;
+        Thread thread;
+        volatile long completed;
+
+        Shard(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    private final Shard[] shards;
+    private final long[] ringPoints;
+    private final int[] ringShards;
+    private final AtomicInteger submitters = new AtomicInteger();
+    private volatile boolean running = true;
+
+    /**
+     * Creates a scheduler with one shard per available processor
+     */
+    public AffinityScheduler() {
+        this(Runtime.getRuntime().availableProcessors(), ATMConstants.AFFINITY_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates a scheduler and starts its worker threads
+     * @param shardCount Number of worker shards
+     * @param queueCapacity Tasks each shard can hold before submitters block
+     * @throws IllegalArgumentException if shardCount is out of range or queueCapacity is not positive
+     */
+    public AffinityScheduler(int shardCount, int queueCapacity) {
+        if (shardCount <= 0 || shardCount > 0xFFFF) {
+            throw new IllegalArgumentException("Shard count must be between 1 and 65535");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        int nodes = ATMConstants.AFFINITY_VIRTUAL_NODES;
+        long[] points = new long[shardCount * nodes];
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < nodes; node++) {
+                // Low bits carry the shard so it can be recovered after sorting
+                points[shard * nodes + node] = (mix((long) shard << 32 | node) & ~0xFFFFL) | shard;
+            }
+        }
+        Arrays.sort(points);
+        this.ringPoints = points;
+        this.ringShards = new int[points.length];
+        for (int i = 0; i < points.length; i++) {
+            ringShards[i] = (int) (points[i] & 0xFFFFL);
+        }
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            Shard shard = new Shard(queueCapacity);
+            shard.thread = new Thread(() -> runShard(shard), "atm-affinity-" + i);
+            shard.thread.setDaemon(true);
+            shards[i] = shard;
+            shard.thread.start();
+        }
+    }
+
+    /**
+     * Finds the shard that owns an account
+     * @param accountNumber Account number
+     * @return Shard index
+     * @throws IllegalArgumentException if accountNumber is null
+     */
+    public int shardOf(String accountNumber) {
+        if (accountNumber == null) {
+            throw new IllegalArgumentException("Account number cannot be null");
+        }
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < accountNumber.length(); i++) {
+            hash = (hash ^ accountNumber.charAt(i)) * 0x100000001B3L;
+        }
+        int index = Arrays.binarySearch(ringPoints, mix(hash));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return ringShards[index == ringPoints.length ? 0 : index];
+    }
+
+    /**
+     * Queues a task on the account's shard; blocks while that shard's queue is full
+     * A task submitted from the account's own shard runs immediately, so
+     * nested calls cannot wait on themselves
+     * @param accountNumber Account the task works on
+     * @param task Task to run
+     * @throws IllegalArgumentException if accountNumber or task is null
+     * @throws IllegalStateException if the scheduler is closed
+     */
+    public void execute(String accountNumber, Runnable task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task cannot be null");
+        }
+        int index = shardOf(accountNumber);
+        Shard shard = shards[index];
+        if (Thread.currentThread() == shard.thread) {
+            task.run();
+            return;
+        }
+        enter();
+        try {
+            shard.queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shard " + index);
+        } finally {
+            submitters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Queues a task on the account's shard without waiting for room
+     * For callers that must never block, such as a selector thread
+     * @param accountNumber Account the task works on
+     * @param task Task to run
+     * @return true if the task was queued, false if the shard's queue is full
+     * @throws IllegalArgumentException if accountNumber or task is null
+     * @throws IllegalStateException if the scheduler is closed
+     */
+    public boolean tryExecute(String accountNumber, Runnable task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task cannot be null");
+        }
+        Shard shard = shards[shardOf(accountNumber)];
+        enter();
+        try {
+            return shard.queue.offer(task);
+        } finally {
+            submitters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Registers a submitter; close() waits for it to leave before stopping the workers
+     * @throws IllegalStateException if the scheduler is closed
+     */
+    private void enter() {
+        submitters.incrementAndGet();
+        if (!running) {
+            submitters.decrementAndGet();
+            throw new IllegalStateException("Scheduler is closed");
+        }
+    }
+
+    /**
+     * Runs a task on the account's shard and returns its result as a future
+     * @param accountNumber Account the task works on
+     * @param task Task to run
+     * @param <T> Result type
+     * @return Future completed with the result, or exceptionally if the task throws anything
+     */
+    public <T> CompletableFuture<T> submit(String accountNumber, Supplier<T> task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task cannot be null");
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(accountNumber, () -> {
+            try {
+                future.complete(task.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Worker loop: runs queued tasks in order until stopped
+     * @param shard Shard to serve
+     */
+    private void runShard(Shard shard) {
+        while (true) {
+            Runnable task;
+            try {
+                task = shard.queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == STOP) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                // The shard is the only thread serving its accounts, so it must outlive any task
+                ATMLogger.error("Affinity task failed on " + shard.thread.getName() + ": " + e);
+            }
+            shard.completed++;
+        }
+    }
+
+    /**
+     * Gets the number of worker shards
+     * @return Shard count
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Gets the number of tasks waiting on a shard
+     * @param shard Shard index
+     * @return Queued tasks, not counting the one running
+     * @throws IllegalArgumentException if shard is out of range
+     */
+    public int getQueueDepth(int shard) {
+        if (shard < 0 || shard >= shards.length) {
+            throw new IllegalArgumentException("No shard " + shard);
+        }
+        return shards[shard].queue.size();
+    }
+
+    /**
+     * Gets the queue depth of every shard
+     * @return Queued tasks per shard
+     */
+    public int[] getQueueDepths() {
+        int[] depths = new int[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            depths[i] = shards[i].queue.size();
+        }
+        return depths;
+    }
+
+    /**
+     * Gets the number of tasks a shard has finished
+     * @param shard Shard index
+     * @return Completed tasks
+     * @throws IllegalArgumentException if shard is out of range
+     */
+    public long getCompletedCount(int shard) {
+        if (shard < 0 || shard >= shards.length) {
+            throw new IllegalArgumentException("No shard " + shard);
+        }
+        return shards[shard].completed;
+    }
+
+    /**
+     * Stops accepting tasks, runs everything already queued and stops the workers
+     * Submitters that passed the open check before close are let finish
+     * queueing first, so no accepted task lands behind a worker's stop marker
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // Blocked submitters make progress because the workers keep draining
+        while (submitters.get() != 0) {
+            LockSupport.parkNanos(CLOSE_PARK_NANOS);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.queue.put(STOP);
+                shard.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Spreads a 64-bit value over all bits (MurmurHash3 finalizer)
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,47 @@
+package atm;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Core-banking host that owns account balances
+ * ATMService sends every deposit, withdrawal, transfer and balance inquiry
+ * to its host. The default LocalBankHost applies them to the in-process
+ * Account; RemoteBankHost sends them to a host over the network
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public interface BankHost extends AutoCloseable {
+
+    /**
+     * Submits a request to the host
+     * @param type DEPOSIT, WITHDRAWAL, TRANSFER or BALANCE_INQUIRY
+     * @param account Account the request is for
+     * @param amountPaise Amount in paise (ignored for inquiries)
+     * @param targetAccountNumber Target account for transfers, otherwise null
+     * @return Future completed with the host's reply, or exceptionally if the host is unreachable
+     */
+    CompletableFuture<HostReply> submit(TransactionType type, Account account, long amountPaise,
+                                        String targetAccountNumber);
+
+    /**
+     * Submits a request tagged with a reference a host may keep with the
+     * posting, so a restarted ATM can tell whether the host applied it
+     * Hosts that do not keep references ignore it
+     * @param type DEPOSIT, WITHDRAWAL, TRANSFER or BALANCE_INQUIRY
+     * @param account Account the request is for
+     * @param amountPaise Amount in paise (ignored for inquiries)
+     * @param targetAccountNumber Target account for transfers, otherwise null
+     * @param reference Request reference, or null
+     * @return Future completed with the host's reply, or exceptionally if the host is unreachable
+     */
+    default CompletableFuture<HostReply> submit(TransactionType type, Account account, long amountPaise,
+                                                String targetAccountNumber, String reference) {
+        return submit(type, account, amountPaise, targetAccountNumber);
+    }
+
+    /**
+     * Releases the host connection, if any
+     */
+    @Override
+    void close();
+}
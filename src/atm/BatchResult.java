@@ -0,0 +1,81 @@
+package atm;
+
+/**
+ * Enum representing the outcome of one item of a transaction batch
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public enum BatchResult {
+    /**
+     * Item was posted to the account
+     */
+    APPLIED("Applied"),
+
+    /**
+     * Amount was not positive or not a whole number of paise
+     */
+    INVALID_AMOUNT("Invalid amount"),
+
+    /**
+     * Transaction type cannot be submitted in a batch
+     */
+    UNSUPPORTED_TYPE("Unsupported transaction type"),
+
+    /**
+     * Account is frozen
+     */
+    ACCOUNT_FROZEN("Account frozen"),
+
+    /**
+     * Daily transaction count limit reached
+     */
+    TRANSACTION_LIMIT_EXCEEDED("Daily transaction limit exceeded"),
+
+    /**
+     * Daily withdrawal amount limit reached
+     */
+    WITHDRAWAL_LIMIT_EXCEEDED("Daily withdrawal limit exceeded"),
+
+    /**
+     * Balance did not cover the withdrawal when it was posted
+     */
+    INSUFFICIENT_BALANCE("Insufficient balance"),
+
+    /**
+     * Cassettes could not make up the withdrawal amount
+     */
+    CASH_UNAVAILABLE("Cash unavailable"),
+
+    /**
+     * Journal record could not be written or made durable; the posting was taken back
+     */
+    JOURNAL_FAILED("Journal write failed"),
+
+    /**
+     * Item was not processed because its batch was refused or processing of it failed
+     */
+    REJECTED("Rejected");
+
+    private final String displayName;
+
+    /**
+     * Constructor for BatchResult
+     * @param displayName Human-readable description of the outcome
+     */
+    BatchResult(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Gets the display name of the outcome
+     * @return Display name
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,69 @@
+package atm;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Shared helpers for the binary formats used by the journal and snapshots
+ * Strings are written as a short length followed by one byte per character;
+ * account numbers, PIN credentials and similar fields are plain ASCII
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+final class BinaryCodec {
+
+    static final int MAX_STRING_LENGTH = Short.MAX_VALUE;
+
+    /**
+     * Gets the encoded size of a string field
+     * @param value String, or null
+     * @return Encoded size in bytes
+     */
+    static int asciiSize(String value) {
+        return 2 + (value == null ? 0 : value.length());
+    }
+
+    /**
+     * Writes a length-prefixed ASCII string
+     * @param buffer Target buffer
+     * @param value String to write, or null for empty
+     * @throws IllegalArgumentException if the string is too long
+     */
+    static void putAscii(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) 0);
+            return;
+        }
+        int length = value.length();
+        if (length > MAX_STRING_LENGTH) {
+            throw new IllegalArgumentException("String field too long");
+        }
+        buffer.putShort((short) length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    /**
+     * Reads a length-prefixed ASCII string
+     * @param buffer Source buffer
+     * @return String, or null if empty
+     */
+    static String getAscii(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length <= 0) {
+            return null;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (buffer.get() & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private BinaryCodec() {
+        throw new AssertionError("Cannot instantiate codec class");
+    }
+}
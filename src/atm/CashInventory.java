@@ -0,0 +1,281 @@
+package atm;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Physical note cassettes of one terminal
+ * Tracks the notes loaded per denomination and how many of them are held
+ * by pending dispense reservations. A withdrawal reserves the notes of the
+ * fewest-notes plan its amount allows under the remaining stock, then
+ * either commits the reservation once the notes are dispensed or rolls it
+ * back, e.g. when the host declines the debit. Planning and reserving
+ * happen under one short lock, so concurrent sessions never promise the
+ * same notes twice. Plans come from a DenominationPlanTable for the
+ * cassettes that currently hold notes, rebuilt only when a cassette runs
+ * empty or is refilled; the planner searches only when the table's plan
+ * needs more notes of some denomination than are left
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class CashInventory {
+
+    private final DispensePlanner planner;
+    private final int[] denominations;
+    private final int[] loaded;
+    private final int[] available;
+    private final int[] scratch;
+    private final DispensePlanner.Workspace workspace;
+    private DenominationPlanTable planTable;
+    private int planTableMask;
+
+    /**
+     * A dispense plan whose notes are held until committed or rolled back
+     */
+    public final class Reservation {
+        private final long amount;
+        private final int[] counts; // May be shared with the plan table; never modified
+        private boolean settled;
+
+        private Reservation(long amount, int[] counts) {
+            this.amount = amount;
+            this.counts = counts;
+        }
+
+        /**
+         * Records the notes as dispensed; does nothing if already settled
+         */
+        public void commit() {
+            synchronized (CashInventory.this) {
+                if (!settled) {
+                    settled = true;
+                    for (int i = 0; i < counts.length; i++) {
+                        loaded[i] -= counts[i];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the notes to the available stock; does nothing if already settled
+         */
+        public void rollback() {
+            synchronized (CashInventory.this) {
+                if (!settled) {
+                    settled = true;
+                    for (int i = 0; i < counts.length; i++) {
+                        available[i] += counts[i];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gets the reserved amount
+         * @return Amount in rupees
+         */
+        public long getAmount() {
+            return amount;
+        }
+
+        /**
+         * Gets the planned notes
+         * @return Map of denomination to note count, largest first, without zero counts
+         */
+        public Map<Integer, Integer> getNotes() {
+            return DenominationPlanTable.toMap(denominations, counts);
+        }
+    }
+
+    /**
+     * Creates an inventory with the given notes loaded
+     * @param denominations Note values in rupees
+     * @param notes Notes loaded per denomination, in the same order
+     * @throws IllegalArgumentException if the arrays differ in length or a count is negative
+     */
+    public CashInventory(int[] denominations, int[] notes) {
+        this(denominations, notes, (long) ATMConstants.MAX_WITHDRAWAL_AMOUNT);
+    }
+
+    /**
+     * Creates an inventory with the given notes loaded
+     * @param denominations Note values in rupees
+     * @param notes Notes loaded per denomination, in the same order
+     * @param maxAmount Largest amount a single withdrawal may dispense, in rupees
+     * @throws IllegalArgumentException if the arrays differ in length or a count is negative
+     */
+    public CashInventory(int[] denominations, int[] notes, long maxAmount) {
+        if (denominations == null || notes == null || denominations.length != notes.length) {
+            throw new IllegalArgumentException("Each denomination needs a note count");
+        }
+        if (denominations.length > Integer.SIZE - 1) {
+            throw new IllegalArgumentException("Too many denominations");
+        }
+        this.planner = new DispensePlanner(denominations, (int) Math.min(maxAmount, Integer.MAX_VALUE));
+        this.denominations = planner.getDenominations();
+        this.loaded = new int[notes.length];
+        this.available = new int[notes.length];
+        this.scratch = new int[notes.length];
+        this.workspace = planner.newWorkspace();
+        for (int i = 0; i < denominations.length; i++) {
+            if (notes[i] < 0) {
+                throw new IllegalArgumentException("Note count cannot be negative");
+            }
+            int index = indexOf(denominations[i]);
+            loaded[index] = notes[i];
+            available[index] = notes[i];
+        }
+    }
+
+    /**
+     * Creates the standard terminal with every cassette full
+     * @return Inventory holding ATMConstants.CASSETTE_CAPACITY notes of each denomination
+     */
+    public static CashInventory standard() {
+        int[] notes = new int[ATMConstants.CASSETTE_DENOMINATIONS.length];
+        Arrays.fill(notes, ATMConstants.CASSETTE_CAPACITY);
+        return new CashInventory(ATMConstants.CASSETTE_DENOMINATIONS, notes);
+    }
+
+    /**
+     * Reserves the notes for a withdrawal
+     * @param amount Amount in rupees
+     * @return Reservation, or null if the amount cannot be dispensed from the remaining stock
+     */
+    public synchronized Reservation reserve(long amount) {
+        int[] counts = tablePlan(amount);
+        if (counts == null) {
+            if (!planner.solve(amount, available, scratch, workspace)) {
+                return null;
+            }
+            counts = scratch.clone();
+        }
+        for (int i = 0; i < counts.length; i++) {
+            available[i] -= counts[i];
+        }
+        return new Reservation(amount, counts);
+    }
+
+    /**
+     * Plans a withdrawal against the remaining stock without reserving it
+     * @param amount Amount in rupees
+     * @return Map of denomination to note count, largest first, or null if the amount cannot be dispensed
+     */
+    public synchronized Map<Integer, Integer> plan(long amount) {
+        if (tablePlan(amount) != null) {
+            return planTable.plan(amount);
+        }
+        return planner.solve(amount, available, scratch, workspace)
+               ? DenominationPlanTable.toMap(denominations, scratch) : null;
+    }
+
+    /**
+     * Renders the plan of a withdrawal against the remaining stock
+     * @param amount Amount in rupees
+     * @return Breakdown text, or null if the amount cannot be dispensed
+     */
+    synchronized String breakdown(long amount) {
+        if (tablePlan(amount) != null) {
+            return planTable.breakdown(amount);
+        }
+        Map<Integer, Integer> notes = plan(amount);
+        return notes == null ? null : DenominationPlanTable.render(notes);
+    }
+
+    /**
+     * Looks an amount up in the plan table of the stocked cassettes
+     * @param amount Amount in rupees
+     * @return Shared note counts, or null if the amount is not in the table or its plan exceeds the stock
+     */
+    private int[] tablePlan(long amount) {
+        if (planner.getMaxAmount() < ATMConstants.MIN_WITHDRAWAL_AMOUNT) {
+            return null;
+        }
+        int mask = 0;
+        for (int i = 0; i < available.length; i++) {
+            if (available[i] > 0) {
+                mask |= 1 << i;
+            }
+        }
+        if (planTable == null || mask != planTableMask) {
+            boolean[] stocked = new boolean[available.length];
+            for (int i = 0; i < stocked.length; i++) {
+                stocked[i] = (mask & (1 << i)) != 0;
+            }
+            planTable = new DenominationPlanTable(planner, stocked);
+            planTableMask = mask;
+        }
+        int[] counts = planTable.counts(amount);
+        if (counts == null) {
+            return null;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > available[i]) {
+                return null;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Loads notes into a cassette
+     * @param denomination Note value in rupees
+     * @param notes Number of notes added
+     * @throws IllegalArgumentException if the denomination is not stocked or notes is negative
+     */
+    public synchronized void replenish(int denomination, int notes) {
+        if (notes < 0) {
+            throw new IllegalArgumentException("Note count cannot be negative");
+        }
+        int index = indexOf(denomination);
+        loaded[index] += notes;
+        available[index] += notes;
+    }
+
+    /**
+     * Gets the notes physically in a cassette, including reserved ones
+     * @param denomination Note value in rupees
+     * @return Note count
+     */
+    public synchronized int getLoaded(int denomination) {
+        return loaded[indexOf(denomination)];
+    }
+
+    /**
+     * Gets the notes of a denomination not held by any reservation
+     * @param denomination Note value in rupees
+     * @return Note count
+     */
+    public synchronized int getAvailable(int denomination) {
+        return available[indexOf(denomination)];
+    }
+
+    /**
+     * Gets the cash not held by any reservation
+     * @return Amount in rupees
+     */
+    public synchronized long getAvailableAmount() {
+        long total = 0L;
+        for (int i = 0; i < denominations.length; i++) {
+            total += (long) denominations[i] * available[i];
+        }
+        return total;
+    }
+
+    /**
+     * Gets the stocked denominations
+     * @return Note values in rupees, largest first
+     */
+    public int[] getDenominations() {
+        return denominations.clone();
+    }
+
+    private int indexOf(int denomination) {
+        for (int i = 0; i < denominations.length; i++) {
+            if (denominations[i] == denomination) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Denomination not stocked: " + denomination);
+    }
+}
@@ -0,0 +1,217 @@
+package atm;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks each account's daily transaction count and withdrawn amount
+ * across every session and terminal
+ * The usage lives on the Account itself as one packed long (day, count,
+ * withdrawn paise) updated with compare-and-set, so checks on different
+ * accounts never contend and no lock or map is involved. Usage recorded
+ * on an earlier day counts as zero, which resets the limits at midnight
+ * without any reset job
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class DailyLimitTracker {
+
+    private static final int DAY_BITS = 20;
+    private static final int COUNT_BITS = 12;
+    private static final int AMOUNT_BITS = 32;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long AMOUNT_MASK = (1L << AMOUNT_BITS) - 1;
+    private static final long DAY_MASK = (1L << DAY_BITS) - 1;
+
+    private static DailyLimitTracker instance;
+
+    private final int maxTransactions;
+    private final long withdrawalLimitPaise;
+    private final ZoneId zone;
+    private final LongSupplier clock;
+    private volatile long currentDay;
+    private volatile long dayEndsAtMillis;
+
+    /**
+     * Creates a tracker using the system clock and time zone
+     * @param maxTransactions Maximum transactions per account per day
+     * @param withdrawalLimitPaise Maximum withdrawn amount per account per day in paise
+     * @throws IllegalArgumentException if a limit is negative or too large to track
+     */
+    public DailyLimitTracker(int maxTransactions, long withdrawalLimitPaise) {
+        this(maxTransactions, withdrawalLimitPaise, ZoneId.systemDefault(), System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a tracker with an explicit time zone and clock
+     * @param maxTransactions Maximum transactions per account per day
+     * @param withdrawalLimitPaise Maximum withdrawn amount per account per day in paise
+     * @param zone Time zone whose midnight resets the limits
+     * @param clock Millisecond clock
+     * @throws IllegalArgumentException if a limit is negative or too large to track
+     */
+    DailyLimitTracker(int maxTransactions, long withdrawalLimitPaise, ZoneId zone, LongSupplier clock) {
+        if (maxTransactions < 0 || maxTransactions > COUNT_MASK) {
+            throw new IllegalArgumentException("Transaction limit out of range");
+        }
+        if (withdrawalLimitPaise < 0 || withdrawalLimitPaise > AMOUNT_MASK) {
+            throw new IllegalArgumentException("Withdrawal limit out of range");
+        }
+        this.maxTransactions = maxTransactions;
+        this.withdrawalLimitPaise = withdrawalLimitPaise;
+        this.zone = zone;
+        this.clock = clock;
+        this.dayEndsAtMillis = Long.MIN_VALUE;
+    }
+
+    /**
+     * Gets the tracker shared by all ATM sessions
+     * @return DailyLimitTracker instance
+     */
+    public static synchronized DailyLimitTracker getInstance() {
+        if (instance == null) {
+            instance = new DailyLimitTracker(ATMConstants.MAX_DAILY_TRANSACTIONS,
+                                             MoneyUtil.toPaise(ATMConstants.DAILY_WITHDRAWAL_LIMIT));
+        }
+        return instance;
+    }
+
+    /**
+     * Reserves transactions and withdrawal amount against today's limits
+     * Either everything is reserved or nothing is
+     * @param account Account to charge
+     * @param transactions Number of transactions to reserve
+     * @param withdrawalPaise Withdrawal amount to reserve in paise
+     * @return true if reserved, false if a daily limit would be exceeded
+     * @throws IllegalArgumentException if an amount is negative
+     */
+    public boolean tryReserve(Account account, int transactions, long withdrawalPaise) {
+        if (transactions < 0 || withdrawalPaise < 0) {
+            throw new IllegalArgumentException("Reservation cannot be negative");
+        }
+        if (transactions > maxTransactions || withdrawalPaise > withdrawalLimitPaise) {
+            return false; // Also keeps the sums below from overflowing into the day bits
+        }
+        long today = today();
+        while (true) {
+            long usage = account.getDailyUsage();
+            long count = countOf(usage, today) + transactions;
+            long withdrawn = withdrawnOf(usage, today) + withdrawalPaise;
+            if (count > maxTransactions || withdrawn > withdrawalLimitPaise) {
+                return false;
+            }
+            if (account.compareAndSetDailyUsage(usage, pack(today, count, withdrawn))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a reservation that was not used, e.g. a withdrawal the balance
+     * could not cover; ignored if the day has rolled over since
+     * @param account Account that was charged
+     * @param transactions Number of transactions to return
+     * @param withdrawalPaise Withdrawal amount to return in paise
+     */
+    public void release(Account account, int transactions, long withdrawalPaise) {
+        long today = today();
+        while (true) {
+            long usage = account.getDailyUsage();
+            if (dayOf(usage) != today) {
+                return;
+            }
+            long count = Math.max(0L, countOf(usage, today) - transactions);
+            long withdrawn = Math.max(0L, withdrawnOf(usage, today) - withdrawalPaise);
+            if (account.compareAndSetDailyUsage(usage, pack(today, count, withdrawn))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of transactions made today
+     * @param account Account
+     * @return Transaction count
+     */
+    public int getTransactionCount(Account account) {
+        return (int) countOf(account.getDailyUsage(), today());
+    }
+
+    /**
+     * Gets the amount withdrawn today
+     * @param account Account
+     * @return Withdrawn amount in paise
+     */
+    public long getWithdrawnPaise(Account account) {
+        return withdrawnOf(account.getDailyUsage(), today());
+    }
+
+    /**
+     * Gets the number of transactions still allowed today
+     * @param account Account
+     * @return Remaining transaction count
+     */
+    public int getRemainingTransactions(Account account) {
+        return maxTransactions - getTransactionCount(account);
+    }
+
+    /**
+     * Gets the amount that can still be withdrawn today
+     * @param account Account
+     * @return Remaining withdrawal amount in paise
+     */
+    public long getRemainingWithdrawalPaise(Account account) {
+        return withdrawalLimitPaise - getWithdrawnPaise(account);
+    }
+
+    /**
+     * Gets the daily transaction limit
+     * @return Maximum transactions per day
+     */
+    public int getMaxTransactions() {
+        return maxTransactions;
+    }
+
+    /**
+     * Gets the daily withdrawal limit
+     * @return Maximum withdrawal per day in paise
+     */
+    public long getWithdrawalLimitPaise() {
+        return withdrawalLimitPaise;
+    }
+
+    /**
+     * Gets the current day number, recomputing it only when midnight has passed
+     * Racing threads may both recompute; they arrive at the same value
+     * @return Day number (days since the epoch in the tracker's zone)
+     */
+    private long today() {
+        long now = clock.getAsLong();
+        if (now < dayEndsAtMillis) {
+            return currentDay;
+        }
+        LocalDate date = Instant.ofEpochMilli(now).atZone(zone).toLocalDate();
+        long day = date.toEpochDay() & DAY_MASK;
+        currentDay = day;
+        dayEndsAtMillis = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        return day;
+    }
+
+    private static long pack(long day, long count, long withdrawnPaise) {
+        return (day << (COUNT_BITS + AMOUNT_BITS)) | (count << AMOUNT_BITS) | withdrawnPaise;
+    }
+
+    private static long dayOf(long usage) {
+        return usage >>> (COUNT_BITS + AMOUNT_BITS);
+    }
+
+    private static long countOf(long usage, long today) {
+        return dayOf(usage) == today ? (usage >>> AMOUNT_BITS) & COUNT_MASK : 0L;
+    }
+
+    private static long withdrawnOf(long usage, long today) {
+        return dayOf(usage) == today ? usage & AMOUNT_MASK : 0L;
+    }
+}
@@ -0,0 +1,172 @@
+package atm;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Precomputed dispense plans for every valid withdrawal amount
+ * Withdrawals are multiples of 100 between MIN_WITHDRAWAL_AMOUNT and
+ * MAX_WITHDRAWAL_AMOUNT, so one denomination set has only a few hundred
+ * distinct plans. Each is solved once with unlimited notes and kept as
+ * note counts, an unmodifiable map and its rendered breakdown text, so a
+ * lookup is an index computation. Immutable; build a new table when the
+ * denomination set or the set of stocked cassettes changes
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+final class DenominationPlanTable {
+
+    private static final int[] STANDARD_DENOMINATIONS = {2000, 500, 200, 100, 50, 20, 10};
+    private static DenominationPlanTable standard;
+
+    private final int[] denominations;
+    private final long minAmount;
+    private final long step;
+    private final int[][] counts;
+    private final Map<Integer, Integer>[] plans;
+    private final String[] breakdowns;
+
+    /**
+     * Solves every valid withdrawal amount for a denomination set
+     * @param denominations Note values in rupees
+     * @throws IllegalArgumentException if the set is empty or holds a non-positive or repeated value
+     */
+    DenominationPlanTable(int[] denominations) {
+        this(new DispensePlanner(denominations, (int) ATMConstants.MAX_WITHDRAWAL_AMOUNT), null);
+    }
+
+    /**
+     * Solves every valid withdrawal amount with some denominations left out
+     * @param planner Planner for the full denomination set
+     * @param stocked Whether each denomination, in planner order, can be used; null for all
+     */
+    DenominationPlanTable(DispensePlanner planner, boolean[] stocked) {
+        this(planner, stocked, (long) ATMConstants.MIN_WITHDRAWAL_AMOUNT,
+             Math.min((long) ATMConstants.MAX_WITHDRAWAL_AMOUNT, planner.getMaxAmount()),
+             ATMConstants.WITHDRAWAL_AMOUNT_STEP);
+    }
+
+    /**
+     * Solves every amount in a range
+     * @param planner Planner for the full denomination set
+     * @param stocked Whether each denomination, in planner order, can be used; null for all
+     * @param minAmount Smallest amount, in rupees
+     * @param maxAmount Largest amount, in rupees; at most the planner's maximum
+     * @param step Distance between amounts, in rupees
+     * @throws IllegalArgumentException if the range is invalid
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    DenominationPlanTable(DispensePlanner planner, boolean[] stocked, long minAmount, long maxAmount, long step) {
+        if (step <= 0 || minAmount <= 0 || maxAmount < minAmount || maxAmount > planner.getMaxAmount()) {
+            throw new IllegalArgumentException("Invalid amount range");
+        }
+        DispensePlanner.Workspace workspace = planner.newWorkspace();
+        this.denominations = planner.getDenominations();
+        this.minAmount = minAmount;
+        this.step = step;
+        int size = (int) ((maxAmount - minAmount) / step) + 1;
+        this.counts = new int[size][];
+        this.plans = new Map[size];
+        this.breakdowns = new String[size];
+        int[] stock = new int[this.denominations.length];
+        for (int i = 0; i < stock.length; i++) {
+            stock[i] = stocked == null || stocked[i] ? Integer.MAX_VALUE : 0;
+        }
+        for (int i = 0; i < size; i++) {
+            int[] plan = new int[this.denominations.length];
+            if (planner.solve(minAmount + i * step, stock, plan, workspace)) {
+                counts[i] = plan;
+                plans[i] = Collections.unmodifiableMap(toMap(this.denominations, plan));
+                breakdowns[i] = render(plans[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets the table for the standard note set used without cassettes
+     * @return Shared table
+     */
+    static synchronized DenominationPlanTable standard() {
+        if (standard == null) {
+            standard = new DenominationPlanTable(STANDARD_DENOMINATIONS);
+        }
+        return standard;
+    }
+
+    /**
+     * Gets the note counts of an amount's plan
+     * The array is shared and must not be modified
+     * @param amount Amount in rupees
+     * @return Note count per denomination, largest first, or null if the amount is not in the table
+     */
+    int[] counts(long amount) {
+        int index = indexOf(amount);
+        return index < 0 ? null : counts[index];
+    }
+
+    /**
+     * Gets an amount's plan
+     * @param amount Amount in rupees
+     * @return Unmodifiable map of denomination to note count, or null if the amount is not in the table
+     */
+    Map<Integer, Integer> plan(long amount) {
+        int index = indexOf(amount);
+        return index < 0 ? null : plans[index];
+    }
+
+    /**
+     * Gets an amount's rendered breakdown
+     * @param amount Amount in rupees
+     * @return Breakdown text, or null if the amount is not in the table
+     */
+    String breakdown(long amount) {
+        int index = indexOf(amount);
+        return index < 0 ? null : breakdowns[index];
+    }
+
+    /**
+     * Gets the denominations, largest first
+     * @return Copy of the note values in rupees
+     */
+    int[] getDenominations() {
+        return denominations.clone();
+    }
+
+    private int indexOf(long amount) {
+        long offset = amount - minAmount;
+        if (offset < 0 || offset % step != 0 || offset / step >= counts.length) {
+            return -1;
+        }
+        return (int) (offset / step);
+    }
+
+    /**
+     * Converts note counts to a map
+     * @param denominations Note values, largest first
+     * @param counts Note count per denomination
+     * @return Map of denomination to note count, largest first, without zero counts
+     */
+    static Map<Integer, Integer> toMap(int[] denominations, int[] counts) {
+        Map<Integer, Integer> notes = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                notes.put(denominations[i], counts[i]);
+            }
+        }
+        return notes;
+    }
+
+    /**
+     * Renders a plan as breakdown text
+     * @param notes Map of denomination to note count
+     * @return Breakdown text
+     */
+    static String render(Map<Integer, Integer> notes) {
+        StringBuilder breakdown = new StringBuilder("Denomination Breakdown:\n");
+        for (Map.Entry<Integer, Integer> entry : notes.entrySet()) {
+            breakdown.append("₹").append(entry.getKey()).append(" x ").append(entry.getValue()).append("\n");
+        }
+        return breakdown.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package atm;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Pool of equally sized direct byte buffers
+ * Direct buffers are expensive to allocate and are only freed by the
+ * garbage collector, so connections borrow them from here and hand them back
+ * when they close. Not thread-safe: a pool belongs to one selector thread
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+class DirectBufferPool {
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> free;
+
+    /**
+     * Creates an empty pool
+     * @param bufferSize Capacity of every buffer in bytes
+     * @param maxPooled Maximum number of idle buffers kept for reuse
+     * @throws IllegalArgumentException if bufferSize is not positive or maxPooled is negative
+     */
+    DirectBufferPool(int bufferSize, int maxPooled) {
+        if (bufferSize <= 0 || maxPooled < 0) {
+            throw new IllegalArgumentException("Invalid buffer pool size");
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+        this.free = new ArrayDeque<>(Math.min(maxPooled, 1024));
+    }
+
+    /**
+     * Borrows a cleared buffer, allocating one if the pool is empty
+     * @return Buffer in write mode
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.pollFirst();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Returns a buffer to the pool
+     * @param buffer Buffer obtained from acquire, may be null
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer != null && free.size() < maxPooled) {
+            buffer.clear();
+            free.offerFirst(buffer);
+        }
+    }
+
+    /**
+     * Gets the number of idle buffers in the pool
+     * @return Pooled buffer count
+     */
+    int pooled() {
+        return free.size();
+    }
+}
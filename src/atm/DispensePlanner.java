@@ -0,0 +1,217 @@
+package atm;
+
+import java.util.Arrays;
+
+/**
+ * Bounded change-making for a fixed set of note denominations
+ * Finds the dispense plan with the fewest notes that uses no more notes of
+ * each denomination than are in stock. At construction a table of the
+ * fewest notes needed for every amount up to the maximum, using only the
+ * k-th and smaller denominations with unlimited stock, is precomputed. A
+ * plan is then a depth-first search from the largest denomination down,
+ * taking as many notes as allowed first and never so few that the smaller
+ * cassettes could not cover the rest. A branch is pruned when the
+ * remaining stock cannot cover it, when its lower bound cannot beat the best
+ * plan found, or when an earlier branch reached the same amount and
+ * denomination with no more notes. The lower bound is the larger of the table
+ * entry and the notes needed if the largest notes in stock could be split.
+ * Usually the first plan tried meets the bound and the search ends there.
+ * Immutable and thread-safe; each caller brings its own Workspace
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+final class DispensePlanner {
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    private final int[] denominations;
+    private final int[] units;
+    private final int unit;
+    private final int maxUnits;
+    private final int[][] minNotes;
+
+    /**
+     * Precomputes the plan bounds for a denomination set
+     * @param denominations Note values in rupees, any order, no duplicates
+     * @param maxAmount Largest amount that will be planned, in rupees
+     * @throws IllegalArgumentException if the set is empty or holds a non-positive or repeated value
+     */
+    DispensePlanner(int[] denominations, int maxAmount) {
+        if (denominations == null || denominations.length == 0 || maxAmount < 0) {
+            throw new IllegalArgumentException("Invalid denominations");
+        }
+        int[] sorted = denominations.clone();
+        Arrays.sort(sorted);
+        int gcd = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] <= 0 || (i > 0 && sorted[i] == sorted[i - 1])) {
+                throw new IllegalArgumentException("Denominations must be positive and distinct");
+            }
+            gcd = gcd(gcd, sorted[i]);
+        }
+        int count = sorted.length;
+        this.denominations = new int[count];
+        this.units = new int[count];
+        for (int i = 0; i < count; i++) {
+            this.denominations[i] = sorted[count - 1 - i];
+            this.units[i] = this.denominations[i] / gcd;
+        }
+        this.unit = gcd;
+        this.maxUnits = maxAmount / gcd;
+        this.minNotes = new int[count + 1][maxUnits + 1];
+        Arrays.fill(minNotes[count], UNREACHABLE);
+        minNotes[count][0] = 0;
+        for (int k = count - 1; k >= 0; k--) {
+            int[] row = minNotes[k];
+            int[] next = minNotes[k + 1];
+            for (int a = 0; a <= maxUnits; a++) {
+                int without = next[a];
+                int with = a >= units[k] ? row[a - units[k]] + 1 : UNREACHABLE;
+                row[a] = Math.min(without, with);
+            }
+        }
+    }
+
+    /**
+     * Search state reused across solves by one caller; not thread-safe
+     */
+    final class Workspace {
+        private final int[] current = new int[units.length];
+        private final int[] best = new int[units.length];
+        private final long[] capacity = new long[units.length + 1];
+        private final int[][] visitedAt = new int[units.length][maxUnits + 1];
+        private final int[][] visitedNotes = new int[units.length][maxUnits + 1];
+        private int generation;
+        private int[] stock;
+        private int lowerBound;
+        private int bestNotes;
+    }
+
+    /**
+     * Creates search state for one caller
+     * @return New workspace
+     */
+    Workspace newWorkspace() {
+        return new Workspace();
+    }
+
+    /**
+     * Finds the plan with the fewest notes within stock
+     * @param amount Amount in rupees
+     * @param stock Notes available per denomination, in getDenominations() order
+     * @param plan Receives the note count per denomination, in getDenominations() order
+     * @param workspace Caller's search state
+     * @return true if the amount can be dispensed from the stock
+     */
+    boolean solve(long amount, int[] stock, int[] plan, Workspace workspace) {
+        if (amount <= 0 || amount % unit != 0 || amount / unit > maxUnits) {
+            return false;
+        }
+        int target = (int) (amount / unit);
+        if (minNotes[0][target] >= UNREACHABLE) {
+            return false;
+        }
+        Workspace w = workspace;
+        for (int k = units.length - 1; k >= 0; k--) {
+            w.capacity[k] = w.capacity[k + 1] + (long) stock[k] * units[k];
+        }
+        if (w.capacity[0] < target) {
+            return false;
+        }
+        if (++w.generation == 0) {
+            for (int[] row : w.visitedAt) {
+                Arrays.fill(row, 0);
+            }
+            w.generation = 1;
+        }
+        w.stock = stock;
+        w.lowerBound = lowerBound(w, 0, target);
+        w.bestNotes = UNREACHABLE;
+        search(w, 0, target, 0);
+        if (w.bestNotes == UNREACHABLE) {
+            return false;
+        }
+        System.arraycopy(w.best, 0, plan, 0, plan.length);
+        return true;
+    }
+
+    /**
+     * Gets the denominations, largest first
+     * @return Copy of the note values in rupees
+     */
+    int[] getDenominations() {
+        return denominations.clone();
+    }
+
+    /**
+     * Gets the largest amount this planner can plan
+     * @return Amount in rupees
+     */
+    long getMaxAmount() {
+        return (long) maxUnits * unit;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * Gets a lower bound on the notes needed for an amount from denomination k on
+     * @return Larger of the unlimited-stock table entry and the split-note bound
+     */
+    private int lowerBound(Workspace w, int k, int remaining) {
+        int bound = minNotes[k][remaining];
+        int notes = 0;
+        int left = remaining;
+        for (int i = k; i < units.length && left > 0; i++) {
+            int take = Math.min(w.stock[i], left / units[i]);
+            notes += take;
+            left -= take * units[i];
+            if (left > 0 && take < w.stock[i]) {
+                // One more note of this size would cover the rest
+                notes++;
+                left = 0;
+            }
+        }
+        return Math.max(bound, notes);
+    }
+
+    /**
+     * Extends the current plan from denomination k
+     * @return true once a plan meeting the lower bound is found
+     */
+    private boolean search(Workspace w, int k, int remaining, int notes) {
+        if (remaining == 0) {
+            if (notes < w.bestNotes) {
+                w.bestNotes = notes;
+                System.arraycopy(w.current, 0, w.best, 0, k);
+                Arrays.fill(w.best, k, w.best.length, 0);
+            }
+            return notes == w.lowerBound;
+        }
+        if (k == units.length || w.capacity[k] < remaining || notes + lowerBound(w, k, remaining) >= w.bestNotes) {
+            return false;
+        }
+        if (w.visitedAt[k][remaining] == w.generation && w.visitedNotes[k][remaining] <= notes) {
+            return false;
+        }
+        w.visitedAt[k][remaining] = w.generation;
+        w.visitedNotes[k][remaining] = notes;
+        int most = Math.min(w.stock[k], remaining / units[k]);
+        // Take at least enough notes that the smaller cassettes can cover the rest
+        long uncovered = remaining - w.capacity[k + 1];
+        int least = uncovered > 0 ? (int) ((uncovered + units[k] - 1) / units[k]) : 0;
+        for (int c = most; c >= least; c--) {
+            w.current[k] = c;
+            if (search(w, k + 1, remaining - c * units[k], notes + c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,129 @@
+package atm;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Evaluates transaction charges from a compiled FeeSchedule
+ * The schedule is flattened once into parallel arrays: every (transaction
+ * type, account type) pair owns a cell holding its monthly free quota and
+ * a slice of the band arrays sorted by threshold. Evaluating a fee is an
+ * ordinal lookup plus a scan of that cell's few bands. Where declarations
+ * overlap (the same cell and threshold, or the same cell's quota) the later
+ * one wins, so declare defaults for every account type first and overrides
+ * after. Immutable once built
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class FeeEngine {
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final AccountType[] ACCOUNT_TYPES = AccountType.values();
+    private static final long BASIS_POINTS = 10_000L;
+
+    private static FeeEngine instance;
+
+    private final int[] freeQuota;
+    private final int[] cellStart;
+    private final long[] overPaise;
+    private final long[] flatPaise;
+    private final int[] rateBps;
+
+    /**
+     * Compiles a schedule
+     * @param schedule Declared charges
+     * @throws IllegalArgumentException if schedule is null
+     */
+    public FeeEngine(FeeSchedule schedule) {
+        if (schedule == null) {
+            throw new IllegalArgumentException("Fee schedule cannot be null");
+        }
+        int cells = TYPES.length * ACCOUNT_TYPES.length;
+        freeQuota = new int[cells];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Map<Long, FeeSchedule.Band>[] byCell = new TreeMap[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            byCell[cell] = new TreeMap<>();
+        }
+        for (FeeSchedule.Quota quota : schedule.getQuotas()) {
+            for (AccountType accountType : ACCOUNT_TYPES) {
+                if (quota.accountType == null || quota.accountType == accountType) {
+                    freeQuota[cell(quota.type, accountType)] = quota.perMonth;
+                }
+            }
+        }
+        for (FeeSchedule.Band band : schedule.getBands()) {
+            for (AccountType accountType : ACCOUNT_TYPES) {
+                if (band.accountType == null || band.accountType == accountType) {
+                    byCell[cell(band.type, accountType)].put(band.overPaise, band);
+                }
+            }
+        }
+        int total = 0;
+        for (Map<Long, FeeSchedule.Band> cellBands : byCell) {
+            total += cellBands.size();
+        }
+        cellStart = new int[cells + 1];
+        overPaise = new long[total];
+        flatPaise = new long[total];
+        rateBps = new int[total];
+        int next = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            cellStart[cell] = next;
+            for (FeeSchedule.Band band : byCell[cell].values()) {
+                overPaise[next] = band.overPaise;
+                flatPaise[next] = band.flatPaise;
+                rateBps[next] = band.rateBps;
+                next++;
+            }
+        }
+        cellStart[cells] = next;
+    }
+
+    /**
+     * Gets the engine compiled from the standard schedule
+     * @return FeeEngine instance
+     */
+    public static synchronized FeeEngine getInstance() {
+        if (instance == null) {
+            instance = new FeeEngine(FeeSchedule.standard());
+        }
+        return instance;
+    }
+
+    /**
+     * Calculates the charge for a transaction
+     * A rate charge is rounded half up to the paisa
+     * @param type Transaction type
+     * @param accountType Account type
+     * @param amountPaise Transaction amount in paise
+     * @param usedThisMonth Transactions of this type already made this month
+     * @return Charge in paise
+     */
+    public long feePaise(TransactionType type, AccountType accountType, long amountPaise, int usedThisMonth) {
+        int cell = cell(type, accountType);
+        if (usedThisMonth < freeQuota[cell]) {
+            return 0L;
+        }
+        for (int i = cellStart[cell + 1] - 1; i >= cellStart[cell]; i--) {
+            if (amountPaise > overPaise[i]) {
+                return flatPaise[i] + (amountPaise * rateBps[i] + BASIS_POINTS / 2) / BASIS_POINTS;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Gets the number of free transactions per month
+     * @param type Transaction type
+     * @param accountType Account type
+     * @return Free transactions per month
+     */
+    public int getFreeQuota(TransactionType type, AccountType accountType) {
+        return freeQuota[cell(type, accountType)];
+    }
+
+    private static int cell(TransactionType type, AccountType accountType) {
+        return type.ordinal() * ACCOUNT_TYPES.length + accountType.ordinal();
+    }
+}
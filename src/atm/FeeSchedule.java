@@ -0,0 +1,124 @@
+package atm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Declarative list of transaction charges, compiled into a FeeEngine
+ * A band charges a flat amount plus a rate on every transaction of its
+ * type and account type whose amount is above the band's threshold; the
+ * band with the highest threshold below the amount applies. A free quota
+ * waives the charge for the first transactions of a type in a month.
+ * A null account type declares the entry for every account type
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class FeeSchedule {
+
+    /**
+     * One declared amount band
+     */
+    static final class Band {
+        final TransactionType type;
+        final AccountType accountType;
+        final long overPaise;
+        final long flatPaise;
+        final int rateBps;
+
+        Band(TransactionType type, AccountType accountType, long overPaise, long flatPaise, int rateBps) {
+            this.type = type;
+            this.accountType = accountType;
+            this.overPaise = overPaise;
+            this.flatPaise = flatPaise;
+            this.rateBps = rateBps;
+        }
+    }
+
+    /**
+     * One declared monthly free quota
+     */
+    static final class Quota {
+        final TransactionType type;
+        final AccountType accountType;
+        final int perMonth;
+
+        Quota(TransactionType type, AccountType accountType, int perMonth) {
+            this.type = type;
+            this.accountType = accountType;
+            this.perMonth = perMonth;
+        }
+    }
+
+    private final List<Band> bands = new ArrayList<>();
+    private final List<Quota> quotas = new ArrayList<>();
+
+    /**
+     * Declares a charge for amounts above a threshold
+     * @param type Transaction type
+     * @param accountType Account type, or null for every account type
+     * @param overPaise Band applies to amounts above this, in paise
+     * @param flatPaise Flat charge in paise
+     * @param rateBps Charge on the amount in basis points
+     * @return This schedule, for chaining
+     * @throws IllegalArgumentException if type is null or a value is negative
+     */
+    public FeeSchedule band(TransactionType type, AccountType accountType, long overPaise, long flatPaise, int rateBps) {
+        if (type == null) {
+            throw new IllegalArgumentException("Transaction type cannot be null");
+        }
+        if (overPaise < 0 || flatPaise < 0 || rateBps < 0) {
+            throw new IllegalArgumentException("Fee band values cannot be negative");
+        }
+        bands.add(new Band(type, accountType, overPaise, flatPaise, rateBps));
+        return this;
+    }
+
+    /**
+     * Declares a number of free transactions per calendar month
+     * @param type Transaction type
+     * @param accountType Account type, or null for every account type
+     * @param perMonth Transactions per month that are not charged
+     * @return This schedule, for chaining
+     * @throws IllegalArgumentException if type is null or perMonth is negative
+     */
+    public FeeSchedule freeQuota(TransactionType type, AccountType accountType, int perMonth) {
+        if (type == null) {
+            throw new IllegalArgumentException("Transaction type cannot be null");
+        }
+        if (perMonth < 0) {
+            throw new IllegalArgumentException("Free quota cannot be negative");
+        }
+        quotas.add(new Quota(type, accountType, perMonth));
+        return this;
+    }
+
+    /**
+     * Gets the declared bands in declaration order
+     * @return Bands
+     */
+    List<Band> getBands() {
+        return bands;
+    }
+
+    /**
+     * Gets the declared quotas in declaration order
+     * @return Quotas
+     */
+    List<Quota> getQuotas() {
+        return quotas;
+    }
+
+    /**
+     * Creates the bank's standard schedule
+     * ATM withdrawals beyond the monthly free quota pay ATM_TRANSACTION_CHARGE,
+     * and transfers above LARGE_TRANSFER_THRESHOLD pay LARGE_TRANSFER_FEE_BPS
+     * @return Standard schedule
+     */
+    public static FeeSchedule standard() {
+        return new FeeSchedule()
+            .freeQuota(TransactionType.WITHDRAWAL, null, ATMConstants.FREE_ATM_TRANSACTIONS_PER_MONTH)
+            .band(TransactionType.WITHDRAWAL, null, 0L, MoneyUtil.toPaise(ATMConstants.ATM_TRANSACTION_CHARGE), 0)
+            .band(TransactionType.TRANSFER, null, MoneyUtil.toPaise(ATMConstants.LARGE_TRANSFER_THRESHOLD),
+                  0L, ATMConstants.LARGE_TRANSFER_FEE_BPS);
+    }
+}
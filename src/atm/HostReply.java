@@ -0,0 +1,62 @@
+package atm;
+
+/**
+ * Reply from a core-banking host
+ * Status codes are the TerminalProtocol status codes, which is also how
+ * replies travel on the wire
+ * @author ATM Machine Simulation
+ * @version 1.1
+ */
+public final class HostReply {
+
+    /**
+     * Stands for a request the host may or may not have applied, e.g. one
+     * that timed out; it is neither approved nor declined
+     */
+    public static final HostReply OUTCOME_UNKNOWN = new HostReply((byte) -1, 0L);
+
+    private final byte status;
+    private final long balancePaise;
+
+    /**
+     * Creates a reply
+     * @param status TerminalProtocol status code
+     * @param balancePaise Balance after the request in paise
+     */
+    public HostReply(byte status, long balancePaise) {
+        this.status = status;
+        this.balancePaise = balancePaise;
+    }
+
+    /**
+     * Checks whether the host applied the request
+     * @return true if approved
+     */
+    public boolean isApproved() {
+        return status == TerminalProtocol.STATUS_OK;
+    }
+
+    /**
+     * Checks whether the host's answer never arrived
+     * @return true if the request may or may not have been applied
+     */
+    public boolean isOutcomeUnknown() {
+        return this == OUTCOME_UNKNOWN;
+    }
+
+    /**
+     * Gets the status code
+     * @return TerminalProtocol status code
+     */
+    public byte getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the balance reported by the host
+     * @return Balance in paise
+     */
+    public long getBalancePaise() {
+        return balancePaise;
+    }
+}
@@ -0,0 +1,220 @@
+package atm;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the remote core-banking host
+ * Speaks TerminalProtocol frames and answers each request after a
+ * configurable latency plus uniform random jitter, so replies on one
+ * connection may come back out of order just as they can from a real host.
+ * Run standalone with: java atm.HostSimulator [port] [latencyMillis] [jitterMillis]
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class HostSimulator implements AutoCloseable {
+
+    private static final TransactionType[] OPERATIONS = TransactionType.values();
+
+    private final AccountRegistry registry;
+    private final TransferEngine transferEngine;
+    private final long latencyMicros;
+    private final long jitterMicros;
+    private final ScheduledThreadPoolExecutor clock;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * Creates a host over an account registry
+     * @param registry Accounts owned by the host
+     * @param latencyMicros Mean reply latency in microseconds
+     * @param jitterMicros Maximum deviation from the mean in microseconds
+     * @throws IllegalArgumentException if registry is null or a delay is negative
+     */
+    public HostSimulator(AccountRegistry registry, long latencyMicros, long jitterMicros) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Account registry cannot be null");
+        }
+        if (latencyMicros < 0 || jitterMicros < 0) {
+            throw new IllegalArgumentException("Latency and jitter cannot be negative");
+        }
+        this.registry = registry;
+        this.transferEngine = new TransferEngine(registry);
+        this.latencyMicros = latencyMicros;
+        this.jitterMicros = jitterMicros;
+        this.clock = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "atm-host-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Binds to the loopback interface and starts accepting ATM connections
+     * @param port Port to listen on, or 0 for any free port
+     * @return Port the host is listening on
+     * @throws IOException if the port cannot be bound
+     */
+    public synchronized int start(int port) throws IOException {
+        if (serverChannel != null) {
+            throw new IllegalStateException("Host already started");
+        }
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        Thread acceptor = new Thread(this::acceptLoop, "atm-host-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.socket().setTcpNoDelay(true);
+                connections.add(channel);
+                Thread reader = new Thread(() -> serve(channel), "atm-host-connection");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (serverChannel.isOpen()) {
+                    ATMLogger.error("Host cannot accept connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads requests from one ATM and schedules their replies
+     * @param channel ATM connection
+     */
+    private void serve(SocketChannel channel) {
+        ByteBuffer in = ByteBuffer.allocateDirect(ATMConstants.NIO_BUFFER_BYTES);
+        try {
+            while (channel.read(in) >= 0) {
+                in.flip();
+                int body;
+                while ((body = TerminalProtocol.completeFrame(in)) > 0) {
+                    int end = in.position() + TerminalProtocol.HEADER_BYTES + body;
+                    in.position(in.position() + TerminalProtocol.HEADER_BYTES);
+                    schedule(channel, in);
+                    in.position(end);
+                }
+                if (body < 0) {
+                    break;
+                }
+                in.compact();
+            }
+        } catch (IOException e) {
+            // ATM disconnected
+        } finally {
+            connections.remove(channel);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+
+    /**
+     * Decodes one request and schedules its execution and reply
+     * @param channel Connection to reply on
+     * @param in Buffer positioned at the request body
+     */
+    private void schedule(SocketChannel channel, ByteBuffer in) {
+        int opcode = in.get();
+        long id = in.getLong();
+        long amountPaise = in.getLong();
+        String accountNumber = BinaryCodec.getAscii(in);
+        TransactionType type = opcode >= 0 && opcode < OPERATIONS.length ? OPERATIONS[opcode] : null;
+        String target = type == TransactionType.TRANSFER ? BinaryCodec.getAscii(in) : null;
+        long delay = latencyMicros;
+        if (jitterMicros > 0) {
+            delay = Math.max(0L, delay + ThreadLocalRandom.current().nextLong(-jitterMicros, jitterMicros + 1));
+        }
+        try {
+            clock.schedule(() -> reply(channel, id, execute(type, accountNumber, amountPaise, target)),
+                           delay, TimeUnit.MICROSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Host is shutting down; the ATM sees the connection close
+        }
+    }
+
+    private HostReply execute(TransactionType type, String accountNumber, long amountPaise, String target) {
+        Account account = registry.find(accountNumber);
+        if (account == null) {
+            return new HostReply(TerminalProtocol.STATUS_UNKNOWN_ACCOUNT, 0L);
+        }
+        if (type == null) {
+            return new HostReply(TerminalProtocol.STATUS_BAD_REQUEST, account.getBalancePaise());
+        }
+        try {
+            return LocalBankHost.execute(type, account, amountPaise, target, transferEngine, null);
+        } catch (RuntimeException e) {
+            ATMLogger.error("Host request failed: " + e.getMessage());
+            return new HostReply(TerminalProtocol.STATUS_BAD_REQUEST, account.getBalancePaise());
+        }
+    }
+
+    private void reply(SocketChannel channel, long id, HostReply reply) {
+        ByteBuffer out = ByteBuffer.allocate(TerminalProtocol.RESPONSE_BYTES);
+        TerminalProtocol.putResponse(out, reply.getStatus(), id, reply.getBalancePaise());
+        out.flip();
+        try {
+            synchronized (channel) {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+        } catch (IOException e) {
+            // ATM disconnected; its reader thread cleans up
+        }
+    }
+
+    /**
+     * Stops accepting connections and disconnects every ATM
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            for (SocketChannel channel : connections) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            ATMLogger.error("Cannot close host simulator: " + e.getMessage());
+        }
+        clock.shutdownNow();
+    }
+
+    /**
+     * Runs the simulator with the demo accounts until the process is stopped
+     * @param args [port] [latencyMillis] [jitterMillis]
+     * @throws IOException if the port cannot be bound
+     * @throws InterruptedException if interrupted while running
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : ATMConstants.HOST_PORT;
+        long latencyMillis = args.length > 1 ? Long.parseLong(args[1]) : 0L;
+        long jitterMillis = args.length > 2 ? Long.parseLong(args[2]) : 0L;
+        AccountRegistry registry = new AccountRegistry();
+        ATM.registerDemoAccounts(registry);
+        HostSimulator host = new HostSimulator(registry, latencyMillis * 1000, jitterMillis * 1000);
+        System.out.printf("Host simulator listening on 127.0.0.1:%d (latency %d ms, jitter %d ms)%n",
+                          host.start(port), latencyMillis, jitterMillis);
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,125 @@
+package atm;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Unique, unguessable identifiers for sessions, tokens and transactions
+ * Each thread owns a generator made of a stream number, drawn once from a
+ * shared counter, and a private sequence. The 128-bit pair is encrypted
+ * with AES under a key drawn from SecureRandom when the class loads.
+ * Encryption is a permutation, so distinct pairs always give distinct IDs.
+ * Without the key, an ID reveals nothing about the next one. Generating an
+ * ID touches only the calling thread's state, so threads never contend
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public final class IdGenerator {
+
+    private static final char[] ALPHABET =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final int BLOCK_BYTES = 16;
+    private static final int ID_CHARS = 22;
+
+    private static final SecretKeySpec KEY;
+    private static final AtomicLong STREAMS = new AtomicLong();
+    private static final ThreadLocal<Generator> GENERATORS = ThreadLocal.withInitial(Generator::new);
+
+    static {
+        byte[] key = new byte[BLOCK_BYTES];
+        new SecureRandom().nextBytes(key);
+        KEY = new SecretKeySpec(key, "AES");
+    }
+
+    /**
+     * One thread's stream of IDs
+     */
+    private static final class Generator {
+        private final long stream = STREAMS.incrementAndGet();
+        private final Cipher cipher;
+        private final byte[] plain = new byte[BLOCK_BYTES];
+        private final byte[] sealed = new byte[BLOCK_BYTES];
+        private final char[] text = new char[ID_CHARS];
+        private long sequence;
+
+        Generator() {
+            try {
+                cipher = Cipher.getInstance("AES/ECB/NoPadding");
+                cipher.init(Cipher.ENCRYPT_MODE, KEY);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("AES is not available", e);
+            }
+        }
+
+        String next(String prefix) {
+            putLong(plain, 0, stream);
+            putLong(plain, 8, ++sequence);
+            try {
+                cipher.doFinal(plain, 0, BLOCK_BYTES, sealed, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot generate ID", e);
+            }
+            encode(sealed, text);
+            return prefix.concat(new String(text));
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private IdGenerator() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+
+    /**
+     * Generates an ID with a prefix
+     * @param prefix Text placed before the 22 random-looking characters
+     * @return Identifier unique within this process
+     */
+    public static String nextId(String prefix) {
+        return GENERATORS.get().next(prefix);
+    }
+
+    /**
+     * Generates a session ID
+     * @return Session ID
+     */
+    public static String nextSessionId() {
+        return nextId("SES");
+    }
+
+    /**
+     * Generates a session token
+     * @return Session token
+     */
+    public static String nextToken() {
+        return nextId("TOKEN_");
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    /**
+     * Encodes 128 bits as URL-safe base64 without padding
+     */
+    private static void encode(byte[] bytes, char[] text) {
+        int out = 0;
+        for (int i = 0; i < 15; i += 3) {
+            int group = (bytes[i] & 0xFF) << 16 | (bytes[i + 1] & 0xFF) << 8 | (bytes[i + 2] & 0xFF);
+            text[out++] = ALPHABET[group >>> 18];
+            text[out++] = ALPHABET[(group >>> 12) & 0x3F];
+            text[out++] = ALPHABET[(group >>> 6) & 0x3F];
+            text[out++] = ALPHABET[group & 0x3F];
+        }
+        int last = bytes[15] & 0xFF;
+        text[out++] = ALPHABET[last >>> 2];
+        text[out] = ALPHABET[(last & 0x03) << 4];
+    }
+}
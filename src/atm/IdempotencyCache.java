@@ -0,0 +1,376 @@
+package atm;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, time-expiring cache of request outcomes keyed by idempotency key
+ * Terminals that retry after a timeout resend the same key; the retry gets
+ * the outcome of the original request instead of running it again. Each key
+ * remembers the operation, amount and target it was first used for, and a
+ * reuse for a different request is refused rather than answered with the
+ * unrelated original outcome.
+ *
+ * Entries live in fixed arrays split into independently locked segments.
+ * Each key maps to a small set of slots, so lookups and inserts are O(1) and
+ * nothing is allocated per request. Only empty or expired slots are reused:
+ * a live entry is never evicted, because a retry arriving after its eviction
+ * would run the request a second time. When a set is full, its segment
+ * doubles (rehashing only that segment) up to the maximum capacity, and past
+ * that new keys are refused as busy. A request that is still running holds
+ * its slot as pending, and a retry arriving meanwhile waits for its outcome
+ * @author ATM Machine Simulation
+ * @version 1.1
+ */
+public class IdempotencyCache {
+
+    private static final int WAYS = 4;
+    private static final int SEGMENTS = 64;
+    private static final byte EMPTY = 0;
+    private static final byte PENDING = 1;
+    private static final byte SUCCEEDED = 2;
+    private static final byte FAILED = 3;
+    private static final byte NO_TYPE = -1;
+
+    private static IdempotencyCache instance;
+
+    private final Segment[] segments;
+    private final int maxSetsPerSegment;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    /**
+     * Creates a cache of fixed size
+     * @param capacity Approximate maximum number of keys kept
+     * @param ttlMillis How long a completed outcome is replayed
+     * @throws IllegalArgumentException if capacity or ttlMillis is not positive
+     */
+    public IdempotencyCache(int capacity, long ttlMillis) {
+        this(capacity, capacity, ttlMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a cache that grows on demand
+     * @param capacity Approximate number of keys kept initially
+     * @param maxCapacity Approximate number of keys the cache may grow to
+     * @param ttlMillis How long a completed outcome is replayed
+     * @throws IllegalArgumentException if a capacity or ttlMillis is not positive
+     */
+    public IdempotencyCache(int capacity, int maxCapacity, long ttlMillis) {
+        this(capacity, maxCapacity, ttlMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a fixed-size cache with an explicit clock
+     * @param capacity Approximate maximum number of keys kept
+     * @param ttlMillis How long a completed outcome is replayed
+     * @param clock Millisecond clock
+     * @throws IllegalArgumentException if capacity or ttlMillis is not positive
+     */
+    IdempotencyCache(int capacity, long ttlMillis, LongSupplier clock) {
+        this(capacity, capacity, ttlMillis, clock);
+    }
+
+    /**
+     * Creates a cache with an explicit clock
+     * @param capacity Approximate number of keys kept initially
+     * @param maxCapacity Approximate number of keys the cache may grow to
+     * @param ttlMillis How long a completed outcome is replayed
+     * @param clock Millisecond clock
+     * @throws IllegalArgumentException if a capacity or ttlMillis is not positive
+     */
+    IdempotencyCache(int capacity, int maxCapacity, long ttlMillis, LongSupplier clock) {
+        if (capacity <= 0 || maxCapacity <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Capacity and TTL must be positive");
+        }
+        int sets = setsPerSegment(capacity);
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(sets);
+        }
+        this.maxSetsPerSegment = Math.max(sets, setsPerSegment(maxCapacity));
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the shared cache used by ATM sessions
+     * @return IdempotencyCache instance
+     */
+    public static synchronized IdempotencyCache getInstance() {
+        if (instance == null) {
+            instance = new IdempotencyCache(ATMConstants.IDEMPOTENCY_CACHE_CAPACITY,
+                                            ATMConstants.IDEMPOTENCY_CACHE_MAX_CAPACITY,
+                                            ATMConstants.IDEMPOTENCY_TTL_SECONDS * 1000L);
+        }
+        return instance;
+    }
+
+    /**
+     * Claims a key that is not tied to a particular request
+     * @param scope Namespace of the key, such as the account number
+     * @param key Idempotency key sent by the terminal
+     * @return Outcome of the original request, or null if the caller claimed the key
+     * @throws IllegalArgumentException if scope or key is null
+     * @throws RejectedExecutionException if the cache is full of live keys
+     * @throws IllegalStateException if interrupted while waiting
+     * @see #begin(String, String, TransactionType, long, String)
+     */
+    public Boolean begin(String scope, String key) {
+        return begin(scope, key, null, 0L, null);
+    }
+
+    /**
+     * Claims a key before running a request
+     * If the key is unknown (or expired) it is claimed as pending and the caller
+     * must run the request and then call complete() or abandon(). If another
+     * request with the key is still running, waits for it to finish
+     * @param scope Namespace of the key, such as the account number
+     * @param key Idempotency key sent by the terminal
+     * @param type Operation the key is used for, or null
+     * @param amountPaise Amount of the request in paise
+     * @param target Target account of a transfer, or null
+     * @return Outcome of the original request, or null if the caller claimed the key
+     * @throws IllegalArgumentException if scope or key is null, or the key was
+     *         used for a different operation, amount or target
+     * @throws RejectedExecutionException if every slot the key may use holds a
+     *         live entry and the cache cannot grow; the request was not run
+     * @throws IllegalStateException if interrupted while waiting
+     */
+    public Boolean begin(String scope, String key, TransactionType type, long amountPaise, String target) {
+        int hash = hash(scope, key);
+        byte typeCode = type == null ? NO_TYPE : (byte) type.ordinal();
+        Segment segment = segments[hash & (SEGMENTS - 1)];
+        synchronized (segment) {
+            while (true) {
+                long now = clock.getAsLong();
+                int slot = segment.find(hash, scope, key);
+                if (slot < 0 || (segment.states[slot] != PENDING && segment.expiresAt[slot] <= now)) {
+                    int free = slot >= 0 ? slot : segment.free(hash, now);
+                    while (free < 0 && segment.setCount() < maxSetsPerSegment) {
+                        segment.grow(now);
+                        free = segment.free(hash, now);
+                    }
+                    if (free < 0) {
+                        throw new RejectedExecutionException("Idempotency cache is full; retry later");
+                    }
+                    segment.claim(free, hash, scope, key, now + ttlMillis, typeCode, amountPaise, target);
+                    return null;
+                }
+                if (!segment.matches(slot, typeCode, amountPaise, target)) {
+                    throw new IllegalArgumentException("Idempotency key reused for a different request");
+                }
+                if (segment.states[slot] != PENDING) {
+                    return segment.states[slot] == SUCCEEDED ? Boolean.TRUE : Boolean.FALSE;
+                }
+                try {
+                    segment.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for original request", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the outcome of a claimed request
+     * @param scope Namespace of the key
+     * @param key Idempotency key
+     * @param result Outcome to replay for retries
+     */
+    public void complete(String scope, String key, boolean result) {
+        finish(scope, key, result ? SUCCEEDED : FAILED);
+    }
+
+    /**
+     * Releases a claimed key without an outcome, e.g. when the request threw,
+     * so that a retry runs the request again
+     * @param scope Namespace of the key
+     * @param key Idempotency key
+     */
+    public void abandon(String scope, String key) {
+        finish(scope, key, EMPTY);
+    }
+
+    /**
+     * Stores a final state for a pending key and wakes waiting retries
+     * @param scope Namespace of the key
+     * @param key Idempotency key
+     * @param state Final state
+     */
+    private void finish(String scope, String key, byte state) {
+        int hash = hash(scope, key);
+        Segment segment = segments[hash & (SEGMENTS - 1)];
+        synchronized (segment) {
+            int slot = segment.find(hash, scope, key);
+            if (slot >= 0 && segment.states[slot] == PENDING) {
+                segment.states[slot] = state;
+                segment.expiresAt[slot] = clock.getAsLong() + ttlMillis;
+                if (state == EMPTY) {
+                    segment.scopes[slot] = null;
+                    segment.keys[slot] = null;
+                    segment.targets[slot] = null;
+                }
+                segment.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of keys the cache can currently hold
+     * @return Capacity
+     */
+    public int getCapacity() {
+        int total = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                total += segment.keys.length;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of keys the cache may grow to
+     * @return Maximum capacity
+     */
+    public int getMaxCapacity() {
+        return SEGMENTS * maxSetsPerSegment * WAYS;
+    }
+
+    /**
+     * Computes the power-of-two number of sets per segment for a capacity
+     * @param capacity Approximate number of keys
+     * @return Sets per segment
+     */
+    private static int setsPerSegment(int capacity) {
+        int sets = Integer.highestOneBit(Math.max(1, (capacity + SEGMENTS * WAYS - 1) / (SEGMENTS * WAYS)));
+        if ((long) sets * SEGMENTS * WAYS < capacity) {
+            sets <<= 1;
+        }
+        return sets;
+    }
+
+    /**
+     * Spreads the combined hash of scope and key
+     * @param scope Namespace of the key
+     * @param key Idempotency key
+     * @return Hash code
+     */
+    private static int hash(String scope, String key) {
+        if (scope == null || key == null) {
+            throw new IllegalArgumentException("Idempotency scope and key cannot be null");
+        }
+        int h = (scope.hashCode() * 31 + key.hashCode()) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * One independently locked part of the cache; slots are grouped into sets of WAYS
+     */
+    private static final class Segment {
+        private int setMask;
+        private int[] hashes;
+        private String[] scopes;
+        private String[] keys;
+        private long[] expiresAt;
+        private byte[] states;
+        private byte[] types;
+        private long[] amounts;
+        private String[] targets;
+
+        Segment(int sets) {
+            allocate(sets);
+        }
+
+        private void allocate(int sets) {
+            int slots = sets * WAYS;
+            setMask = sets - 1;
+            hashes = new int[slots];
+            scopes = new String[slots];
+            keys = new String[slots];
+            expiresAt = new long[slots];
+            states = new byte[slots];
+            types = new byte[slots];
+            amounts = new long[slots];
+            targets = new String[slots];
+        }
+
+        int setCount() {
+            return setMask + 1;
+        }
+
+        private int base(int hash) {
+            return ((hash >>> 6) & setMask) * WAYS;
+        }
+
+        int find(int hash, String scope, String key) {
+            int base = base(hash);
+            for (int slot = base; slot < base + WAYS; slot++) {
+                if (states[slot] != EMPTY && hashes[slot] == hash
+                        && key.equals(keys[slot]) && scope.equals(scopes[slot])) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Picks an empty or expired slot of the key's set
+         * @return Slot, or -1 if every slot holds a live entry
+         */
+        int free(int hash, long now) {
+            int base = base(hash);
+            for (int slot = base; slot < base + WAYS; slot++) {
+                if (states[slot] == EMPTY || (states[slot] != PENDING && expiresAt[slot] <= now)) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        boolean matches(int slot, byte type, long amountPaise, String target) {
+            return types[slot] == type && amounts[slot] == amountPaise
+                   && (target == null ? targets[slot] == null : target.equals(targets[slot]));
+        }
+
+        void claim(int slot, int hash, String scope, String key, long expiry,
+                   byte type, long amountPaise, String target) {
+            hashes[slot] = hash;
+            scopes[slot] = scope;
+            keys[slot] = key;
+            expiresAt[slot] = expiry;
+            states[slot] = PENDING;
+            types[slot] = type;
+            amounts[slot] = amountPaise;
+            targets[slot] = target;
+        }
+
+        /**
+         * Doubles the number of sets and rehashes the live entries; expired
+         * ones are dropped. Each new set takes entries from one old set only,
+         * so they always fit. Waiting retries look their key up again on wakeup
+         */
+        void grow(long now) {
+            int[] oldHashes = hashes;
+            String[] oldScopes = scopes;
+            String[] oldKeys = keys;
+            long[] oldExpiresAt = expiresAt;
+            byte[] oldStates = states;
+            byte[] oldTypes = types;
+            long[] oldAmounts = amounts;
+            String[] oldTargets = targets;
+            allocate(setCount() * 2);
+            for (int old = 0; old < oldStates.length; old++) {
+                if (oldStates[old] == EMPTY || (oldStates[old] != PENDING && oldExpiresAt[old] <= now)) {
+                    continue;
+                }
+                int slot = free(oldHashes[old], now);
+                claim(slot, oldHashes[old], oldScopes[old], oldKeys[old], oldExpiresAt[old],
+                      oldTypes[old], oldAmounts[old], oldTargets[old]);
+                states[slot] = oldStates[old];
+            }
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package atm;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Predicate;
+
+/**
+ * Nightly interest accrual over every eligible account
+ * For each account the balance is integrated over the business day from its
+ * postings, giving the average daily balance, and one day of interest at the
+ * annual rate (actual/365) is credited as an INTEREST posting. All arithmetic
+ * is on whole paise-seconds with exact banker's rounding to the paisa.
+ * The registry's shards are split across a fork-join pool; each leaf walks
+ * one shard and waits once for the journal records of all its credits.
+ * Each account keeps the latest business date it was credited for, checked
+ * and advanced under its monitor and journaled with the credit, so running a
+ * date twice, or two runs at once, credits once. An account already credited
+ * for the date or a later one is reported as skipped; a skipped earlier date
+ * can no longer be credited. An account whose kept history no longer covers
+ * the day, or whose credit could not be made durable, is not credited and is
+ * reported as failed
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class InterestEngine {
+
+    private static final long BASIS_POINTS = 10_000L;
+    private static final long DAYS_PER_YEAR = 365L;
+
+    private final AccountRegistry registry;
+    private final int annualRateBps;
+    private final Predicate<Account> eligible;
+    private final ForkJoinPool pool;
+
+    /**
+     * Outcome of one accrual run
+     */
+    public static final class Summary {
+        private final long accountsScanned;
+        private final long accountsCredited;
+        private final long accountsFailed;
+        private final long accountsSkipped;
+        private final long interestPaise;
+        private final long elapsedNanos;
+
+        Summary(long accountsScanned, long accountsCredited, long accountsFailed, long accountsSkipped,
+                long interestPaise, long elapsedNanos) {
+            this.accountsScanned = accountsScanned;
+            this.accountsCredited = accountsCredited;
+            this.accountsFailed = accountsFailed;
+            this.accountsSkipped = accountsSkipped;
+            this.interestPaise = interestPaise;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Gets the number of accounts examined
+         * @return Account count
+         */
+        public long getAccountsScanned() {
+            return accountsScanned;
+        }
+
+        /**
+         * Gets the number of accounts that received a credit
+         * @return Credited account count
+         */
+        public long getAccountsCredited() {
+            return accountsCredited;
+        }
+
+        /**
+         * Gets the number of accounts whose interest could not be computed
+         * because their kept history no longer covers the day, or whose
+         * credit was taken back because the journal could not be written
+         * @return Failed account count
+         */
+        public long getAccountsFailed() {
+            return accountsFailed;
+        }
+
+        /**
+         * Gets the number of accounts not credited because they already were
+         * for this day or a later one
+         * @return Skipped account count
+         */
+        public long getAccountsSkipped() {
+            return accountsSkipped;
+        }
+
+        /**
+         * Gets the total interest credited
+         * @return Interest in paise
+         */
+        public long getInterestPaise() {
+            return interestPaise;
+        }
+
+        /**
+         * Gets the wall-clock duration of the run
+         * @return Duration in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Gets the throughput of the run
+         * @return Accounts scanned per second
+         */
+        public double getAccountsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : accountsScanned * 1e9 / elapsedNanos;
+        }
+    }
+
+    /**
+     * Creates an engine that accrues the savings rate on every account on the common pool
+     * Accounts carry no account type in this simulator, so every account is a savings account
+     * @param registry Accounts to accrue interest on
+     */
+    public InterestEngine(AccountRegistry registry) {
+        this(registry, ATMConstants.SAVINGS_INTEREST_RATE_BPS, account -> true, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an engine
+     * @param registry Accounts to accrue interest on
+     * @param annualRateBps Annual interest rate in basis points
+     * @param eligible Selects the accounts that earn interest
+     * @param pool Pool to run the accrual on
+     * @throws IllegalArgumentException if an argument is null or the rate is negative
+     */
+    public InterestEngine(AccountRegistry registry, int annualRateBps, Predicate<Account> eligible, ForkJoinPool pool) {
+        if (registry == null || eligible == null || pool == null) {
+            throw new IllegalArgumentException("Registry, eligibility filter and pool are required");
+        }
+        if (annualRateBps < 0) {
+            throw new IllegalArgumentException("Interest rate cannot be negative");
+        }
+        this.registry = registry;
+        this.annualRateBps = annualRateBps;
+        this.eligible = eligible;
+        this.pool = pool;
+    }
+
+    /**
+     * Accrues one day of interest on every eligible account
+     * @param businessDate Day to accrue for; must have ended
+     * @param zone Time zone that defines the day
+     * @return Summary of the run
+     * @throws IllegalArgumentException if the business day has not ended yet
+     */
+    public Summary accrue(LocalDate businessDate, ZoneId zone) {
+        long dayStart = businessDate.atStartOfDay(zone).toEpochSecond();
+        long dayEnd = businessDate.plusDays(1).atStartOfDay(zone).toEpochSecond();
+        if (dayEnd * 1000L > System.currentTimeMillis()) {
+            throw new IllegalArgumentException("Business day " + businessDate + " has not ended");
+        }
+        long start = System.nanoTime();
+        long[] totals = pool.invoke(new ShardRange(new Day(businessDate, dayStart, dayEnd),
+                                                   0, registry.getShardCount()));
+        Summary summary = new Summary(totals[0], totals[1], totals[2], totals[3], totals[4],
+                                      System.nanoTime() - start);
+        ATMLogger.info(String.format("Interest accrued for %s: %d accounts scanned, %d credited, %d failed, "
+                                     + "%d skipped, %s total, %.0f accounts/sec",
+                                     businessDate, summary.getAccountsScanned(), summary.getAccountsCredited(),
+                                     summary.getAccountsFailed(), summary.getAccountsSkipped(),
+                                     MoneyUtil.format(summary.getInterestPaise()), summary.getAccountsPerSecond()));
+        if (summary.getAccountsFailed() > 0) {
+            ATMLogger.error("Interest for " + businessDate + " was not accrued on " + summary.getAccountsFailed()
+                            + " accounts");
+        }
+        if (summary.getAccountsSkipped() > 0) {
+            ATMLogger.warning("Interest for " + businessDate + " skipped on " + summary.getAccountsSkipped()
+                              + " accounts already credited for it or a later day");
+        }
+        return summary;
+    }
+
+    /**
+     * Computes one day of interest exactly
+     * interest = balanceSeconds * rate / (10000 * 365 * daySeconds), rounded half to even
+     * @param balanceSeconds Balance integrated over the day, in paise-seconds
+     * @param daySeconds Length of the day in seconds
+     * @param annualRateBps Annual rate in basis points
+     * @return Interest in paise
+     */
+    static long dailyInterest(long balanceSeconds, long daySeconds, int annualRateBps) {
+        long divisor = BASIS_POINTS * DAYS_PER_YEAR * daySeconds;
+        // Split the dividend so no intermediate product can overflow
+        long quotient = balanceSeconds / divisor;
+        long remainder = (balanceSeconds % divisor) * annualRateBps;
+        long interest = quotient * annualRateBps + remainder / divisor;
+        long rest = remainder % divisor;
+        if (2 * rest > divisor || (2 * rest == divisor && (interest & 1L) == 1L)) {
+            interest++;
+        }
+        return interest;
+    }
+
+    /**
+     * The business day being accrued
+     */
+    private static final class Day {
+        final LocalDate date;
+        final long startSecond;
+        final long endSecond;
+
+        Day(LocalDate date, long startSecond, long endSecond) {
+            this.date = date;
+            this.startSecond = startSecond;
+            this.endSecond = endSecond;
+        }
+    }
+
+    /**
+     * Splits a range of shards until each task owns one shard
+     */
+    @SuppressWarnings("serial")
+    private final class ShardRange extends RecursiveTask<long[]> {
+        private final Day day;
+        private final int from;
+        private final int to;
+
+        ShardRange(Day day, int from, int to) {
+            this.day = day;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from == 1) {
+                ShardAccrual accrual = new ShardAccrual(day);
+                registry.forEachInShard(from, accrual);
+                accrual.awaitJournal();
+                return new long[] {accrual.scanned, accrual.credited, accrual.failed, accrual.skipped,
+                                   accrual.interestPaise};
+            }
+            int middle = (from + to) >>> 1;
+            ShardRange left = new ShardRange(day, from, middle);
+            left.fork();
+            long[] right = new ShardRange(day, middle, to).compute();
+            long[] totals = left.join();
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += right[i];
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Accrues interest for the accounts of one shard
+     */
+    private final class ShardAccrual implements Consumer<Account> {
+        private final Day day;
+        private final LongUnaryOperator interestOn;
+        private long scanned;
+        private long credited;
+        private long failed;
+        private long skipped;
+        private long interestPaise;
+        private TransactionJournal journal;
+        private long journalSequence;
+        // Credits not yet durable, taken back if the journal fails
+        private Account[] pendingAccounts = new Account[16];
+        private long[] pendingInterest = new long[16];
+        private long[] pendingPrevious = new long[16];
+        private int pending;
+
+        ShardAccrual(Day day) {
+            this.day = day;
+            long daySeconds = day.endSecond - day.startSecond;
+            this.interestOn = balanceSeconds -> dailyInterest(balanceSeconds, daySeconds, annualRateBps);
+        }
+
+        @Override
+        public void accept(Account account) {
+            scanned++;
+            if (!eligible.test(account)) {
+                return;
+            }
+            TransactionJournal current = account.getJournal();
+            if (current != journal) {
+                awaitJournal();
+                journal = current;
+            }
+            long previous = current != null ? account.getInterestAccruedEpochDay() : 0L;
+            long interest;
+            try {
+                interest = account.accrueInterest(current, day.date, day.startSecond, day.endSecond, interestOn);
+            } catch (IllegalStateException e) {
+                ATMLogger.error("Interest for " + account.getMaskedAccountNumber() + " not accrued: " + e.getMessage());
+                failed++;
+                return;
+            }
+            if (interest == Long.MIN_VALUE) {
+                ATMLogger.warning("Interest for " + account.getMaskedAccountNumber() + " would overflow its balance");
+                return;
+            }
+            if (interest == Account.ALREADY_ACCRUED) {
+                skipped++;
+                return;
+            }
+            if (interest == 0) {
+                return;
+            }
+            if (current != null) {
+                // Covers the credit; a later posting on the account only makes the wait slightly longer
+                journalSequence = Math.max(journalSequence, account.getJournalSequence());
+                addPending(account, interest, previous);
+            }
+            credited++;
+            interestPaise += interest;
+        }
+
+        private void addPending(Account account, long interest, long previous) {
+            if (pending == pendingAccounts.length) {
+                pendingAccounts = Arrays.copyOf(pendingAccounts, pending * 2);
+                pendingInterest = Arrays.copyOf(pendingInterest, pending * 2);
+                pendingPrevious = Arrays.copyOf(pendingPrevious, pending * 2);
+            }
+            pendingAccounts[pending] = account;
+            pendingInterest[pending] = interest;
+            pendingPrevious[pending] = previous;
+            pending++;
+        }
+
+        /**
+         * Waits until the credits written to the current journal are durable
+         * If they cannot be, they are taken back and counted as failed
+         */
+        void awaitJournal() {
+            try {
+                if (journal != null && journalSequence > 0) {
+                    journal.awaitDurableUninterruptibly(journalSequence);
+                }
+            } catch (RuntimeException e) {
+                ATMLogger.error("Interest for " + day.date + " taken back on " + pending + " accounts: "
+                                + e.getMessage());
+                for (int i = 0; i < pending; i++) {
+                    pendingAccounts[i].revertInterest(day.date, pendingInterest[i], pendingPrevious[i]);
+                    interestPaise -= pendingInterest[i];
+                }
+                credited -= pending;
+                failed += pending;
+            }
+            Arrays.fill(pendingAccounts, 0, pending, null);
+            pending = 0;
+            journalSequence = 0L;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package atm;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-process host that applies requests directly to the Account objects
+ * This is the behaviour the ATM always had; replies are complete on return
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class LocalBankHost implements BankHost {
+
+    private final TransferEngine transferEngine;
+
+    /**
+     * Creates an in-process host
+     * @param transferEngine Engine used for transfers (null refuses transfers)
+     */
+    public LocalBankHost(TransferEngine transferEngine) {
+        this.transferEngine = transferEngine;
+    }
+
+    @Override
+    public CompletableFuture<HostReply> submit(TransactionType type, Account account, long amountPaise,
+                                               String targetAccountNumber) {
+        return submit(type, account, amountPaise, targetAccountNumber, null);
+    }
+
+    /**
+     * Applies a request before returning, keeping its reference with the posting
+     * A request that fails, e.g. because the journal cannot be written, has
+     * been undone by the account; the future then completes exceptionally
+     * with the failure and the caller may treat it as declined
+     */
+    @Override
+    public CompletableFuture<HostReply> submit(TransactionType type, Account account, long amountPaise,
+                                               String targetAccountNumber, String reference) {
+        try {
+            return CompletableFuture.completedFuture(execute(type, account, amountPaise, targetAccountNumber,
+                                                             transferEngine, reference));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Applies a request to an account; shared with HostSimulator, which plays the remote host
+     * @param type Request type
+     * @param account Account
+     * @param amountPaise Amount in paise
+     * @param targetAccountNumber Target account for transfers
+     * @param transferEngine Engine used for transfers (null refuses transfers)
+     * @param reference Request reference kept with the posting, or null
+     * @return Reply
+     */
+    static HostReply execute(TransactionType type, Account account, long amountPaise,
+                             String targetAccountNumber, TransferEngine transferEngine, String reference) {
+        boolean approved;
+        switch (type) {
+            case BALANCE_INQUIRY:
+                approved = true;
+                break;
+            case DEPOSIT:
+                approved = amountPaise > 0 && account.depositPaise(amountPaise, reference);
+                break;
+            case WITHDRAWAL:
+                approved = amountPaise > 0 && account.withdrawPaise(amountPaise, reference);
+                break;
+            case TRANSFER:
+                approved = amountPaise > 0 && transferEngine != null
+                           && transferEngine.transfer(account.getAccountNumber(), targetAccountNumber, amountPaise,
+                                                      reference);
+                break;
+            default:
+                return new HostReply(TerminalProtocol.STATUS_BAD_REQUEST, account.getBalancePaise());
+        }
+        return new HostReply(approved ? TerminalProtocol.STATUS_OK : TerminalProtocol.STATUS_REJECTED,
+                             account.getBalancePaise());
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
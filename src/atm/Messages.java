@@ -10,6 +10,7 @@ public class Messages {
     
     // Authentication Messages
     public static final String MSG_AUTH_REQUIRED = ">>> AUTHENTICATION REQUIRED <<<";
+    public static final String MSG_ENTER_CARD_ACCOUNT = "Enter your account number: ";
     public static final String MSG_ENTER_PIN = "Enter your 4-digit PIN: ";
     public static final String MSG_PIN_SUCCESS = "\n[SUCCESS] PIN verified successfully!";
     public static final String MSG_PIN_INCORRECT = "[X] Incorrect PIN! You have %d attempt(s) remaining.";
@@ -70,7 +71,6 @@ public class Messages {
     public static final String MSG_ENTER_ACCOUNT_NUMBER = "Enter target account number: ";
     
     // Exit Messages
-    public static final String MSG_THANK_YOU = "\nThank you for using " + ATMConstants.BANK_NAME + "!";
     public static final String MSG_GOODBYE = "Have a great day!";
     public static final String MSG_TAKE_CARD = "Please take your card.";
     
@@ -0,0 +1,65 @@
+package atm;
+
+/**
+ * Fixed-point money helpers for ATM operations
+ * Balances and amounts are held internally as a long count of paise
+ * so that repeated postings never accumulate floating point drift
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class MoneyUtil {
+
+    public static final long PAISE_PER_RUPEE = 100L;
+
+    /** Largest amount, in paise, that toPaise accepts (ten lakh crore rupees) */
+    public static final long MAX_AMOUNT_PAISE = 1_000_000_000_000_000L;
+
+    /**
+     * Converts a rupee amount to paise, rounding to the nearest paisa
+     * @param rupees Amount in rupees
+     * @return Amount in paise
+     * @throws IllegalArgumentException if amount is NaN, infinite or larger than MAX_AMOUNT_PAISE
+     */
+    public static long toPaise(double rupees) {
+        if (!isConvertible(rupees)) {
+            throw new IllegalArgumentException("Amount must be a finite number within " + format(MAX_AMOUNT_PAISE));
+        }
+        return Math.round(rupees * PAISE_PER_RUPEE);
+    }
+
+    /**
+     * Checks whether a rupee amount can be converted to paise
+     * @param rupees Amount in rupees
+     * @return true if the amount is finite and within MAX_AMOUNT_PAISE either way
+     */
+    public static boolean isConvertible(double rupees) {
+        return Math.abs(rupees) <= MAX_AMOUNT_PAISE / (double) PAISE_PER_RUPEE;
+    }
+
+    /**
+     * Converts paise to a rupee amount
+     * @param paise Amount in paise
+     * @return Amount in rupees
+     */
+    public static double toRupees(long paise) {
+        return paise / (double) PAISE_PER_RUPEE;
+    }
+
+    /**
+     * Formats paise as a plain rupee string without going through double
+     * @param paise Amount in paise
+     * @return Formatted amount (e.g., 1234.05)
+     */
+    public static String format(long paise) {
+        long abs = Math.abs(paise);
+        long fraction = abs % PAISE_PER_RUPEE;
+        return (paise < 0 ? "-" : "") + (abs / PAISE_PER_RUPEE) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private MoneyUtil() {
+        throw new AssertionError("Cannot instantiate money utility class");
+    }
+}
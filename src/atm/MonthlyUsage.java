@@ -0,0 +1,130 @@
+package atm;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Packs an account's deposit, withdrawal and outgoing transfer counts for
+ * the current calendar month into one long (month, three counts), so fee
+ * quotas read a single field instead of scanning the posting history.
+ * Counts recorded in an earlier month read as zero, which resets the
+ * quotas on the first of the month without any reset job. Counts saturate
+ * rather than overflow into the neighbouring field
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+final class MonthlyUsage {
+
+    private static final int COUNT_BITS = 16;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int MONTH_SHIFT = 3 * COUNT_BITS;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static volatile Window window = new Window(Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE);
+
+    private MonthlyUsage() {
+    }
+
+    /**
+     * Gets the month a time falls in
+     * @param epochMillis Time in epoch milliseconds
+     * @return Month number (year * 12 + zero-based month in the system zone)
+     */
+    static long monthOf(long epochMillis) {
+        return windowOf(epochMillis).month;
+    }
+
+    /**
+     * Gets the start of the month a time falls in, for rebuilding counts from history
+     * @param epochMillis Time in epoch milliseconds
+     * @return First instant of that month
+     */
+    static long monthStartMillis(long epochMillis) {
+        return windowOf(epochMillis).startsAtMillis;
+    }
+
+    /**
+     * Adds postings of a type to packed usage
+     * Postings of a type that is not counted, or of a month older than the
+     * usage, leave it unchanged; postings of a newer month start it afresh
+     * @param usage Packed usage
+     * @param type Posting type code from TransactionHistory
+     * @param epochMillis Time of the postings
+     * @param delta Number of postings to add; negative to take them back
+     * @return Updated packed usage
+     */
+    static long add(long usage, byte type, long epochMillis, int delta) {
+        int shift = shiftOf(type);
+        if (shift < 0) {
+            return usage;
+        }
+        long month = monthOf(epochMillis);
+        long usageMonth = usage >>> MONTH_SHIFT;
+        if (month < usageMonth) {
+            return usage;
+        }
+        if (month > usageMonth) {
+            usage = month << MONTH_SHIFT;
+        }
+        long count = Math.min(COUNT_MASK, Math.max(0L, ((usage >>> shift) & COUNT_MASK) + delta));
+        return (usage & ~(COUNT_MASK << shift)) | (count << shift);
+    }
+
+    /**
+     * Gets the number of postings of a type in the month containing a time
+     * @param usage Packed usage
+     * @param type Posting type code from TransactionHistory
+     * @param epochMillis Current time in epoch milliseconds
+     * @return Posting count; 0 for types that are not counted
+     */
+    static int count(long usage, byte type, long epochMillis) {
+        int shift = shiftOf(type);
+        if (shift < 0 || usage >>> MONTH_SHIFT != monthOf(epochMillis)) {
+            return 0;
+        }
+        return (int) ((usage >>> shift) & COUNT_MASK);
+    }
+
+    /**
+     * Gets the month containing a time, recomputing it only when the time
+     * lies outside the month last asked about
+     * Racing threads may both recompute; each publishes a consistent window
+     */
+    private static Window windowOf(long epochMillis) {
+        Window current = window;
+        if (epochMillis >= current.startsAtMillis && epochMillis < current.endsAtMillis) {
+            return current;
+        }
+        LocalDate first = Instant.ofEpochMilli(epochMillis).atZone(ZONE).toLocalDate().withDayOfMonth(1);
+        Window computed = new Window(first.getYear() * 12L + first.getMonthValue() - 1,
+                                     first.atStartOfDay(ZONE).toInstant().toEpochMilli(),
+                                     first.plusMonths(1).atStartOfDay(ZONE).toInstant().toEpochMilli());
+        window = computed;
+        return computed;
+    }
+
+    private static int shiftOf(byte type) {
+        switch (type) {
+            case TransactionHistory.TYPE_DEPOSIT: return 0;
+            case TransactionHistory.TYPE_WITHDRAWAL: return COUNT_BITS;
+            case TransactionHistory.TYPE_TRANSFER_OUT: return 2 * COUNT_BITS;
+            default: return -1;
+        }
+    }
+
+    /**
+     * One month and its bounds, published together
+     */
+    private static final class Window {
+        final long month;
+        final long startsAtMillis;
+        final long endsAtMillis;
+
+        Window(long month, long startsAtMillis, long endsAtMillis) {
+            this.month = month;
+            this.startsAtMillis = startsAtMillis;
+            this.endsAtMillis = endsAtMillis;
+        }
+    }
+}
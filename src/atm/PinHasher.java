@@ -0,0 +1,165 @@
+package atm;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Salted, key-stretched PIN hashes
+ * A hash is PBKDF2-HMAC-SHA256 over the PIN with a random 16-byte salt,
+ * stored as $pbkdf2-sha256$iterations$salt$hash (base64, unpadded). The
+ * iteration count is the work factor: it is read from ATMConfig when a
+ * PIN is hashed and kept in the hash, so raising it never invalidates
+ * stored PINs. A 4-digit PIN has only 10,000 values, so the work factor
+ * sets how expensive each guess is, both against the stored hashes and
+ * at the terminal; MAX_PIN_ATTEMPTS stays the main online defence
+ *
+ * Each thread reuses one Mac and its buffers, so verifying a PIN allocates
+ * nothing per iteration
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public final class PinHasher {
+
+    private static final String PREFIX = "$pbkdf2-sha256$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final ThreadLocal<Deriver> DERIVERS = ThreadLocal.withInitial(Deriver::new);
+
+    /**
+     * One thread's PBKDF2 state
+     */
+    private static final class Deriver {
+        private final Mac mac;
+        private final byte[] block = new byte[HASH_BYTES];
+        private final byte[] result = new byte[HASH_BYTES];
+
+        Deriver() {
+            try {
+                mac = Mac.getInstance("HmacSHA256");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        }
+
+        /**
+         * Derives the single 32-byte PBKDF2 block
+         */
+        byte[] derive(String pin, byte[] salt, int iterations) {
+            try {
+                mac.init(new SecretKeySpec(pin.getBytes(StandardCharsets.US_ASCII), "HmacSHA256"));
+                mac.update(salt);
+                mac.update(new byte[] {0, 0, 0, 1});
+                mac.doFinal(block, 0);
+                System.arraycopy(block, 0, result, 0, HASH_BYTES);
+                for (int i = 1; i < iterations; i++) {
+                    mac.update(block);
+                    mac.doFinal(block, 0);
+                    for (int b = 0; b < HASH_BYTES; b++) {
+                        result[b] ^= block[b];
+                    }
+                }
+                return result.clone();
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot derive PIN hash", e);
+            }
+        }
+    }
+
+    /**
+     * Hashes a PIN with a fresh salt at the configured work factor
+     * @param pin PIN to hash
+     * @return Encoded hash
+     * @throws IllegalArgumentException if pin is null or empty
+     */
+    public static String hash(String pin) {
+        return hash(pin, ATMConfig.getInstance().getPinHashIterations());
+    }
+
+    /**
+     * Hashes a PIN with a fresh salt
+     * @param pin PIN to hash
+     * @param iterations Work factor
+     * @return Encoded hash
+     * @throws IllegalArgumentException if pin is null or empty, or iterations is not positive
+     */
+    public static String hash(String pin, int iterations) {
+        if (pin == null || pin.isEmpty()) {
+            throw new IllegalArgumentException("PIN cannot be null or empty");
+        }
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Iterations must be positive");
+        }
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$"
+               + encoder.encodeToString(DERIVERS.get().derive(pin, salt, iterations));
+    }
+
+    /**
+     * Checks a PIN against a stored hash in constant time
+     * @param pin PIN entered by the user
+     * @param encoded Stored hash
+     * @return true if the PIN matches; false for a wrong PIN or a malformed hash
+     */
+    public static boolean verify(String pin, String encoded) {
+        if (pin == null || pin.isEmpty() || !isHash(encoded)) {
+            return false;
+        }
+        String[] fields = encoded.substring(PREFIX.length()).split("\\$");
+        if (fields.length != 3) {
+            return false;
+        }
+        try {
+            int iterations = Integer.parseInt(fields[0]);
+            byte[] salt = Base64.getDecoder().decode(fields[1]);
+            byte[] expected = Base64.getDecoder().decode(fields[2]);
+            if (iterations <= 0 || expected.length != HASH_BYTES) {
+                return false;
+            }
+            return MessageDigest.isEqual(expected, DERIVERS.get().derive(pin, salt, iterations));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether a stored credential is a hash rather than a plaintext PIN
+     * written by an older version
+     * @param credential Stored credential
+     * @return true if it is an encoded hash
+     */
+    public static boolean isHash(String credential) {
+        return credential != null && credential.startsWith(PREFIX);
+    }
+
+    /**
+     * Gets the work factor a stored hash was made with
+     * @param encoded Stored hash
+     * @return Iterations, or -1 if the hash is malformed
+     */
+    public static int getIterations(String encoded) {
+        if (!isHash(encoded)) {
+            return -1;
+        }
+        int end = encoded.indexOf('$', PREFIX.length());
+        try {
+            return end < 0 ? -1 : Integer.parseInt(encoded.substring(PREFIX.length(), end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private PinHasher() {
+        throw new AssertionError("Cannot instantiate utility class");
+    }
+}
@@ -0,0 +1,193 @@
+package atm;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Dedicated pool for key-stretched PIN checks
+ * A PIN check costs milliseconds of CPU at the configured work factor, so
+ * sessions hand it to this pool and wait on a future instead of running it
+ * on their own I/O or affinity thread. The pool has one thread per core,
+ * since more threads cannot make CPU-bound hashing faster, and a bounded
+ * queue. When the queue is full a check is refused at once: its future
+ * fails with RejectedExecutionException and the terminal can answer busy
+ * instead of piling up logins it cannot serve in time
+ *
+ * Queue time (submission to start) is measured for every check
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class PinVerifier implements AutoCloseable {
+
+    private final ThreadPoolExecutor pool;
+    private final LongAdder started = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    /**
+     * Creates a verifier with one thread per available processor
+     */
+    public PinVerifier() {
+        this(Runtime.getRuntime().availableProcessors(), ATMConstants.PIN_VERIFY_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates a verifier and starts its threads
+     * @param threads Number of verification threads
+     * @param queueCapacity Checks that may wait before new ones are refused
+     * @throws IllegalArgumentException if threads or queueCapacity is not positive
+     */
+    public PinVerifier(int threads, int queueCapacity) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        AtomicInteger ids = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                           new ArrayBlockingQueue<>(queueCapacity), task -> {
+            Thread thread = new Thread(task, "atm-pin-verifier-" + ids.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.prestartAllCoreThreads();
+    }
+
+    /**
+     * Checks a PIN against an account's stored hash
+     * @param account Account to check
+     * @param pin PIN entered by the user
+     * @return Future completed with the result, or failed with RejectedExecutionException when saturated or closed
+     * @throws IllegalArgumentException if account is null
+     */
+    public CompletableFuture<Boolean> verify(Account account, String pin) {
+        if (account == null) {
+            throw new IllegalArgumentException("Account cannot be null");
+        }
+        return submit(() -> account.validatePin(pin));
+    }
+
+    /**
+     * Runs a session's authentication, including its attempt counting, on the pool
+     * The session must not use the service until the future completes
+     * @param service Session to authenticate
+     * @param pin PIN entered by the user
+     * @return Future completed with the result, or failed with RejectedExecutionException when saturated or closed
+     * @throws IllegalArgumentException if service is null
+     */
+    public CompletableFuture<Boolean> authenticate(ATMService service, String pin) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null");
+        }
+        return submit(() -> service.authenticate(pin));
+    }
+
+    private CompletableFuture<Boolean> submit(BooleanSupplier check) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            pool.execute(() -> {
+                long waited = System.nanoTime() - queuedAt;
+                queueNanos.add(waited);
+                started.increment();
+                maxQueueNanos.accumulateAndGet(waited, Math::max);
+                try {
+                    boolean valid = check.getAsBoolean();
+                    completed.increment();
+                    future.complete(valid);
+                } catch (Throwable e) {
+                    // Even an Error must not leave a login waiting forever
+                    completed.increment();
+                    future.completeExceptionally(e);
+                    if (e instanceof Error) {
+                        throw (Error) e; // The pool replaces the thread
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Gets the number of checks waiting for a thread
+     * @return Queue depth
+     */
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * Checks whether new checks would be refused right now
+     * @return true if the queue is full
+     */
+    public boolean isSaturated() {
+        return pool.getQueue().remainingCapacity() == 0;
+    }
+
+    /**
+     * Gets the number of finished checks
+     * @return Completed checks
+     */
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * Gets the number of checks refused because the queue was full or the verifier closed
+     * @return Rejected checks
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Gets the mean time checks waited before a thread picked them up
+     * @return Average queue time in microseconds, or 0 if none started
+     */
+    public double getAverageQueueMicros() {
+        long count = started.sum();
+        return count == 0 ? 0.0 : queueNanos.sum() / 1000.0 / count;
+    }
+
+    /**
+     * Gets the longest time a check waited before a thread picked it up
+     * @return Maximum queue time in microseconds
+     */
+    public long getMaxQueueMicros() {
+        return maxQueueNanos.get() / 1000;
+    }
+
+    /**
+     * Gets the number of verification threads
+     * @return Pool size
+     */
+    public int getThreadCount() {
+        return pool.getCorePoolSize();
+    }
+
+    /**
+     * Stops accepting checks and lets queued ones finish
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package atm;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client for a remote core-banking host over one TCP connection
+ * Callers never wait for each other: every request gets a correlation id
+ * (sent as the TerminalProtocol request key) and goes into an outbound queue.
+ * A writer thread drains whatever has queued up into one buffer and one
+ * write, and a reader thread matches replies to requests by id, in whatever
+ * order the host answers. Throughput therefore scales with the number of
+ * requests in flight instead of collapsing to one per round trip as host
+ * latency grows. At most maxInFlight requests are outstanding; further
+ * callers block in submit. A request the host has not answered within the
+ * timeout fails with TimeoutException and gives up its slot; a reply that
+ * arrives later is only logged. A request refused before it was sent fails
+ * with RejectedExecutionException, so callers can tell it was never applied
+ * @author ATM Machine Simulation
+ * @version 1.1
+ */
+public class RemoteBankHost implements BankHost {
+
+    /**
+     * A request waiting to be written
+     */
+    private static final class Request {
+        final long id;
+        final TransactionType type;
+        final String accountNumber;
+        final long amountPaise;
+        final String targetAccountNumber;
+
+        Request(long id, TransactionType type, String accountNumber, long amountPaise, String targetAccountNumber) {
+            this.id = id;
+            this.type = type;
+            this.accountNumber = accountNumber;
+            this.amountPaise = amountPaise;
+            this.targetAccountNumber = targetAccountNumber;
+        }
+    }
+
+    private final SocketChannel channel;
+    private final Semaphore permits;
+    private final long timeoutMillis;
+    private final BlockingQueue<Request> outbound = new LinkedBlockingQueue<>();
+    private final ConcurrentHashMap<Long, CompletableFuture<HostReply>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final Thread writer;
+    private final Thread reader;
+    private volatile boolean open = true;
+
+    /**
+     * Connects to a host with the default reply timeout
+     * @param address Host address
+     * @param maxInFlight Maximum number of outstanding requests
+     * @throws IOException if the host cannot be reached
+     * @throws IllegalArgumentException if maxInFlight is not positive
+     */
+    public RemoteBankHost(InetSocketAddress address, int maxInFlight) throws IOException {
+        this(address, maxInFlight, ATMConstants.HOST_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Connects to a host
+     * @param address Host address
+     * @param maxInFlight Maximum number of outstanding requests
+     * @param timeoutMillis How long a request may wait for its reply
+     * @throws IOException if the host cannot be reached
+     * @throws IllegalArgumentException if maxInFlight or timeoutMillis is not positive
+     */
+    public RemoteBankHost(InetSocketAddress address, int maxInFlight, long timeoutMillis) throws IOException {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in-flight requests must be positive");
+        }
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Host timeout must be positive");
+        }
+        this.permits = new Semaphore(maxInFlight);
+        this.timeoutMillis = timeoutMillis;
+        this.channel = SocketChannel.open(address);
+        channel.socket().setTcpNoDelay(true);
+        this.writer = new Thread(this::writeLoop, "atm-host-writer");
+        this.reader = new Thread(this::readLoop, "atm-host-reader");
+        writer.setDaemon(true);
+        reader.setDaemon(true);
+        writer.start();
+        reader.start();
+    }
+
+    @Override
+    public CompletableFuture<HostReply> submit(TransactionType type, Account account, long amountPaise,
+                                               String targetAccountNumber) {
+        CompletableFuture<HostReply> reply = new CompletableFuture<>();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reply.completeExceptionally(e);
+            return reply;
+        }
+        long id = nextId.incrementAndGet();
+        inFlight.put(id, reply);
+        // However the request ends, including by timing out, it gives back its slot
+        reply.whenComplete((result, failure) -> {
+            if (inFlight.remove(id, reply)) {
+                permits.release();
+            }
+        });
+        reply.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (!open) {
+            fail(id, new RejectedExecutionException("Host connection closed"));
+            return reply;
+        }
+        outbound.add(new Request(id, type, account.getAccountNumber(), amountPaise, targetAccountNumber));
+        return reply;
+    }
+
+    /**
+     * Writes queued requests, coalescing everything queued so far into one write
+     */
+    private void writeLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(ATMConstants.NIO_BUFFER_BYTES * 16);
+        List<Request> batch = new ArrayList<>();
+        try {
+            while (open) {
+                batch.add(outbound.take());
+                outbound.drainTo(batch);
+                for (Request request : batch) {
+                    if (buffer.remaining() < TerminalProtocol.MAX_REQUEST_BODY + TerminalProtocol.HEADER_BYTES) {
+                        write(buffer);
+                    }
+                    try {
+                        TerminalProtocol.putRequest(buffer, request.type, request.id, request.amountPaise,
+                                                    request.accountNumber, request.targetAccountNumber);
+                    } catch (RuntimeException e) {
+                        fail(request.id, e);
+                    }
+                }
+                batch.clear();
+                write(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            shutdown(e);
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads replies and completes the matching requests
+     */
+    private void readLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(ATMConstants.NIO_BUFFER_BYTES);
+        try {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.remaining() >= TerminalProtocol.RESPONSE_BYTES) {
+                    if (buffer.getInt() != TerminalProtocol.RESPONSE_BYTES - TerminalProtocol.HEADER_BYTES) {
+                        throw new IOException("Invalid reply frame");
+                    }
+                    byte status = buffer.get();
+                    long id = buffer.getLong();
+                    long balancePaise = buffer.getLong();
+                    CompletableFuture<HostReply> reply = inFlight.get(id);
+                    if (reply != null) {
+                        reply.complete(new HostReply(status, balancePaise));
+                    } else {
+                        ATMLogger.warning("Host answered request " + id + " after it timed out, status " + status);
+                    }
+                }
+                buffer.compact();
+            }
+            shutdown(new IOException("Host closed the connection"));
+        } catch (IOException e) {
+            shutdown(e);
+        }
+    }
+
+    private void fail(long id, Exception cause) {
+        CompletableFuture<HostReply> reply = inFlight.get(id);
+        if (reply != null) {
+            reply.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Closes the connection and fails every outstanding request
+     * @param cause Reason, or null for an orderly close
+     */
+    private void shutdown(Exception cause) {
+        boolean wasOpen = open;
+        open = false;
+        if (wasOpen && cause != null) {
+            ATMLogger.error("Host connection lost: " + cause.getMessage());
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        writer.interrupt();
+        Exception failure = cause != null ? cause : new IOException("Host connection closed");
+        for (Long id : inFlight.keySet()) {
+            fail(id, failure);
+        }
+        outbound.clear();
+    }
+
+    /**
+     * Gets the number of requests awaiting a reply
+     * @return Outstanding request count
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void close() {
+        shutdown(null);
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package atm;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cash demand forecast for one terminal
+ * Withdrawals are fed in one at a time, in any order, and each is turned
+ * into the notes its fewest-notes plan would dispense. Only a running,
+ * recency-weighted note total per weekday and denomination is kept, so a
+ * single pass over months of history needs a fixed, small amount of memory.
+ * The forecast divides each total by the equally weighted number of such
+ * weekdays in the history, walks the terminal's current stock forward day
+ * by day to find when each cassette runs out, and proposes a refill a lead
+ * time earlier that loads only the notes expected over one refill cycle
+ * plus a safety margin
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class ReplenishmentForecaster implements TransactionHistory.PostingConsumer {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final int DAYS_PER_WEEK = 7;
+
+    private final String terminalId;
+    private final CashInventory inventory;
+    private final DenominationPlanTable plans;
+    private final int[] denominations;
+    private final ZoneId zone;
+    private final LocalDate asOf;
+    private final long asOfMillis;
+    private final double halfLifeDays;
+    private final double[][] weightedNotes;
+    private long firstMillis = Long.MAX_VALUE;
+    private long withdrawals;
+    private long withdrawnPaise;
+    private long unplanned;
+    private long cachedDayStart = Long.MAX_VALUE;
+    private long cachedDayEnd = Long.MIN_VALUE;
+    private int cachedWeekday;
+
+    /**
+     * Refill proposal for one terminal
+     */
+    public static final class RefillPlan {
+        private final String terminalId;
+        private final Map<Integer, Double> dailyDemand;
+        private final Map<Integer, LocalDate> depletion;
+        private final LocalDate refillDate;
+        private final Map<Integer, Integer> refillNotes;
+
+        RefillPlan(String terminalId, Map<Integer, Double> dailyDemand, Map<Integer, LocalDate> depletion,
+                   LocalDate refillDate, Map<Integer, Integer> refillNotes) {
+            this.terminalId = terminalId;
+            this.dailyDemand = Collections.unmodifiableMap(dailyDemand);
+            this.depletion = Collections.unmodifiableMap(depletion);
+            this.refillDate = refillDate;
+            this.refillNotes = Collections.unmodifiableMap(refillNotes);
+        }
+
+        /**
+         * Gets the terminal the plan is for
+         * @return Terminal ID
+         */
+        public String getTerminalId() {
+            return terminalId;
+        }
+
+        /**
+         * Gets the average expected notes dispensed per day
+         * @return Map of denomination to notes per day
+         */
+        public Map<Integer, Double> getDailyDemand() {
+            return dailyDemand;
+        }
+
+        /**
+         * Gets the day each cassette is expected to run out
+         * @return Map of denomination to depletion date; cassettes lasting past the horizon are absent
+         */
+        public Map<Integer, LocalDate> getDepletion() {
+            return depletion;
+        }
+
+        /**
+         * Gets the proposed refill day
+         * @return Refill date, or null if no cassette runs out within the horizon
+         */
+        public LocalDate getRefillDate() {
+            return refillDate;
+        }
+
+        /**
+         * Gets the notes to load at the refill
+         * @return Map of denomination to notes added, empty if no refill is needed
+         */
+        public Map<Integer, Integer> getRefillNotes() {
+            return refillNotes;
+        }
+    }
+
+    /**
+     * Creates a forecaster for a terminal
+     * @param terminalId Terminal the withdrawals were made at
+     * @param inventory Terminal's cassettes; the forecast starts from their loaded notes
+     * @param asOfMillis Time in the first forecast day; history ends when that day starts
+     * @param zone Time zone that defines the terminal's days
+     * @param halfLifeDays Age at which a withdrawal counts half as much as a fresh one
+     * @throws IllegalArgumentException if an argument is null or halfLifeDays is not positive
+     */
+    public ReplenishmentForecaster(String terminalId, CashInventory inventory, long asOfMillis, ZoneId zone,
+                                   double halfLifeDays) {
+        if (terminalId == null || inventory == null || zone == null) {
+            throw new IllegalArgumentException("Terminal, inventory and zone are required");
+        }
+        if (!(halfLifeDays > 0)) {
+            throw new IllegalArgumentException("Half-life must be positive");
+        }
+        this.terminalId = terminalId;
+        this.inventory = inventory;
+        this.denominations = inventory.getDenominations();
+        this.plans = new DenominationPlanTable(denominations);
+        this.zone = zone;
+        this.asOf = Instant.ofEpochMilli(asOfMillis).atZone(zone).toLocalDate();
+        this.asOfMillis = asOf.atStartOfDay(zone).toInstant().toEpochMilli();
+        this.halfLifeDays = halfLifeDays;
+        this.weightedNotes = new double[DAYS_PER_WEEK][denominations.length];
+    }
+
+    /**
+     * Adds one withdrawal
+     * Withdrawals from the first forecast day on, and amounts the terminal's notes cannot
+     * make up, are not part of the forecast
+     * @param amountPaise Withdrawn amount in paise
+     * @param epochMillis Time of the withdrawal
+     */
+    public void addWithdrawal(long amountPaise, long epochMillis) {
+        if (epochMillis >= asOfMillis) {
+            return;
+        }
+        withdrawals++;
+        withdrawnPaise += amountPaise;
+        int[] notes = amountPaise % MoneyUtil.PAISE_PER_RUPEE == 0
+                      ? plans.counts(amountPaise / MoneyUtil.PAISE_PER_RUPEE) : null;
+        if (notes == null) {
+            unplanned++;
+            return;
+        }
+        firstMillis = Math.min(firstMillis, epochMillis);
+        double weight = weight(asOfMillis - epochMillis);
+        double[] day = weightedNotes[weekdayOf(epochMillis)];
+        for (int i = 0; i < notes.length; i++) {
+            day[i] += notes[i] * weight;
+        }
+    }
+
+    /**
+     * Adds a posting from an account history; only withdrawals are used
+     * @param type Posting type code
+     * @param amountPaise Amount in paise
+     * @param balanceAfterPaise Balance after the posting in paise
+     * @param epochMillis Time of the posting
+     */
+    @Override
+    public void accept(byte type, long amountPaise, long balanceAfterPaise, long epochMillis) {
+        if (type == TransactionHistory.TYPE_WITHDRAWAL) {
+            addWithdrawal(amountPaise, epochMillis);
+        }
+    }
+
+    /**
+     * Forecasts depletion and proposes a refill
+     * @param horizonDays Days to look ahead
+     * @param leadDays Days before the first depletion to refill
+     * @param cycleDays Days a refill should last
+     * @param safetyPercent Margin loaded above the expected demand, in percent
+     * @return Refill plan
+     */
+    public RefillPlan forecast(int horizonDays, int leadDays, int cycleDays, int safetyPercent) {
+        double[][] demand = expectedDemand();
+        int count = denominations.length;
+        double[] remaining = new double[count];
+        for (int i = 0; i < count; i++) {
+            remaining[i] = inventory.getLoaded(denominations[i]);
+        }
+        Map<Integer, Double> dailyDemand = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            double week = 0;
+            for (double[] weekday : demand) {
+                week += weekday[i];
+            }
+            dailyDemand.put(denominations[i], week / DAYS_PER_WEEK);
+        }
+
+        // Walk the stock forward to find each cassette's depletion day
+        Map<Integer, LocalDate> depletion = new LinkedHashMap<>();
+        int firstDepletion = -1;
+        double[] stock = remaining.clone();
+        for (int day = 0; day < horizonDays; day++) {
+            double[] needed = demand[asOf.plusDays(day).getDayOfWeek().getValue() - 1];
+            for (int i = 0; i < count; i++) {
+                if (stock[i] >= 0 && (stock[i] -= needed[i]) < 0) {
+                    depletion.put(denominations[i], asOf.plusDays(day));
+                    firstDepletion = firstDepletion < 0 ? day : firstDepletion;
+                }
+            }
+        }
+        Map<Integer, Integer> refillNotes = new LinkedHashMap<>();
+        if (firstDepletion < 0) {
+            return new RefillPlan(terminalId, dailyDemand, depletion, null, refillNotes);
+        }
+
+        // Stock left on the refill day, then demand over one cycle after it
+        int refillDay = Math.max(0, firstDepletion - leadDays);
+        for (int day = 0; day < refillDay; day++) {
+            double[] needed = demand[asOf.plusDays(day).getDayOfWeek().getValue() - 1];
+            for (int i = 0; i < count; i++) {
+                remaining[i] = Math.max(0, remaining[i] - needed[i]);
+            }
+        }
+        double[] cycle = new double[count];
+        for (int day = refillDay; day < refillDay + cycleDays; day++) {
+            double[] needed = demand[asOf.plusDays(day).getDayOfWeek().getValue() - 1];
+            for (int i = 0; i < count; i++) {
+                cycle[i] += needed[i];
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            long target = Math.min(ATMConstants.CASSETTE_CAPACITY,
+                                   (long) Math.ceil(cycle[i] * (100 + safetyPercent) / 100.0));
+            long add = target - (long) Math.floor(remaining[i]);
+            if (add > 0) {
+                refillNotes.put(denominations[i], (int) add);
+            }
+        }
+        return new RefillPlan(terminalId, dailyDemand, depletion, asOf.plusDays(refillDay), refillNotes);
+    }
+
+    /**
+     * Gets the expected notes dispensed on each weekday
+     * @return Notes per denomination, indexed by weekday (Monday first)
+     */
+    private double[][] expectedDemand() {
+        double[][] demand = new double[DAYS_PER_WEEK][denominations.length];
+        if (firstMillis == Long.MAX_VALUE) {
+            return demand;
+        }
+        // Weigh each observed day the way its withdrawals were weighed, at its midday
+        double[] weightedDays = new double[DAYS_PER_WEEK];
+        LocalDate first = Instant.ofEpochMilli(firstMillis).atZone(zone).toLocalDate();
+        for (LocalDate day = first; day.isBefore(asOf); day = day.plusDays(1)) {
+            long midday = day.atStartOfDay(zone).toInstant().toEpochMilli() + MILLIS_PER_DAY / 2;
+            weightedDays[day.getDayOfWeek().getValue() - 1] += weight(asOfMillis - midday);
+        }
+        for (int weekday = 0; weekday < DAYS_PER_WEEK; weekday++) {
+            if (weightedDays[weekday] > 0) {
+                for (int i = 0; i < denominations.length; i++) {
+                    demand[weekday][i] = weightedNotes[weekday][i] / weightedDays[weekday];
+                }
+            }
+        }
+        return demand;
+    }
+
+    private double weight(long ageMillis) {
+        return Math.pow(0.5, ageMillis / (halfLifeDays * MILLIS_PER_DAY));
+    }
+
+    /**
+     * Gets the weekday of a time, reusing the last day's bounds since history arrives mostly in order
+     * @return Weekday index, Monday first
+     */
+    private int weekdayOf(long epochMillis) {
+        if (epochMillis < cachedDayStart || epochMillis >= cachedDayEnd) {
+            LocalDate day = Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate();
+            cachedDayStart = day.atStartOfDay(zone).toInstant().toEpochMilli();
+            cachedDayEnd = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            cachedWeekday = day.getDayOfWeek().getValue() - 1;
+        }
+        return cachedWeekday;
+    }
+
+    /**
+     * Gets the terminal ID
+     * @return Terminal ID
+     */
+    public String getTerminalId() {
+        return terminalId;
+    }
+
+    /**
+     * Gets the number of withdrawals added
+     * @return Withdrawal count
+     */
+    public long getWithdrawals() {
+        return withdrawals;
+    }
+
+    /**
+     * Gets the total amount of the withdrawals added
+     * @return Amount in paise
+     */
+    public long getWithdrawnPaise() {
+        return withdrawnPaise;
+    }
+
+    /**
+     * Gets the number of withdrawals the terminal's notes cannot make up
+     * @return Withdrawal count left out of the forecast
+     */
+    public long getUnplanned() {
+        return unplanned;
+    }
+}
@@ -0,0 +1,129 @@
+package atm;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Cash replenishment run across a fleet of terminals
+ * Streams withdrawal history once, from the transaction journal or from
+ * account histories, into one ReplenishmentForecaster per terminal and
+ * returns the refill schedule ordered by refill date. Postings carry no
+ * terminal, so the caller supplies the terminal each account withdraws at.
+ * Memory is bounded by the number of terminals, not the length of history
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class ReplenishmentJob {
+
+    private final Function<String, String> terminalOfAccount;
+    private final long asOfMillis;
+    private final ZoneId zone;
+    private final Map<String, ReplenishmentForecaster> forecasters = new LinkedHashMap<>();
+
+    /**
+     * Creates a job
+     * @param terminalOfAccount Terminal an account withdraws at, or null to leave the account out
+     * @param asOfMillis Time in the first forecast day; history ends when that day starts
+     * @param zone Time zone that defines the terminals' days
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public ReplenishmentJob(Function<String, String> terminalOfAccount, long asOfMillis, ZoneId zone) {
+        if (terminalOfAccount == null || zone == null) {
+            throw new IllegalArgumentException("Terminal mapping and zone are required");
+        }
+        this.terminalOfAccount = terminalOfAccount;
+        this.asOfMillis = asOfMillis;
+        this.zone = zone;
+    }
+
+    /**
+     * Adds a terminal to forecast
+     * @param terminalId Terminal ID
+     * @param inventory Terminal's cassettes
+     * @throws IllegalArgumentException if the terminal was already added
+     */
+    public void addTerminal(String terminalId, CashInventory inventory) {
+        if (forecasters.containsKey(terminalId)) {
+            throw new IllegalArgumentException("Terminal already added: " + terminalId);
+        }
+        forecasters.put(terminalId, new ReplenishmentForecaster(terminalId, inventory, asOfMillis, zone,
+                                                                ATMConstants.REPLENISH_HALF_LIFE_DAYS));
+    }
+
+    /**
+     * Streams the withdrawals of a journal file into the terminals' forecasts
+     * @param journal Journal file
+     * @return Number of withdrawals routed to a terminal
+     * @throws IOException if the journal cannot be read
+     */
+    public long readJournal(Path journal) throws IOException {
+        long[] routed = {0L};
+        TransactionJournal.read(journal, (sequence, type, accountNumber, amountPaise, balanceAfterPaise,
+                                          epochMillis, detail) -> {
+            if (type == TransactionHistory.TYPE_WITHDRAWAL) {
+                ReplenishmentForecaster forecaster = forecasterFor(accountNumber);
+                if (forecaster != null) {
+                    forecaster.addWithdrawal(amountPaise, epochMillis);
+                    routed[0]++;
+                }
+            }
+        });
+        return routed[0];
+    }
+
+    /**
+     * Adds the kept withdrawals of an account's history
+     * @param account Account
+     * @return true if the account withdraws at a forecast terminal
+     */
+    public boolean addHistory(Account account) {
+        ReplenishmentForecaster forecaster = forecasterFor(account.getAccountNumber());
+        if (forecaster == null) {
+            return false;
+        }
+        account.forEachPosting(forecaster);
+        return true;
+    }
+
+    private ReplenishmentForecaster forecasterFor(String accountNumber) {
+        String terminalId = terminalOfAccount.apply(accountNumber);
+        return terminalId == null ? null : forecasters.get(terminalId);
+    }
+
+    /**
+     * Forecasts every terminal with the standard replenishment settings
+     * @return Refill plans, earliest refill first; terminals needing none come last
+     */
+    public List<ReplenishmentForecaster.RefillPlan> schedule() {
+        List<ReplenishmentForecaster.RefillPlan> plans = new ArrayList<>(forecasters.size());
+        long historyPaise = 0L;
+        for (ReplenishmentForecaster forecaster : forecasters.values()) {
+            plans.add(forecaster.forecast(ATMConstants.REPLENISH_HORIZON_DAYS, ATMConstants.REPLENISH_LEAD_DAYS,
+                                          ATMConstants.REPLENISH_CYCLE_DAYS, ATMConstants.REPLENISH_SAFETY_PERCENT));
+            historyPaise += forecaster.getWithdrawnPaise();
+            if (forecaster.getUnplanned() > 0) {
+                ATMLogger.warning(forecaster.getUnplanned() + " withdrawals at terminal " + forecaster.getTerminalId()
+                                  + " cannot be made up from its notes and were not forecast");
+            }
+        }
+        plans.sort(Comparator.comparing(ReplenishmentForecaster.RefillPlan::getRefillDate,
+                                        Comparator.nullsLast(Comparator.naturalOrder())));
+        // The process-wide statistics only cover this run, so history should never be smaller
+        long statisticsPaise = MoneyUtil.toPaise(ATMStatistics.getInstance().getTotalWithdrawn());
+        if (historyPaise < statisticsPaise) {
+            ATMLogger.warning("Replenishment history covers " + MoneyUtil.format(historyPaise)
+                              + " but this run has withdrawn " + MoneyUtil.format(statisticsPaise)
+                              + "; the journal may be incomplete");
+        }
+        ATMLogger.info("Replenishment forecast for " + plans.size() + " terminals over "
+                       + MoneyUtil.format(historyPaise) + " of withdrawals");
+        return plans;
+    }
+}
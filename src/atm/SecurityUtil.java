@@ -5,7 +5,7 @@ package atm;
  * Handles security-related validations and checks
  * Provides PIN strength validation and fraud detection
  * @author ATM Machine Simulation
- * @version 1.2
+ * @version 1.3
  */
 public class SecurityUtil {
     
@@ -98,14 +98,13 @@ public class SecurityUtil {
     }
     
     /**
-     * Encrypts PIN (placeholder - uses simple masking)
-     * In production, use proper encryption
-     * @param pin PIN to encrypt
-     * @return Encrypted PIN
+     * Hashes a PIN for storage with a fresh salt at the configured work factor
+     * @param pin PIN to hash
+     * @return Salted PIN hash, checked with PinHasher.verify
+     * @throws IllegalArgumentException if pin is null or empty
      */
     public static String encryptPin(String pin) {
-        // Placeholder - in production, use proper encryption like BCrypt
-        return "****";
+        return PinHasher.hash(pin);
     }
     
     /**
@@ -113,8 +112,7 @@ public class SecurityUtil {
      * @return Session token
      */
     public static String generateSessionToken() {
-        return "TOKEN_" + System.currentTimeMillis() + "_" + 
-               (int)(Math.random() * 10000);
+        return IdGenerator.nextToken();
     }
     
     /**
@@ -156,6 +154,15 @@ public class SecurityUtil {
         return transactionCount > SUSPICIOUS_TRANSACTION_THRESHOLD;
     }
     
+    /**
+     * Detects suspicious transaction patterns from the account's recent activity
+     * @param account Account to check
+     * @return true if the account made too many transactions within the velocity window
+     */
+    public static boolean isSuspiciousActivity(Account account) {
+        return isSuspiciousActivity(VelocityTracker.getInstance().countInWindow(account));
+    }
+    
     /**
      * Validates account lock status based on failed attempts
      * @param failedAttempts Number of failed login attempts
@@ -215,6 +222,16 @@ public class SecurityUtil {
         return transactionIntervalSeconds < 10;
     }
     
+    /**
+     * Checks if the account's last transaction was too recent
+     * @param account Account to check
+     * @return true if the previous transaction was less than 10 seconds ago
+     */
+    public static boolean isRapidTransaction(Account account) {
+        long millis = VelocityTracker.getInstance().millisSinceLast(account);
+        return millis != Long.MAX_VALUE && isRapidTransaction(millis / 1000);
+    }
+    
     /**
      * Private constructor to prevent instantiation
      */
@@ -1,127 +1,403 @@
 package atm;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
 /**
  * Session manager for tracking ATM user sessions
- * Manages session lifecycle and timeout
+ * Manages session lifecycle and timeout for any number of concurrent
+ * sessions. Sessions live in a concurrent table keyed by session ID, and
+ * idle timeouts are driven by a hashed timing wheel: each session sits in
+ * the wheel slot of its next deadline, and a tick only visits the slot
+ * that is due, so the work per tick is proportional to the sessions due
+ * then, not to the sessions alive. Recording activity only stamps the
+ * session; a session whose deadline arrives after fresh activity is moved
+ * to its new deadline instead of being warned or expired. A session is
+ * warned INACTIVITY_WARNING_SECONDS before it would expire, and an ended
+ * session is dropped from the wheel when its slot next comes round
  * @author ATM Machine Simulation
  * @version 1.0
  */
 public class SessionManager {
-    
+
     private static SessionManager instance;
-    
-    private String sessionId;
-    private String accountNumber;
-    private long sessionStartTime;
-    private long lastActivityTime;
-    private boolean isActive;
-    
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Session> started = new ConcurrentLinkedQueue<>();
+    private final AtomicLong warnedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final long timeoutMillis;
+    private final long warnAfterMillis;
+    private final long tickMillis;
+    private final Listener listener;
+    private final LongSupplier clock;
+    private final long originMillis;
+    private final Session[] wheel;
+    private final int slotMask;
+    private long currentTick;
+    private ScheduledThreadPoolExecutor ticker;
+    private volatile SessionStateStore stateStore;
+
+    /**
+     * Receives idle warnings and expiries from the ticking thread
+     */
+    public interface Listener {
+        /**
+         * Called once per idle period when a session is about to time out
+         * @param session Session that has been idle
+         */
+        void sessionWarned(Session session);
+
+        /**
+         * Called when a session has timed out and been removed
+         * @param session Expired session
+         */
+        void sessionExpired(Session session);
+    }
+
+    /**
+     * One live session
+     */
+    public static final class Session {
+        private final String sessionId;
+        private final String accountNumber;
+        private final long sessionStartTime;
+        private volatile long lastActivityTime;
+        private volatile boolean active = true;
+        // Wheel state, touched only by the ticking thread
+        private Session next;
+        private long deadlineTick;
+        private boolean warned;
+
+        private Session(String sessionId, String accountNumber, long now) {
+            this.sessionId = sessionId;
+            this.accountNumber = accountNumber;
+            this.sessionStartTime = now;
+            this.lastActivityTime = now;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        public long getSessionStartTime() {
+            return sessionStartTime;
+        }
+
+        public long getLastActivityTime() {
+            return lastActivityTime;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
     /**
-     * Private constructor for singleton pattern
+     * Creates a session manager
+     * @param timeoutMillis Idle time after which a session expires
+     * @param warningMillis How long before expiry a session is warned; 0 for no warning
+     * @param tickMillis Timing wheel resolution
+     * @param listener Receiver of warnings and expiries, or null
+     * @throws IllegalArgumentException if a duration is out of range
      */
-    private SessionManager() {
-        this.isActive = false;
+    public SessionManager(long timeoutMillis, long warningMillis, long tickMillis, Listener listener) {
+        this(timeoutMillis, warningMillis, tickMillis, listener, System::currentTimeMillis);
     }
-    
+
     /**
-     * Gets singleton instance
+     * Creates a session manager with an explicit clock
+     * @param timeoutMillis Idle time after which a session expires
+     * @param warningMillis How long before expiry a session is warned; 0 for no warning
+     * @param tickMillis Timing wheel resolution
+     * @param listener Receiver of warnings and expiries, or null
+     * @param clock Millisecond clock
+     * @throws IllegalArgumentException if a duration is out of range
+     */
+    SessionManager(long timeoutMillis, long warningMillis, long tickMillis, Listener listener, LongSupplier clock) {
+        if (timeoutMillis <= 0 || tickMillis <= 0 || warningMillis < 0 || warningMillis >= timeoutMillis) {
+            throw new IllegalArgumentException("Invalid session timeout settings");
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.warnAfterMillis = warningMillis > 0 ? timeoutMillis - warningMillis : timeoutMillis;
+        this.tickMillis = tickMillis;
+        this.listener = listener;
+        this.clock = clock;
+        this.originMillis = clock.getAsLong();
+        // Every deadline fits within one turn of the wheel
+        int slots = Integer.highestOneBit((int) Math.min(1 << 20, timeoutMillis / tickMillis + 2) * 2 - 1);
+        this.wheel = new Session[slots];
+        this.slotMask = slots - 1;
+    }
+
+    /**
+     * Gets the shared session manager, ticking on a background thread
      * @return SessionManager instance
      */
-    public static SessionManager getInstance() {
+    public static synchronized SessionManager getInstance() {
         if (instance == null) {
-            instance = new SessionManager();
+            instance = new SessionManager(ATMConfig.getInstance().getSessionTimeout() * 1000L,
+                                          ATMConstants.INACTIVITY_WARNING_SECONDS * 1000L,
+                                          ATMConstants.SESSION_TICK_MILLIS, null);
+            instance.start();
         }
         return instance;
     }
-    
+
+    /**
+     * Starts ticking the timing wheel on a daemon thread
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "atm-session-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> advance(clock.getAsLong()), tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the ticking thread; sessions stay in the table
+     */
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Records session starts, activity and ends in a crash-resumable store
+     * @param stateStore Store, or null to stop recording
+     */
+    public void setStateStore(SessionStateStore stateStore) {
+        this.stateStore = stateStore;
+    }
+
     /**
      * Starts a new session
      * @param accountNumber Account number
      * @return Session ID
      */
     public String startSession(String accountNumber) {
-        this.accountNumber = accountNumber;
-        this.sessionId = generateSessionId();
-        this.sessionStartTime = System.currentTimeMillis();
-        this.lastActivityTime = System.currentTimeMillis();
-        this.isActive = true;
-        
-        ATMLogger.info("Session started: " + sessionId + " for account: " + 
+        Session session = new Session(generateSessionId(), accountNumber, clock.getAsLong());
+        sessions.put(session.sessionId, session);
+        started.add(session);
+        SessionStateStore store = stateStore;
+        if (store != null) {
+            store.sessionStarted(session.sessionId, accountNumber, session.sessionStartTime);
+        }
+
+        ATMLogger.info("Session started: " + session.sessionId + " for account: " +
                       ATMUtil.maskAccountNumber(accountNumber));
-        
-        return sessionId;
+
+        return session.sessionId;
     }
-    
+
     /**
-     * Ends the current session
+     * Ends a session
+     * @param sessionId Session ID
+     * @return true if the session was active
      */
-    public void endSession() {
-        if (isActive) {
-            long duration = (System.currentTimeMillis() - sessionStartTime) / 1000;
-            ATMLogger.info("Session ended: " + sessionId + " Duration: " + duration + " seconds");
-            
-            this.isActive = false;
-            this.sessionId = null;
-            this.accountNumber = null;
+    public boolean endSession(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session == null) {
+            return false;
+        }
+        session.active = false;
+        SessionStateStore store = stateStore;
+        if (store != null) {
+            store.sessionEnded(sessionId);
         }
+        long duration = (clock.getAsLong() - session.sessionStartTime) / 1000;
+        ATMLogger.info("Session ended: " + sessionId + " Duration: " + duration + " seconds");
+        return true;
     }
-    
+
     /**
      * Updates last activity time
+     * @param sessionId Session ID
+     * @return true if the session is active
      */
-    public void updateActivity() {
-        this.lastActivityTime = System.currentTimeMillis();
+    public boolean updateActivity(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return false;
+        }
+        session.lastActivityTime = clock.getAsLong();
+        SessionStateStore store = stateStore;
+        if (store != null) {
+            store.activity(sessionId, session.lastActivityTime);
+        }
+        return true;
     }
-    
+
     /**
-     * Checks if session has timed out
-     * @return true if session has timed out
+     * Puts back a session recovered after a restart
+     * @param sessionId Original session ID
+     * @param accountNumber Account number
+     * @param startMillis Original start time
+     * @param lastActivityMillis Time of the last recorded activity
+     * @return false if a session with that ID is already active
      */
-    public boolean hasTimedOut() {
-        if (!isActive) {
+    public boolean restoreSession(String sessionId, String accountNumber, long startMillis, long lastActivityMillis) {
+        Session session = new Session(sessionId, accountNumber, startMillis);
+        session.lastActivityTime = lastActivityMillis;
+        if (sessions.putIfAbsent(sessionId, session) != null) {
             return false;
         }
-        
-        long idleTime = (System.currentTimeMillis() - lastActivityTime) / 1000;
-        int timeout = ATMConfig.getInstance().getSessionTimeout();
-        
-        return idleTime > timeout;
+        started.add(session);
+        return true;
     }
-    
+
+    /**
+     * Checks if a session has timed out
+     * @param sessionId Session ID
+     * @return true if the session has expired or been idle for the timeout
+     */
+    public boolean hasTimedOut(String sessionId) {
+        Session session = sessions.get(sessionId);
+        return session == null || clock.getAsLong() - session.lastActivityTime >= timeoutMillis;
+    }
+
     /**
      * Gets session duration in seconds
-     * @return Session duration
+     * @param sessionId Session ID
+     * @return Session duration, or 0 if the session is not active
      */
-    public long getSessionDuration() {
-        if (!isActive) {
+    public long getSessionDuration(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
             return 0;
         }
-        return (System.currentTimeMillis() - sessionStartTime) / 1000;
+        return (clock.getAsLong() - session.sessionStartTime) / 1000;
+    }
+
+    /**
+     * Gets an active session
+     * @param sessionId Session ID
+     * @return Session, or null if it has ended or expired
+     */
+    public Session getSession(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    /**
+     * Runs every wheel tick due by a time
+     * Called by the ticking thread; tests call it directly instead of starting one
+     * @param nowMillis Current time
+     * @return Number of sessions expired
+     */
+    synchronized int advance(long nowMillis) {
+        int expired = 0;
+        long dueTick = (nowMillis - originMillis) / tickMillis;
+        while (currentTick < dueTick) {
+            currentTick++;
+            Session session;
+            while ((session = started.poll()) != null) {
+                if (session.active) {
+                    schedule(session, session.sessionStartTime + warnAfterMillis);
+                }
+            }
+            expired += runSlot(originMillis + currentTick * tickMillis);
+        }
+        if (expired > 0) {
+            ATMLogger.info(expired + " sessions expired after " + timeoutMillis / 1000 + " seconds idle");
+        }
+        return expired;
+    }
+
+    /**
+     * Warns, expires or reschedules the sessions due in the current slot
+     * @return Number of sessions expired
+     */
+    private int runSlot(long tickTime) {
+        int index = (int) (currentTick & slotMask);
+        Session session = wheel[index];
+        wheel[index] = null;
+        int expired = 0;
+        while (session != null) {
+            Session next = session.next;
+            session.next = null;
+            if (session.deadlineTick > currentTick) {
+                session.next = wheel[index];
+                wheel[index] = session;
+            } else if (session.active) {
+                long lastActivity = session.lastActivityTime;
+                long idle = tickTime - lastActivity;
+                if (idle >= timeoutMillis) {
+                    if (sessions.remove(session.sessionId, session)) {
+                        session.active = false;
+                        SessionStateStore store = stateStore;
+                        if (store != null) {
+                            store.sessionEnded(session.sessionId);
+                        }
+                        expired++;
+                        expiredCount.incrementAndGet();
+                        if (listener != null) {
+                            listener.sessionExpired(session);
+                        }
+                    }
+                } else if (idle >= warnAfterMillis) {
+                    if (!session.warned) {
+                        session.warned = true;
+                        warnedCount.incrementAndGet();
+                        if (listener != null) {
+                            listener.sessionWarned(session);
+                        }
+                    }
+                    schedule(session, lastActivity + timeoutMillis);
+                } else {
+                    session.warned = false;
+                    schedule(session, lastActivity + warnAfterMillis);
+                }
+            }
+            session = next;
+        }
+        return expired;
+    }
+
+    /**
+     * Links a session into the slot of the first tick at or after a time
+     */
+    private void schedule(Session session, long dueMillis) {
+        long tick = Math.max(currentTick + 1, (dueMillis - originMillis + tickMillis - 1) / tickMillis);
+        int index = (int) (tick & slotMask);
+        session.deadlineTick = tick;
+        session.next = wheel[index];
+        wheel[index] = session;
     }
-    
+
     /**
      * Generates a unique session ID
      * @return Session ID
      */
     private String generateSessionId() {
-        return "SES" + System.currentTimeMillis();
+        return IdGenerator.nextSessionId();
     }
-    
+
     // Getters
-    
-    public String getSessionId() {
-        return sessionId;
-    }
-    
-    public String getAccountNumber() {
-        return accountNumber;
+
+    public int getActiveSessionCount() {
+        return sessions.size();
     }
-    
-    public boolean isActive() {
-        return isActive;
+
+    public long getWarnedCount() {
+        return warnedCount.get();
     }
-    
-    public long getLastActivityTime() {
-        return lastActivityTime;
+
+    public long getExpiredCount() {
+        return expiredCount.get();
     }
 }
@@ -0,0 +1,529 @@
+package atm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-resumable store of live session state
+ * Every change to a session appends one small record holding the session's
+ * whole state: start time, last activity, failed PIN attempts, the
+ * account's daily limit usage and the transaction in flight, if any, with
+ * the reference the host keeps with its posting. A
+ * closed session appends a tombstone. Records go straight to the file, so
+ * they survive the JVM dying; with sync on they are also forced to disk.
+ * Opening the store reads the file once, keeping the last record of each
+ * session that was never closed, and rewrites the file with only those
+ * records, so the file and the next recovery stay proportional to the
+ * live sessions. The file is rewritten the same way while running once
+ * enough dead records pile up
+ *
+ * Record layout: int payloadLength, payload, int crc32(payload) where the
+ * payload is byte kind, long epochMillis, long startMillis, byte transaction
+ * type (-1 for none), int failedAttempts, long amountPaise, long dailyUsage,
+ * short length + ASCII reference, short length + ASCII session ID,
+ * short length + ASCII account number
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class SessionStateStore implements AutoCloseable {
+
+    private static final byte KIND_STATE = 1;
+    private static final byte KIND_CLOSED = 2;
+    private static final int FIXED_PAYLOAD_SIZE = 1 + 8 + 8 + 1 + 4 + 8 + 8 + 2 + 2 + 2;
+    private static final int MAX_PAYLOAD_SIZE = FIXED_PAYLOAD_SIZE + 3 * 128;
+    private static final int COMPACT_RATIO = 4;
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final Path path;
+    private final boolean sync;
+    private final long compactBytes;
+    private final Map<String, SessionState> live = new LinkedHashMap<>();
+    private final List<SessionState> recovered;
+    private final ByteBuffer record = ByteBuffer.allocate(4 + MAX_PAYLOAD_SIZE + 4);
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private long written;
+    private long liveBytes;
+    private boolean failed;
+
+    /**
+     * State of one session as last recorded
+     */
+    public static final class SessionState {
+        private final String sessionId;
+        private final String accountNumber;
+        private final long sessionStartTime;
+        private long lastActivityTime;
+        private int failedAttempts;
+        private long dailyUsage;
+        private TransactionType inFlight;
+        private long inFlightAmountPaise;
+        private String inFlightReference;
+
+        private SessionState(String sessionId, String accountNumber, long sessionStartTime) {
+            this.sessionId = sessionId;
+            this.accountNumber = accountNumber;
+            this.sessionStartTime = sessionStartTime;
+            this.lastActivityTime = sessionStartTime;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        public long getSessionStartTime() {
+            return sessionStartTime;
+        }
+
+        public long getLastActivityTime() {
+            return lastActivityTime;
+        }
+
+        public int getFailedAttempts() {
+            return failedAttempts;
+        }
+
+        long getDailyUsage() {
+            return dailyUsage;
+        }
+
+        /**
+         * Gets the transaction that was sent to the host but not finished
+         * @return Transaction type, or null if none was in flight
+         */
+        public TransactionType getInFlight() {
+            return inFlight;
+        }
+
+        public long getInFlightAmountPaise() {
+            return inFlightAmountPaise;
+        }
+
+        /**
+         * Gets the reference the host keeps with the posting of the transaction in flight
+         * @return Reference, or null if none was in flight or the host keeps no references
+         */
+        public String getInFlightReference() {
+            return inFlightReference;
+        }
+    }
+
+    /**
+     * Opens a store, recovering the sessions left open in its file
+     * @param path Store file, created if missing
+     * @param sync Whether to force every record to disk, not only to the OS
+     * @throws IOException if the file cannot be read or rewritten
+     * @throws IllegalArgumentException if path is null
+     */
+    public SessionStateStore(Path path, boolean sync) throws IOException {
+        this(path, sync, ATMConstants.SESSION_STATE_COMPACT_BYTES);
+    }
+
+    /**
+     * Opens a store with an explicit compaction threshold
+     * @param path Store file, created if missing
+     * @param sync Whether to force every record to disk, not only to the OS
+     * @param compactBytes File size beyond which dead records are dropped
+     * @throws IOException if the file cannot be read or rewritten
+     * @throws IllegalArgumentException if path is null
+     */
+    SessionStateStore(Path path, boolean sync, long compactBytes) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("Session state path cannot be null");
+        }
+        this.path = path;
+        this.sync = sync;
+        this.compactBytes = compactBytes;
+        long start = System.nanoTime();
+        int records = load();
+        this.recovered = Collections.unmodifiableList(new ArrayList<>(live.values()));
+        compact();
+        ATMLogger.info(String.format("Session state recovered: %d open sessions from %d records in %d us",
+                                     recovered.size(), records, (System.nanoTime() - start) / 1000));
+    }
+
+    /**
+     * Gets the sessions that were open when the store was last used
+     * @return Recovered sessions, oldest first
+     */
+    public List<SessionState> getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * Records a new session
+     * @param sessionId Session ID
+     * @param accountNumber Account the session is for
+     * @param startMillis Session start time
+     */
+    public synchronized void sessionStarted(String sessionId, String accountNumber, long startMillis) {
+        SessionState state = new SessionState(sessionId, accountNumber, startMillis);
+        live.put(sessionId, state);
+        liveBytes += recordSize(state);
+        append(KIND_STATE, state, startMillis);
+    }
+
+    /**
+     * Records activity on a session
+     * @param sessionId Session ID
+     * @param epochMillis Time of the activity
+     */
+    public synchronized void activity(String sessionId, long epochMillis) {
+        SessionState state = live.get(sessionId);
+        if (state != null) {
+            state.lastActivityTime = epochMillis;
+            append(KIND_STATE, state, epochMillis);
+        }
+    }
+
+    /**
+     * Records a PIN attempt
+     * @param sessionId Session ID
+     * @param failedAttempts Failed attempts so far
+     * @param epochMillis Time of the attempt
+     */
+    public synchronized void authenticated(String sessionId, int failedAttempts, long epochMillis) {
+        SessionState state = live.get(sessionId);
+        if (state != null) {
+            state.failedAttempts = failedAttempts;
+            state.lastActivityTime = epochMillis;
+            append(KIND_STATE, state, epochMillis);
+        }
+    }
+
+    /**
+     * Records a transaction about to be sent to the host
+     * @param sessionId Session ID
+     * @param type Transaction type
+     * @param amountPaise Amount in paise
+     * @param reference Reference the host keeps with the posting, or null
+     * @param dailyUsage Account's daily limit usage including this transaction
+     * @param epochMillis Time the transaction starts
+     */
+    public synchronized void transactionBegun(String sessionId, TransactionType type, long amountPaise,
+                                              String reference, long dailyUsage, long epochMillis) {
+        SessionState state = live.get(sessionId);
+        if (state != null) {
+            state.inFlight = type;
+            state.inFlightAmountPaise = amountPaise;
+            setReference(state, reference);
+            state.dailyUsage = dailyUsage;
+            state.lastActivityTime = epochMillis;
+            append(KIND_STATE, state, epochMillis);
+        }
+    }
+
+    /**
+     * Records that the transaction in flight has finished
+     * @param sessionId Session ID
+     * @param dailyUsage Account's daily limit usage after the outcome
+     * @param epochMillis Time the transaction finished
+     */
+    public synchronized void transactionEnded(String sessionId, long dailyUsage, long epochMillis) {
+        SessionState state = live.get(sessionId);
+        if (state != null) {
+            state.inFlight = null;
+            state.inFlightAmountPaise = 0L;
+            setReference(state, null);
+            state.dailyUsage = dailyUsage;
+            state.lastActivityTime = epochMillis;
+            append(KIND_STATE, state, epochMillis);
+        }
+    }
+
+    /**
+     * Replaces the in-flight reference, keeping the live record size current
+     */
+    private void setReference(SessionState state, String reference) {
+        liveBytes -= recordSize(state);
+        state.inFlightReference = reference;
+        liveBytes += recordSize(state);
+    }
+
+    /**
+     * Records the end of a session
+     * @param sessionId Session ID
+     */
+    public synchronized void sessionEnded(String sessionId) {
+        SessionState state = live.remove(sessionId);
+        if (state != null) {
+            liveBytes -= recordSize(state);
+            append(KIND_CLOSED, state, state.lastActivityTime);
+        }
+    }
+
+    /**
+     * Resumes the recovered sessions or rolls them back
+     * Each account gets back the daily limit usage and the failed PIN
+     * attempts its sessions recorded. A session with a transaction in flight
+     * is rolled back: the account's history, restored from the transaction
+     * journal, is searched for the transaction's reference, and if it is
+     * not there the daily limit reservation is returned. Without a reference,
+     * or if postings made since the transaction began were dropped from the
+     * history, the outcome is unknown and the reservation stays held. The
+     * session is then closed. Every other session is put back into the
+     * session manager with its original ID and idle time
+     * @param manager Manager to resume sessions into
+     * @param registry Registry holding the recovered accounts
+     * @param tracker Tracker whose reservations are returned
+     * @return Number of sessions resumed
+     */
+    public synchronized int resume(SessionManager manager, AccountRegistry registry, DailyLimitTracker tracker) {
+        // Restore every account's usage before any reservation is returned
+        for (SessionState state : recovered) {
+            Account account = registry.find(state.accountNumber);
+            if (account != null) {
+                account.restoreFailedPinAttempts(state.failedAttempts);
+            }
+            long usage;
+            while (account != null && (usage = account.getDailyUsage()) < state.dailyUsage
+                   && !account.compareAndSetDailyUsage(usage, state.dailyUsage)) {
+                // Another update raced the restore
+            }
+        }
+        int resumed = 0;
+        for (SessionState state : recovered) {
+            if (!live.containsKey(state.sessionId)) {
+                continue;
+            }
+            Account account = registry.find(state.accountNumber);
+            if (account == null) {
+                ATMLogger.warning("Closing recovered session " + state.sessionId + " for unknown account");
+                sessionEnded(state.sessionId);
+                continue;
+            }
+            if (state.inFlight != null) {
+                String outcome;
+                if (state.inFlightReference != null && account.hasPostingReference(state.inFlightReference)) {
+                    outcome = " was applied";
+                } else if (state.inFlightReference != null && account.keepsPostingsSince(state.lastActivityTime)) {
+                    outcome = " was not applied";
+                    tracker.release(account, state.inFlight == TransactionType.TRANSFER ? 0 : 1,
+                                    state.inFlight == TransactionType.WITHDRAWAL ? state.inFlightAmountPaise : 0L);
+                } else {
+                    outcome = " has an unknown outcome; its limits stay reserved until settled with the host";
+                }
+                ATMLogger.warning("Rolled back session " + state.sessionId + " for account "
+                                  + account.getMaskedAccountNumber() + ": in-flight " + state.inFlight.getDisplayName()
+                                  + " of " + MoneyUtil.format(state.inFlightAmountPaise) + outcome);
+                sessionEnded(state.sessionId);
+            } else {
+                manager.restoreSession(state.sessionId, state.accountNumber,
+                                       state.sessionStartTime, state.lastActivityTime);
+                resumed++;
+            }
+        }
+        return resumed;
+    }
+
+    /**
+     * Appends one record; a failed write is logged once and later records are dropped
+     */
+    private void append(byte kind, SessionState state, long epochMillis) {
+        if (failed) {
+            return;
+        }
+        int payloadLength = recordSize(state) - 8;
+        if (payloadLength > MAX_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("Session ID or account number too long");
+        }
+        record.clear();
+        encode(record, kind, state, epochMillis, payloadLength);
+        record.flip();
+        try {
+            while (record.hasRemaining()) {
+                written += channel.write(record);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+            // Most of the file is superseded states and closed sessions
+            if (written > compactBytes && written > COMPACT_RATIO * liveBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private static int recordSize(SessionState state) {
+        int referenceLength = state.inFlightReference == null ? 0 : state.inFlightReference.length();
+        return 4 + FIXED_PAYLOAD_SIZE + referenceLength + state.sessionId.length() + state.accountNumber.length() + 4;
+    }
+
+    private void encode(ByteBuffer buffer, byte kind, SessionState state, long epochMillis, int payloadLength) {
+        int start = buffer.position();
+        buffer.putInt(payloadLength);
+        buffer.put(kind);
+        buffer.putLong(epochMillis);
+        buffer.putLong(state.sessionStartTime);
+        buffer.put(state.inFlight == null ? -1 : (byte) state.inFlight.ordinal());
+        buffer.putInt(state.failedAttempts);
+        buffer.putLong(state.inFlightAmountPaise);
+        buffer.putLong(state.dailyUsage);
+        BinaryCodec.putAscii(buffer, state.inFlightReference);
+        BinaryCodec.putAscii(buffer, state.sessionId);
+        BinaryCodec.putAscii(buffer, state.accountNumber);
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + start + 4, payloadLength);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    private void fail(IOException e) {
+        failed = true;
+        ATMLogger.error("Session state store write failed, sessions are no longer recorded: " + e.getMessage());
+    }
+
+    /**
+     * Reads every intact record, stopping at a torn tail
+     * @return Number of records read
+     */
+    private int load() throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        int records = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        buffer.flip();
+        CRC32 checksum = new CRC32();
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            boolean eof = false;
+            while (true) {
+                if (buffer.remaining() < 4 + MAX_PAYLOAD_SIZE + 4 && !eof) {
+                    buffer.compact();
+                    while (buffer.hasRemaining() && !eof) {
+                        eof = in.read(buffer) < 0;
+                    }
+                    buffer.flip();
+                }
+                if (buffer.remaining() < 4) {
+                    break;
+                }
+                int start = buffer.position();
+                int length = buffer.getInt(start);
+                if (length < FIXED_PAYLOAD_SIZE || length > MAX_PAYLOAD_SIZE || buffer.remaining() < 4 + length + 4) {
+                    break;
+                }
+                checksum.reset();
+                checksum.update(buffer.array(), start + 4, length);
+                if ((int) checksum.getValue() != buffer.getInt(start + 4 + length)) {
+                    break;
+                }
+                records++;
+                buffer.position(start + 4);
+                apply(buffer);
+                buffer.position(start + 4 + length + 4);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Applies one record payload to the live sessions
+     */
+    private void apply(ByteBuffer payload) {
+        byte kind = payload.get();
+        long epochMillis = payload.getLong();
+        long startMillis = payload.getLong();
+        byte type = payload.get();
+        int failedAttempts = payload.getInt();
+        long amountPaise = payload.getLong();
+        long dailyUsage = payload.getLong();
+        String reference = BinaryCodec.getAscii(payload);
+        String sessionId = BinaryCodec.getAscii(payload);
+        if (kind == KIND_CLOSED) {
+            live.remove(sessionId);
+            return;
+        }
+        SessionState state = live.get(sessionId);
+        if (state == null) {
+            state = new SessionState(sessionId, BinaryCodec.getAscii(payload), startMillis);
+            live.put(sessionId, state);
+        }
+        state.lastActivityTime = epochMillis;
+        state.failedAttempts = failedAttempts;
+        state.dailyUsage = dailyUsage;
+        state.inFlight = type >= 0 && type < TYPES.length ? TYPES[type] : null;
+        state.inFlightAmountPaise = amountPaise;
+        state.inFlightReference = reference;
+    }
+
+    /**
+     * Replaces the file with one record per live session
+     */
+    private void compact() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(1, live.size()) * (4 + MAX_PAYLOAD_SIZE + 4));
+        for (SessionState state : live.values()) {
+            encode(buffer, KIND_STATE, state, state.lastActivityTime, recordSize(state) - 8);
+        }
+        buffer.flip();
+        liveBytes = buffer.remaining();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        written = channel.size();
+    }
+
+    /**
+     * Gets the number of sessions currently recorded as open
+     * @return Live session count
+     */
+    public synchronized int getLiveSessionCount() {
+        return live.size();
+    }
+
+    /**
+     * Gets the current size of the store file
+     * @return Size in bytes
+     */
+    public synchronized long getFileSize() {
+        return written;
+    }
+
+    /**
+     * Gets the store file
+     * @return Store path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Closes the file; sessions still open are recovered on the next open
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            if (sync) {
+                channel.force(true);
+            }
+            channel.close();
+        }
+    }
+}
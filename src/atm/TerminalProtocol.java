@@ -0,0 +1,156 @@
+package atm;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary framing for the non-blocking terminal front end
+ * Every frame starts with an int length counting the bytes after it.
+ *
+ * Request:  opcode (byte, TransactionType ordinal or OP_AUTHENTICATE),
+ *           request key (long, 0 for none), amount in paise (long), account
+ *           number (BinaryCodec string) and, for TRANSFER only, the target
+ *           account number; for OP_AUTHENTICATE the amount is ignored and the
+ *           PIN follows the account number
+ * Response: status (byte), request key (long), balance after in paise (long);
+ *           a rejected OP_AUTHENTICATE carries the PIN attempts left instead
+ *
+ * A connection must authenticate for an account before any request for it;
+ * everything else for that account is answered STATUS_NOT_AUTHENTICATED.
+ * Responses on a connection come back in request order; the request key is
+ * echoed so terminals can match them and doubles as the idempotency key.
+ * All methods work in place on the caller's buffer and allocate nothing
+ * @author ATM Machine Simulation
+ * @version 1.1
+ */
+final class TerminalProtocol {
+
+    static final byte OP_AUTHENTICATE = 0x7F;
+
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_REJECTED = 1;
+    static final byte STATUS_UNKNOWN_ACCOUNT = 2;
+    static final byte STATUS_BAD_REQUEST = 3;
+    static final byte STATUS_NOT_AUTHENTICATED = 4;
+    static final byte STATUS_LOCKED = 5;
+    static final byte STATUS_BUSY = 6;
+
+    /**
+     * Size of the length prefix
+     */
+    static final int HEADER_BYTES = 4;
+
+    /**
+     * Size of a complete response frame including its length prefix
+     */
+    static final int RESPONSE_BYTES = HEADER_BYTES + 1 + 8 + 8;
+
+    /**
+     * Smallest valid request body: fixed fields plus an empty account string
+     */
+    static final int MIN_REQUEST_BODY = 1 + 8 + 8 + 2;
+
+    /**
+     * Largest accepted request body; anything longer is a protocol error
+     */
+    static final int MAX_REQUEST_BODY = 256;
+
+    /**
+     * Writes a request frame
+     * @param buffer Target buffer
+     * @param type Operation
+     * @param requestKey Request key, or 0 for none
+     * @param amountPaise Amount in paise (ignored for inquiries)
+     * @param accountNumber Account number
+     * @param targetAccountNumber Target account for transfers, otherwise null
+     */
+    static void putRequest(ByteBuffer buffer, TransactionType type, long requestKey, long amountPaise,
+                           String accountNumber, String targetAccountNumber) {
+        int body = MIN_REQUEST_BODY + accountNumber.length()
+                   + (type == TransactionType.TRANSFER ? BinaryCodec.asciiSize(targetAccountNumber) : 0);
+        buffer.putInt(body);
+        buffer.put((byte) type.ordinal());
+        buffer.putLong(requestKey);
+        buffer.putLong(amountPaise);
+        BinaryCodec.putAscii(buffer, accountNumber);
+        if (type == TransactionType.TRANSFER) {
+            BinaryCodec.putAscii(buffer, targetAccountNumber);
+        }
+    }
+
+    /**
+     * Writes an authentication request frame
+     * @param buffer Target buffer
+     * @param requestKey Request key, or 0 for none
+     * @param accountNumber Account number
+     * @param pin PIN entered at the terminal
+     */
+    static void putAuthenticate(ByteBuffer buffer, long requestKey, String accountNumber, String pin) {
+        buffer.putInt(MIN_REQUEST_BODY + accountNumber.length() + BinaryCodec.asciiSize(pin));
+        buffer.put(OP_AUTHENTICATE);
+        buffer.putLong(requestKey);
+        buffer.putLong(0L);
+        BinaryCodec.putAscii(buffer, accountNumber);
+        BinaryCodec.putAscii(buffer, pin);
+    }
+
+    /**
+     * Writes a response frame
+     * @param buffer Target buffer with at least RESPONSE_BYTES remaining
+     * @param status Status code
+     * @param requestKey Key of the request being answered
+     * @param balancePaise Balance after the operation, or 0 if unknown
+     */
+    static void putResponse(ByteBuffer buffer, byte status, long requestKey, long balancePaise) {
+        buffer.putInt(RESPONSE_BYTES - HEADER_BYTES);
+        buffer.put(status);
+        buffer.putLong(requestKey);
+        buffer.putLong(balancePaise);
+    }
+
+    /**
+     * Checks whether a complete frame starts at the buffer's position
+     * @param buffer Buffer in read mode
+     * @return Body length of the complete frame, 0 if more bytes are needed,
+     *         or -1 if the length prefix is out of range
+     */
+    static int completeFrame(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES) {
+            return 0;
+        }
+        int body = buffer.getInt(buffer.position());
+        if (body < MIN_REQUEST_BODY || body > MAX_REQUEST_BODY) {
+            return -1;
+        }
+        return buffer.remaining() - HEADER_BYTES >= body ? body : 0;
+    }
+
+    /**
+     * Compares the string field at the buffer's position with a value without consuming it
+     * @param buffer Buffer in read mode
+     * @param value String to compare with, may be null
+     * @return true if the encoded field equals value
+     */
+    static boolean asciiEquals(ByteBuffer buffer, String value) {
+        if (value == null || buffer.remaining() < 2) {
+            return false;
+        }
+        int start = buffer.position();
+        int length = buffer.getShort(start);
+        if (length != value.length() || buffer.remaining() < 2 + length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if ((buffer.get(start + 2 + i) & 0xFF) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private TerminalProtocol() {
+        throw new AssertionError("Cannot instantiate protocol class");
+    }
+}
@@ -0,0 +1,298 @@
+package atm;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * One terminal connected to the ATM server
+ * Speaks a line-based text protocol that mirrors the console menu; every
+ * command gets exactly one reply line starting with OK or ERR:
+ *
+ *   LOGIN account pin   OK holder name | ERR INVALID_PIN remaining | ERR LOCKED | ERR UNKNOWN_ACCOUNT | ERR BUSY
+ *   BALANCE             OK balance
+ *   DEPOSIT amount      OK balance | ERR DEPOSIT_FAILED | ERR INVALID_AMOUNT
+ *   WITHDRAW amount     OK balance | ERR WITHDRAWAL_FAILED | ERR INVALID_AMOUNT
+ *   PIN old new         OK | ERR PIN_CHANGE_FAILED
+ *   EXPORT CSV|TXT|HTML OK | ERR EXPORT_FAILED
+ *   QUIT                OK BYE
+ *
+ * The session ends after QUIT, an unknown account, too many wrong PINs or
+ * SESSION_TIMEOUT_MINUTES without input. With an AffinityScheduler, LOGIN
+ * and every later command run on the account's shard rather than on the
+ * session thread. With a PinVerifier, the PIN check of LOGIN runs on the
+ * verification pool instead and the session waits for it; ERR BUSY means the
+ * pool was saturated and the attempt was not counted. Wrong PINs are counted
+ * on the account, so reconnecting does not buy more guesses. A command that
+ * fails unexpectedly on the shard is answered with ERR INTERNAL
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+class TerminalSession implements Runnable {
+
+    private static final int INPUT_BUFFER_BYTES = 256;
+
+    private final Socket socket;
+    private final AccountRegistry registry;
+    private final TransferEngine transferEngine;
+    private final AffinityScheduler scheduler;
+    private final PinVerifier pinVerifier;
+    private final byte[] line = new byte[ATMConstants.MAX_INPUT_LENGTH * 2];
+    private ATMService atmService;
+    private String accountNumber;
+    private boolean authenticated;
+    private boolean open = true;
+
+    /**
+     * Creates a session for an accepted connection
+     * @param socket Terminal connection
+     * @param registry Registry used to look up logins
+     * @param transferEngine Engine used for transfers (may be null)
+     * @param scheduler Scheduler owning the account shards (may be null)
+     * @param pinVerifier Pool for PIN checks (may be null)
+     */
+    TerminalSession(Socket socket, AccountRegistry registry, TransferEngine transferEngine,
+                    AffinityScheduler scheduler, PinVerifier pinVerifier) {
+        this.socket = socket;
+        this.registry = registry;
+        this.transferEngine = transferEngine;
+        this.scheduler = scheduler;
+        this.pinVerifier = pinVerifier;
+    }
+
+    /**
+     * Serves commands until the terminal quits, disconnects or times out
+     */
+    @Override
+    public void run() {
+        try {
+            socket.setSoTimeout(ATMConstants.SESSION_TIMEOUT_MINUTES * 60_000);
+            InputStream in = new BufferedInputStream(socket.getInputStream(), INPUT_BUFFER_BYTES);
+            OutputStream out = socket.getOutputStream();
+            reply(out, "OK " + ATMConstants.BANK_NAME);
+            while (open) {
+                String command;
+                try {
+                    command = readLine(in);
+                } catch (SocketTimeoutException e) {
+                    reply(out, "ERR TIMEOUT");
+                    break;
+                }
+                if (command == null) {
+                    break;
+                }
+                reply(out, handle(command.trim()));
+            }
+        } catch (IOException e) {
+            // Terminal disconnected
+        } finally {
+            if (authenticated) {
+                ATMLogger.info("Terminal session ended for account: " + atmService.getMaskedAccountNumber());
+            }
+        }
+    }
+
+    /**
+     * Executes one command
+     * @param command Command line without terminator
+     * @return Reply line
+     */
+    String handle(String command) {
+        String[] parts = command.split("\\s+");
+        String verb = parts[0].toUpperCase();
+        if (verb.equals("QUIT")) {
+            open = false;
+            return "OK BYE";
+        }
+        if (verb.equals("LOGIN")) {
+            if (parts.length != 3) {
+                return "ERR USAGE LOGIN account pin";
+            }
+            // A pooled PIN check must not hold the account's shard while it waits
+            return scheduler == null || pinVerifier != null ? login(parts[1], parts[2])
+                                     : onShard(parts[1], () -> login(parts[1], parts[2]));
+        }
+        if (!authenticated) {
+            return "ERR NOT_AUTHENTICATED";
+        }
+        return scheduler == null ? execute(verb, parts) : onShard(accountNumber, () -> execute(verb, parts));
+    }
+
+    /**
+     * Runs a command on the account's shard and waits for its reply
+     * @param accountNumber Account the command works on
+     * @param command Command to run
+     * @return Reply line
+     */
+    private String onShard(String accountNumber, Supplier<String> command) {
+        try {
+            return scheduler.submit(accountNumber, command).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                return "ERR INVALID_AMOUNT";
+            }
+            ATMLogger.error("Terminal command failed: " + e.getCause());
+            return "ERR INTERNAL";
+        }
+    }
+
+    /**
+     * Executes one command of an authenticated session
+     * @param verb Upper-case command
+     * @param parts Command words
+     * @return Reply line
+     */
+    private String execute(String verb, String[] parts) {
+        atmService.updateLastActivity();
+        try {
+            switch (verb) {
+                case "BALANCE":
+                    return balance();
+                case "DEPOSIT":
+                    return parts.length == 2 && atmService.depositMoney(amount(parts[1]))
+                           ? balance() : "ERR DEPOSIT_FAILED";
+                case "WITHDRAW":
+                    return parts.length == 2 && atmService.withdrawMoney(amount(parts[1]))
+                           ? balance() : "ERR WITHDRAWAL_FAILED";
+                case "PIN":
+                    return parts.length == 3 && atmService.changePin(parts[1], parts[2])
+                           ? "OK" : "ERR PIN_CHANGE_FAILED";
+                case "EXPORT":
+                    return parts.length == 2 && export(parts[1].toUpperCase()) ? "OK" : "ERR EXPORT_FAILED";
+                default:
+                    return "ERR UNKNOWN_COMMAND";
+            }
+        } catch (IllegalArgumentException e) {
+            // Unparsable, NaN and out-of-range amounts
+            return "ERR INVALID_AMOUNT";
+        }
+    }
+
+    /**
+     * Authenticates the terminal against an account, allowing MAX_PIN_ATTEMPTS tries
+     */
+    private String login(String accountNumber, String pin) {
+        if (authenticated) {
+            return "ERR ALREADY_AUTHENTICATED";
+        }
+        if (!accountNumber.equals(this.accountNumber)) {
+            Account account = registry.find(accountNumber);
+            if (account == null) {
+                ATMLogger.warning("Authentication attempt for unknown account: "
+                                  + ATMUtil.maskAccountNumber(accountNumber));
+                open = false;
+                return "ERR UNKNOWN_ACCOUNT";
+            }
+            atmService = new ATMService(account, transferEngine);
+            this.accountNumber = accountNumber;
+        }
+        Boolean valid = checkPin(pin);
+        if (valid == null) {
+            return "ERR BUSY";
+        }
+        if (valid) {
+            authenticated = true;
+            ATMLogger.logAuthentication(accountNumber, true);
+            return "OK " + atmService.getAccountHolderName();
+        }
+        ATMLogger.logAuthentication(accountNumber, false);
+        int remaining = ATMConstants.MAX_PIN_ATTEMPTS - atmService.getFailedLoginAttempts();
+        if (remaining <= 0) {
+            open = false;
+            return "ERR LOCKED";
+        }
+        return "ERR INVALID_PIN " + remaining;
+    }
+
+    /**
+     * Checks the PIN, on the verification pool when there is one
+     * @param pin PIN entered at the terminal
+     * @return Result, or null if the pool refused the check
+     */
+    private Boolean checkPin(String pin) {
+        if (pinVerifier == null) {
+            return atmService.authenticate(pin);
+        }
+        try {
+            return pinVerifier.authenticate(atmService, pin).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Parses an amount argument
+     * @param text Amount as typed at the terminal
+     * @return Amount in rupees
+     * @throws IllegalArgumentException if text is not a number, NaN, infinite or out of range
+     */
+    private static double amount(String text) {
+        double amount = Double.parseDouble(text);
+        if (!MoneyUtil.isConvertible(amount)) {
+            throw new IllegalArgumentException("Amount out of range: " + text);
+        }
+        return amount;
+    }
+
+    private String balance() {
+        return String.format("OK %.2f", atmService.checkBalance());
+    }
+
+    /**
+     * Exports the statement into the server's export directory
+     * @param format CSV, TXT or HTML
+     * @return true if the statement was written
+     */
+    private boolean export(String format) {
+        List<String> transactions = atmService.getTransactionHistory();
+        String masked = atmService.getMaskedAccountNumber();
+        String holder = atmService.getAccountHolderName();
+        String directory = ATMConstants.SERVER_EXPORT_DIRECTORY;
+        switch (format) {
+            case "CSV":
+                return StatementExporter.exportToCSV(masked, holder, transactions, directory);
+            case "TXT":
+                return StatementExporter.exportToTXT(masked, holder, atmService.checkBalance(), transactions, directory);
+            case "HTML":
+                return StatementExporter.exportToHTML(masked, holder, atmService.checkBalance(), transactions, directory);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Reads one line, truncating anything beyond the line buffer
+     * @param in Terminal input
+     * @return Line without terminator, or null at end of stream
+     * @throws IOException if reading fails or times out
+     */
+    private String readLine(InputStream in) throws IOException {
+        int length = 0;
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r' && length < line.length) {
+                line[length++] = (byte) b;
+            }
+        }
+        if (b == -1 && length == 0) {
+            return null;
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static void reply(OutputStream out, String message) throws IOException {
+        out.write((message + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
@@ -0,0 +1,76 @@
+package atm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ordered list of postings submitted to ATMService.submitBatch() in one call
+ * Used by bulk-deposit machines and back-office reconciliation
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class TransactionBatch {
+
+    private final List<TransactionType> types = new ArrayList<>();
+    private final List<Double> amounts = new ArrayList<>();
+
+    /**
+     * Adds a posting to the batch
+     * @param type Transaction type; only DEPOSIT and WITHDRAWAL can be applied
+     * @param amount Amount in INR
+     * @return This batch, for chaining
+     * @throws IllegalArgumentException if type is null
+     */
+    public TransactionBatch add(TransactionType type, double amount) {
+        if (type == null) {
+            throw new IllegalArgumentException("Transaction type cannot be null");
+        }
+        types.add(type);
+        amounts.add(amount);
+        return this;
+    }
+
+    /**
+     * Adds a deposit to the batch
+     * @param amount Amount in INR
+     * @return This batch, for chaining
+     */
+    public TransactionBatch deposit(double amount) {
+        return add(TransactionType.DEPOSIT, amount);
+    }
+
+    /**
+     * Adds a withdrawal to the batch
+     * @param amount Amount in INR
+     * @return This batch, for chaining
+     */
+    public TransactionBatch withdraw(double amount) {
+        return add(TransactionType.WITHDRAWAL, amount);
+    }
+
+    /**
+     * Gets the number of postings in the batch
+     * @return Posting count
+     */
+    public int size() {
+        return types.size();
+    }
+
+    /**
+     * Gets the type of a posting
+     * @param index Posting index
+     * @return Transaction type
+     */
+    public TransactionType getType(int index) {
+        return types.get(index);
+    }
+
+    /**
+     * Gets the amount of a posting
+     * @param index Posting index
+     * @return Amount in INR
+     */
+    public double getAmount(int index) {
+        return amounts.get(index);
+    }
+}
@@ -0,0 +1,406 @@
+package atm;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bounded transaction history for an account
+ * Postings are kept as compact primitive records in a ring that grows on
+ * demand up to its capacity and then overwrites the oldest entries.
+ * Display strings are only built when the history is actually read
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class TransactionHistory {
+
+    public static final byte TYPE_DEPOSIT = 1;
+    public static final byte TYPE_WITHDRAWAL = 2;
+    public static final byte TYPE_TRANSFER_OUT = 3;
+    public static final byte TYPE_TRANSFER_IN = 4;
+    public static final byte TYPE_PIN_CHANGE = 5;
+    public static final byte TYPE_INTEREST = 6;
+    /** Journal-only record carrying both legs of a transfer; kept in history as OUT and IN */
+    public static final byte TYPE_TRANSFER = 7;
+    /** Journal-only record of an account registered while journaling; never kept in history */
+    public static final byte TYPE_OPEN = 8;
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    /**
+     * Receives postings when iterating over the history
+     */
+    public interface PostingConsumer {
+        /**
+         * Accepts one posting
+         * @param type Posting type code (one of the TYPE_ constants)
+         * @param amountPaise Amount in paise
+         * @param balanceAfterPaise Balance after the posting in paise
+         * @param epochMillis Time of the posting
+         */
+        void accept(byte type, long amountPaise, long balanceAfterPaise, long epochMillis);
+    }
+
+    private final int capacity;
+    private byte[] types;
+    private long[] amounts;
+    private long[] balances;
+    private long[] timestamps;
+    private String[] counterparties;
+    private String[] references;
+    private int head;
+    private int size;
+    private boolean truncated;
+
+    /**
+     * Creates an empty history
+     * @param capacity Maximum number of postings kept
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public TransactionHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("History capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Records a posting, overwriting the oldest one when full
+     * @param type Posting type code
+     * @param amountPaise Amount in paise
+     * @param balanceAfterPaise Balance after the posting in paise
+     * @param epochMillis Time of the posting
+     * @param counterparty Other account of a transfer, or null
+     */
+    public void record(byte type, long amountPaise, long balanceAfterPaise, long epochMillis, String counterparty) {
+        record(type, amountPaise, balanceAfterPaise, epochMillis, counterparty, null);
+    }
+
+    /**
+     * Records a posting made under a request reference
+     * @param type Posting type code
+     * @param amountPaise Amount in paise
+     * @param balanceAfterPaise Balance after the posting in paise
+     * @param epochMillis Time of the posting
+     * @param counterparty Other account of a transfer, or null
+     * @param reference Reference of the request that made the posting, or null
+     */
+    synchronized void record(byte type, long amountPaise, long balanceAfterPaise, long epochMillis,
+                             String counterparty, String reference) {
+        if (types == null || (size == types.length && size < capacity)) {
+            grow();
+        }
+        int slot = (head + size) % types.length;
+        if (size == types.length) {
+            head = (head + 1) % types.length;
+            truncated = true;
+        } else {
+            size++;
+        }
+        types[slot] = type;
+        amounts[slot] = amountPaise;
+        balances[slot] = balanceAfterPaise;
+        timestamps[slot] = epochMillis;
+        counterparties[slot] = counterparty;
+        references[slot] = reference;
+    }
+
+    /**
+     * Grows the backing arrays; only called before the ring has wrapped,
+     * so live entries always start at index 0
+     */
+    private void grow() {
+        int newLength = types == null ? Math.min(INITIAL_CAPACITY, capacity)
+                                      : Math.min(types.length * 2, capacity);
+        types = types == null ? new byte[newLength] : Arrays.copyOf(types, newLength);
+        amounts = amounts == null ? new long[newLength] : Arrays.copyOf(amounts, newLength);
+        balances = balances == null ? new long[newLength] : Arrays.copyOf(balances, newLength);
+        timestamps = timestamps == null ? new long[newLength] : Arrays.copyOf(timestamps, newLength);
+        counterparties = counterparties == null ? new String[newLength]
+                                                : Arrays.copyOf(counterparties, newLength);
+        references = references == null ? new String[newLength] : Arrays.copyOf(references, newLength);
+    }
+
+    /**
+     * Gets the number of postings currently kept
+     * @return Posting count
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Gets the maximum number of postings kept
+     * @return Capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Visits every kept posting from oldest to newest without rendering text
+     * @param consumer Posting consumer
+     */
+    public synchronized void forEach(PostingConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) % types.length;
+            consumer.accept(types[slot], amounts[slot], balances[slot], timestamps[slot]);
+        }
+    }
+
+    /**
+     * Integrates the balance over a time window, for average daily balance
+     * Walks the postings from newest to oldest using their recorded balances;
+     * the balance before the oldest kept posting is derived from its amount,
+     * so the result is exact unless more than capacity postings were made
+     * since the start of the window
+     * @param currentBalancePaise Balance to assume if there are no postings
+     * @param fromSecond Start of the window in epoch seconds, inclusive
+     * @param toSecond End of the window in epoch seconds, exclusive
+     * @return Sum over the window of balance times seconds held, in paise-seconds
+     */
+    public synchronized long balanceSeconds(long currentBalancePaise, long fromSecond, long toSecond) {
+        long total = 0L;
+        long until = Long.MAX_VALUE;
+        long balance = currentBalancePaise;
+        for (int i = size - 1; i >= 0 && until > fromSecond; i--) {
+            int slot = (head + i) % types.length;
+            long at = Math.min(until, Math.floorDiv(timestamps[slot], 1000L));
+            total += balances[slot] * overlap(at, until, fromSecond, toSecond);
+            balance = balances[slot] - signedAmount(types[slot], amounts[slot]);
+            until = at;
+        }
+        return total + balance * overlap(Long.MIN_VALUE, until, fromSecond, toSecond);
+    }
+
+    /**
+     * Checks whether balanceSeconds is exact for a window starting at a time
+     * It is unless postings have been overwritten and the oldest kept one was
+     * made after the window started, since the overwritten ones may then fall
+     * inside the window
+     * @param fromSecond Start of the window in epoch seconds
+     * @return true if every posting made after fromSecond is kept
+     */
+    public synchronized boolean coversSince(long fromSecond) {
+        return !truncated || Math.floorDiv(timestamps[head], 1000L) <= fromSecond;
+    }
+
+    /**
+     * Checks whether every posting made at or after a time is kept
+     * @param sinceMillis Time of interest
+     * @return true if no posting made since then was overwritten
+     */
+    synchronized boolean keepsSince(long sinceMillis) {
+        return !truncated || timestamps[head] < sinceMillis;
+    }
+
+    /**
+     * Checks whether any posting has been overwritten
+     * @return true if older postings were dropped
+     */
+    synchronized boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Records that postings older than the kept ones were dropped, for
+     * histories restored from a snapshot
+     */
+    synchronized void markTruncated() {
+        truncated = size > 0;
+    }
+
+    /**
+     * Gets the detail of the newest kept posting of a type
+     * @param type Posting type code
+     * @return Counterparty or detail, or null if no such posting is kept
+     */
+    synchronized String newestDetail(byte type) {
+        for (int i = size - 1; i >= 0; i--) {
+            int slot = (head + i) % types.length;
+            if (types[slot] == type) {
+                return counterparties[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a kept posting was made under a request reference
+     * @param reference Request reference
+     * @return true if such a posting is kept
+     */
+    synchronized boolean hasReference(String reference) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (reference.equals(references[(head + i) % types.length])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the kept postings of a type made at or after a time
+     * @param type Posting type code
+     * @param sinceMillis Earliest posting time to count
+     * @return Number of such postings
+     */
+    public synchronized int countPostingsSince(byte type, long sinceMillis) {
+        int count = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            int slot = (head + i) % types.length;
+            if (timestamps[slot] < sinceMillis) {
+                break;
+            }
+            if (types[slot] == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the length of the overlap of two half-open intervals
+     */
+    private static long overlap(long from, long to, long windowFrom, long windowTo) {
+        return Math.max(0L, Math.min(to, windowTo) - Math.max(from, windowFrom));
+    }
+
+    /**
+     * Gets the effect of a posting on the balance
+     * @param type Posting type code
+     * @param amountPaise Amount in paise
+     * @return Amount credited (positive) or debited (negative)
+     */
+    static long signedAmount(byte type, long amountPaise) {
+        switch (type) {
+            case TYPE_DEPOSIT:
+            case TYPE_TRANSFER_IN:
+            case TYPE_INTEREST:
+                return amountPaise;
+            case TYPE_WITHDRAWAL:
+            case TYPE_TRANSFER_OUT:
+                return -amountPaise;
+            default:
+                return 0L;
+        }
+    }
+
+    /**
+     * Gets the size of this history in the snapshot encoding
+     * @return Encoded size in bytes
+     */
+    synchronized int encodedSize() {
+        int bytes = 4;
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) % types.length;
+            bytes += 1 + 8 + 8 + 8 + BinaryCodec.asciiSize(counterparties[slot])
+                     + BinaryCodec.asciiSize(references[slot]);
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes all kept postings in the snapshot encoding, oldest first
+     * @param buffer Target buffer with at least encodedSize() bytes remaining
+     */
+    synchronized void writeTo(ByteBuffer buffer) {
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) % types.length;
+            buffer.put(types[slot]);
+            buffer.putLong(amounts[slot]);
+            buffer.putLong(balances[slot]);
+            buffer.putLong(timestamps[slot]);
+            BinaryCodec.putAscii(buffer, counterparties[slot]);
+            BinaryCodec.putAscii(buffer, references[slot]);
+        }
+    }
+
+    /**
+     * Appends postings read from the snapshot encoding
+     * @param buffer Source buffer positioned at an encoded history
+     * @param withReferences Whether postings carry a request reference, as
+     *                       in snapshots from version 4 on
+     */
+    void readFrom(ByteBuffer buffer, boolean withReferences) {
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            byte type = buffer.get();
+            long amountPaise = buffer.getLong();
+            long balanceAfterPaise = buffer.getLong();
+            long epochMillis = buffer.getLong();
+            String counterparty = BinaryCodec.getAscii(buffer);
+            record(type, amountPaise, balanceAfterPaise, epochMillis, counterparty,
+                   withReferences ? BinaryCodec.getAscii(buffer) : null);
+        }
+    }
+
+    /**
+     * Renders the newest postings as display strings, oldest first
+     * @param count Maximum number of postings to render
+     * @return List of transaction strings
+     */
+    public synchronized List<String> render(int count) {
+        int from = Math.max(0, size - Math.max(0, count));
+        List<String> lines = new ArrayList<>(size - from);
+        for (int i = from; i < size; i++) {
+            int slot = (head + i) % types.length;
+            lines.add(renderLine(types[slot], amounts[slot], balances[slot],
+                                 timestamps[slot], counterparties[slot]));
+        }
+        return lines;
+    }
+
+    /**
+     * Renders one posting in the statement format
+     * @param type Posting type code
+     * @param amountPaise Amount in paise
+     * @param balanceAfterPaise Balance after the posting in paise
+     * @param epochMillis Time of the posting
+     * @param counterparty Other account of a transfer, or null
+     * @return Transaction string
+     */
+    private static String renderLine(byte type, long amountPaise, long balanceAfterPaise,
+                                     long epochMillis, String counterparty) {
+        return describe(type, counterparty) + " | " + ATMConstants.CURRENCY_SYMBOL + MoneyUtil.format(amountPaise)
+            + " | Balance: " + ATMConstants.CURRENCY_SYMBOL + MoneyUtil.format(balanceAfterPaise)
+            + " | " + TIMESTAMP_FORMATTER.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    /**
+     * Gets the display label of a posting type
+     * @param type Posting type code
+     * @param counterparty Other account of a transfer, or null
+     * @return Display label
+     */
+    public static String describe(byte type, String counterparty) {
+        switch (type) {
+            case TYPE_DEPOSIT: return "DEPOSIT";
+            case TYPE_WITHDRAWAL: return "WITHDRAWAL";
+            case TYPE_TRANSFER_OUT: return "TRANSFER OUT to " + maskAccountNumber(counterparty);
+            case TYPE_TRANSFER_IN: return "TRANSFER IN from " + maskAccountNumber(counterparty);
+            case TYPE_PIN_CHANGE: return "PIN CHANGE";
+            case TYPE_INTEREST: return "INTEREST CREDIT";
+            default: return "UNKNOWN";
+        }
+    }
+
+    /**
+     * Masks account number for display
+     * @param accountNum Account number to mask
+     * @return Masked account number
+     */
+    private static String maskAccountNumber(String accountNum) {
+        if (accountNum == null || accountNum.length() < 4) {
+            return "XXXXX";
+        }
+        return "XXXXX" + accountNum.substring(accountNum.length() - 4);
+    }
+}
@@ -0,0 +1,671 @@
+package atm;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Durable append-only journal of account mutations
+ * Writers append a binary record and then wait until it is on disk. A single
+ * flusher thread collects everything appended during a batch window, writes
+ * it in one go and issues one FileChannel.force for the whole group, so
+ * concurrent terminals share the cost of each fsync. Once a snapshot covers
+ * the start of the file, discardBefore() cuts that prefix off so the file
+ * and the replay after a crash stay bounded
+ *
+ * Record layout: int payloadLength, payload, int crc32(payload) where the
+ * payload is long sequence, byte type, long epochMillis, long amountPaise,
+ * long balanceAfterPaise, short length + ASCII account number,
+ * short length + ASCII detail (counterparty or credential, may be empty)
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class TransactionJournal implements AutoCloseable {
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int FIXED_PAYLOAD_SIZE = 8 + 1 + 8 + 8 + 8 + 2 + 2;
+    private static final int MAX_STRING_LENGTH = BinaryCodec.MAX_STRING_LENGTH;
+
+    /**
+     * Receives journal records during replay
+     */
+    public interface EntryConsumer {
+        /**
+         * Accepts one journal record
+         * @param sequence Record sequence number
+         * @param type Posting type code from TransactionHistory
+         * @param accountNumber Account the record belongs to
+         * @param amountPaise Amount in paise
+         * @param balanceAfterPaise Balance after the mutation in paise
+         * @param epochMillis Time of the mutation
+         * @param detail Counterparty or credential, or null
+         */
+        void accept(long sequence, byte type, String accountNumber, long amountPaise,
+                    long balanceAfterPaise, long epochMillis, String detail);
+    }
+
+    private final Path path;
+    private final ReentrantLock fileLock = new ReentrantLock(); // held while the file is written or replaced
+    private FileChannel channel; // guarded by fileLock
+    private final long batchWindowNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dataAvailable = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final CRC32 crc = new CRC32();
+    private final Thread flusher;
+
+    private ByteBuffer active = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer flushing = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private long lastSequence;
+    private long appendedSequence;
+    private volatile long durableSequence;
+    private volatile long durablePosition;
+    private volatile long forceCount;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Opens (or creates) a journal and starts its flusher thread
+     * @param path Journal file
+     * @param batchWindowMicros How long the flusher waits to gather more records
+     *                          before forcing; 0 forces as soon as data is present
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if batchWindowMicros is negative
+     */
+    public TransactionJournal(Path path, long batchWindowMicros) throws IOException {
+        this(path, batchWindowMicros, 0L);
+    }
+
+    /**
+     * Opens (or creates) a journal continuing after a known sequence number
+     * @param path Journal file
+     * @param batchWindowMicros Group commit window in microseconds
+     * @param lastSequence Sequence number of the last record already in the file
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if batchWindowMicros or lastSequence is negative
+     */
+    public TransactionJournal(Path path, long batchWindowMicros, long lastSequence) throws IOException {
+        if (batchWindowMicros < 0) {
+            throw new IllegalArgumentException("Batch window cannot be negative");
+        }
+        if (lastSequence < 0) {
+            throw new IllegalArgumentException("Sequence cannot be negative");
+        }
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.batchWindowNanos = TimeUnit.MICROSECONDS.toNanos(batchWindowMicros);
+        this.lastSequence = lastSequence;
+        this.appendedSequence = lastSequence;
+        this.durableSequence = lastSequence;
+        this.durablePosition = channel.size();
+        this.flusher = new Thread(this::runFlusher, "atm-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Appends a record without waiting for it to reach disk
+     * @param type Posting type code from TransactionHistory
+     * @param accountNumber Account the record belongs to
+     * @param amountPaise Amount in paise
+     * @param balanceAfterPaise Balance after the mutation in paise
+     * @param epochMillis Time of the mutation
+     * @param detail Counterparty or credential, or null
+     * @return Sequence number assigned to the record
+     * @throws IllegalStateException if the journal is closed or has failed
+     */
+    public long append(byte type, String accountNumber, long amountPaise, long balanceAfterPaise,
+                       long epochMillis, String detail) {
+        int payloadLength = payloadLength(accountNumber, detail);
+
+        lock.lock();
+        try {
+            checkWritable();
+            ensureCapacity(4 + payloadLength + 4);
+            long sequence = writeRecord(payloadLength, type, accountNumber, amountPaise,
+                                        balanceAfterPaise, epochMillis, detail);
+            appendedSequence = sequence;
+            dataAvailable.signal();
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends several records of one account as a single write, without
+     * waiting for them to reach disk; the records get consecutive sequence
+     * numbers and always land in the same group commit
+     * @param accountNumber Account the records belong to
+     * @param types Posting type codes from TransactionHistory
+     * @param amountsPaise Amounts in paise
+     * @param balancesAfterPaise Balances after each mutation in paise
+     * @param epochMillis Time of the mutations
+     * @param count Number of records to append from the arrays
+     * @return Sequence number assigned to the last record
+     * @throws IllegalArgumentException if count is not positive
+     * @throws IllegalStateException if the journal is closed or has failed
+     */
+    public long appendBatch(String accountNumber, byte[] types, long[] amountsPaise,
+                            long[] balancesAfterPaise, long epochMillis, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Batch must contain at least one record");
+        }
+        int payloadLength = payloadLength(accountNumber, null);
+
+        lock.lock();
+        try {
+            checkWritable();
+            ensureCapacity((4 + payloadLength + 4) * count);
+            long sequence = 0L;
+            for (int i = 0; i < count; i++) {
+                sequence = writeRecord(payloadLength, types[i], accountNumber, amountsPaise[i],
+                                       balancesAfterPaise[i], epochMillis, null);
+            }
+            appendedSequence = sequence;
+            dataAvailable.signal();
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Computes the payload length of a record
+     * @param accountNumber Account number
+     * @param detail Detail field, or null
+     * @return Payload length in bytes
+     * @throws IllegalArgumentException if a field is too long
+     */
+    private static int payloadLength(String accountNumber, String detail) {
+        int accountLength = accountNumber.length();
+        int detailLength = detail == null ? 0 : detail.length();
+        if (accountLength > MAX_STRING_LENGTH || detailLength > MAX_STRING_LENGTH) {
+            throw new IllegalArgumentException("Journal field too long");
+        }
+        return FIXED_PAYLOAD_SIZE + accountLength + detailLength;
+    }
+
+    /**
+     * Fails if records can no longer be appended; caller holds the lock
+     * @throws IllegalStateException if the journal is closed or has failed
+     */
+    private void checkWritable() {
+        if (closed || failure != null) {
+            throw new IllegalStateException("Journal is not writable: " + path, failure);
+        }
+    }
+
+    /**
+     * Writes one framed record into the active buffer; caller holds the lock
+     * and has ensured capacity
+     * @return Sequence number assigned to the record
+     */
+    private long writeRecord(int payloadLength, byte type, String accountNumber, long amountPaise,
+                             long balanceAfterPaise, long epochMillis, String detail) {
+        long sequence = ++lastSequence;
+        active.putInt(payloadLength);
+        int payloadStart = active.position();
+        active.putLong(sequence);
+        active.put(type);
+        active.putLong(epochMillis);
+        active.putLong(amountPaise);
+        active.putLong(balanceAfterPaise);
+        BinaryCodec.putAscii(active, accountNumber);
+        BinaryCodec.putAscii(active, detail);
+
+        crc.reset();
+        crc.update(active.array(), active.arrayOffset() + payloadStart, payloadLength);
+        active.putInt((int) crc.getValue());
+        return sequence;
+    }
+
+    /**
+     * Appends a record and waits until it is durable
+     * @param type Posting type code from TransactionHistory
+     * @param accountNumber Account the record belongs to
+     * @param amountPaise Amount in paise
+     * @param balanceAfterPaise Balance after the mutation in paise
+     * @param epochMillis Time of the mutation
+     * @param detail Counterparty or credential, or null
+     * @return Sequence number assigned to the record
+     * @throws UncheckedIOException if the journal could not be written
+     * @throws IllegalStateException if the journal is closed or the wait is interrupted
+     */
+    public long appendAndSync(byte type, String accountNumber, long amountPaise, long balanceAfterPaise,
+                              long epochMillis, String detail) {
+        long sequence = append(type, accountNumber, amountPaise, balanceAfterPaise, epochMillis, detail);
+        awaitDurable(sequence);
+        return sequence;
+    }
+
+    /**
+     * Waits until every record up to a sequence number is durable
+     * @param sequence Sequence number to wait for
+     * @throws UncheckedIOException if the journal could not be written
+     * @throws IllegalStateException if the wait is interrupted
+     */
+    public void awaitDurable(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Journal write failed: " + path, failure);
+                }
+                flushed.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits like awaitDurable() but does not give up when interrupted
+     * A caller that has already applied a mutation in memory must learn
+     * whether its record was written before deciding to keep or undo it;
+     * the interrupt status is restored on return
+     * @param sequence Sequence number to wait for
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    void awaitDurableUninterruptibly(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Journal write failed: " + path, failure);
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flusher loop: waits for data, lets the batch window fill, then writes
+     * and forces everything gathered so far as one group
+     */
+    private void runFlusher() {
+        while (true) {
+            long groupEnd;
+            lock.lock();
+            try {
+                while (active.position() == 0 && !closed) {
+                    dataAvailable.awaitUninterruptibly();
+                }
+                if (active.position() == 0) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (batchWindowNanos > 0) {
+                LockSupport.parkNanos(batchWindowNanos);
+            }
+
+            lock.lock();
+            try {
+                ByteBuffer swap = active;
+                active = flushing;
+                flushing = swap;
+                groupEnd = appendedSequence;
+            } finally {
+                lock.unlock();
+            }
+
+            fileLock.lock();
+            try {
+                long groupBytes;
+                try {
+                    flushing.flip();
+                    groupBytes = flushing.remaining();
+                    while (flushing.hasRemaining()) {
+                        channel.write(flushing);
+                    }
+                    channel.force(false);
+                    flushing.clear();
+                } catch (IOException e) {
+                    lock.lock();
+                    try {
+                        failure = e;
+                        flushed.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                    ATMLogger.error("Journal write failed: " + e.getMessage());
+                    return;
+                }
+
+                lock.lock();
+                try {
+                    durablePosition += groupBytes;
+                    durableSequence = groupEnd;
+                    forceCount++;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                fileLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Cuts off the start of the file once a snapshot contains everything in it
+     * The records after the offset are copied to a new file that atomically
+     * replaces the journal; the flusher waits meanwhile, so appends continue
+     * and only their durability is delayed by the copy. Offsets taken before
+     * the call shrink by the discarded length
+     * @param position Durable file offset up to which records may be dropped
+     * @throws IOException if the new file cannot be written
+     * @throws IllegalArgumentException if the offset is beyond the durable records
+     * @throws IllegalStateException if the journal is closed
+     */
+    public void discardBefore(long position) throws IOException {
+        fileLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed: " + path);
+            }
+            if (position > durablePosition) {
+                throw new IllegalArgumentException("Cannot discard records that are not durable");
+            }
+            if (position <= 0) {
+                return;
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(temp, StandardOpenOption.CREATE,
+                         StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long end = source.size();
+                long copied = 0L;
+                while (position + copied < end) {
+                    copied += source.transferTo(position + copied, end - position - copied, target);
+                }
+                target.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FileChannel replaced = channel;
+            channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            replaced.close();
+            lock.lock();
+            try {
+                durablePosition -= position;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Grows the active buffer so the next record fits
+     * @param bytes Bytes needed
+     */
+    private void ensureCapacity(int bytes) {
+        if (active.remaining() >= bytes) {
+            return;
+        }
+        int newSize = active.capacity();
+        while (newSize - active.position() < bytes) {
+            newSize *= 2;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(newSize);
+        active.flip();
+        grown.put(active);
+        active = grown;
+    }
+
+    /**
+     * Flushes outstanding records, stops the flusher and closes the file
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            dataAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        fileLock.lock();
+        try {
+            channel.close();
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the sequence number of the newest durable record
+     * @return Durable sequence number
+     */
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * Gets the sequence number of the newest appended record, durable or not
+     * @return Appended sequence number
+     */
+    public long getAppendedSequence() {
+        lock.lock();
+        try {
+            return appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the file offset up to which records are durable
+     * Every record before this offset has been forced to disk
+     * @return Durable file offset in bytes
+     */
+    public long getDurablePosition() {
+        return durablePosition;
+    }
+
+    /**
+     * Gets the durable file offset together with the sequence number of the
+     * last record before it, read as one consistent pair
+     * @return {durable file offset, durable sequence number}
+     */
+    public long[] getDurableMark() {
+        lock.lock();
+        try {
+            return new long[] {durablePosition, durableSequence};
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets how many times the journal has been forced to disk
+     * @return Number of group commits
+     */
+    public long getForceCount() {
+        return forceCount;
+    }
+
+    /**
+     * Gets the journal file
+     * @return Journal path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Reads every intact record of a journal file in order
+     * Reading stops at the first torn or corrupt record, which is what a
+     * crash in the middle of a group write leaves behind
+     * @param path Journal file
+     * @param consumer Record consumer
+     * @return Sequence number of the last intact record, or 0 if none
+     * @throws IOException if the file cannot be read
+     */
+    public static long read(Path path, EntryConsumer consumer) throws IOException {
+        return read(path, 0L, consumer);
+    }
+
+    /**
+     * Reads the intact records of a journal file that come after a sequence number
+     * @param path Journal file
+     * @param afterSequence Records with this sequence number or lower are skipped
+     * @param consumer Record consumer
+     * @return Sequence number of the last intact record, or afterSequence if none
+     * @throws IOException if the file cannot be read
+     */
+    public static long read(Path path, long afterSequence, EntryConsumer consumer) throws IOException {
+        return scan(path, 0L, afterSequence, consumer, false);
+    }
+
+    /**
+     * Reads the sequence number of the first record in a journal file
+     * @param path Journal file
+     * @return Sequence number of the first intact record, or 0 if there is none
+     * @throws IOException if the file cannot be read
+     */
+    public static long readFirstSequence(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return 0L;
+        }
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int length = data.readInt();
+            if (length < FIXED_PAYLOAD_SIZE || length > FIXED_PAYLOAD_SIZE + 2 * MAX_STRING_LENGTH) {
+                return 0L;
+            }
+            byte[] payload = new byte[length];
+            data.readFully(payload);
+            CRC32 checksum = new CRC32();
+            checksum.update(payload, 0, length);
+            return (int) checksum.getValue() == data.readInt() ? ByteBuffer.wrap(payload).getLong() : 0L;
+        } catch (EOFException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Replays the journal tail starting at a file offset and cuts off any torn
+     * record at the end, so that a journal reopened on the file appends after
+     * the last intact record
+     * @param path Journal file
+     * @param fromPosition File offset of the first record to replay
+     * @param consumer Record consumer
+     * @return Sequence number of the last intact record, or 0 if none
+     * @throws IOException if the file cannot be read or repaired
+     */
+    public static long replay(Path path, long fromPosition, EntryConsumer consumer) throws IOException {
+        return scan(path, fromPosition, 0L, consumer, true);
+    }
+
+    /**
+     * Scans intact records from a file offset
+     * @param path Journal file
+     * @param fromPosition File offset to start at
+     * @param afterSequence Records with this sequence number or lower are skipped
+     * @param consumer Record consumer
+     * @param repair Whether to truncate a torn tail
+     * @return Sequence number of the last intact record, or afterSequence if none
+     * @throws IOException if the file cannot be read or repaired
+     */
+    private static long scan(Path path, long fromPosition, long afterSequence,
+                             EntryConsumer consumer, boolean repair) throws IOException {
+        if (!Files.exists(path)) {
+            return afterSequence;
+        }
+        long last = afterSequence;
+        long validEnd = fromPosition;
+        byte[] payload = new byte[256];
+        CRC32 checksum = new CRC32();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (fromPosition > size) {
+                throw new IOException("Journal is shorter than expected: " + path);
+            }
+            channel.position(fromPosition);
+            DataInputStream data = new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+            while (true) {
+                int length;
+                int storedCrc;
+                try {
+                    length = data.readInt();
+                    if (length < FIXED_PAYLOAD_SIZE || length > FIXED_PAYLOAD_SIZE + 2 * MAX_STRING_LENGTH) {
+                        break;
+                    }
+                    if (payload.length < length) {
+                        payload = new byte[Math.max(length, payload.length * 2)];
+                    }
+                    data.readFully(payload, 0, length);
+                    storedCrc = data.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                checksum.reset();
+                checksum.update(payload, 0, length);
+                if ((int) checksum.getValue() != storedCrc) {
+                    break;
+                }
+                validEnd += 4 + length + 4;
+
+                ByteBuffer record = ByteBuffer.wrap(payload, 0, length);
+                long sequence = record.getLong();
+                byte type = record.get();
+                long epochMillis = record.getLong();
+                long amountPaise = record.getLong();
+                long balanceAfterPaise = record.getLong();
+                String accountNumber = BinaryCodec.getAscii(record);
+                String detail = BinaryCodec.getAscii(record);
+                if (sequence > afterSequence) {
+                    consumer.accept(sequence, type, accountNumber, amountPaise,
+                                    balanceAfterPaise, epochMillis, detail);
+                }
+                last = Math.max(last, sequence);
+            }
+            if (repair && validEnd < size) {
+                ATMLogger.warning("Truncating torn journal tail: " + (size - validEnd) + " bytes");
+                channel.truncate(validEnd);
+                channel.force(true);
+            }
+        }
+        return last;
+    }
+}
@@ -0,0 +1,498 @@
+package atm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pipelined processing mode for deposits and withdrawals
+ * Requests are written into a pre-allocated ring of slots and flow through
+ * four dedicated stage threads: validation (amount, type and daily limits),
+ * posting (balance mutation and journal append), journaling (one durability
+ * wait for everything posted so far) and side effects (velocity tracking,
+ * ATMStatistics, ATMLogger and completion callbacks). Each stage takes every
+ * slot its upstream stage has finished as one batch, so one fsync wait and
+ * one log file write cover many requests
+ *
+ * Producers claim sequence numbers from a shared counter and block while the
+ * ring is full, which bounds memory and applies backpressure. An idle stage
+ * spins briefly and then parks until a producer or its upstream stage wakes
+ * it. Closing waits for producers already past the open check, so every
+ * accepted request completes
+ *
+ * A request that cannot be journaled is taken back: its posting is reverted
+ * and its daily limit reservation released before it completes as
+ * JOURNAL_FAILED. If validating or posting a request throws, it and the rest
+ * of its batch complete as REJECTED without being posted
+ *
+ * The pipeline posts straight to Account and applies the daily limits itself;
+ * ATMService money operations also go through the BankHost, cash cassettes,
+ * idempotency keys and the session store, so they are not routed through it
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class TransactionPipeline implements AutoCloseable {
+
+    private static final int STAGE_VALIDATE = 0;
+    private static final int STAGE_POST = 1;
+    private static final int STAGE_JOURNAL = 2;
+    private static final int STAGE_EFFECTS = 3;
+    private static final String[] STAGE_NAMES = {"validate", "post", "journal", "effects"};
+    private static final long IDLE_PARK_NANOS = 50_000L;
+    private static final int SPIN_ROUNDS = 200;
+    private static final long STAGE_PARK_NANOS = 10_000_000L; // Fallback only; stages are woken
+
+    /**
+     * Receives the outcome of a submitted request on the side-effects thread
+     */
+    public interface Completion {
+        /**
+         * Accepts the outcome
+         * @param result Outcome of the request
+         */
+        void complete(BatchResult result);
+    }
+
+    /**
+     * One reusable request slot of the ring
+     */
+    private static final class Slot {
+        volatile long published = -1L;
+        TransactionType type;
+        Account account;
+        long amountPaise;
+        Completion completion;
+        BatchResult result;
+        TransactionJournal journal;
+        long journalSequence;
+    }
+
+    private final Slot[] ring;
+    private final int mask;
+    private final DailyLimitTracker limitTracker;
+    private final ATMStatistics statistics;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong[] cursors = new AtomicLong[4];
+    private final Thread[] stages = new Thread[4];
+    private final AtomicIntegerArray sleeping = new AtomicIntegerArray(4);
+    private final AtomicInteger producers = new AtomicInteger();
+    private final List<String> logLines = new ArrayList<>();
+    private volatile boolean running = true;
+    private volatile boolean drained;
+
+    /**
+     * Creates a pipeline with the default ring size and shared limit tracker
+     */
+    public TransactionPipeline() {
+        this(ATMConstants.PIPELINE_RING_SIZE, DailyLimitTracker.getInstance());
+    }
+
+    /**
+     * Creates a pipeline and starts its stage threads
+     * @param ringSize Number of in-flight requests; rounded up to a power of two
+     * @param limitTracker Tracker enforcing the daily limits
+     * @throws IllegalArgumentException if ringSize is not positive or limitTracker is null
+     */
+    public TransactionPipeline(int ringSize, DailyLimitTracker limitTracker) {
+        if (ringSize <= 0) {
+            throw new IllegalArgumentException("Ring size must be positive");
+        }
+        if (limitTracker == null) {
+            throw new IllegalArgumentException("Daily limit tracker cannot be null");
+        }
+        int size = Integer.highestOneBit(ringSize);
+        if (size < ringSize) {
+            size <<= 1;
+        }
+        this.ring = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.limitTracker = limitTracker;
+        this.statistics = ATMStatistics.getInstance();
+        for (int stage = 0; stage < stages.length; stage++) {
+            cursors[stage] = new AtomicLong(-1L);
+            int id = stage;
+            stages[stage] = new Thread(() -> runStage(id), "atm-pipeline-" + STAGE_NAMES[stage]);
+            stages[stage].setDaemon(true);
+            stages[stage].start();
+        }
+    }
+
+    /**
+     * Submits a request; blocks while the ring is full
+     * @param type DEPOSIT or WITHDRAWAL; other types complete as UNSUPPORTED_TYPE
+     * @param account Account to post to
+     * @param amountPaise Amount in paise
+     * @param completion Receives the outcome once the request is durable and logged
+     * @throws IllegalArgumentException if type, account or completion is null
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public void submit(TransactionType type, Account account, long amountPaise, Completion completion) {
+        if (type == null || account == null || completion == null) {
+            throw new IllegalArgumentException("Type, account and completion are required");
+        }
+        // Registered before the check, so close() waits for this request to be published
+        producers.incrementAndGet();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Pipeline is closed");
+            }
+            long sequence = claimed.getAndIncrement();
+            long wrapPoint = sequence - ring.length;
+            int idle = 0;
+            while (cursors[STAGE_EFFECTS].get() < wrapPoint) {
+                idle = idle(idle);
+            }
+            Slot slot = ring[(int) (sequence & mask)];
+            slot.type = type;
+            slot.account = account;
+            slot.amountPaise = amountPaise;
+            slot.completion = completion;
+            slot.result = null;
+            slot.journal = null;
+            slot.journalSequence = 0L;
+            slot.published = sequence;
+        } finally {
+            producers.decrementAndGet();
+        }
+        wake(STAGE_VALIDATE);
+    }
+
+    /**
+     * Submits a request and returns its outcome as a future
+     * @param type DEPOSIT or WITHDRAWAL
+     * @param account Account to post to
+     * @param amountPaise Amount in paise
+     * @return Future completed with the outcome
+     */
+    public CompletableFuture<BatchResult> submit(TransactionType type, Account account, long amountPaise) {
+        CompletableFuture<BatchResult> future = new CompletableFuture<>();
+        submit(type, account, amountPaise, future::complete);
+        return future;
+    }
+
+    /**
+     * Stage loop: processes everything the upstream stage has finished as one batch
+     * @param stage Stage index
+     */
+    private void runStage(int stage) {
+        long next = 0L;
+        int idle = 0;
+        while (true) {
+            long available = available(stage, next);
+            if (available < next) {
+                if (drained && next == claimed.get()) {
+                    return;
+                }
+                idle = idle < SPIN_ROUNDS ? idle(idle) : sleep(stage, next, idle);
+                continue;
+            }
+            idle = 0;
+            try {
+                process(stage, next, available);
+            } catch (RuntimeException e) {
+                ATMLogger.error("Pipeline " + STAGE_NAMES[stage] + " stage failed: " + e.getMessage());
+            }
+            cursors[stage].set(available);
+            if (stage < STAGE_EFFECTS) {
+                wake(stage + 1);
+            }
+            next = available + 1;
+        }
+    }
+
+    /**
+     * Gets the last sequence a stage may process
+     * @param stage Stage index
+     * @param next First sequence the stage has not processed
+     * @return Last processable sequence, or next - 1 if none
+     */
+    private long available(int stage, long next) {
+        return stage == STAGE_VALIDATE ? publishedFrom(next) : cursors[stage - 1].get();
+    }
+
+    /**
+     * Parks an idle stage until it is woken; the sleeping flag is set before
+     * the final check so a wake-up cannot be missed
+     * @param stage Stage index
+     * @param next First sequence the stage has not processed
+     * @param idle Number of consecutive idle rounds so far
+     * @return Updated idle count
+     */
+    private int sleep(int stage, long next, int idle) {
+        sleeping.set(stage, 1);
+        if (available(stage, next) < next && !drained) {
+            LockSupport.parkNanos(this, STAGE_PARK_NANOS);
+        }
+        sleeping.set(stage, 0);
+        return idle + 1;
+    }
+
+    /**
+     * Wakes a stage if it is parked
+     * @param stage Stage index
+     */
+    private void wake(int stage) {
+        if (sleeping.get(stage) != 0) {
+            LockSupport.unpark(stages[stage]);
+        }
+    }
+
+    /**
+     * Finds the end of the contiguous run of published slots
+     * @param from First sequence to check
+     * @return Last published sequence of the run, or from - 1 if none
+     */
+    private long publishedFrom(long from) {
+        long sequence = from;
+        while (sequence - from < ring.length && ring[(int) (sequence & mask)].published == sequence) {
+            sequence++;
+        }
+        return sequence - 1;
+    }
+
+    /**
+     * Runs one stage over a batch of slots
+     * @param stage Stage index
+     * @param from First sequence of the batch
+     * @param to Last sequence of the batch
+     */
+    private void process(int stage, long from, long to) {
+        switch (stage) {
+            case STAGE_VALIDATE:
+                for (long s = from; s <= to; s++) {
+                    try {
+                        validate(ring[(int) (s & mask)]);
+                    } catch (RuntimeException e) {
+                        ATMLogger.error("Pipeline validation failed: " + e.getMessage());
+                        reject(s, to, false);
+                        break;
+                    }
+                }
+                break;
+            case STAGE_POST:
+                for (long s = from; s <= to; s++) {
+                    try {
+                        post(ring[(int) (s & mask)]);
+                    } catch (RuntimeException e) {
+                        ATMLogger.error("Pipeline posting failed: " + e.getMessage());
+                        reject(s, to, true);
+                        break;
+                    }
+                }
+                break;
+            case STAGE_JOURNAL:
+                awaitDurable(from, to);
+                break;
+            default:
+                completeBatch(from, to);
+                break;
+        }
+    }
+
+    /**
+     * Completes every undecided request from a failed one to the end of its batch as REJECTED
+     * @param from Sequence of the request that failed
+     * @param to Last sequence of the batch
+     * @param reserved Whether undecided requests hold a daily limit reservation
+     */
+    private void reject(long from, long to, boolean reserved) {
+        for (long s = from; s <= to; s++) {
+            Slot slot = ring[(int) (s & mask)];
+            if (slot.result == null) {
+                if (reserved) {
+                    release(slot);
+                }
+                slot.result = BatchResult.REJECTED;
+            }
+        }
+    }
+
+    /**
+     * Gives back the daily limit reservation of a validated request
+     * @param slot Request
+     */
+    private void release(Slot slot) {
+        limitTracker.release(slot.account, 1, slot.type == TransactionType.WITHDRAWAL ? slot.amountPaise : 0L);
+    }
+
+    private void validate(Slot slot) {
+        if (slot.type != TransactionType.DEPOSIT && slot.type != TransactionType.WITHDRAWAL) {
+            slot.result = BatchResult.UNSUPPORTED_TYPE;
+        } else if (slot.amountPaise <= 0) {
+            slot.result = BatchResult.INVALID_AMOUNT;
+        } else {
+            long withdrawal = slot.type == TransactionType.WITHDRAWAL ? slot.amountPaise : 0L;
+            if (!limitTracker.tryReserve(slot.account, 1, withdrawal)) {
+                slot.result = limitTracker.getRemainingTransactions(slot.account) < 1
+                              ? BatchResult.TRANSACTION_LIMIT_EXCEEDED : BatchResult.WITHDRAWAL_LIMIT_EXCEEDED;
+            }
+        }
+    }
+
+    private void post(Slot slot) {
+        if (slot.result != null) {
+            return;
+        }
+        TransactionJournal journal = slot.account.getJournal();
+        byte type = postingType(slot);
+        long sequence;
+        try {
+            sequence = slot.account.postDeferred(journal, type, slot.amountPaise);
+        } catch (RuntimeException e) {
+            // The account left its balance untouched
+            ATMLogger.error("Pipeline journal append failed: " + e.getMessage());
+            release(slot);
+            slot.result = BatchResult.JOURNAL_FAILED;
+            return;
+        }
+        if (sequence == Long.MIN_VALUE) {
+            release(slot);
+            slot.result = type == TransactionHistory.TYPE_WITHDRAWAL
+                          ? BatchResult.INSUFFICIENT_BALANCE
+                          : BatchResult.INVALID_AMOUNT; // Would overflow the balance
+            return;
+        }
+        slot.journal = journal;
+        slot.journalSequence = sequence;
+        slot.result = BatchResult.APPLIED;
+    }
+
+    private static byte postingType(Slot slot) {
+        return slot.type == TransactionType.DEPOSIT ? TransactionHistory.TYPE_DEPOSIT
+                                                    : TransactionHistory.TYPE_WITHDRAWAL;
+    }
+
+    /**
+     * Waits once per journal for the newest record posted in the batch
+     */
+    private void awaitDurable(long from, long to) {
+        TransactionJournal journal = null;
+        long newest = 0L;
+        for (long s = from; s <= to; s++) {
+            Slot slot = ring[(int) (s & mask)];
+            if (slot.journal == null) {
+                continue;
+            }
+            if (journal != null && slot.journal != journal) {
+                awaitOrFail(journal, newest, from, s - 1);
+                newest = 0L;
+            }
+            journal = slot.journal;
+            newest = Math.max(newest, slot.journalSequence);
+        }
+        if (journal != null) {
+            awaitOrFail(journal, newest, from, to);
+        }
+    }
+
+    private void awaitOrFail(TransactionJournal journal, long sequence, long from, long to) {
+        try {
+            journal.awaitDurable(sequence);
+        } catch (RuntimeException e) {
+            ATMLogger.error("Pipeline journal wait failed: " + e.getMessage());
+            for (long s = from; s <= to; s++) {
+                Slot slot = ring[(int) (s & mask)];
+                if (slot.journal == journal && slot.result == BatchResult.APPLIED) {
+                    slot.account.revertDeferred(postingType(slot), slot.amountPaise);
+                    release(slot);
+                    slot.result = BatchResult.JOURNAL_FAILED;
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies side effects for a batch, completes its requests and frees the slots
+     */
+    private void completeBatch(long from, long to) {
+        VelocityTracker velocity = VelocityTracker.getInstance();
+        logLines.clear();
+        try {
+            synchronized (statistics) {
+                for (long s = from; s <= to; s++) {
+                    Slot slot = ring[(int) (s & mask)];
+                    boolean success = slot.result == BatchResult.APPLIED;
+                    double amount = MoneyUtil.toRupees(slot.amountPaise);
+                    statistics.recordTransaction(slot.type.name(), amount, success);
+                    logLines.add(ATMLogger.formatTransaction(slot.account.getAccountNumber(),
+                                                             slot.type.name(), amount, success));
+                    if (success) {
+                        velocity.record(slot.account);
+                    }
+                }
+            }
+            ATMLogger.logAll("TRANSACTION", logLines);
+        } catch (RuntimeException e) {
+            // Side effects must never keep requests from completing
+            ATMLogger.error("Pipeline side effects failed: " + e.getMessage());
+        }
+        for (long s = from; s <= to; s++) {
+            Slot slot = ring[(int) (s & mask)];
+            Completion completion = slot.completion;
+            BatchResult result = slot.result;
+            slot.account = null;
+            slot.completion = null;
+            slot.journal = null;
+            try {
+                completion.complete(result);
+            } catch (RuntimeException e) {
+                ATMLogger.error("Pipeline completion failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Backs off while waiting: spin briefly, then yield, then park
+     * @param idle Number of consecutive idle rounds so far
+     * @return Updated idle count
+     */
+    private static int idle(int idle) {
+        if (idle < 100) {
+            Thread.onSpinWait();
+        } else if (idle < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        return idle + 1;
+    }
+
+    /**
+     * Gets the number of slots in the ring
+     * @return Ring size
+     */
+    public int getRingSize() {
+        return ring.length;
+    }
+
+    /**
+     * Stops accepting requests, lets in-flight requests finish and stops the stage threads
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        // Producers past the open check publish their request before stages may stop
+        while (producers.get() != 0) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        drained = true;
+        for (Thread stage : stages) {
+            LockSupport.unpark(stage);
+        }
+        for (Thread stage : stages) {
+            try {
+                stage.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package atm;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Transfer engine that moves money between two accounts as one unit
+ * Both accounts are guarded by striped locks that are always acquired in
+ * ascending stripe order, so concurrent transfers between overlapping
+ * accounts can never deadlock
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class TransferEngine {
+
+    private static final int DEFAULT_STRIPE_COUNT = 1024;
+
+    private final AccountRegistry registry;
+    private final ReentrantLock[] stripes;
+    private final int stripeMask;
+
+    /**
+     * Creates a transfer engine with the default number of lock stripes
+     * @param registry Registry used to resolve account numbers
+     */
+    public TransferEngine(AccountRegistry registry) {
+        this(registry, DEFAULT_STRIPE_COUNT);
+    }
+
+    /**
+     * Creates a transfer engine
+     * @param registry Registry used to resolve account numbers
+     * @param stripeCount Number of lock stripes (rounded up to a power of two)
+     * @throws IllegalArgumentException if registry is null or stripeCount is not positive
+     */
+    public TransferEngine(AccountRegistry registry, int stripeCount) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Account registry cannot be null");
+        }
+        if (stripeCount <= 0 || stripeCount > (1 << 20)) {
+            throw new IllegalArgumentException("Stripe count must be between 1 and " + (1 << 20));
+        }
+        int count = 1 << (32 - Integer.numberOfLeadingZeros(stripeCount - 1));
+        this.registry = registry;
+        this.stripes = new ReentrantLock[count];
+        this.stripeMask = count - 1;
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Transfers money between two registered accounts
+     * @param sourceAccountNumber Account to debit
+     * @param targetAccountNumber Account to credit
+     * @param amountPaise Amount to transfer in paise
+     * @return true if transfer successful, false if an account is unknown,
+     *         the amount is invalid or the source has insufficient balance
+     */
+    public boolean transfer(String sourceAccountNumber, String targetAccountNumber, long amountPaise) {
+        return transfer(sourceAccountNumber, targetAccountNumber, amountPaise, null);
+    }
+
+    /**
+     * Transfers money between two registered accounts, keeping the reference
+     * of the request with the source account's posting
+     * @param sourceAccountNumber Account to debit
+     * @param targetAccountNumber Account to credit
+     * @param amountPaise Amount to transfer in paise
+     * @param reference Request reference, or null
+     * @return true if transfer successful, false if an account is unknown,
+     *         the amount is invalid or the source has insufficient balance
+     */
+    boolean transfer(String sourceAccountNumber, String targetAccountNumber, long amountPaise, String reference) {
+        Account source = registry.find(sourceAccountNumber);
+        Account target = registry.find(targetAccountNumber);
+        if (source == null || target == null) {
+            return false;
+        }
+        return transfer(source, target, amountPaise, reference);
+    }
+
+    /**
+     * Transfers money between two accounts
+     * The debit and the credit happen while both stripes are held, so no
+     * other transfer touching either account can interleave with them, and
+     * are journaled as one record, so recovery never sees only one leg
+     * @param source Account to debit
+     * @param target Account to credit
+     * @param amountPaise Amount to transfer in paise
+     * @return true if transfer successful, false otherwise
+     */
+    public boolean transfer(Account source, Account target, long amountPaise) {
+        return transfer(source, target, amountPaise, null);
+    }
+
+    /**
+     * Transfers money between two accounts, keeping the reference of the
+     * request with the source account's posting
+     * @param source Account to debit
+     * @param target Account to credit
+     * @param amountPaise Amount to transfer in paise
+     * @param reference Request reference, or null
+     * @return true if transfer successful, false otherwise
+     */
+    boolean transfer(Account source, Account target, long amountPaise, String reference) {
+        if (source == null || target == null || source == target || amountPaise <= 0) {
+            return false;
+        }
+        int first = stripeFor(source);
+        int second = stripeFor(target);
+        if (first > second) {
+            int swap = first;
+            first = second;
+            second = swap;
+        }
+
+        stripes[first].lock();
+        try {
+            if (second != first) {
+                stripes[second].lock();
+            }
+            try {
+                return Account.postTransfer(source, target, amountPaise, reference);
+            } finally {
+                if (second != first) {
+                    stripes[second].unlock();
+                }
+            }
+        } finally {
+            stripes[first].unlock();
+        }
+    }
+
+    /**
+     * Gets the lock stripe for an account
+     * @param account Account
+     * @return Stripe index
+     */
+    private int stripeFor(Account account) {
+        int h = account.getAccountNumber().hashCode();
+        return (h ^ (h >>> 16)) & stripeMask;
+    }
+
+    /**
+     * Gets the registry this engine resolves accounts from
+     * @return Account registry
+     */
+    public AccountRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Gets the number of lock stripes
+     * @return Stripe count
+     */
+    public int getStripeCount() {
+        return stripes.length;
+    }
+}
@@ -0,0 +1,138 @@
+package atm;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding-window transaction rate tracker per account
+ * Each account gets a small fixed array, created on its first transaction:
+ * the time of the last transaction followed by one packed (bucket, count)
+ * slot per sub-interval of the window. Slots whose bucket has left the
+ * window are simply ignored and reused, so memory per account never grows
+ * and every update is a compare-and-set on that account's own array
+ * @author ATM Machine Simulation
+ * @version 1.0
+ */
+public class VelocityTracker {
+
+    private static final int LAST_SLOT = 0;
+    private static final int COUNT_BITS = 16;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private static VelocityTracker instance;
+
+    private final int buckets;
+    private final long bucketMillis;
+    private final LongSupplier clock;
+
+    /**
+     * Creates a tracker using the system clock
+     * @param windowSeconds Length of the sliding window in seconds
+     * @param buckets Number of sub-intervals the window is split into
+     * @throws IllegalArgumentException if windowSeconds or buckets is not positive
+     */
+    public VelocityTracker(long windowSeconds, int buckets) {
+        this(windowSeconds, buckets, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a tracker with an explicit clock
+     * @param windowSeconds Length of the sliding window in seconds
+     * @param buckets Number of sub-intervals the window is split into
+     * @param clock Millisecond clock
+     * @throws IllegalArgumentException if windowSeconds or buckets is not positive
+     */
+    VelocityTracker(long windowSeconds, int buckets, LongSupplier clock) {
+        if (windowSeconds <= 0 || buckets <= 0) {
+            throw new IllegalArgumentException("Window and bucket count must be positive");
+        }
+        this.buckets = buckets;
+        this.bucketMillis = Math.max(1L, windowSeconds * 1000L / buckets);
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the tracker shared by all ATM sessions
+     * @return VelocityTracker instance
+     */
+    public static synchronized VelocityTracker getInstance() {
+        if (instance == null) {
+            instance = new VelocityTracker(ATMConstants.VELOCITY_WINDOW_SECONDS, ATMConstants.VELOCITY_BUCKETS);
+        }
+        return instance;
+    }
+
+    /**
+     * Records a transaction on an account
+     * @param account Account that transacted
+     * @return Milliseconds since the account's previous transaction, or Long.MAX_VALUE if none
+     */
+    public long record(Account account) {
+        AtomicLongArray window = windowOf(account);
+        long now = clock.getAsLong();
+        long bucket = now / bucketMillis;
+        int slot = 1 + (int) (bucket % buckets);
+        while (true) {
+            long packed = window.get(slot);
+            long updated;
+            if (packed >>> COUNT_BITS == bucket) {
+                updated = (packed & COUNT_MASK) == COUNT_MASK ? packed : packed + 1;
+            } else {
+                updated = (bucket << COUNT_BITS) | 1L;
+            }
+            if (window.compareAndSet(slot, packed, updated)) {
+                break;
+            }
+        }
+        long previous = window.getAndSet(LAST_SLOT, now);
+        return previous == 0L ? Long.MAX_VALUE : Math.max(0L, now - previous);
+    }
+
+    /**
+     * Counts the account's transactions within the sliding window
+     * The oldest sub-interval is counted whole, so the effective window is
+     * between windowSeconds and one bucket longer
+     * @param account Account
+     * @return Transaction count
+     */
+    public int countInWindow(Account account) {
+        AtomicLongArray window = account.getVelocityWindow();
+        if (window == null) {
+            return 0;
+        }
+        long current = clock.getAsLong() / bucketMillis;
+        int count = 0;
+        for (int slot = 1; slot <= buckets; slot++) {
+            long packed = window.get(slot);
+            if (current - (packed >>> COUNT_BITS) < buckets) {
+                count += (int) (packed & COUNT_MASK);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the time since the account's last transaction
+     * @param account Account
+     * @return Milliseconds since the last transaction, or Long.MAX_VALUE if none
+     */
+    public long millisSinceLast(Account account) {
+        AtomicLongArray window = account.getVelocityWindow();
+        long last = window == null ? 0L : window.get(LAST_SLOT);
+        return last == 0L ? Long.MAX_VALUE : Math.max(0L, clock.getAsLong() - last);
+    }
+
+    /**
+     * Gets the account's window array, creating it on first use
+     * @param account Account
+     * @return Window array
+     */
+    private AtomicLongArray windowOf(Account account) {
+        AtomicLongArray window = account.getVelocityWindow();
+        if (window != null) {
+            return window;
+        }
+        account.compareAndSetVelocityWindow(null, new AtomicLongArray(1 + buckets));
+        return account.getVelocityWindow();
+    }
+}
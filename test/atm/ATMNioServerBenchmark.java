@@ -0,0 +1,147 @@
+package atm;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Benchmark for the non-blocking binary terminal front end
+ * Each client connection authenticates, pipelines a window of requests and
+ * reads the responses back. Reports wall-clock throughput, throughput per
+ * CPU-second of the selector thread, and heap allocated by the selector per
+ * message. By default the requests are balance inquiries answered on the
+ * selector; with "journal" they are deposits into journaled accounts, run on
+ * an AffinityScheduler and durable before they are answered. Deposit windows
+ * stay under the daily transaction limit, which the client hands back after
+ * every window
+ * Run with e.g. java -cp bin atm.ATMNioServerBenchmark 4 journal
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.1
+ * @since 2026-10-16
+ */
+public class ATMNioServerBenchmark {
+
+    private static final int MESSAGES_PER_CONNECTION = 500_000;
+    private static final int JOURNAL_MESSAGES_PER_CONNECTION = 50_000;
+    private static final int WINDOW = 128;
+    private static final int JOURNAL_WINDOW = 16;
+    private static final int WARMUP_MESSAGES = 100_000;
+    private static final int JOURNAL_WARMUP_MESSAGES = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        boolean journaled = args.length > 1 && args[1].equals("journal");
+        AccountRegistry registry = new AccountRegistry();
+        for (int i = 0; i < clients; i++) {
+            registry.register(new Account(String.valueOf(100000000 + i), "Holder " + i, 10000.0, "1234"));
+        }
+        Path path = Files.createTempFile("nio-bench", ".dat");
+        TransactionJournal journal = null;
+        AffinityScheduler scheduler = null;
+        if (journaled) {
+            journal = new TransactionJournal(path, ATMConstants.JOURNAL_BATCH_WINDOW_MICROS);
+            registry.attachJournal(journal);
+            scheduler = new AffinityScheduler();
+        }
+        TransactionType type = journaled ? TransactionType.DEPOSIT : TransactionType.BALANCE_INQUIRY;
+        int window = journaled ? JOURNAL_WINDOW : WINDOW;
+        try (ATMNioServer server = new ATMNioServer(registry, new TransferEngine(registry), scheduler)) {
+            int port = server.start(0);
+            run(port, registry, 1, journaled ? JOURNAL_WARMUP_MESSAGES : WARMUP_MESSAGES, type, window);
+
+            com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long selectorId = selectorThreadId();
+            long cpuBefore = threads.getThreadCpuTime(selectorId);
+            long allocatedBefore = threads.getThreadAllocatedBytes(selectorId);
+            long messagesBefore = server.getMessagesHandled();
+            long start = System.nanoTime();
+            run(port, registry, clients, journaled ? JOURNAL_MESSAGES_PER_CONNECTION : MESSAGES_PER_CONNECTION,
+                type, window);
+            long nanos = System.nanoTime() - start;
+            long messages = server.getMessagesHandled() - messagesBefore;
+            long cpu = threads.getThreadCpuTime(selectorId) - cpuBefore;
+            long allocated = threads.getThreadAllocatedBytes(selectorId) - allocatedBefore;
+
+            System.out.printf("%s, %d connections: %d messages in %d ms (%.0f msg/s wall, "
+                              + "%.0f msg/s per selector CPU-second), %.2f bytes allocated per message%n",
+                    journaled ? "journaled deposits" : "balance inquiries", clients, messages, nanos / 1_000_000,
+                    messages * 1e9 / nanos, messages * 1e9 / cpu, (double) allocated / messages);
+        } finally {
+            if (scheduler != null) {
+                scheduler.close();
+            }
+            if (journal != null) {
+                journal.close();
+            }
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static void run(int port, AccountRegistry registry, int clients, int messagesPerConnection,
+                            TransactionType type, int window) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) {
+            String accountNumber = String.valueOf(100000000 + c);
+            Account account = registry.find(accountNumber);
+            new Thread(() -> {
+                try (SocketChannel channel = SocketChannel.open(
+                        new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+                    channel.socket().setTcpNoDelay(true);
+                    ByteBuffer out = ByteBuffer.allocateDirect(window * 64);
+                    ByteBuffer in = ByteBuffer.allocateDirect(window * TerminalProtocol.RESPONSE_BYTES);
+                    TerminalProtocol.putAuthenticate(out, 0L, accountNumber, "1234");
+                    exchange(channel, out, in, 1);
+                    for (int sent = 0; sent < messagesPerConnection; sent += window) {
+                        out.clear();
+                        for (int i = 0; i < window; i++) {
+                            TerminalProtocol.putRequest(out, type, sent + i + 1, 100, accountNumber, null);
+                        }
+                        exchange(channel, out, in, window);
+                        if (type == TransactionType.DEPOSIT) {
+                            DailyLimitTracker.getInstance().release(account, window, 0L);
+                        }
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+    }
+
+    /**
+     * Sends the frames in out and reads back the given number of responses
+     */
+    private static void exchange(SocketChannel channel, ByteBuffer out, ByteBuffer in, int responses)
+            throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+        in.clear().limit(responses * TerminalProtocol.RESPONSE_BYTES);
+        while (in.hasRemaining()) {
+            if (channel.read(in) < 0) {
+                throw new IOException("Server closed the connection");
+            }
+        }
+    }
+
+    private static long selectorThreadId() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("atm-nio-selector")) {
+                return thread.getId();
+            }
+        }
+        throw new IllegalStateException("Selector thread not found");
+    }
+}
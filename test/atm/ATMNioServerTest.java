@@ -0,0 +1,247 @@
+package atm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * JUnit test class for ATMNioServer and TerminalProtocol functionality
+ * Sends binary frames over loopback and checks the responses, with and
+ * without an affinity scheduler and journal behind the server
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class ATMNioServerTest {
+
+    private AccountRegistry registry;
+    private ATMNioServer server;
+    private SocketChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocate(8192);
+    private final ByteBuffer in = ByteBuffer.allocate(8192);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = new AccountRegistry();
+        registry.register(new Account("987654321", "Test User", 10000.0, "1234"));
+        registry.register(new Account("123456789", "Other User", 500.0, "4321"));
+        server = new ATMNioServer(registry, new TransferEngine(registry));
+        int port = server.start(0);
+        channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        channel.close();
+        server.close();
+    }
+
+    private void send() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Reads the next response and returns its status, leaving key and balance in the buffer
+     */
+    private byte receive() throws IOException {
+        in.clear().limit(TerminalProtocol.RESPONSE_BYTES);
+        while (in.hasRemaining()) {
+            if (channel.read(in) < 0) {
+                throw new IOException("Server closed the connection");
+            }
+        }
+        in.flip();
+        assertEquals(TerminalProtocol.RESPONSE_BYTES - TerminalProtocol.HEADER_BYTES, in.getInt());
+        return in.get();
+    }
+
+    @Test
+    @DisplayName("Test deposit, withdrawal and balance inquiry frames")
+    void testOperations() throws IOException {
+        TerminalProtocol.putAuthenticate(out, 1L, "987654321", "1234");
+        TerminalProtocol.putRequest(out, TransactionType.DEPOSIT, 0L, 100000, "987654321", null);
+        TerminalProtocol.putRequest(out, TransactionType.WITHDRAWAL, 0L, 50000, "987654321", null);
+        TerminalProtocol.putRequest(out, TransactionType.WITHDRAWAL, 0L, 99_000_000, "987654321", null);
+        TerminalProtocol.putRequest(out, TransactionType.BALANCE_INQUIRY, 7L, 0, "987654321", null);
+        TerminalProtocol.putRequest(out, TransactionType.BALANCE_INQUIRY, 8L, 0, "123456789", null);
+        send();
+
+        assertEquals(TerminalProtocol.STATUS_OK, receive());
+        assertEquals(1L, in.getLong());
+        assertEquals(1_000_000L, in.getLong());
+        assertEquals(TerminalProtocol.STATUS_OK, receive());
+        assertEquals(0L, in.getLong());
+        assertEquals(1_100_000L, in.getLong());
+        assertEquals(TerminalProtocol.STATUS_OK, receive());
+        assertEquals(0L, in.getLong());
+        assertEquals(1_050_000L, in.getLong());
+        assertEquals(TerminalProtocol.STATUS_REJECTED, receive());
+        assertEquals(0L, in.getLong());
+        assertEquals(1_050_000L, in.getLong());
+        assertEquals(TerminalProtocol.STATUS_OK, receive());
+        assertEquals(7L, in.getLong());
+        assertEquals(1_050_000L, in.getLong());
+        assertEquals(TerminalProtocol.STATUS_NOT_AUTHENTICATED, receive());
+        assertEquals(8L, in.getLong());
+        assertEquals(0L, in.getLong());
+    }
+
+    @Test
+    @DisplayName("Test transfers and unknown accounts")
+    void testTransferAndUnknownAccount() throws IOException {
+        TerminalProtocol.putAuthenticate(out, 0L, "987654321", "1234");
+        TerminalProtocol.putRequest(out, TransactionType.TRANSFER, 0L, 20000, "987654321", "123456789");
+        TerminalProtocol.putRequest(out, TransactionType.MINI_STATEMENT, 0L, 0, "987654321", null);
+        TerminalProtocol.putAuthenticate(out, 0L, "000000000", "1234");
+        send();
+
+        assertEquals(TerminalProtocol.STATUS_OK, receive());
+        assertEquals(TerminalProtocol.STATUS_OK, receive());
+        assertEquals(TerminalProtocol.STATUS_BAD_REQUEST, receive());
+        assertEquals(TerminalProtocol.STATUS_UNKNOWN_ACCOUNT, receive());
+        assertEquals(980_000L, registry.find("987654321").getBalancePaise());
+        assertEquals(70_000L, registry.find("123456789").getBalancePaise());
+    }
+
+    @Test
+    @DisplayName("Test money moves only after the connection authenticates")
+    void testAuthenticationRequired() throws IOException {
+        TerminalProtocol.putRequest(out, TransactionType.WITHDRAWAL, 0L, 10000, "987654321", null);
+        TerminalProtocol.putRequest(out, TransactionType.TRANSFER, 0L, 10000, "987654321", "123456789");
+        TerminalProtocol.putAuthenticate(out, 0L, "987654321", "0000");
+        TerminalProtocol.putRequest(out, TransactionType.DEPOSIT, 0L, 10000, "987654321", null);
+        TerminalProtocol.putAuthenticate(out, 0L, "987654321", "0000");
+        TerminalProtocol.putAuthenticate(out, 0L, "987654321", "0000");
+        TerminalProtocol.putAuthenticate(out, 0L, "987654321", "1234");
+        send();
+
+        assertEquals(TerminalProtocol.STATUS_NOT_AUTHENTICATED, receive());
+        assertEquals(TerminalProtocol.STATUS_NOT_AUTHENTICATED, receive());
+        assertEquals(TerminalProtocol.STATUS_REJECTED, receive());
+        assertEquals(0L, in.getLong());
+        assertEquals(2L, in.getLong());
+        assertEquals(TerminalProtocol.STATUS_NOT_AUTHENTICATED, receive());
+        assertEquals(TerminalProtocol.STATUS_REJECTED, receive());
+        assertEquals(TerminalProtocol.STATUS_LOCKED, receive());
+        assertEquals(TerminalProtocol.STATUS_LOCKED, receive());
+        assertEquals(1_000_000L, registry.find("987654321").getBalancePaise());
+        assertEquals(50_000L, registry.find("123456789").getBalancePaise());
+    }
+
+    @Test
+    @DisplayName("Test journaled requests run on the shards and answer in order")
+    void testJournaledRequestsOnShards() throws Exception {
+        channel.close();
+        server.close();
+        Path path = Files.createTempFile("journal", ".dat");
+        try (AffinityScheduler scheduler = new AffinityScheduler(2, 64);
+             TransactionJournal journal = new TransactionJournal(path, 200)) {
+            registry.find("987654321").setJournal(journal);
+            server = new ATMNioServer(registry, new TransferEngine(registry), scheduler);
+            channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.start(0)));
+            TerminalProtocol.putAuthenticate(out, 1L, "987654321", "1234");
+            for (int i = 2; i <= 21; i++) {
+                TerminalProtocol.putRequest(out, TransactionType.DEPOSIT, i, 100, "987654321", null);
+            }
+            TerminalProtocol.putRequest(out, TransactionType.BALANCE_INQUIRY, 22L, 0, "987654321", null);
+            send();
+
+            for (long i = 1; i <= 21; i++) {
+                assertEquals(TerminalProtocol.STATUS_OK, receive());
+                assertEquals(i, in.getLong());
+            }
+            assertEquals(TerminalProtocol.STATUS_OK, receive());
+            assertEquals(22L, in.getLong());
+            assertEquals(1_002_000L, in.getLong());
+            assertTrue(registry.find("987654321").getJournalSequence() >= 20);
+            channel.close();
+            server.close();
+        } finally {
+            registry.find("987654321").setJournal(null);
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    @DisplayName("Test a retried request key is applied only once")
+    void testIdempotentRetry() throws IOException {
+        TerminalProtocol.putAuthenticate(out, 0L, "987654321", "1234");
+        TerminalProtocol.putRequest(out, TransactionType.WITHDRAWAL, 42L, 10000, "987654321", null);
+        TerminalProtocol.putRequest(out, TransactionType.WITHDRAWAL, 42L, 10000, "987654321", null);
+        send();
+
+        assertEquals(TerminalProtocol.STATUS_OK, receive());
+        assertEquals(TerminalProtocol.STATUS_OK, receive());
+        assertEquals(TerminalProtocol.STATUS_OK, receive());
+        assertEquals(990_000L, registry.find("987654321").getBalancePaise());
+    }
+
+    @Test
+    @DisplayName("Test pipelined requests beyond one buffer are answered in order")
+    void testPipelinedRequests() throws Exception {
+        int requests = 2000;
+        TerminalProtocol.putAuthenticate(out, 0L, "987654321", "1234");
+        send();
+        assertEquals(TerminalProtocol.STATUS_OK, receive());
+        Thread writer = new Thread(() -> {
+            ByteBuffer frames = ByteBuffer.allocate(requests * 40);
+            for (int i = 1; i <= requests; i++) {
+                TerminalProtocol.putRequest(frames, TransactionType.BALANCE_INQUIRY, i, 0, "987654321", null);
+            }
+            frames.flip();
+            try {
+                while (frames.hasRemaining()) {
+                    channel.write(frames);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        for (int i = 1; i <= requests; i++) {
+            assertEquals(TerminalProtocol.STATUS_OK, receive());
+            assertEquals((long) i, in.getLong());
+        }
+        writer.join();
+        assertEquals((long) requests + 1, server.getMessagesHandled());
+    }
+
+    @Test
+    @DisplayName("Test an invalid frame length closes the connection")
+    void testInvalidFrame() throws IOException {
+        out.putInt(1 << 20);
+        send();
+        in.clear();
+        assertEquals(-1, channel.read(in));
+    }
+
+    @Test
+    @DisplayName("Test buffer pool reuses released buffers")
+    void testBufferPool() {
+        DirectBufferPool pool = new DirectBufferPool(64, 1);
+        ByteBuffer first = pool.acquire();
+        assertTrue(first.isDirect());
+        first.putInt(5);
+        pool.release(first);
+        pool.release(ByteBuffer.allocateDirect(64));
+        assertEquals(1, pool.pooled());
+        ByteBuffer again = pool.acquire();
+        assertSame(first, again);
+        assertEquals(0, again.position());
+    }
+}
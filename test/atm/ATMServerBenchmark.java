@@ -0,0 +1,79 @@
+package atm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Benchmark for holding many idle terminal sessions in server mode
+ * Opens the given number of connections, reports the memory and threads they
+ * hold while idle, then logs every terminal in and reads its balance
+ * Run with e.g. java -Xss256k -cp bin atm.ATMServerBenchmark 8000
+ * (each session uses two file descriptors in this single-process benchmark)
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class ATMServerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 8000;
+        AccountRegistry registry = new AccountRegistry();
+        registry.register(new Account("987654321", "Bench User", 10000.0, "1234"));
+        long baseline = usedHeap();
+
+        try (ATMServer server = new ATMServer(registry, new TransferEngine(registry))) {
+            int port = server.start(0);
+            Socket[] terminals = new Socket[sessions];
+            long start = System.nanoTime();
+            for (int i = 0; i < sessions; i++) {
+                terminals[i] = new Socket(InetAddress.getLoopbackAddress(), port);
+                readLine(terminals[i].getInputStream());
+            }
+            long connectNanos = System.nanoTime() - start;
+            long idleHeap = usedHeap() - baseline;
+            System.out.printf("%d idle sessions (%s threads) opened in %d ms: %d threads live, ~%d bytes heap per session%n",
+                    server.getActiveSessions(), server.isUsingVirtualThreads() ? "virtual" : "platform",
+                    connectNanos / 1_000_000, ManagementFactory.getThreadMXBean().getThreadCount(),
+                    idleHeap / sessions);
+
+            start = System.nanoTime();
+            for (Socket terminal : terminals) {
+                terminal.getOutputStream().write("LOGIN 987654321 1234\nBALANCE\n".getBytes(StandardCharsets.US_ASCII));
+            }
+            for (Socket terminal : terminals) {
+                readLine(terminal.getInputStream());
+                readLine(terminal.getInputStream());
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.printf("woke all sessions for login + balance in %d ms (%.0f commands/sec)%n",
+                    nanos / 1_000_000, 2.0 * sessions * 1e9 / nanos);
+
+            for (Socket terminal : terminals) {
+                terminal.close();
+            }
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.append((char) b);
+        }
+        return line.toString();
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
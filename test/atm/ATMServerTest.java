@@ -0,0 +1,183 @@
+package atm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JUnit test class for ATMServer functionality
+ * Drives the terminal protocol over loopback connections
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class ATMServerTest {
+
+    private AccountRegistry registry;
+    private ATMServer server;
+    private int port;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = new AccountRegistry();
+        registry.register(new Account("987654321", "Test User", 10000.0, "1234"));
+        server = new ATMServer(registry, new TransferEngine(registry));
+        port = server.start(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    /**
+     * Minimal scripted terminal
+     */
+    private final class Terminal implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final PrintWriter out;
+
+        Terminal() throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new PrintWriter(socket.getOutputStream(), true);
+            assertTrue(in.readLine().startsWith("OK "));
+        }
+
+        String send(String command) throws IOException {
+            out.println(command);
+            return in.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private void awaitActiveSessions(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (server.getActiveSessions() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, server.getActiveSessions());
+    }
+
+    @Test
+    @DisplayName("Test a terminal can log in and run menu operations")
+    void testMenuOperations() throws IOException {
+        try (Terminal terminal = new Terminal()) {
+            assertEquals("ERR NOT_AUTHENTICATED", terminal.send("BALANCE"));
+            assertEquals("OK Test User", terminal.send("LOGIN 987654321 1234"));
+            assertEquals("OK 10000.00", terminal.send("BALANCE"));
+            assertEquals("OK 11000.00", terminal.send("DEPOSIT 1000"));
+            assertEquals("OK 8500.00", terminal.send("WITHDRAW 2500"));
+            assertEquals("ERR WITHDRAWAL_FAILED", terminal.send("WITHDRAW 900000"));
+            assertEquals("ERR INVALID_AMOUNT", terminal.send("DEPOSIT lots"));
+            assertEquals("OK", terminal.send("PIN 1234 5678"));
+            assertEquals("ERR UNKNOWN_COMMAND", terminal.send("DANCE"));
+            assertEquals("OK BYE", terminal.send("QUIT"));
+        }
+        assertEquals(850_000L, registry.find("987654321").getBalancePaise());
+        assertTrue(registry.find("987654321").validatePin("5678"));
+    }
+
+    @Test
+    @DisplayName("Test repeated wrong PINs lock the terminal out")
+    void testWrongPinLocksOut() throws IOException {
+        try (Terminal terminal = new Terminal()) {
+            assertEquals("ERR INVALID_PIN 2", terminal.send("LOGIN 987654321 0000"));
+            assertEquals("ERR INVALID_PIN 1", terminal.send("LOGIN 987654321 0000"));
+            assertEquals("ERR LOCKED", terminal.send("LOGIN 987654321 0000"));
+            assertNull(terminal.in.readLine());
+        }
+    }
+
+    @Test
+    @DisplayName("Test wrong PINs count across connections")
+    void testLockoutSharedAcrossConnections() throws IOException {
+        try (Terminal first = new Terminal()) {
+            assertEquals("ERR INVALID_PIN 2", first.send("LOGIN 987654321 0000"));
+            assertEquals("ERR INVALID_PIN 1", first.send("LOGIN 987654321 0000"));
+        }
+        try (Terminal second = new Terminal()) {
+            assertEquals("ERR LOCKED", second.send("LOGIN 987654321 0000"));
+        }
+        try (Terminal third = new Terminal()) {
+            assertEquals("ERR LOCKED", third.send("LOGIN 987654321 1234"));
+        }
+        assertTrue(registry.find("987654321").isPinLocked());
+    }
+
+    @Test
+    @DisplayName("Test invalid amounts on the shard path keep the session open")
+    void testInvalidAmountOnShard() throws IOException {
+        server.close();
+        try (AffinityScheduler scheduler = new AffinityScheduler(2, 16)) {
+            server = new ATMServer(registry, new TransferEngine(registry), scheduler, null);
+            port = server.start(0);
+            try (Terminal terminal = new Terminal()) {
+                assertEquals("OK Test User", terminal.send("LOGIN 987654321 1234"));
+                assertEquals("ERR INVALID_AMOUNT", terminal.send("DEPOSIT NaN"));
+                assertEquals("ERR INVALID_AMOUNT", terminal.send("WITHDRAW abc"));
+                assertEquals("OK 10000.00", terminal.send("BALANCE"));
+            }
+            server.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Test unknown accounts are disconnected")
+    void testUnknownAccount() throws IOException {
+        try (Terminal terminal = new Terminal()) {
+            assertEquals("ERR UNKNOWN_ACCOUNT", terminal.send("LOGIN 111111111 1234"));
+            assertNull(terminal.in.readLine());
+        }
+    }
+
+    @Test
+    @DisplayName("Test many idle sessions are held concurrently and released on disconnect")
+    void testManyIdleSessions() throws Exception {
+        int sessions = 200;
+        List<Terminal> terminals = new ArrayList<>();
+        try {
+            for (int i = 0; i < sessions; i++) {
+                terminals.add(new Terminal());
+            }
+            awaitActiveSessions(sessions);
+            Terminal last = terminals.get(sessions - 1);
+            assertEquals("OK Test User", last.send("LOGIN 987654321 1234"));
+            assertEquals("OK 10000.00", last.send("BALANCE"));
+        } finally {
+            for (Terminal terminal : terminals) {
+                terminal.close();
+            }
+        }
+        awaitActiveSessions(0);
+    }
+
+    @Test
+    @DisplayName("Test closing the server disconnects open terminals")
+    void testCloseDisconnects() throws Exception {
+        try (Terminal terminal = new Terminal()) {
+            awaitActiveSessions(1);
+            server.close();
+            assertNull(terminal.in.readLine());
+        }
+        assertEquals(0, server.getActiveSessions());
+    }
+}
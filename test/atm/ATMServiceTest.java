@@ -5,6 +5,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 /**
  * JUnit test class for ATMService functionality
  * Tests ATM service operations including authentication, balance checks, deposits, and withdrawals
@@ -17,6 +20,7 @@ class ATMServiceTest {
     
     private ATMService atmService;
     private Account testAccount;
+    private Account beneficiaryAccount;
     private static final String ACCOUNT_NUMBER = "987654321";
     private static final String ACCOUNT_HOLDER = "Test User";
     private static final double INITIAL_BALANCE = 50000.0;
@@ -25,7 +29,12 @@ class ATMServiceTest {
     @BeforeEach
     void setUp() {
         testAccount = new Account(ACCOUNT_NUMBER, ACCOUNT_HOLDER, INITIAL_BALANCE, PIN);
-        atmService = new ATMService(testAccount);
+        beneficiaryAccount = new Account("123456789", "Target User", 0.0, "4321");
+        AccountRegistry registry = new AccountRegistry();
+        registry.register(testAccount);
+        registry.register(beneficiaryAccount);
+        atmService = new ATMService(testAccount, new TransferEngine(registry));
+        atmService.setIdempotencyCache(new IdempotencyCache(1024, 60_000));
     }
     
     @Test
@@ -166,6 +175,22 @@ class ATMServiceTest {
         
         assertTrue(atmService.transferMoney(transferAmount, targetAccount));
         assertEquals(INITIAL_BALANCE - transferAmount, atmService.checkBalance(), 0.01);
+        assertEquals(transferAmount, beneficiaryAccount.getBalance(), 0.01);
+    }
+    
+    @Test
+    @DisplayName("Test transfer money to unknown account")
+    void testTransferMoneyToUnknownAccount() {
+        assertFalse(atmService.transferMoney(1000.0, "111222333"));
+        assertEquals(INITIAL_BALANCE, atmService.checkBalance(), 0.01);
+    }
+    
+    @Test
+    @DisplayName("Test transfer money without transfer engine")
+    void testTransferMoneyWithoutTransferEngine() {
+        ATMService standalone = new ATMService(testAccount);
+        assertFalse(standalone.transferMoney(1000.0, "123456789"));
+        assertEquals(INITIAL_BALANCE, standalone.checkBalance(), 0.01);
     }
     
     @Test
@@ -220,4 +245,139 @@ class ATMServiceTest {
         atmService.withdrawMoney(500.0);
         assertEquals(initialCount + 2, atmService.getDailyTransactionCount());
     }
+    
+    @Test
+    @DisplayName("Test batch submission returns per-item results")
+    void testSubmitBatchPerItemResults() {
+        TransactionBatch batch = new TransactionBatch()
+            .deposit(1000.0)
+            .withdraw(-5.0)
+            .add(TransactionType.BALANCE_INQUIRY, 0.0)
+            .withdraw(60000.0)
+            .withdraw(2500.0);
+        
+        java.util.List<BatchResult> results = atmService.submitBatch(batch);
+        
+        assertEquals(java.util.Arrays.asList(BatchResult.APPLIED, BatchResult.INVALID_AMOUNT,
+                BatchResult.UNSUPPORTED_TYPE, BatchResult.WITHDRAWAL_LIMIT_EXCEEDED, BatchResult.APPLIED), results);
+        assertEquals(INITIAL_BALANCE + 1000.0 - 2500.0, atmService.checkBalance(), 0.01);
+        assertEquals(2, atmService.getDailyTransactionCount());
+        assertEquals(50000.0 - 2500.0, atmService.getRemainingDailyWithdrawalLimit(), 0.01);
+    }
+    
+    @Test
+    @DisplayName("Test batch applies daily limits across the whole batch")
+    void testSubmitBatchAppliesLimitsOnce() {
+        TransactionBatch batch = new TransactionBatch();
+        for (int i = 0; i < 25; i++) {
+            batch.deposit(100.0);
+        }
+        
+        java.util.List<BatchResult> results = atmService.submitBatch(batch);
+        
+        assertEquals(BatchResult.APPLIED, results.get(19));
+        assertEquals(BatchResult.TRANSACTION_LIMIT_EXCEEDED, results.get(20));
+        assertEquals(20, atmService.getDailyTransactionCount());
+        assertEquals(INITIAL_BALANCE + 2000.0, atmService.checkBalance(), 0.01);
+        assertFalse(atmService.depositMoney(100.0));
+    }
+    
+    @Test
+    @DisplayName("Test batch withdrawal beyond balance fails without blocking the rest")
+    void testSubmitBatchInsufficientBalance() {
+        ATMService service = new ATMService(beneficiaryAccount);
+        
+        java.util.List<BatchResult> results = service.submitBatch(
+            new TransactionBatch().withdraw(100.0).deposit(300.0).withdraw(200.0));
+        
+        assertEquals(java.util.Arrays.asList(BatchResult.INSUFFICIENT_BALANCE, BatchResult.APPLIED,
+                BatchResult.APPLIED), results);
+        assertEquals(100.0, service.checkBalance(), 0.01);
+        assertEquals(2, service.getDailyTransactionCount());
+        assertEquals(2, beneficiaryAccount.getTransactionHistory().size());
+    }
+    
+    @Test
+    @DisplayName("Test batch on a frozen account is refused")
+    void testSubmitBatchFrozenAccount() {
+        atmService.setAccountFrozen(true);
+        
+        java.util.List<BatchResult> results = atmService.submitBatch(new TransactionBatch().deposit(100.0));
+        
+        assertEquals(BatchResult.ACCOUNT_FROZEN, results.get(0));
+        assertEquals(INITIAL_BALANCE, atmService.checkBalance(), 0.01);
+    }
+    
+    @Test
+    @DisplayName("Test retried withdrawal with the same idempotency key debits once")
+    void testIdempotentWithdrawal() {
+        assertTrue(atmService.withdrawMoney(5000.0, "req-1"));
+        assertTrue(atmService.withdrawMoney(5000.0, "req-1"));
+        
+        assertEquals(INITIAL_BALANCE - 5000.0, atmService.checkBalance(), 0.01);
+        assertEquals(1, atmService.getDailyTransactionCount());
+        assertTrue(atmService.withdrawMoney(5000.0, "req-2"));
+        assertEquals(INITIAL_BALANCE - 10000.0, atmService.checkBalance(), 0.01);
+    }
+    
+    @Test
+    @DisplayName("Test retried request replays the original failure")
+    void testIdempotentReplayOfFailure() {
+        assertFalse(atmService.depositMoney(-100.0, "req-1"));
+        assertFalse(atmService.depositMoney(-100.0, "req-1"));
+        assertThrows(IllegalArgumentException.class, () -> atmService.depositMoney(100.0, "req-1"));
+        assertThrows(IllegalArgumentException.class, () -> atmService.withdrawMoney(-100.0, "req-1"));
+        assertEquals(INITIAL_BALANCE, atmService.checkBalance(), 0.01);
+    }
+    
+    @Test
+    @DisplayName("Test retried transfer with the same idempotency key transfers once")
+    void testIdempotentTransfer() {
+        assertTrue(atmService.transferMoney(1000.0, "123456789", "req-1"));
+        assertTrue(atmService.transferMoney(1000.0, "123456789", "req-1"));
+        
+        assertEquals(1000.0, beneficiaryAccount.getBalance(), 0.01);
+        assertThrows(IllegalArgumentException.class, () -> atmService.depositMoney(100.0, null));
+    }
+    
+    @Test
+    @DisplayName("Test a new session does not reset the daily limits")
+    void testDailyLimitsSurviveNewSession() {
+        assertTrue(atmService.withdrawMoney(40000.0));
+        
+        ATMService nextSession = new ATMService(testAccount);
+        assertFalse(nextSession.withdrawMoney(20000.0));
+        assertEquals(1, nextSession.getDailyTransactionCount());
+        assertEquals(10000.0, nextSession.getRemainingDailyWithdrawalLimit(), 0.01);
+    }
+
+    @Test
+    @DisplayName("Test a failed journal declines requests and releases their reservations")
+    void testJournalFailureDeclines() throws Exception {
+        Path path = Files.createTempFile("service", ".dat");
+        DailyLimitTracker tracker = new DailyLimitTracker(10, MoneyUtil.toPaise(100_000.0));
+        CashInventory inventory = new CashInventory(new int[] {500}, new int[] {10});
+        atmService.setDailyLimitTracker(tracker);
+        atmService.setCashInventory(inventory);
+        TransactionJournal journal = new TransactionJournal(path, 0);
+        testAccount.setJournal(journal);
+        beneficiaryAccount.setJournal(journal);
+        journal.close();
+
+        assertFalse(atmService.withdrawMoney(1000.0));
+        assertFalse(atmService.depositMoney(1000.0));
+        assertFalse(atmService.transferMoney(1000.0, beneficiaryAccount.getAccountNumber()));
+        assertFalse(atmService.changePin(PIN, "5678"));
+        assertEquals(java.util.Arrays.asList(BatchResult.JOURNAL_FAILED, BatchResult.JOURNAL_FAILED),
+                     atmService.submitBatch(new TransactionBatch().deposit(100.0).withdraw(500.0)));
+
+        assertFalse(atmService.hasUnresolvedTransaction());
+        assertEquals(INITIAL_BALANCE, testAccount.getBalance(), 0.001);
+        assertEquals(0.0, beneficiaryAccount.getBalance(), 0.001);
+        assertEquals(0, tracker.getTransactionCount(testAccount));
+        assertEquals(0L, tracker.getWithdrawnPaise(testAccount));
+        assertEquals(10, inventory.getAvailable(500));
+        assertTrue(testAccount.validatePin(PIN));
+        Files.deleteIfExists(path);
+    }
 }
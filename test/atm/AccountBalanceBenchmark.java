@@ -0,0 +1,53 @@
+package atm;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark for contended balance updates on a single Account
+ * Reports postings per second as the number of terminal threads grows
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class AccountBalanceBenchmark {
+
+    private static final int RUN_MILLIS = 2000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+                                         : Runtime.getRuntime().availableProcessors() * 2;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            run(threads);
+        }
+    }
+
+    private static void run(int threads) throws InterruptedException {
+        Account account = new Account("987654321", "Bench User", 1_000_000.0, "1234");
+        long initialPaise = account.getBalancePaise();
+        LongAdder postings = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + RUN_MILLIS * 1_000_000L;
+
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                long count = 0;
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < 100; i++) {
+                        account.depositPaise(100);
+                        account.withdrawPaise(100);
+                    }
+                    count += 200;
+                }
+                postings.add(count);
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        boolean consistent = account.getBalancePaise() == initialPaise;
+        System.out.printf("%2d threads: %,.0f postings/sec, balance consistent: %s%n",
+                threads, postings.sum() * 1000.0 / RUN_MILLIS, consistent);
+    }
+}
@@ -0,0 +1,96 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stress tests for concurrent balance updates on a single Account
+ * Many threads act as terminals posting against the same account
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class AccountConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 20000;
+
+    @Test
+    @DisplayName("Test concurrent deposits lose no updates")
+    void testConcurrentDeposits() throws InterruptedException {
+        Account account = new Account("987654321", "Test User", 0.0, "1234");
+
+        runConcurrently(() -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                account.deposit(0.01);
+            }
+        });
+
+        assertEquals((long) THREADS * OPERATIONS_PER_THREAD, account.getBalancePaise());
+        assertEquals(ATMConstants.MAX_TRANSACTION_HISTORY, account.getTransactionHistory().size());
+    }
+
+    @Test
+    @DisplayName("Test concurrent withdrawals never overdraw the account")
+    void testConcurrentWithdrawalsNeverOverdraw() throws InterruptedException {
+        long initialPaise = 50_000L;
+        Account account = new Account("987654321", "Test User", MoneyUtil.toRupees(initialPaise), "1234");
+        AtomicInteger successful = new AtomicInteger();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                if (account.withdrawPaise(7)) {
+                    successful.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(initialPaise / 7, successful.get());
+        assertEquals(initialPaise % 7, account.getBalancePaise());
+    }
+
+    @Test
+    @DisplayName("Test mixed concurrent postings balance exactly")
+    void testMixedPostingsBalanceExactly() throws InterruptedException {
+        Account account = new Account("987654321", "Test User", 1000.0, "1234");
+
+        runConcurrently(() -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD / 4; i++) {
+                account.deposit(10.10);
+                assertTrue(account.withdraw(10.10));
+                account.receiveTransfer(0.30, "111222333");
+                assertTrue(account.transfer(0.30, "111222333"));
+            }
+        });
+
+        assertEquals(100_000L, account.getBalancePaise());
+        assertEquals(1000.0, account.getBalance(), 0.0);
+    }
+
+    private static void runConcurrently(Runnable task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[THREADS];
+        Throwable[] failure = new Throwable[1];
+        for (int t = 0; t < THREADS; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run();
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertNull(failure[0]);
+    }
+}
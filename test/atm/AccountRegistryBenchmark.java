@@ -0,0 +1,95 @@
+package atm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark for AccountRegistry bulk load, memory footprint and concurrent lookups
+ * Run with a large heap, e.g. java -Xmx8g -cp bin atm.AccountRegistryBenchmark 1000000 10000000
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class AccountRegistryBenchmark {
+
+    private static final int LOOKUP_SECONDS = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        // Fixture accounts only; PinHashBenchmark measures the cost of PIN hashing
+        ATMConfig.getInstance().setPinHashIterations(1);
+        int[] sizes = args.length > 0 ? new int[args.length] : new int[] {1_000_000, 10_000_000};
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) throws InterruptedException {
+        System.out.println("=== " + size + " accounts ===");
+        long heapBefore = usedHeap();
+
+        List<Account> accounts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            accounts.add(new Account(accountNumber(i), "Holder", 1000.0, "1234"));
+        }
+        long heapAccounts = usedHeap();
+
+        AccountRegistry registry = new AccountRegistry(256, size);
+        long start = System.nanoTime();
+        long loaded = registry.bulkLoad(accounts);
+        long loadNanos = System.nanoTime() - start;
+        accounts = null;
+        long heapAfter = usedHeap();
+
+        System.out.printf("Bulk load: %d accounts in %d ms (%.0f accounts/sec)%n",
+                loaded, loadNanos / 1_000_000, loaded * 1e9 / loadNanos);
+        System.out.printf("Heap: accounts %.1f MB, registry overhead %.1f MB, total %.1f bytes/account%n",
+                (heapAccounts - heapBefore) / 1048576.0,
+                (heapAfter - heapAccounts) / 1048576.0,
+                (heapAfter - heapBefore) / (double) size);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        LongAdder lookups = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + LOOKUP_SECONDS * 1_000_000_000L;
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < 1000; i++) {
+                        if (registry.find(accountNumber(random.nextInt(size))) == null) {
+                            throw new IllegalStateException("Missing account");
+                        }
+                    }
+                    count += 1000;
+                }
+                lookups.add(count);
+                done.countDown();
+            });
+            worker.start();
+        }
+        done.await();
+        System.out.printf("Lookups: %d threads, %.0f lookups/sec%n%n",
+                threads, lookups.sum() / (double) LOOKUP_SECONDS);
+    }
+
+    private static String accountNumber(int i) {
+        String digits = Integer.toString(i);
+        return "000000000".substring(digits.length()) + digits;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,129 @@
+package atm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JUnit test class for AccountRegistry functionality
+ * Tests registration, lookup, authentication and concurrent access
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class AccountRegistryTest {
+
+    private AccountRegistry registry;
+    private static final String ACCOUNT_NUMBER = "987654321";
+    private static final String PIN = "1234";
+
+    @BeforeEach
+    void setUp() {
+        // Tens of thousands of fixture accounts; PinHasherTest covers the work factor
+        ATMConfig.getInstance().setPinHashIterations(1);
+        registry = new AccountRegistry();
+        registry.register(new Account(ACCOUNT_NUMBER, "Test User", 10000.0, PIN));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ATMConfig.getInstance().setPinHashIterations(ATMConstants.PIN_HASH_ITERATIONS);
+    }
+
+    @Test
+    @DisplayName("Test find registered account")
+    void testFindAccount() {
+        Account account = registry.find(ACCOUNT_NUMBER);
+        assertNotNull(account);
+        assertEquals(ACCOUNT_NUMBER, account.getAccountNumber());
+        assertNull(registry.find("111111111"));
+        assertNull(registry.find(null));
+    }
+
+    @Test
+    @DisplayName("Test duplicate account number is rejected")
+    void testDuplicateRegistration() {
+        assertFalse(registry.register(new Account(ACCOUNT_NUMBER, "Other User", 500.0, "9999")));
+        assertEquals("Test User", registry.find(ACCOUNT_NUMBER).getAccountHolderName());
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    @DisplayName("Test authentication against registry")
+    void testAuthenticate() {
+        assertNotNull(registry.authenticate(ACCOUNT_NUMBER, PIN));
+        assertNull(registry.authenticate(ACCOUNT_NUMBER, "9999"));
+        assertNull(registry.authenticate("111111111", PIN));
+
+        // Wrong PINs share the account's lockout, after which even the right PIN is refused
+        for (int i = 0; i < ATMConstants.MAX_PIN_ATTEMPTS; i++) {
+            assertNull(registry.authenticate(ACCOUNT_NUMBER, "9999"));
+        }
+        assertTrue(registry.find(ACCOUNT_NUMBER).isPinLocked());
+        assertNull(registry.authenticate(ACCOUNT_NUMBER, PIN));
+    }
+
+    @Test
+    @DisplayName("Test remove account")
+    void testRemove() {
+        assertNotNull(registry.remove(ACCOUNT_NUMBER));
+        assertFalse(registry.contains(ACCOUNT_NUMBER));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    @DisplayName("Test shard count is rounded to a power of two")
+    void testShardCount() {
+        assertEquals(64, new AccountRegistry(50, 0).getShardCount());
+        assertEquals(1, new AccountRegistry(1, 0).getShardCount());
+        assertThrows(IllegalArgumentException.class, () -> new AccountRegistry(0, 0));
+    }
+
+    @Test
+    @DisplayName("Test bulk load skips duplicates and every account is visible")
+    void testBulkLoad() {
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            accounts.add(new Account(String.format("%09d", i), "Holder " + i, 100.0, "1234"));
+        }
+        accounts.add(new Account(ACCOUNT_NUMBER, "Duplicate", 100.0, "1234"));
+
+        assertEquals(10000, registry.bulkLoad(accounts));
+        assertEquals(10001, registry.size());
+
+        AtomicInteger visited = new AtomicInteger();
+        registry.forEach(account -> visited.incrementAndGet());
+        assertEquals(10001, visited.get());
+    }
+
+    @Test
+    @DisplayName("Test concurrent registration of the same account numbers")
+    void testConcurrentRegistration() throws InterruptedException {
+        AtomicInteger registered = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    if (registry.register(new Account(String.format("1%08d", i), "Holder", 0.0, "1234"))) {
+                        registered.incrementAndGet();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(5000, registered.get());
+        assertEquals(5001, registry.size());
+    }
+}
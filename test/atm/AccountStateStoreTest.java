@@ -0,0 +1,266 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JUnit test class for AccountStateStore functionality
+ * Tests snapshot round trips, checkpoints under load and crash recovery
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class AccountStateStoreTest {
+
+    private static final int ACCOUNTS = 200;
+
+    private static AccountRegistry seededRegistry() {
+        AccountRegistry registry = new AccountRegistry(16, ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            registry.register(new Account(String.valueOf(100000000 + i), "Holder " + i, 1000.0, "1234"));
+        }
+        return registry;
+    }
+
+    private static void assertSameState(AccountRegistry expected, AccountRegistry actual) {
+        assertEquals(expected.size(), actual.size());
+        expected.forEach(account -> {
+            Account restored = actual.find(account.getAccountNumber());
+            assertNotNull(restored);
+            assertEquals(account.getBalancePaise(), restored.getBalancePaise());
+            assertEquals(account.getPinHash(), restored.getPinHash());
+            assertEquals(account.getAccountHolderName(), restored.getAccountHolderName());
+            assertEquals(account.getTransactionHistory(), restored.getTransactionHistory());
+            assertEquals(account.getMonthlyUsage(), restored.getMonthlyUsage());
+        });
+    }
+
+    @Test
+    @DisplayName("Test snapshot round trip restores balances, PINs and history")
+    void testSnapshotRoundTrip() throws IOException {
+        Path dir = Files.createTempDirectory("state");
+        AccountRegistry registry = seededRegistry();
+        registry.find("100000007").deposit(12.34);
+        registry.find("100000008").changePin("1234", "9999");
+
+        assertEquals(ACCOUNTS, AccountSnapshot.write(registry, dir.resolve("snapshot.dat"), null));
+        AccountRegistry restored = new AccountRegistry();
+        AccountSnapshot snapshot = AccountSnapshot.load(dir.resolve("snapshot.dat"), restored);
+
+        assertEquals(ACCOUNTS, snapshot.getAccountCount());
+        assertSameState(registry, restored);
+        assertNotNull(restored.authenticate("100000008", "9999"));
+    }
+
+    @Test
+    @DisplayName("Test missing snapshot loads nothing")
+    void testMissingSnapshot() throws IOException {
+        Path dir = Files.createTempDirectory("state");
+        assertNull(AccountSnapshot.load(dir.resolve("snapshot.dat"), new AccountRegistry()));
+    }
+
+    @Test
+    @DisplayName("Test corrupt snapshot segment is rejected")
+    void testCorruptSnapshotRejected() throws IOException {
+        Path path = Files.createTempDirectory("state").resolve("snapshot.dat");
+        AccountSnapshot.write(seededRegistry(), path, null);
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 10] ^= 0x5A;
+        Files.write(path, bytes);
+
+        assertThrows(IOException.class, () -> AccountSnapshot.load(path, new AccountRegistry()));
+    }
+
+    @Test
+    @DisplayName("Test checkpoint during concurrent deposits and recovery after a crash")
+    void testCheckpointUnderLoadAndCrashRecovery() throws Exception {
+        Path dir = Files.createTempDirectory("state");
+        Path snapshotPath = dir.resolve("snapshot.dat");
+        Path journalPath = dir.resolve("journal.dat");
+
+        AccountRegistry registry = seededRegistry();
+        AccountStateStore store = new AccountStateStore(snapshotPath, journalPath, registry, 100);
+        assertFalse(store.hasSnapshot());
+        assertEquals(0L, store.recover());
+
+        int threads = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            pool.execute(() -> {
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    registry.find(String.valueOf(100000000 + (i + offset * 7) % ACCOUNTS)).deposit(1.0);
+                }
+            });
+        }
+        store.checkpoint();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        registry.find("100000001").changePin("1234", "4321");
+        assertTrue(registry.find("100000002").withdraw(50.0));
+
+        // Crash: the store is never closed, so the journal tail after the snapshot must be replayed
+        AccountRegistry recovered = new AccountRegistry();
+        AccountStateStore restarted = new AccountStateStore(snapshotPath, journalPath, recovered, 100);
+        assertTrue(restarted.hasSnapshot());
+        restarted.recover();
+
+        assertSameState(registry, recovered);
+        assertEquals((long) ((1000 + threads) * 100), recovered.find("100000000").getBalancePaise());
+        assertNotNull(recovered.authenticate("100000001", "4321"));
+
+        // The restarted store keeps journaling where the old one stopped
+        recovered.find("100000003").deposit(5.0);
+        restarted.close();
+        AccountRegistry reopened = new AccountRegistry();
+        try (AccountStateStore again = new AccountStateStore(snapshotPath, journalPath, reopened, 100)) {
+            assertEquals(0L, again.recover());
+            assertSameState(recovered, reopened);
+        }
+    }
+
+    @Test
+    @DisplayName("Test request references survive snapshots and journal replay")
+    void testReferencesRecovered() throws Exception {
+        Path dir = Files.createTempDirectory("state");
+        Path snapshotPath = dir.resolve("snapshot.dat");
+        Path journalPath = dir.resolve("journal.dat");
+
+        AccountRegistry registry = seededRegistry();
+        TransferEngine engine = new TransferEngine(registry);
+        AccountStateStore store = new AccountStateStore(snapshotPath, journalPath, registry, 0);
+        store.recover();
+        assertTrue(registry.find("100000001").withdrawPaise(1_000L, "TXN-A"));
+        store.checkpoint();
+        assertTrue(registry.find("100000002").depositPaise(2_000L, "TXN-B"));
+        assertTrue(engine.transfer("100000003", "100000004", 3_000L, "TXN-C"));
+
+        AccountRegistry recovered = new AccountRegistry();
+        try (AccountStateStore restarted = new AccountStateStore(snapshotPath, journalPath, recovered, 0)) {
+            restarted.recover();
+            assertSameState(registry, recovered);
+            assertTrue(recovered.find("100000001").hasPostingReference("TXN-A"));
+            assertTrue(recovered.find("100000002").hasPostingReference("TXN-B"));
+            assertTrue(recovered.find("100000003").hasPostingReference("TXN-C"));
+            assertFalse(recovered.find("100000004").hasPostingReference("TXN-C"));
+            assertFalse(recovered.find("100000002").hasPostingReference("TXN-A"));
+        }
+    }
+
+    @Test
+    @DisplayName("Test torn journal tail is truncated during recovery")
+    void testTornTailRepaired() throws Exception {
+        Path dir = Files.createTempDirectory("state");
+        Path snapshotPath = dir.resolve("snapshot.dat");
+        Path journalPath = dir.resolve("journal.dat");
+
+        AccountRegistry registry = seededRegistry();
+        AccountStateStore store = new AccountStateStore(snapshotPath, journalPath, registry, 0);
+        store.recover();
+        registry.find("100000005").deposit(100.0);
+        long intactSize = Files.size(journalPath);
+        Files.write(journalPath, new byte[] {0, 0, 0, 64, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        AccountRegistry recovered = seededRegistry();
+        try (AccountStateStore restarted = new AccountStateStore(snapshotPath, journalPath, recovered, 0)) {
+            assertEquals(1L, restarted.recover());
+            assertEquals(intactSize, Files.size(journalPath));
+            assertEquals(110_000L, recovered.find("100000005").getBalancePaise());
+        }
+    }
+
+    @Test
+    @DisplayName("Test a transfer is journaled as one record and replayed as both legs")
+    void testTransferReplayedAtomically() throws Exception {
+        Path dir = Files.createTempDirectory("state");
+        Path snapshotPath = dir.resolve("snapshot.dat");
+        Path journalPath = dir.resolve("journal.dat");
+
+        AccountRegistry registry = seededRegistry();
+        AccountStateStore store = new AccountStateStore(snapshotPath, journalPath, registry, 0);
+        store.recover();
+        assertTrue(new TransferEngine(registry).transfer("100000010", "100000011", 25_000L));
+
+        int[] records = {0};
+        TransactionJournal.read(journalPath, (sequence, type, accountNumber, amountPaise,
+                                              balanceAfterPaise, epochMillis, detail) -> {
+            records[0]++;
+            assertEquals(TransactionHistory.TYPE_TRANSFER, type);
+        });
+        assertEquals(1, records[0]);
+
+        // Crash before any snapshot: the single record restores both balances
+        AccountRegistry recovered = seededRegistry();
+        try (AccountStateStore restarted = new AccountStateStore(snapshotPath, journalPath, recovered, 0)) {
+            assertEquals(2L, restarted.recover());
+            assertEquals(75_000L, recovered.find("100000010").getBalancePaise());
+            assertEquals(125_000L, recovered.find("100000011").getBalancePaise());
+        }
+    }
+
+    @Test
+    @DisplayName("Test accounts registered after recovery are journaled and survive a crash")
+    void testLateRegisteredAccountRecovered() throws Exception {
+        Path dir = Files.createTempDirectory("state");
+        Path snapshotPath = dir.resolve("snapshot.dat");
+        Path journalPath = dir.resolve("journal.dat");
+
+        AccountRegistry registry = seededRegistry();
+        AccountStateStore store = new AccountStateStore(snapshotPath, journalPath, registry, 0);
+        store.recover();
+        store.checkpoint();
+        Account late = new Account("200000001", "Late Holder \u0939", 500.0, "2468");
+        assertTrue(registry.register(late));
+        late.deposit(25.0);
+
+        AccountRegistry recovered = new AccountRegistry();
+        try (AccountStateStore restarted = new AccountStateStore(snapshotPath, journalPath, recovered, 0)) {
+            assertEquals(2L, restarted.recover());
+            Account restored = recovered.find("200000001");
+            assertNotNull(restored);
+            assertEquals("Late Holder \u0939", restored.getAccountHolderName());
+            assertEquals(52_500L, restored.getBalancePaise());
+            assertNotNull(recovered.authenticate("200000001", "2468"));
+            assertEquals(ACCOUNTS + 1, recovered.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Test checkpoints cut the journal prefix they cover")
+    void testCheckpointTruncatesJournal() throws Exception {
+        Path dir = Files.createTempDirectory("state");
+        Path snapshotPath = dir.resolve("snapshot.dat");
+        Path journalPath = dir.resolve("journal.dat");
+
+        AccountRegistry registry = seededRegistry();
+        AccountStateStore store = new AccountStateStore(snapshotPath, journalPath, registry, 0);
+        store.recover();
+        for (int round = 0; round < 5; round++) {
+            registry.forEach(account -> account.deposit(1.0));
+            store.checkpoint();
+            assertEquals(0L, Files.size(journalPath));
+        }
+        registry.find("100000004").deposit(3.0);
+        long tail = Files.size(journalPath);
+        assertTrue(tail > 0);
+        store.checkpoint();
+        registry.find("100000004").deposit(4.0);
+
+        // Crash after the cut: the snapshot offset refers to the old file, so the new one is replayed whole
+        AccountRegistry recovered = new AccountRegistry();
+        try (AccountStateStore restarted = new AccountStateStore(snapshotPath, journalPath, recovered, 0)) {
+            assertEquals(1L, restarted.recover());
+            assertSameState(registry, recovered);
+        }
+    }
+}
@@ -192,4 +192,25 @@ class AccountTest {
         assertFalse(account.changePin(PIN, PIN));
         assertTrue(account.validatePin(PIN));
     }
+
+    @Test
+    @DisplayName("Test out-of-range amounts are rejected before conversion")
+    void testOutOfRangeAmountRejected() {
+        assertThrows(IllegalArgumentException.class, () -> account.deposit(1e17));
+        assertThrows(IllegalArgumentException.class, () -> account.deposit(Double.NaN));
+        assertEquals(INITIAL_BALANCE, account.getBalance(), 0.01);
+    }
+
+    @Test
+    @DisplayName("Test credits that would overflow the balance are refused")
+    void testCreditOverflowRefused() {
+        Account rich = new Account("987654322", ACCOUNT_HOLDER, 0.0, PIN);
+        while (rich.depositPaise(MoneyUtil.MAX_AMOUNT_PAISE)) {
+            assertTrue(rich.getBalancePaise() > 0);
+        }
+        long balance = rich.getBalancePaise();
+        assertTrue(balance > Long.MAX_VALUE - MoneyUtil.MAX_AMOUNT_PAISE);
+        assertFalse(rich.receiveTransferPaise(MoneyUtil.MAX_AMOUNT_PAISE, ACCOUNT_NUMBER));
+        assertEquals(balance, rich.getBalancePaise());
+    }
 }
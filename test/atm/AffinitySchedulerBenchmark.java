@@ -0,0 +1,73 @@
+package atm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Benchmark for AffinityScheduler
+ * Runs the same stream of deposits, spread over a fixed set of accounts,
+ * through a shared thread pool and through the affinity shards. In the
+ * pool consecutive operations on an account land on different threads; on
+ * the shards each account stays on one thread. Reports throughput and the
+ * deepest shard queue seen while submitting
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class AffinitySchedulerBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+    private static final int OPERATIONS = 1_000_000;
+    private static final int WINDOW = 512;
+
+    public static void main(String[] args) {
+        // Fixture accounts only; PinHashBenchmark measures the cost of PIN hashing
+        ATMConfig.getInstance().setPinHashIterations(1);
+        int cores = Runtime.getRuntime().availableProcessors();
+        Account[] accounts = new Account[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = new Account(String.valueOf(100_000_000 + i), "Holder " + i, 1_000.0, "1234");
+        }
+        for (int round = 0; round < 3; round++) {
+            ExecutorService pool = Executors.newFixedThreadPool(cores);
+            long start = System.nanoTime();
+            List<CompletableFuture<Void>> window = new ArrayList<>();
+            for (int i = 0; i < OPERATIONS; i++) {
+                Account account = accounts[i % ACCOUNTS];
+                window.add(CompletableFuture.runAsync(() -> account.deposit(1.0), pool));
+                if (window.size() == WINDOW) {
+                    CompletableFuture.allOf(window.toArray(new CompletableFuture<?>[0])).join();
+                    window.clear();
+                }
+            }
+            CompletableFuture.allOf(window.toArray(new CompletableFuture<?>[0])).join();
+            report("shared pool", cores, System.nanoTime() - start, 0);
+            pool.shutdown();
+
+            int deepest = 0;
+            start = System.nanoTime();
+            try (AffinityScheduler scheduler = new AffinityScheduler(cores, WINDOW)) {
+                for (int i = 0; i < OPERATIONS; i++) {
+                    Account account = accounts[i % ACCOUNTS];
+                    scheduler.execute(account.getAccountNumber(), () -> account.deposit(1.0));
+                    if (i % WINDOW == 0) {
+                        for (int depth : scheduler.getQueueDepths()) {
+                            deepest = Math.max(deepest, depth);
+                        }
+                    }
+                }
+            }
+            // Closing drains the queues, so the time covers every operation
+            report("affinity shards", cores, System.nanoTime() - start, deepest);
+        }
+    }
+
+    private static void report(String label, int threads, long nanos, int deepest) {
+        System.out.printf("%-16s %2d threads: %,6.2f M ops/s, %.0f ns per op, deepest queue %d%n",
+                label, threads, OPERATIONS * 1000.0 / nanos, nanos / (double) OPERATIONS, deepest);
+    }
+}
@@ -0,0 +1,193 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * JUnit test class for AffinityScheduler functionality
+ * Tests account pinning, consistent placement, queue depth, closing under load
+ * and routing terminal commands
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class AffinitySchedulerTest {
+
+    @Test
+    @DisplayName("Test an account's tasks run in order on one thread")
+    void testAccountPinnedToOneThread() {
+        try (AffinityScheduler scheduler = new AffinityScheduler(4, 64)) {
+            List<Integer> order = new ArrayList<>();
+            List<String> threads = new ArrayList<>();
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                int step = i;
+                futures.add(scheduler.submit("100000001", () -> {
+                    // No lock: only the owning shard touches these lists
+                    order.add(step);
+                    threads.add(Thread.currentThread().getName());
+                    return step;
+                }));
+            }
+            assertEquals(999, (int) futures.get(999).join());
+            for (int i = 0; i < 1_000; i++) {
+                assertEquals(i, (int) order.get(i));
+            }
+            assertEquals(1, threads.stream().distinct().count());
+            assertEquals("atm-affinity-" + scheduler.shardOf("100000001"), threads.get(0));
+        }
+    }
+
+    @Test
+    @DisplayName("Test accounts spread evenly and adding a shard moves few of them")
+    void testConsistentPlacement() {
+        try (AffinityScheduler four = new AffinityScheduler(4, 1);
+             AffinityScheduler five = new AffinityScheduler(5, 1)) {
+            int accounts = 20_000;
+            int[] perShard = new int[4];
+            int moved = 0;
+            for (int i = 0; i < accounts; i++) {
+                String account = String.valueOf(100_000_000 + i);
+                int before = four.shardOf(account);
+                int after = five.shardOf(account);
+                perShard[before]++;
+                if (before != after) {
+                    assertEquals(4, after, "accounts only move to the new shard");
+                    moved++;
+                }
+            }
+            for (int count : perShard) {
+                assertTrue(count > accounts / 4 * 0.7 && count < accounts / 4 * 1.3, "shard holds " + count);
+            }
+            assertTrue(moved > accounts / 5 * 0.6 && moved < accounts / 5 * 1.4, "moved " + moved);
+        }
+    }
+
+    @Test
+    @DisplayName("Test queue depth shows work waiting behind a busy shard")
+    void testQueueDepth() throws InterruptedException {
+        AffinityScheduler scheduler = new AffinityScheduler(3, 16);
+        String account = "100000007";
+        int busy = scheduler.shardOf(account);
+        try (scheduler) {
+            CountDownLatch running = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            scheduler.execute(account, () -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            running.await();
+            for (int i = 0; i < 5; i++) {
+                scheduler.execute(account, () -> { });
+            }
+            int[] depths = scheduler.getQueueDepths();
+            assertEquals(5, depths[busy]);
+            assertEquals(5, scheduler.getQueueDepth(busy));
+            assertEquals(0, depths[(busy + 1) % 3]);
+            release.countDown();
+            assertEquals("done", scheduler.submit(account, () -> "done").join());
+            assertEquals(0, scheduler.getQueueDepth(busy));
+        }
+        assertEquals(7, scheduler.getCompletedCount(busy));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.getQueueDepth(3));
+    }
+
+    @Test
+    @DisplayName("Test failures complete the future and closing rejects new work")
+    void testFailureAndClose() {
+        AffinityScheduler scheduler = new AffinityScheduler(2, 8);
+        CompletableFuture<String> failed = scheduler.submit("100000001", () -> {
+            throw new IllegalStateException("boom");
+        });
+        CompletionException e = assertThrows(CompletionException.class, failed::join);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        // A nested submit from the owning shard runs inline instead of waiting on itself
+        assertEquals("inner", scheduler.submit("100000001",
+                () -> scheduler.submit("100000001", () -> "inner").join()).join());
+        // An Error fails its future and the shard keeps serving the account
+        CompletionException error = assertThrows(CompletionException.class, scheduler.submit("100000001", () -> {
+            throw new AssertionError("crash");
+        })::join);
+        assertTrue(error.getCause() instanceof AssertionError);
+        scheduler.execute("100000001", () -> {
+            throw new AssertionError("crash");
+        });
+        assertEquals("alive", scheduler.submit("100000001", () -> "alive").join());
+        scheduler.close();
+        assertThrows(IllegalStateException.class, () -> scheduler.execute("100000001", () -> { }));
+        assertThrows(IllegalArgumentException.class, () -> new AffinityScheduler(0, 8));
+    }
+
+    @Test
+    @DisplayName("Test every task accepted while closing still runs")
+    void testCloseRunsEveryAcceptedTask() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            AffinityScheduler scheduler = new AffinityScheduler(2, 4);
+            List<CompletableFuture<Integer>> accepted = java.util.Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch started = new CountDownLatch(4);
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                String account = "10000000" + p;
+                boolean blocking = p % 2 == 0;
+                Thread producer = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 10_000; i++) {
+                        int step = i;
+                        try {
+                            if (blocking) {
+                                accepted.add(scheduler.submit(account, () -> step));
+                            } else {
+                                CompletableFuture<Integer> future = new CompletableFuture<>();
+                                if (scheduler.tryExecute(account, () -> future.complete(step))) {
+                                    accepted.add(future);
+                                }
+                            }
+                        } catch (IllegalStateException e) {
+                            return; // Closed
+                        }
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            started.await();
+            scheduler.close();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            for (CompletableFuture<Integer> future : accepted) {
+                assertTrue(future.isDone(), "Accepted task never ran");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test terminal commands run on the account's shard")
+    void testTerminalSessionUsesShard() {
+        AccountRegistry registry = new AccountRegistry();
+        registry.register(new Account("987654321", "Test User", 10000.0, "1234"));
+        AffinityScheduler scheduler = new AffinityScheduler(2, 8);
+        int shard = scheduler.shardOf("987654321");
+        try (scheduler) {
+            TerminalSession session = new TerminalSession(null, registry, null, scheduler, null);
+            assertEquals("ERR NOT_AUTHENTICATED", session.handle("BALANCE"));
+            assertEquals("OK Test User", session.handle("LOGIN 987654321 1234"));
+            assertEquals("OK 11000.00", session.handle("DEPOSIT 1000"));
+            assertEquals("OK 10500.00", session.handle("WITHDRAW 500"));
+        }
+        assertEquals(3, scheduler.getCompletedCount(shard));
+        assertEquals(0, scheduler.getCompletedCount(1 - shard));
+    }
+}
@@ -0,0 +1,145 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JUnit test class for CashInventory functionality
+ * Tests stock-constrained plans, reservation commit and rollback, and ATMService dispensing
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class CashInventoryTest {
+
+    private static final int[] NOTES = {2000, 500, 200, 100};
+
+    @Test
+    @DisplayName("Test plan uses the fewest notes the stock allows")
+    void testPlanWithinStock() {
+        CashInventory full = new CashInventory(NOTES, new int[] {10, 10, 10, 10});
+        assertEquals(Map.of(2000, 1, 500, 1, 100, 1), full.plan(2600));
+
+        CashInventory noLargeNotes = new CashInventory(NOTES, new int[] {0, 10, 10, 10});
+        assertEquals(Map.of(500, 8), noLargeNotes.plan(4000));
+
+        CashInventory fewSmallNotes = new CashInventory(NOTES, new int[] {1, 1, 3, 0});
+        assertEquals(Map.of(200, 3), fewSmallNotes.plan(600));
+        assertNull(fewSmallNotes.plan(300));
+        assertNull(fewSmallNotes.plan(150));
+    }
+
+    @Test
+    @DisplayName("Test plan beats greedy when greedy cannot finish")
+    void testNonGreedyPlan() {
+        CashInventory inventory = new CashInventory(new int[] {500, 200}, new int[] {5, 5});
+        assertEquals(Map.of(200, 3), inventory.plan(600));
+        assertEquals(Map.of(500, 1, 200, 4), inventory.plan(1300));
+    }
+
+    @Test
+    @DisplayName("Test reservations hold notes until committed or rolled back")
+    void testReserveCommitRollback() {
+        CashInventory inventory = new CashInventory(NOTES, new int[] {1, 2, 0, 0});
+        CashInventory.Reservation first = inventory.reserve(2500);
+        assertNotNull(first);
+        assertEquals(0, inventory.getAvailable(2000));
+        assertEquals(1, inventory.getLoaded(2000));
+        assertNull(inventory.reserve(2000));
+
+        first.rollback();
+        first.commit();
+        assertEquals(1, inventory.getAvailable(2000));
+        assertEquals(1, inventory.getLoaded(2000));
+
+        CashInventory.Reservation second = inventory.reserve(2000);
+        second.commit();
+        assertEquals(0, inventory.getLoaded(2000));
+        assertEquals(1000L, inventory.getAvailableAmount());
+    }
+
+    @Test
+    @DisplayName("Test concurrent reservations never exceed the stock")
+    void testConcurrentReservations() throws InterruptedException {
+        CashInventory inventory = new CashInventory(NOTES, new int[] {0, 0, 0, 1000});
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < 200; i++) {
+                    CashInventory.Reservation reservation = inventory.reserve(300);
+                    if (reservation != null) {
+                        granted.incrementAndGet();
+                        if (i % 2 == 0) {
+                            reservation.rollback();
+                        } else {
+                            reservation.commit();
+                        }
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        int loaded = inventory.getLoaded(100);
+        assertTrue(loaded >= 0 && loaded % 3 == 1);
+        assertEquals(loaded, inventory.getAvailable(100));
+    }
+
+    @Test
+    @DisplayName("Test withdrawals dispense from the cassettes and roll back on decline")
+    void testServiceDispensesFromCassettes() {
+        Account account = new Account("123456789", "Test User", 5_000.0, "1234");
+        ATMService service = new ATMService(account);
+        service.setDailyLimitTracker(new DailyLimitTracker(100, MoneyUtil.toPaise(100_000.0)));
+        CashInventory inventory = new CashInventory(NOTES, new int[] {1, 2, 0, 0});
+        service.setCashInventory(inventory);
+
+        assertFalse(service.withdrawMoney(300.0));
+        assertEquals(5_000.0, account.getBalance(), 0.001);
+
+        assertTrue(service.withdrawMoney(2_500.0));
+        assertEquals(0, inventory.getLoaded(2000));
+        assertEquals(1, inventory.getLoaded(500));
+
+        assertFalse(service.withdrawMoney(500.0 + 0.5));
+        inventory.replenish(2000, 2);
+        assertFalse(service.withdrawMoney(4_000.0));
+        assertEquals(2, inventory.getAvailable(2000));
+        assertEquals(Map.of(2000, 1), service.calculateDenomination(2_000.0));
+    }
+
+    @Test
+    @DisplayName("Test batch withdrawals reserve notes per item")
+    void testBatchDispensesFromCassettes() {
+        Account account = new Account("123456789", "Test User", 2_000.0, "1234");
+        ATMService service = new ATMService(account);
+        DailyLimitTracker tracker = new DailyLimitTracker(100, MoneyUtil.toPaise(100_000.0));
+        service.setDailyLimitTracker(tracker);
+        CashInventory inventory = new CashInventory(NOTES, new int[] {1, 3, 0, 0});
+        service.setCashInventory(inventory);
+
+        List<BatchResult> results = service.submitBatch(
+            new TransactionBatch().withdraw(2_500.0).withdraw(1_000.0).withdraw(300.0).deposit(100.0));
+
+        assertEquals(List.of(BatchResult.INSUFFICIENT_BALANCE, BatchResult.APPLIED,
+                             BatchResult.CASH_UNAVAILABLE, BatchResult.APPLIED), results);
+        assertEquals(1_100.0, account.getBalance(), 0.001);
+        assertEquals(1, inventory.getLoaded(2000));
+        assertEquals(1, inventory.getLoaded(500));
+        assertEquals(1, inventory.getAvailable(2000));
+        assertEquals(1, inventory.getAvailable(500));
+        assertEquals(2, tracker.getTransactionCount(account));
+        assertEquals(MoneyUtil.toPaise(1_000.0), tracker.getWithdrawnPaise(account));
+    }
+}
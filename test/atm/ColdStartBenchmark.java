@@ -0,0 +1,63 @@
+package atm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark for cold start: writing a snapshot of N accounts and restoring it
+ * Run with a large heap, e.g. java -Xmx8g -cp bin atm.ColdStartBenchmark 1000000
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class ColdStartBenchmark {
+
+    private static final int POSTINGS_PER_ACCOUNT = 4;
+
+    public static void main(String[] args) throws IOException {
+        // Fixture accounts only; PinHashBenchmark measures the cost of PIN hashing
+        ATMConfig.getInstance().setPinHashIterations(1);
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dir = Files.createTempDirectory("coldstart");
+        Path snapshotPath = dir.resolve("snapshot.dat");
+        Path journalPath = dir.resolve("journal.dat");
+
+        List<Account> accounts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Account account = new Account(String.valueOf(100000000L + i), "Holder " + i, 1000.0, "1234");
+            for (int p = 0; p < POSTINGS_PER_ACCOUNT; p++) {
+                account.depositPaise(100);
+            }
+            accounts.add(account);
+        }
+        AccountRegistry registry = new AccountRegistry(256, size);
+        registry.bulkLoad(accounts);
+        accounts = null;
+
+        long start = System.nanoTime();
+        long written = AccountSnapshot.write(registry, snapshotPath, null);
+        long writeNanos = System.nanoTime() - start;
+        System.out.printf("Snapshot write: %d accounts in %d ms (%.0f accounts/sec), %.1f MB, %.1f bytes/account%n",
+                written, writeNanos / 1_000_000, written * 1e9 / writeNanos,
+                Files.size(snapshotPath) / 1048576.0, Files.size(snapshotPath) / (double) written);
+        registry = null;
+        System.gc();
+
+        AccountRegistry restored = new AccountRegistry(256, size);
+        start = System.nanoTime();
+        try (AccountStateStore store = new AccountStateStore(snapshotPath, journalPath, restored, 0)) {
+            store.recover();
+            long loadNanos = System.nanoTime() - start;
+            System.out.printf("Cold start: %d accounts in %d ms (%.0f accounts/sec)%n",
+                    restored.size(), loadNanos / 1_000_000, restored.size() * 1e9 / loadNanos);
+        }
+
+        Files.deleteIfExists(snapshotPath);
+        Files.deleteIfExists(journalPath);
+        Files.deleteIfExists(dir);
+    }
+}
@@ -0,0 +1,136 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JUnit test class for DailyLimitTracker functionality
+ * Tests limits shared across sessions, midnight rollover and concurrent reservations
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class DailyLimitTrackerTest {
+
+    private static final ZoneId ZONE = ZoneOffset.ofHoursMinutes(5, 30);
+
+    private static long millisAt(int day, int hour, int minute) {
+        return LocalDateTime.of(2026, 10, day, hour, minute).atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    @Test
+    @DisplayName("Test limits are shared by all sessions of an account")
+    void testLimitsSharedAcrossSessions() {
+        Account account = new Account("987654321", "Test User", 100000.0, "1234");
+        DailyLimitTracker tracker = new DailyLimitTracker(20, 5_000_000L);
+        ATMService first = new ATMService(account);
+        ATMService second = new ATMService(account);
+        first.setDailyLimitTracker(tracker);
+        second.setDailyLimitTracker(tracker);
+
+        assertTrue(first.withdrawMoney(30000.0));
+        assertFalse(second.withdrawMoney(30000.0));
+        assertTrue(second.withdrawMoney(20000.0));
+        assertEquals(2, first.getDailyTransactionCount());
+        assertEquals(0.0, first.getRemainingDailyWithdrawalLimit(), 0.01);
+    }
+
+    @Test
+    @DisplayName("Test limits reset at midnight in the tracker's zone")
+    void testMidnightRollover() {
+        AtomicLong now = new AtomicLong(millisAt(16, 23, 59));
+        DailyLimitTracker tracker = new DailyLimitTracker(2, 1_000_000L, ZONE, now::get);
+        Account account = new Account("987654321", "Test User", 100000.0, "1234");
+
+        assertTrue(tracker.tryReserve(account, 1, 600_000L));
+        assertFalse(tracker.tryReserve(account, 1, 600_000L));
+        assertTrue(tracker.tryReserve(account, 1, 0L));
+        assertFalse(tracker.tryReserve(account, 1, 0L));
+
+        now.set(millisAt(17, 0, 0));
+        assertEquals(0, tracker.getTransactionCount(account));
+        assertEquals(1_000_000L, tracker.getRemainingWithdrawalPaise(account));
+        assertTrue(tracker.tryReserve(account, 2, 1_000_000L));
+    }
+
+    @Test
+    @DisplayName("Test released reservation is returned only on the same day")
+    void testRelease() {
+        AtomicLong now = new AtomicLong(millisAt(16, 12, 0));
+        DailyLimitTracker tracker = new DailyLimitTracker(20, 1_000_000L, ZONE, now::get);
+        Account account = new Account("987654321", "Test User", 100000.0, "1234");
+
+        assertTrue(tracker.tryReserve(account, 1, 400_000L));
+        tracker.release(account, 1, 400_000L);
+        assertEquals(0, tracker.getTransactionCount(account));
+        assertTrue(tracker.tryReserve(account, 1, 400_000L));
+
+        now.set(millisAt(17, 12, 0));
+        tracker.release(account, 1, 400_000L);
+        assertTrue(tracker.tryReserve(account, 1, 1_000_000L));
+    }
+
+    @Test
+    @DisplayName("Test concurrent reservations never exceed the limits")
+    void testConcurrentReservations() throws Exception {
+        DailyLimitTracker tracker = new DailyLimitTracker(1000, 50_000_000L);
+        Account account = new Account("987654321", "Test User", 100000.0, "1234");
+        int threads = 8;
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (tracker.tryReserve(account, 1, 100_000L)) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(500, granted.get());
+        assertEquals(500, tracker.getTransactionCount(account));
+        assertEquals(0L, tracker.getRemainingWithdrawalPaise(account));
+    }
+
+    @Test
+    @DisplayName("Test a huge reservation is refused without corrupting today's usage")
+    void testHugeReservationRefused() {
+        DailyLimitTracker tracker = new DailyLimitTracker(20, 5_000_000L);
+        Account account = new Account("987654321", "Test User", 100000.0, "1234");
+
+        assertTrue(tracker.tryReserve(account, 1, 4_000_000L));
+        assertFalse(tracker.tryReserve(account, 1, Long.MAX_VALUE - 1_000_000L));
+        assertFalse(tracker.tryReserve(account, Integer.MAX_VALUE, 0L));
+        assertEquals(1, tracker.getTransactionCount(account));
+        assertEquals(1_000_000L, tracker.getRemainingWithdrawalPaise(account));
+        assertFalse(tracker.tryReserve(account, 1, 4_000_000L));
+    }
+
+    @Test
+    @DisplayName("Test rejected deposit amounts do not consume a daily transaction")
+    void testInvalidDepositKeepsReservation() {
+        Account account = new Account("987654321", "Test User", 100000.0, "1234");
+        DailyLimitTracker tracker = new DailyLimitTracker(20, 5_000_000L);
+        ATMService service = new ATMService(account);
+        service.setDailyLimitTracker(tracker);
+
+        assertFalse(service.depositMoney(Double.NaN));
+        assertFalse(service.depositMoney(Double.POSITIVE_INFINITY));
+        assertFalse(service.depositMoney(1e17));
+        assertEquals(0, tracker.getTransactionCount(account));
+    }
+}
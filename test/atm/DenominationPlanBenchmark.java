@@ -0,0 +1,65 @@
+package atm;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Benchmark for denomination plans and breakdown text
+ * Compares the precomputed table behind ATMService with building a map and
+ * a string per call, reporting time and bytes allocated per call
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class DenominationPlanBenchmark {
+
+    private static final int ITERATIONS = 5_000_000;
+    private static final int[] NOTES = {2000, 500, 200, 100, 50, 20, 10};
+
+    public static void main(String[] args) {
+        ATMService service = new ATMService(new Account("123456789", "Bench", 1000.0, "1234"));
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int round = 0; round < 3; round++) {
+            long checksum = 0;
+            long allocated = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                double amount = 100.0 * (1 + i % 500);
+                checksum += service.calculateDenomination(amount).size();
+                checksum += service.getDenominationBreakdown(amount).length();
+            }
+            long tableNanos = System.nanoTime() - start;
+            long tableBytes = threads.getThreadAllocatedBytes(thread) - allocated;
+
+            allocated = threads.getThreadAllocatedBytes(thread);
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                double amount = 100.0 * (1 + i % 500);
+                checksum += split(amount).size();
+                checksum += DenominationPlanTable.render(split(amount)).length();
+            }
+            long buildNanos = System.nanoTime() - start;
+            long buildBytes = threads.getThreadAllocatedBytes(thread) - allocated;
+
+            System.out.printf("Table: %.0f ns, %.1f B per plan+text | per-call build: %.0f ns, %.0f B (checksum %d)%n",
+                    tableNanos / (double) ITERATIONS, tableBytes / (double) ITERATIONS,
+                    buildNanos / (double) ITERATIONS, buildBytes / (double) ITERATIONS, checksum);
+        }
+    }
+
+    private static Map<Integer, Integer> split(double amount) {
+        Map<Integer, Integer> denominations = new LinkedHashMap<>();
+        int remaining = (int) amount;
+        for (int note : NOTES) {
+            if (remaining >= note) {
+                denominations.put(note, remaining / note);
+                remaining %= note;
+            }
+        }
+        return denominations;
+    }
+}
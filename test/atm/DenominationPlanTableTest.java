@@ -0,0 +1,72 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JUnit test class for DenominationPlanTable functionality
+ * Tests table plans against the greedy split, shared results and rebuilds on cassette changes
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class DenominationPlanTableTest {
+
+    @Test
+    @DisplayName("Test standard table matches the greedy split for every valid amount")
+    void testStandardTableMatchesGreedy() {
+        DenominationPlanTable table = DenominationPlanTable.standard();
+        int[] notes = {2000, 500, 200, 100, 50, 20, 10};
+        for (long amount = 100; amount <= 50_000; amount += 100) {
+            Map<Integer, Integer> greedy = new LinkedHashMap<>();
+            long remaining = amount;
+            for (int note : notes) {
+                if (remaining >= note) {
+                    greedy.put(note, (int) (remaining / note));
+                    remaining %= note;
+                }
+            }
+            assertEquals(greedy, table.plan(amount));
+            assertEquals(DenominationPlanTable.render(greedy), table.breakdown(amount));
+        }
+        assertNull(table.plan(150));
+        assertNull(table.plan(50_100));
+    }
+
+    @Test
+    @DisplayName("Test ATMService returns its own copy of a shared plan and shared text")
+    void testServiceUsesSharedPlans() {
+        ATMService service = new ATMService(new Account("123456789", "Test User", 1000.0, "1234"));
+        Map<Integer, Integer> plan = service.calculateDenomination(2_600.0);
+
+        assertEquals(Map.of(2000, 1, 500, 1, 100, 1), plan);
+        assertEquals(java.util.List.of(2000, 500, 100), new java.util.ArrayList<>(plan.keySet()));
+        assertSame(service.getDenominationBreakdown(2_600.0), service.getDenominationBreakdown(2_600.0));
+        // Callers may change their copy as before; the table keeps its plan
+        plan.put(10, 1);
+        assertEquals(Map.of(2000, 1, 500, 1, 100, 1), service.calculateDenomination(2_600.0));
+        assertEquals(Map.of(50, 1, 20, 1), service.calculateDenomination(70.0));
+        service.calculateDenomination(70.0).put(10, 1);
+        assertEquals("Denomination Breakdown:\n₹50 x 1\n₹20 x 1\n", service.getDenominationBreakdown(70.0));
+    }
+
+    @Test
+    @DisplayName("Test cassette plans follow cassettes running empty and being refilled")
+    void testTableFollowsCassetteConfig() {
+        CashInventory inventory = new CashInventory(new int[] {2000, 500, 100}, new int[] {1, 10, 10});
+        assertEquals(Map.of(2000, 1), inventory.plan(2000));
+
+        inventory.reserve(2000).commit();
+        assertEquals(Map.of(500, 4), inventory.plan(2000));
+        assertEquals("Denomination Breakdown:\n₹500 x 4\n", inventory.breakdown(2000));
+
+        inventory.replenish(2000, 5);
+        assertEquals(Map.of(2000, 1), inventory.plan(2000));
+        assertEquals(Map.of(2000, 5, 500, 10, 100, 10), inventory.plan(16_000));
+    }
+}
@@ -0,0 +1,62 @@
+package atm;
+
+/**
+ * Benchmark for FeeEngine fee evaluation
+ * Compares the compiled table with interpreting the declared schedule,
+ * i.e. matching every declared quota and band against each transaction
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class FeeEngineBenchmark {
+
+    private static final int ITERATIONS = 50_000_000;
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final AccountType[] ACCOUNT_TYPES = AccountType.values();
+
+    public static void main(String[] args) {
+        FeeSchedule schedule = FeeSchedule.standard();
+        FeeEngine engine = new FeeEngine(schedule);
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            long total = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                total += engine.feePaise(TYPES[i % TYPES.length], ACCOUNT_TYPES[i & 1], (i & 0xFFFFF) * 10L, i & 7);
+            }
+            long tableNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long interpreted = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                interpreted += interpret(schedule, TYPES[i % TYPES.length], ACCOUNT_TYPES[i & 1],
+                                         (i & 0xFFFFF) * 10L, i & 7);
+            }
+            long interpretNanos = System.nanoTime() - start;
+
+            System.out.printf("Compiled table: %.1f ns/fee | interpreted schedule: %.1f ns/fee (checksums %d, %d)%n",
+                    tableNanos / (double) ITERATIONS, interpretNanos / (double) ITERATIONS, total, interpreted);
+        }
+    }
+
+    private static long interpret(FeeSchedule schedule, TransactionType type, AccountType accountType,
+                                  long amountPaise, int usedThisMonth) {
+        int quota = 0;
+        for (FeeSchedule.Quota q : schedule.getQuotas()) {
+            if (q.type == type && (q.accountType == null || q.accountType == accountType)) {
+                quota = q.perMonth;
+            }
+        }
+        if (usedThisMonth < quota) {
+            return 0L;
+        }
+        FeeSchedule.Band match = null;
+        for (FeeSchedule.Band band : schedule.getBands()) {
+            if (band.type == type && (band.accountType == null || band.accountType == accountType)
+                && amountPaise > band.overPaise && (match == null || band.overPaise >= match.overPaise)) {
+                match = band;
+            }
+        }
+        return match == null ? 0L : match.flatPaise + (amountPaise * match.rateBps + 5_000L) / 10_000L;
+    }
+}
@@ -0,0 +1,102 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for FeeEngine functionality
+ * Tests amount bands, account type overrides, free quotas and the standard schedule
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class FeeEngineTest {
+
+    @Test
+    @DisplayName("Test the highest band below the amount applies")
+    void testAmountBands() {
+        FeeEngine engine = new FeeEngine(new FeeSchedule()
+            .band(TransactionType.WITHDRAWAL, null, 0L, 1_000L, 0)
+            .band(TransactionType.WITHDRAWAL, null, 1_000_000L, 2_000L, 50));
+
+        assertEquals(1_000L, engine.feePaise(TransactionType.WITHDRAWAL, AccountType.SAVINGS, 500_000L, 0));
+        assertEquals(1_000L, engine.feePaise(TransactionType.WITHDRAWAL, AccountType.SAVINGS, 1_000_000L, 0));
+        // 0.5% of 20,000.00 plus 20.00
+        assertEquals(12_000L, engine.feePaise(TransactionType.WITHDRAWAL, AccountType.CURRENT, 2_000_000L, 0));
+        assertEquals(0L, engine.feePaise(TransactionType.DEPOSIT, AccountType.SAVINGS, 2_000_000L, 0));
+    }
+
+    @Test
+    @DisplayName("Test account type declarations override the defaults")
+    void testAccountTypeOverride() {
+        FeeEngine engine = new FeeEngine(new FeeSchedule()
+            .band(TransactionType.TRANSFER, null, 0L, 500L, 0)
+            .band(TransactionType.TRANSFER, AccountType.CURRENT, 0L, 0L, 0)
+            .freeQuota(TransactionType.TRANSFER, null, 2)
+            .freeQuota(TransactionType.TRANSFER, AccountType.CURRENT, 10));
+
+        assertEquals(500L, engine.feePaise(TransactionType.TRANSFER, AccountType.SAVINGS, 100L, 2));
+        assertEquals(0L, engine.feePaise(TransactionType.TRANSFER, AccountType.CURRENT, 100L, 2));
+        assertEquals(2, engine.getFreeQuota(TransactionType.TRANSFER, AccountType.SAVINGS));
+        assertEquals(10, engine.getFreeQuota(TransactionType.TRANSFER, AccountType.CURRENT));
+    }
+
+    @Test
+    @DisplayName("Test free quota waives the first transactions of the month")
+    void testFreeQuota() {
+        FeeEngine engine = new FeeEngine(new FeeSchedule()
+            .freeQuota(TransactionType.WITHDRAWAL, null, 3)
+            .band(TransactionType.WITHDRAWAL, null, 0L, 2_000L, 0));
+
+        assertEquals(0L, engine.feePaise(TransactionType.WITHDRAWAL, AccountType.SAVINGS, 10_000L, 2));
+        assertEquals(2_000L, engine.feePaise(TransactionType.WITHDRAWAL, AccountType.SAVINGS, 10_000L, 3));
+    }
+
+    @Test
+    @DisplayName("Test standard schedule charges 1% on transfers above 10000")
+    void testStandardSchedule() {
+        ATMService service = new ATMService(new Account("123456789", "Test User", 50_000.0, "1234"));
+
+        assertEquals(0.0, service.calculateTransactionFee(10_000.0, "TRANSFER"), 0.001);
+        assertEquals(150.0, service.calculateTransactionFee(15_000.0, "TRANSFER"), 0.001);
+        assertEquals(0.0, service.calculateTransactionFee(15_000.0, "WITHDRAWAL"), 0.001);
+        assertEquals(0.0, service.calculateTransactionFee(15_000.0, "UNKNOWN"), 0.001);
+    }
+
+    @Test
+    @DisplayName("Test ATMService counts this month's postings against the quota")
+    void testServiceUsesMonthlyPostings() {
+        Account account = new Account("123456789", "Test User", 50_000.0, "1234");
+        ATMService service = new ATMService(account);
+        service.setDailyLimitTracker(new DailyLimitTracker(100, MoneyUtil.toPaise(100_000.0)));
+        service.setFeeEngine(new FeeEngine(new FeeSchedule()
+            .freeQuota(TransactionType.WITHDRAWAL, null, 2)
+            .band(TransactionType.WITHDRAWAL, null, 0L, 2_000L, 0)));
+
+        assertEquals(0.0, service.calculateTransactionFee(TransactionType.WITHDRAWAL, 100.0), 0.001);
+        assertTrue(service.withdrawMoney(100.0));
+        assertTrue(service.withdrawMoney(100.0));
+        assertEquals(20.0, service.calculateTransactionFee(TransactionType.WITHDRAWAL, 100.0), 0.001);
+    }
+
+    @Test
+    @DisplayName("Test quotas count postings the history no longer keeps")
+    void testQuotaOutlastsHistory() {
+        Account account = new Account("123456789", "Test User", 50_000.0, "1234");
+        ATMService service = new ATMService(account);
+        int quota = ATMConstants.MAX_TRANSACTION_HISTORY + 20;
+        service.setFeeEngine(new FeeEngine(new FeeSchedule()
+            .freeQuota(TransactionType.WITHDRAWAL, null, quota)
+            .band(TransactionType.WITHDRAWAL, null, 0L, 2_000L, 0)));
+
+        for (int i = 0; i < quota; i++) {
+            assertTrue(account.withdrawPaise(100L));
+        }
+        assertTrue(account.depositPaise(100L));
+        assertEquals(quota, account.countPostingsThisMonth(TransactionHistory.TYPE_WITHDRAWAL));
+        assertEquals(1, account.countPostingsThisMonth(TransactionHistory.TYPE_DEPOSIT));
+        assertEquals(20.0, service.calculateTransactionFee(TransactionType.WITHDRAWAL, 100.0), 0.001);
+    }
+}
@@ -0,0 +1,64 @@
+package atm;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark for ATM throughput against a remote host as host latency rises
+ * Sessions issue balance inquiries through ATMService over one connection,
+ * once with a single request in flight (lock-step) and once pipelined
+ * Run with e.g. java -cp bin atm.HostLatencyBenchmark 64
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class HostLatencyBenchmark {
+
+    private static final long[] LATENCIES_MILLIS = {0, 1, 5, 20};
+    private static final long RUN_MILLIS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        for (long latency : LATENCIES_MILLIS) {
+            double lockStep = run(sessions, latency, 1);
+            double pipelined = run(sessions, latency, ATMConstants.HOST_MAX_IN_FLIGHT);
+            System.out.printf("latency %2d ms (jitter %d ms): lock-step %8.0f req/s, pipelined %8.0f req/s%n",
+                    latency, latency / 4, lockStep, pipelined);
+        }
+    }
+
+    private static double run(int sessions, long latencyMillis, int maxInFlight) throws Exception {
+        AccountRegistry hostAccounts = new AccountRegistry();
+        Account[] cards = new Account[sessions];
+        for (int i = 0; i < sessions; i++) {
+            String number = String.valueOf(100000000 + i);
+            hostAccounts.register(new Account(number, "Holder " + i, 10000.0, "1234"));
+            cards[i] = new Account(number, "Holder " + i, 0.0, "1234");
+        }
+        LongAdder completed = new LongAdder();
+        try (HostSimulator host = new HostSimulator(hostAccounts, latencyMillis * 1000, latencyMillis * 250)) {
+            int port = host.start(0);
+            try (RemoteBankHost remote = new RemoteBankHost(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), port), maxInFlight)) {
+                CountDownLatch done = new CountDownLatch(sessions);
+                long deadline = System.currentTimeMillis() + RUN_MILLIS;
+                for (Account card : cards) {
+                    new Thread(() -> {
+                        ATMService service = new ATMService(card);
+                        service.setBankHost(remote);
+                        while (System.currentTimeMillis() < deadline) {
+                            service.checkBalance();
+                            completed.increment();
+                        }
+                        done.countDown();
+                    }).start();
+                }
+                done.await();
+            }
+        }
+        return completed.sum() * 1000.0 / RUN_MILLIS;
+    }
+}
@@ -0,0 +1,67 @@
+package atm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Benchmark for IdGenerator
+ * Compares the old millisecond-plus-Math.random token with IdGenerator on
+ * one thread and on several threads at once. The old scheme shares one
+ * Random, so threads contend on it; IdGenerator keeps all state per thread
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class IdGeneratorBenchmark {
+
+    private static final int PER_THREAD = 2_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads : new int[] {1, Math.max(2, cores)}) {
+            for (int round = 0; round < 3; round++) {
+                run("Math.random token", threads,
+                    () -> "TOKEN_" + System.currentTimeMillis() + "_" + (int) (Math.random() * 10000));
+                run("IdGenerator token", threads, IdGenerator::nextToken);
+            }
+        }
+    }
+
+    private interface Source {
+        String next();
+    }
+
+    private static void run(String label, int threads, Source source) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        long[] sink = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            int slot = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long hash = 0;
+                for (int i = 0; i < PER_THREAD; i++) {
+                    hash += source.next().hashCode();
+                }
+                sink[slot] = hash;
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long nanos = System.nanoTime() - began;
+        long total = (long) threads * PER_THREAD;
+        System.out.printf("%-18s %2d threads: %,6.2f M IDs/s, %.0f ns each per thread%n",
+                label, threads, total * 1000.0 / nanos, nanos * (double) threads / total);
+    }
+}
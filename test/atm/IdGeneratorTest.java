@@ -0,0 +1,88 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * JUnit test class for IdGenerator functionality
+ * Tests ID format, uniqueness across threads and the session and token helpers
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class IdGeneratorTest {
+
+    @Test
+    @DisplayName("Test IDs carry the prefix and 22 URL-safe characters")
+    void testFormat() {
+        String id = IdGenerator.nextId("TXN");
+        assertTrue(id.startsWith("TXN"));
+        assertEquals(25, id.length());
+        assertTrue(id.substring(3).matches("[A-Za-z0-9_-]{21}[AQgw]"));
+        assertTrue(IdGenerator.nextSessionId().startsWith("SES"));
+        assertTrue(SecurityUtil.generateSessionToken().startsWith("TOKEN_"));
+        assertTrue(ATMUtil.generateTransactionId().startsWith("TXN"));
+    }
+
+    @Test
+    @DisplayName("Test consecutive IDs share no visible sequence")
+    void testUnpredictable() {
+        String first = IdGenerator.nextId("");
+        String second = IdGenerator.nextId("");
+        int same = 0;
+        for (int i = 0; i < first.length(); i++) {
+            if (first.charAt(i) == second.charAt(i)) {
+                same++;
+            }
+        }
+        // Only a counter in the low bits would keep most characters equal
+        assertTrue(same < 10, first + " / " + second);
+    }
+
+    @Test
+    @DisplayName("Test IDs are unique across threads")
+    void testUniqueAcrossThreads() throws InterruptedException {
+        int threads = 8;
+        int perThread = 50_000;
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    ids.add(IdGenerator.nextSessionId());
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(threads * perThread, ids.size());
+    }
+
+    @Test
+    @DisplayName("Test session manager hands out distinct IDs in the same millisecond")
+    void testSessionIdsDistinct() {
+        SessionManager manager = new SessionManager(300_000L, 30_000L, 1_000L, null, () -> 42L);
+        String first = manager.startSession("1234567890");
+        String second = manager.startSession("1234567890");
+        assertNotEquals(first, second);
+        assertEquals(2, manager.getActiveSessionCount());
+    }
+}
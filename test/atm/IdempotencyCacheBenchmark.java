@@ -0,0 +1,62 @@
+package atm;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Benchmark for IdempotencyCache throughput with a mix of new requests and retries
+ * Run with e.g. java -cp bin atm.IdempotencyCacheBenchmark 4
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class IdempotencyCacheBenchmark {
+
+    private static final int KEYS_PER_THREAD = 1 << 16;
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        IdempotencyCache cache = new IdempotencyCache(ATMConstants.IDEMPOTENCY_CACHE_CAPACITY, 600_000);
+
+        String[][] keys = new String[threads][KEYS_PER_THREAD];
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                keys[t][i] = "terminal-" + t + "-req-" + i;
+            }
+        }
+
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] replays = new long[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            new Thread(() -> {
+                String scope = String.valueOf(100000000 + id);
+                for (int round = 0; round < ROUNDS; round++) {
+                    for (String key : keys[id]) {
+                        // Every request is sent twice, as a terminal retrying after a timeout would
+                        for (int attempt = 0; attempt < 2; attempt++) {
+                            if (cache.begin(scope, key) == null) {
+                                cache.complete(scope, key, true);
+                            } else {
+                                replays[id]++;
+                            }
+                        }
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        long nanos = System.nanoTime() - start;
+
+        long requests = 2L * threads * ROUNDS * KEYS_PER_THREAD;
+        long totalReplays = 0;
+        for (long r : replays) {
+            totalReplays += r;
+        }
+        System.out.printf("%d threads: %d requests in %d ms (%.0f requests/sec), %d replayed, capacity %d%n",
+                threads, requests, nanos / 1_000_000, requests * 1e9 / nanos, totalReplays, cache.getCapacity());
+    }
+}
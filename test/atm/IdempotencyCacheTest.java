@@ -0,0 +1,152 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JUnit test class for IdempotencyCache functionality
+ * Tests replay of outcomes, expiry, bounded capacity, key reuse and concurrent retries
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class IdempotencyCacheTest {
+
+    @Test
+    @DisplayName("Test completed outcome is replayed for the same key")
+    void testOutcomeReplayed() {
+        IdempotencyCache cache = new IdempotencyCache(1024, 60_000);
+        assertNull(cache.begin("987654321", "req-1"));
+        cache.complete("987654321", "req-1", false);
+
+        assertEquals(Boolean.FALSE, cache.begin("987654321", "req-1"));
+        assertNull(cache.begin("123456789", "req-1"));
+    }
+
+    @Test
+    @DisplayName("Test outcome expires after the TTL")
+    void testOutcomeExpires() {
+        AtomicLong now = new AtomicLong(1_000);
+        IdempotencyCache cache = new IdempotencyCache(1024, 500, now::get);
+        assertNull(cache.begin("987654321", "req-1"));
+        cache.complete("987654321", "req-1", true);
+
+        now.addAndGet(499);
+        assertEquals(Boolean.TRUE, cache.begin("987654321", "req-1"));
+        now.addAndGet(1);
+        assertNull(cache.begin("987654321", "req-1"));
+    }
+
+    @Test
+    @DisplayName("Test abandoned key can be claimed again")
+    void testAbandonReleasesKey() {
+        IdempotencyCache cache = new IdempotencyCache(1024, 60_000);
+        assertNull(cache.begin("987654321", "req-1"));
+        cache.abandon("987654321", "req-1");
+        assertNull(cache.begin("987654321", "req-1"));
+    }
+
+    @Test
+    @DisplayName("Test full cache refuses new keys instead of evicting live ones")
+    void testFullCacheRefusesNewKeys() {
+        AtomicLong now = new AtomicLong(1_000);
+        IdempotencyCache cache = new IdempotencyCache(1000, 500, now::get);
+        int capacity = cache.getCapacity();
+        assertTrue(capacity >= 1000 && capacity <= 4096);
+        int claimed = 0;
+        boolean refused = false;
+        for (int i = 0; i < capacity * 4; i++) {
+            try {
+                assertNull(cache.begin("987654321", "req-" + i));
+            } catch (RejectedExecutionException e) {
+                refused = true;
+                continue;
+            }
+            cache.complete("987654321", "req-" + i, true);
+            claimed++;
+        }
+        assertTrue(refused);
+        assertTrue(claimed <= capacity);
+        assertEquals(Boolean.TRUE, cache.begin("987654321", "req-0"));
+
+        now.addAndGet(500);
+        assertNull(cache.begin("987654321", "req-" + (capacity * 4)));
+    }
+
+    @Test
+    @DisplayName("Test growable cache keeps every live outcome")
+    void testGrowableCacheKeepsOutcomes() {
+        IdempotencyCache cache = new IdempotencyCache(1000, 16_000, 60_000);
+        int keys = cache.getCapacity() * 2;
+        for (int i = 0; i < keys; i++) {
+            assertNull(cache.begin("987654321", "req-" + i));
+            cache.complete("987654321", "req-" + i, i % 2 == 0);
+        }
+        assertTrue(cache.getCapacity() > keys / 2);
+        for (int i = 0; i < keys; i++) {
+            assertEquals(Boolean.valueOf(i % 2 == 0), cache.begin("987654321", "req-" + i));
+        }
+    }
+
+    @Test
+    @DisplayName("Test key reused for a different request is rejected")
+    void testMismatchedReuseRejected() {
+        IdempotencyCache cache = new IdempotencyCache(1024, 60_000);
+        assertNull(cache.begin("987654321", "req-1", TransactionType.TRANSFER, 10_000L, "123456789"));
+        cache.complete("987654321", "req-1", true);
+
+        assertEquals(Boolean.TRUE,
+                     cache.begin("987654321", "req-1", TransactionType.TRANSFER, 10_000L, "123456789"));
+        assertThrows(IllegalArgumentException.class,
+                     () -> cache.begin("987654321", "req-1", TransactionType.TRANSFER, 20_000L, "123456789"));
+        assertThrows(IllegalArgumentException.class,
+                     () -> cache.begin("987654321", "req-1", TransactionType.TRANSFER, 10_000L, "555555555"));
+        assertThrows(IllegalArgumentException.class,
+                     () -> cache.begin("987654321", "req-1", TransactionType.WITHDRAWAL, 10_000L, null));
+    }
+
+    @Test
+    @DisplayName("Test concurrent retries run the request once and share its outcome")
+    void testConcurrentRetries() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(1024, 60_000);
+        int threads = 8;
+        AtomicInteger executions = new AtomicInteger();
+        AtomicInteger successes = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Boolean original = cache.begin("987654321", "req-1");
+                if (original == null) {
+                    executions.incrementAndGet();
+                    cache.complete("987654321", "req-1", true);
+                    original = Boolean.TRUE;
+                }
+                if (original) {
+                    successes.incrementAndGet();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(1, executions.get());
+        assertEquals(threads, successes.get());
+    }
+}
@@ -0,0 +1,65 @@
+package atm;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark for InterestEngine accrual throughput
+ * Each account has a few postings during the business day so the balance
+ * integration walks real history. Prints accounts per second and the time
+ * that rate implies for a 50M-account nightly run.
+ * Run with a large heap, e.g. java -Xmx8g -cp bin atm.InterestAccrualBenchmark 2000000
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class InterestAccrualBenchmark {
+
+    private static final long TARGET_ACCOUNTS = 50_000_000L;
+    private static final int POSTINGS_PER_ACCOUNT = 3;
+
+    public static void main(String[] args) {
+        // Fixture accounts only; PinHashBenchmark measures the cost of PIN hashing
+        ATMConfig.getInstance().setPinHashIterations(1);
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        LocalDate businessDate = LocalDate.now(ZoneOffset.UTC).minusDays(2);
+        long dayStartMillis = businessDate.atStartOfDay(ZoneOffset.UTC).toEpochSecond() * 1000L;
+
+        List<Account> accounts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Account account = new Account(accountNumber(i), "Holder", 1000.0, "1234");
+            for (int p = 1; p <= POSTINGS_PER_ACCOUNT; p++) {
+                account.applyJournalEntry(p, TransactionHistory.TYPE_DEPOSIT, 10_000L,
+                                          dayStartMillis + p * 6 * 3_600_000L, null);
+            }
+            accounts.add(account);
+        }
+        AccountRegistry registry = new AccountRegistry(256, size);
+        registry.bulkLoad(accounts);
+        accounts = null;
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        InterestEngine engine = new InterestEngine(registry, ATMConstants.SAVINGS_INTEREST_RATE_BPS,
+                                                   account -> true, pool);
+        // Warm up on an earlier day, then measure the business date
+        engine.accrue(businessDate.minusDays(1), ZoneOffset.UTC);
+        InterestEngine.Summary summary = engine.accrue(businessDate, ZoneOffset.UTC);
+        pool.shutdown();
+
+        double rate = summary.getAccountsPerSecond();
+        System.out.printf("Accrued %d of %d accounts on %d threads in %d ms: %.0f accounts/sec, %s interest%n",
+                summary.getAccountsCredited(), summary.getAccountsScanned(), parallelism,
+                summary.getElapsedNanos() / 1_000_000, rate, MoneyUtil.format(summary.getInterestPaise()));
+        System.out.printf("Projected %,d-account run: %.1f s%n", TARGET_ACCOUNTS, TARGET_ACCOUNTS / rate);
+    }
+
+    private static String accountNumber(int i) {
+        String digits = Integer.toString(i);
+        return "000000000".substring(digits.length()) + digits;
+    }
+}
@@ -0,0 +1,250 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * JUnit test class for InterestEngine functionality
+ * Tests exact rounding, balance integration, idempotent reruns, history
+ * coverage and persistence of the accrued-through date
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class InterestEngineTest {
+
+    private static final long DAY = 86_400L;
+    private static final LocalDate YESTERDAY = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+
+    @Test
+    @DisplayName("Test daily interest rounds half to even")
+    void testDailyInterestRounding() {
+        // 1,00,000 rupees at 4% for one day is 1095.89 paise
+        assertEquals(1096L, InterestEngine.dailyInterest(10_000_000L * DAY, DAY, 400));
+        // 36.5 rupees at 10%: exactly 1 paisa
+        assertEquals(1L, InterestEngine.dailyInterest(3_650L * DAY, DAY, 1000));
+        // Exactly half a paisa rounds to the even neighbour
+        assertEquals(0L, InterestEngine.dailyInterest(1_825L * DAY, DAY, 1000));
+        assertEquals(2L, InterestEngine.dailyInterest(5_475L * DAY, DAY, 1000));
+        // Large balances do not overflow
+        assertEquals(1_095_890_411L, InterestEngine.dailyInterest(10_000_000_000_000L * DAY, DAY, 400));
+    }
+
+    @Test
+    @DisplayName("Test balance is integrated over the window from postings")
+    void testBalanceSeconds() {
+        TransactionHistory history = new TransactionHistory(8);
+        long start = 1_000_000L;
+        // Opening balance 1000, deposit 500 at +6h, withdraw 1200 at +18h
+        history.record(TransactionHistory.TYPE_DEPOSIT, 500, 1_500, (start + 6 * 3600) * 1000, null);
+        history.record(TransactionHistory.TYPE_WITHDRAWAL, 1_200, 300, (start + 18 * 3600) * 1000, null);
+
+        long expected = 1_000L * 6 * 3600 + 1_500L * 12 * 3600 + 300L * 6 * 3600;
+        assertEquals(expected, history.balanceSeconds(300, start, start + DAY));
+        assertEquals(1_000L * DAY, history.balanceSeconds(300, start - DAY, start));
+        assertEquals(300L * DAY, history.balanceSeconds(300, start + DAY, start + 2 * DAY));
+    }
+
+    @Test
+    @DisplayName("Test accrual credits each account once per business day")
+    void testAccrueIsIdempotent() {
+        AccountRegistry registry = new AccountRegistry(4, 16);
+        registry.register(new Account("100000001", "Saver One", 100_000.0, "1234"));
+        registry.register(new Account("100000002", "Saver Two", 50_000.0, "1234"));
+        registry.register(new Account("100000003", "Empty", 0.0, "1234"));
+        InterestEngine engine = new InterestEngine(registry, 400, account -> true, ForkJoinPool.commonPool());
+
+        InterestEngine.Summary first = engine.accrue(YESTERDAY, ZoneOffset.UTC);
+        assertEquals(3L, first.getAccountsScanned());
+        assertEquals(2L, first.getAccountsCredited());
+        assertEquals(1096L + 548L, first.getInterestPaise());
+        assertEquals(10_001_096L, registry.find("100000001").getBalancePaise());
+
+        InterestEngine.Summary second = engine.accrue(YESTERDAY, ZoneOffset.UTC);
+        assertEquals(0L, second.getAccountsCredited());
+        assertEquals(2L, second.getAccountsSkipped());
+        assertEquals(10_001_096L, registry.find("100000001").getBalancePaise());
+    }
+
+    @Test
+    @DisplayName("Test ineligible accounts and open days are not accrued")
+    void testEligibilityAndOpenDay() {
+        AccountRegistry registry = new AccountRegistry(4, 16);
+        registry.register(new Account("100000001", "Current", 100_000.0, "1234"));
+        InterestEngine engine = new InterestEngine(registry, 400, account -> false, ForkJoinPool.commonPool());
+
+        assertEquals(0L, engine.accrue(YESTERDAY, ZoneOffset.UTC).getAccountsCredited());
+        assertEquals(10_000_000L, registry.find("100000001").getBalancePaise());
+        assertThrows(IllegalArgumentException.class,
+                     () -> engine.accrue(LocalDate.now(ZoneOffset.UTC), ZoneOffset.UTC));
+    }
+
+    @Test
+    @DisplayName("Test interest credits are journaled and replayed")
+    void testInterestJournaled() throws IOException {
+        Path path = Files.createTempFile("journal", ".dat");
+        AccountRegistry registry = new AccountRegistry(4, 16);
+        Account account = new Account("100000001", "Saver", 100_000.0, "1234");
+        registry.register(account);
+        try (TransactionJournal journal = new TransactionJournal(path, 0)) {
+            account.setJournal(journal);
+            new InterestEngine(registry, 400, a -> true, ForkJoinPool.commonPool()).accrue(YESTERDAY, ZoneOffset.UTC);
+            assertEquals(1L, journal.getDurableSequence());
+        }
+
+        Account restored = new Account("100000001", "Saver", 100_000.0, "1234");
+        TransactionJournal.read(path, (sequence, type, accountNumber, amountPaise, balanceAfterPaise, epochMillis, detail) ->
+            assertTrue(restored.applyJournalEntry(sequence, type, amountPaise, epochMillis, detail)));
+        assertEquals(10_001_096L, restored.getBalancePaise());
+        assertEquals(YESTERDAY.toEpochDay(), restored.getInterestAccruedEpochDay());
+    }
+
+    @Test
+    @DisplayName("Test credits whose journal write fails are taken back")
+    void testJournalFailureTakesBackCredit() throws IOException {
+        Path full = Path.of("/dev/full");
+        assumeTrue(Files.isWritable(full), "Needs a device that fails every write");
+        AccountRegistry registry = new AccountRegistry(4, 16);
+        Account account = new Account("100000001", "Saver", 100_000.0, "1234");
+        registry.register(account);
+        InterestEngine engine = new InterestEngine(registry, 400, a -> true, ForkJoinPool.commonPool());
+        try (TransactionJournal journal = new TransactionJournal(full, 0)) {
+            account.setJournal(journal);
+            InterestEngine.Summary failed = engine.accrue(YESTERDAY, ZoneOffset.UTC);
+            assertEquals(0L, failed.getAccountsCredited());
+            assertEquals(1L, failed.getAccountsFailed());
+            assertEquals(0L, failed.getInterestPaise());
+        }
+        assertEquals(10_000_000L, account.getBalancePaise());
+        assertEquals(Long.MIN_VALUE, account.getInterestAccruedEpochDay());
+
+        // The day can still be credited once the journal works again
+        Path path = Files.createTempFile("journal", ".dat");
+        try (TransactionJournal journal = new TransactionJournal(path, 0)) {
+            account.setJournal(journal);
+            assertEquals(1L, engine.accrue(YESTERDAY, ZoneOffset.UTC).getAccountsCredited());
+        }
+        assertEquals(10_001_096L, account.getBalancePaise());
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    @DisplayName("Test rerun credits nothing after the history ring has wrapped")
+    void testRerunAfterHistoryWraps() {
+        AccountRegistry registry = new AccountRegistry(4, 16);
+        Account account = new Account("100000001", "Saver", 100_000.0, "1234");
+        registry.register(account);
+        InterestEngine engine = new InterestEngine(registry, 400, a -> true, ForkJoinPool.commonPool());
+        assertEquals(1L, engine.accrue(YESTERDAY, ZoneOffset.UTC).getAccountsCredited());
+
+        for (int i = 0; i < ATMConstants.MAX_TRANSACTION_HISTORY + 10; i++) {
+            account.deposit(1.0);
+        }
+        long balance = account.getBalancePaise();
+        InterestEngine.Summary rerun = engine.accrue(YESTERDAY, ZoneOffset.UTC);
+        assertEquals(0L, rerun.getAccountsCredited());
+        assertEquals(0L, rerun.getAccountsFailed());
+        assertEquals(1L, rerun.getAccountsSkipped());
+        assertEquals(balance, account.getBalancePaise());
+        // An earlier day than the last credited one is never credited either, and is reported
+        InterestEngine.Summary earlier = engine.accrue(YESTERDAY.minusDays(1), ZoneOffset.UTC);
+        assertEquals(0L, earlier.getAccountsCredited());
+        assertEquals(1L, earlier.getAccountsSkipped());
+    }
+
+    @Test
+    @DisplayName("Test a day the kept history no longer covers fails instead of crediting")
+    void testShortHistoryFails() {
+        AccountRegistry registry = new AccountRegistry(4, 16);
+        Account account = new Account("100000001", "Saver", 100_000.0, "1234");
+        registry.register(account);
+        for (int i = 0; i < ATMConstants.MAX_TRANSACTION_HISTORY + 1; i++) {
+            account.deposit(1.0);
+        }
+        long balance = account.getBalancePaise();
+
+        InterestEngine.Summary summary = new InterestEngine(registry, 400, a -> true, ForkJoinPool.commonPool())
+            .accrue(YESTERDAY, ZoneOffset.UTC);
+        assertEquals(0L, summary.getAccountsCredited());
+        assertEquals(1L, summary.getAccountsFailed());
+        assertEquals(balance, account.getBalancePaise());
+
+        TransactionHistory history = new TransactionHistory(2);
+        history.record(TransactionHistory.TYPE_DEPOSIT, 1, 1, 1_000_000L, null);
+        history.record(TransactionHistory.TYPE_DEPOSIT, 1, 2, 2_000_000L, null);
+        assertTrue(history.coversSince(500L));
+        history.record(TransactionHistory.TYPE_DEPOSIT, 1, 3, 3_000_000L, null);
+        assertFalse(history.coversSince(500L));
+        assertTrue(history.coversSince(2_000L));
+    }
+
+    @Test
+    @DisplayName("Test concurrent runs for the same day credit each account once")
+    void testConcurrentRunsCreditOnce() throws Exception {
+        AccountRegistry registry = new AccountRegistry(16, 4096);
+        int accounts = 2_000;
+        for (int i = 0; i < accounts; i++) {
+            registry.register(new Account(String.valueOf(100_000_000 + i), "Saver", 100_000.0, "1234"));
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            InterestEngine engine = new InterestEngine(registry, 400, a -> true, pool);
+            CompletableFuture<InterestEngine.Summary> first = CompletableFuture.supplyAsync(() -> {
+                awaitQuietly(start);
+                return engine.accrue(YESTERDAY, ZoneOffset.UTC);
+            });
+            CompletableFuture<InterestEngine.Summary> second = CompletableFuture.supplyAsync(() -> {
+                awaitQuietly(start);
+                return engine.accrue(YESTERDAY, ZoneOffset.UTC);
+            });
+            start.countDown();
+
+            assertEquals(accounts, first.get().getAccountsCredited() + second.get().getAccountsCredited());
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < accounts; i++) {
+            assertEquals(10_001_096L, registry.find(String.valueOf(100_000_000 + i)).getBalancePaise());
+        }
+    }
+
+    @Test
+    @DisplayName("Test the accrued-through date survives a snapshot")
+    void testAccruedDateInSnapshot() throws IOException {
+        Path path = Files.createTempFile("snapshot", ".dat");
+        AccountRegistry registry = new AccountRegistry(4, 16);
+        registry.register(new Account("100000001", "Saver", 100_000.0, "1234"));
+        new InterestEngine(registry, 400, a -> true, ForkJoinPool.commonPool()).accrue(YESTERDAY, ZoneOffset.UTC);
+        AccountSnapshot.write(registry, path, null);
+
+        AccountRegistry loaded = new AccountRegistry(4, 16);
+        AccountSnapshot.load(path, loaded);
+        Account account = loaded.find("100000001");
+        assertEquals(YESTERDAY.toEpochDay(), account.getInterestAccruedEpochDay());
+        assertEquals(0L, new InterestEngine(loaded, 400, a -> true, ForkJoinPool.commonPool())
+            .accrue(YESTERDAY, ZoneOffset.UTC).getAccountsCredited());
+        assertEquals(10_001_096L, account.getBalancePaise());
+        Files.deleteIfExists(path);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
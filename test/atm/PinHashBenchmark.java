@@ -0,0 +1,70 @@
+package atm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Benchmark for PinHasher
+ * Measures authentications per second, per core and across all cores,
+ * for a range of work factors, so the factor can be set against the peak
+ * login rate a host must sustain. One authentication is one
+ * Account.validatePin call against a stored hash
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class PinHashBenchmark {
+
+    private static final long RUN_NANOS = 1_000_000_000L;
+
+    public static void main(String[] args) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] factors = {1_000, 1_000, 5_000, ATMConstants.PIN_HASH_ITERATIONS, 50_000, 100_000};
+        for (int iterations : factors) {
+            ATMConfig.getInstance().setPinHashIterations(iterations);
+            Account account = new Account("100000001", "Holder", 1_000.0, "1234");
+            double single = run(account, 1);
+            double all = cores > 1 ? run(account, cores) : single;
+            System.out.printf("%,7d iterations: %,8.0f auths/s per core, %,8.0f auths/s on %d cores, %.2f ms each%n",
+                    iterations, single, all, cores, 1_000.0 / single);
+        }
+        ATMConfig.getInstance().setPinHashIterations(ATMConstants.PIN_HASH_ITERATIONS);
+    }
+
+    private static double run(Account account, int threads) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        long[] counts = new long[threads];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int slot = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long deadline = System.nanoTime() + RUN_NANOS;
+                long count = 0;
+                while (System.nanoTime() < deadline) {
+                    // Alternate right and wrong PINs; both cost a full stretch
+                    if (account.validatePin((count & 1) == 0 ? "1234" : "4321") != ((count & 1) == 0)) {
+                        throw new IllegalStateException("PIN check failed");
+                    }
+                    count++;
+                }
+                counts[slot] = count;
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        long total = 0;
+        for (int t = 0; t < threads; t++) {
+            workers.get(t).join();
+            total += counts[t];
+        }
+        return total * 1e9 / RUN_NANOS;
+    }
+}
@@ -0,0 +1,97 @@
+package atm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * JUnit test class for PinHasher functionality
+ * Tests hash format, verification, the configurable work factor and hashed account credentials
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class PinHasherTest {
+
+    @AfterEach
+    void tearDown() {
+        ATMConfig.getInstance().setPinHashIterations(ATMConstants.PIN_HASH_ITERATIONS);
+    }
+
+    @Test
+    @DisplayName("Test hashes are salted and verify only the right PIN")
+    void testHashAndVerify() {
+        String first = PinHasher.hash("1234", 1_000);
+        String second = PinHasher.hash("1234", 1_000);
+        assertTrue(first.startsWith("$pbkdf2-sha256$1000$"));
+        assertNotEquals(first, second);
+        assertTrue(PinHasher.verify("1234", first));
+        assertTrue(PinHasher.verify("1234", second));
+        assertFalse(PinHasher.verify("4321", first));
+        assertFalse(PinHasher.verify(null, first));
+        assertFalse(PinHasher.verify("1234", "1234"));
+        assertFalse(PinHasher.verify("1234", "$pbkdf2-sha256$x$y$z"));
+        assertThrows(IllegalArgumentException.class, () -> PinHasher.hash("1234", 0));
+    }
+
+    @Test
+    @DisplayName("Test the hash matches the JDK PBKDF2 implementation")
+    void testMatchesPbkdf2() throws Exception {
+        String encoded = PinHasher.hash("2468", 2_000);
+        String[] fields = encoded.split("\\$");
+        byte[] salt = Base64.getDecoder().decode(fields[3]);
+        PBEKeySpec spec = new PBEKeySpec("2468".toCharArray(), salt, 2_000, 256);
+        byte[] expected = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        assertArrayEquals(expected, Base64.getDecoder().decode(fields[4]));
+    }
+
+    @Test
+    @DisplayName("Test the work factor is configurable and kept per hash")
+    void testConfigurableWorkFactor() {
+        ATMConfig.getInstance().setPinHashIterations(500);
+        Account account = new Account("100000001", "Holder", 100.0, "1234");
+        assertEquals(500, PinHasher.getIterations(account.getPinHash()));
+        ATMConfig.getInstance().setPinHashIterations(2_000);
+        assertTrue(account.validatePin("1234"));
+        assertTrue(account.changePin("1234", "5678"));
+        assertEquals(2_000, PinHasher.getIterations(account.getPinHash()));
+        assertTrue(account.validatePin("5678"));
+        assertFalse(account.validatePin("1234"));
+        ATMConfig.getInstance().setPinHashIterations(0);
+        assertEquals(2_000, ATMConfig.getInstance().getPinHashIterations());
+        assertTrue(SecurityUtil.encryptPin("9999").startsWith("$pbkdf2-sha256$2000$"));
+    }
+
+    @Test
+    @DisplayName("Test accounts never store or persist the plain PIN")
+    void testAccountsPersistHashOnly() throws IOException {
+        ATMConfig.getInstance().setPinHashIterations(100);
+        AccountRegistry registry = new AccountRegistry(4, 16);
+        Account account = new Account("100000001", "Holder", 100.0, "1357");
+        registry.register(account);
+        assertTrue(PinHasher.isHash(account.getPinHash()));
+        Path path = Files.createTempFile("snapshot", ".dat");
+        AccountSnapshot.write(registry, path, null);
+        AccountRegistry restored = new AccountRegistry(4, 16);
+        AccountSnapshot.load(path, restored);
+        assertEquals(account.getPinHash(), restored.find("100000001").getPinHash());
+        assertNotNull(restored.authenticate("100000001", "1357"));
+        assertNull(restored.authenticate("100000001", "7531"));
+        // A journal written before hashing carries the plain PIN; it is hashed on replay
+        Account replayed = restored.find("100000001");
+        assertTrue(replayed.applyJournalEntry(1_000L, TransactionHistory.TYPE_PIN_CHANGE, 0L,
+                                              System.currentTimeMillis(), "2468"));
+        assertTrue(PinHasher.isHash(replayed.getPinHash()));
+        assertTrue(replayed.validatePin("2468"));
+        Files.deleteIfExists(path);
+    }
+}
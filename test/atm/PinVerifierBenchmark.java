@@ -0,0 +1,91 @@
+package atm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark for PinVerifier
+ * A burst of terminals logs in at once, each sending LOGIN as soon as its
+ * previous one finished. Inline, every terminal thread runs its own PIN
+ * stretch; pooled, the terminals hand the checks to a core-sized
+ * PinVerifier and only wait. Reports login throughput, how long a
+ * terminal thread stays busy per login, and the pool's queue time and
+ * refusals for queues of different sizes
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class PinVerifierBenchmark {
+
+    private static final int TERMINALS = 64;
+    private static final int LOGINS_PER_TERMINAL = 20;
+
+    public static void main(String[] args) throws InterruptedException {
+        ATMConfig.getInstance().setPinHashIterations(args.length > 0 ? Integer.parseInt(args[0]) : 2_000);
+        Account account = new Account("100000001", "Holder", 1_000.0, "1234");
+        for (int round = 0; round < 2; round++) {
+            run("inline", account, null);
+            for (int capacity : new int[] {TERMINALS, TERMINALS / 4}) {
+                try (PinVerifier verifier = new PinVerifier(Runtime.getRuntime().availableProcessors(), capacity)) {
+                    run("pooled, queue " + capacity, account, verifier);
+                    System.out.printf("%-20s queue time avg %.0f us, max %,d us, %d refused%n", "",
+                            verifier.getAverageQueueMicros(), verifier.getMaxQueueMicros(),
+                            verifier.getRejectedCount());
+                }
+            }
+        }
+        ATMConfig.getInstance().setPinHashIterations(ATMConstants.PIN_HASH_ITERATIONS);
+    }
+
+    private static void run(String label, Account account, PinVerifier verifier) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong logins = new AtomicLong();
+        AtomicLong busy = new AtomicLong();
+        AtomicLong cpuNanos = new AtomicLong();
+        List<Thread> terminals = new ArrayList<>();
+        for (int t = 0; t < TERMINALS; t++) {
+            Thread terminal = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long cpuBefore = threadCpuNanos();
+                for (int i = 0; i < LOGINS_PER_TERMINAL; i++) {
+                    if (verifier == null) {
+                        account.validatePin("1234");
+                        logins.incrementAndGet();
+                        continue;
+                    }
+                    CompletableFuture<Boolean> result = verifier.verify(account, "1234");
+                    if (result.isCompletedExceptionally()) {
+                        busy.incrementAndGet();
+                    } else {
+                        result.join();
+                        logins.incrementAndGet();
+                    }
+                }
+                cpuNanos.addAndGet(threadCpuNanos() - cpuBefore);
+            });
+            terminals.add(terminal);
+            terminal.start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread terminal : terminals) {
+            terminal.join();
+        }
+        long nanos = System.nanoTime() - began;
+        long attempts = (long) TERMINALS * LOGINS_PER_TERMINAL;
+        System.out.printf("%-20s %,7.0f logins/s, terminal CPU %,6.0f us per attempt, %d answered busy%n",
+                label, logins.get() * 1e9 / nanos, cpuNanos.get() / 1000.0 / attempts, busy.get());
+    }
+
+    private static long threadCpuNanos() {
+        return java.lang.management.ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+    }
+}
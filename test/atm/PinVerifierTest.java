@@ -0,0 +1,165 @@
+package atm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * JUnit test class for PinVerifier functionality
+ * Tests pooled PIN checks, refusal when saturated, queue-time metrics and terminal logins
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class PinVerifierTest {
+
+    @BeforeEach
+    void setUp() {
+        ATMConfig.getInstance().setPinHashIterations(1_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ATMConfig.getInstance().setPinHashIterations(ATMConstants.PIN_HASH_ITERATIONS);
+    }
+
+    /**
+     * Session whose PIN check waits until released, to hold a verifier thread
+     */
+    private static final class HeldService extends ATMService {
+        private final CountDownLatch running = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        HeldService(Account account) {
+            super(account);
+        }
+
+        @Override
+        public boolean authenticate(String pin) {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.authenticate(pin);
+        }
+    }
+
+    @Test
+    @DisplayName("Test PIN checks run on the pool and count attempts")
+    void testVerifyOnPool() {
+        Account account = new Account("100000001", "Holder", 100.0, "1234");
+        ATMService service = new ATMService(account);
+        PinVerifier verifier = new PinVerifier(2, 8);
+        try (verifier) {
+            assertTrue(verifier.verify(account, "1234").join());
+            assertFalse(verifier.verify(account, "9999").join());
+            assertFalse(verifier.authenticate(service, "9999").join());
+            assertEquals(1, service.getFailedLoginAttempts());
+        }
+        assertEquals(3, verifier.getCompletedCount());
+        assertEquals(0, verifier.getRejectedCount());
+        assertEquals(2, verifier.getThreadCount());
+    }
+
+    @Test
+    @DisplayName("Test a check that throws an Error still completes its future")
+    void testErrorCompletesFuture() {
+        Account account = new Account("100000001", "Holder", 100.0, "1234");
+        ATMService broken = new ATMService(account) {
+            @Override
+            public boolean authenticate(String pin) {
+                throw new AssertionError("check crashed");
+            }
+        };
+        try (PinVerifier verifier = new PinVerifier(1, 8)) {
+            CompletionException e = assertThrows(CompletionException.class,
+                                                 () -> verifier.authenticate(broken, "1234").join());
+            assertTrue(e.getCause() instanceof AssertionError);
+            assertTrue(verifier.verify(account, "1234").join());
+        }
+    }
+
+    @Test
+    @DisplayName("Test a saturated pool refuses checks at once")
+    void testBackpressure() throws InterruptedException {
+        Account account = new Account("100000001", "Holder", 100.0, "1234");
+        HeldService held = new HeldService(account);
+        try (PinVerifier verifier = new PinVerifier(1, 2)) {
+            CompletableFuture<Boolean> first = verifier.authenticate(held, "1234");
+            held.running.await();
+            List<CompletableFuture<Boolean>> queued = new ArrayList<>();
+            queued.add(verifier.verify(account, "1234"));
+            queued.add(verifier.verify(account, "1234"));
+            assertTrue(verifier.isSaturated());
+            assertEquals(2, verifier.getQueueDepth());
+
+            CompletableFuture<Boolean> refused = verifier.verify(account, "1234");
+            assertTrue(refused.isCompletedExceptionally());
+            CompletionException e = assertThrows(CompletionException.class, refused::join);
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+            assertEquals(1, verifier.getRejectedCount());
+
+            held.release.countDown();
+            assertTrue(first.join());
+            for (CompletableFuture<Boolean> future : queued) {
+                assertTrue(future.join());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test queue time is measured for waiting checks")
+    void testQueueTimeMetrics() throws InterruptedException {
+        Account account = new Account("100000001", "Holder", 100.0, "1234");
+        HeldService held = new HeldService(account);
+        try (PinVerifier verifier = new PinVerifier(1, 4)) {
+            assertEquals(0.0, verifier.getAverageQueueMicros());
+            verifier.authenticate(held, "1234");
+            held.running.await();
+            CompletableFuture<Boolean> waiting = verifier.verify(account, "1234");
+            Thread.sleep(20);
+            held.release.countDown();
+            assertTrue(waiting.join());
+            assertTrue(verifier.getMaxQueueMicros() >= 20_000, "max " + verifier.getMaxQueueMicros());
+            assertTrue(verifier.getAverageQueueMicros() >= 10_000, "avg " + verifier.getAverageQueueMicros());
+            assertTrue(verifier.getAverageQueueMicros() <= verifier.getMaxQueueMicros());
+        }
+    }
+
+    @Test
+    @DisplayName("Test terminal logins use the verifier and answer busy when refused")
+    void testTerminalLogin() {
+        AccountRegistry registry = new AccountRegistry();
+        registry.register(new Account("987654321", "Test User", 10000.0, "1234"));
+        try (AffinityScheduler scheduler = new AffinityScheduler(2, 8);
+             PinVerifier verifier = new PinVerifier(1, 4)) {
+            TerminalSession session = new TerminalSession(null, registry, null, scheduler, verifier);
+            assertEquals("ERR INVALID_PIN 2", session.handle("LOGIN 987654321 9999"));
+            assertEquals("OK Test User", session.handle("LOGIN 987654321 1234"));
+            assertEquals("OK 10500.00", session.handle("DEPOSIT 500"));
+            assertEquals(2, verifier.getCompletedCount());
+
+            PinVerifier closed = new PinVerifier(1, 4);
+            closed.close();
+            TerminalSession busy = new TerminalSession(null, registry, null, scheduler, closed);
+            assertEquals("ERR BUSY", busy.handle("LOGIN 987654321 9999"));
+            // Refused checks never ran, so they cannot use up the terminal's attempts
+            for (int i = 0; i < ATMConstants.MAX_PIN_ATTEMPTS; i++) {
+                assertEquals("ERR BUSY", busy.handle("LOGIN 987654321 9999"));
+            }
+            assertEquals(ATMConstants.MAX_PIN_ATTEMPTS + 1, closed.getRejectedCount());
+        }
+    }
+}
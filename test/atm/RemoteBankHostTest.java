@@ -0,0 +1,183 @@
+package atm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * JUnit test class for RemoteBankHost and HostSimulator functionality
+ * Runs ATMService against a simulated remote host over loopback
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class RemoteBankHostTest {
+
+    private AccountRegistry hostAccounts;
+    private HostSimulator host;
+    private RemoteBankHost remote;
+
+    private void connect(long latencyMicros, long jitterMicros) throws IOException {
+        connect(latencyMicros, jitterMicros, 256, ATMConstants.HOST_TIMEOUT_MILLIS);
+    }
+
+    private void connect(long latencyMicros, long jitterMicros, int maxInFlight, long timeoutMillis)
+            throws IOException {
+        hostAccounts = new AccountRegistry();
+        hostAccounts.register(new Account("987654321", "Test User", 10000.0, "1234"));
+        hostAccounts.register(new Account("123456789", "Other User", 500.0, "4321"));
+        host = new HostSimulator(hostAccounts, latencyMicros, jitterMicros);
+        int port = host.start(0);
+        remote = new RemoteBankHost(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), maxInFlight,
+                                    timeoutMillis);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (remote != null) {
+            remote.close();
+        }
+        if (host != null) {
+            host.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Test ATMService operations are applied by the remote host")
+    void testServiceUsesHost() throws IOException {
+        connect(0, 0);
+        Account card = new Account("987654321", "Test User", 10000.0, "1234");
+        ATMService service = new ATMService(card);
+        service.setBankHost(remote);
+
+        assertTrue(service.depositMoney(1000.0));
+        assertTrue(service.withdrawMoney(500.0));
+        assertFalse(service.withdrawMoney(90000.0));
+        assertTrue(service.transferMoney(2000.0, "123456789"));
+        assertEquals(8500.0, service.checkBalance(), 0.001);
+
+        assertEquals(850000L, hostAccounts.find("987654321").getBalancePaise());
+        assertEquals(250000L, hostAccounts.find("123456789").getBalancePaise());
+        assertEquals(1000000L, card.getBalancePaise());
+    }
+
+    @Test
+    @DisplayName("Test outstanding requests are pipelined over one connection despite jitter")
+    void testPipelining() throws Exception {
+        connect(50_000, 20_000);
+        Account card = new Account("987654321", "Test User", 10000.0, "1234");
+        int requests = 100;
+        long start = System.nanoTime();
+        List<CompletableFuture<HostReply>> replies = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            replies.add(remote.submit(TransactionType.DEPOSIT, card, 100, null));
+        }
+        for (CompletableFuture<HostReply> reply : replies) {
+            assertTrue(reply.get(10, TimeUnit.SECONDS).isApproved());
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // One at a time would take at least 100 x 30 ms
+        assertTrue(millis < 1500, "took " + millis + " ms");
+        assertEquals(1010000L, hostAccounts.find("987654321").getBalancePaise());
+        assertEquals(0, remote.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Test a lost host fails requests and the ATM refuses the operation")
+    void testHostLost() throws Exception {
+        connect(200_000, 0);
+        Account card = new Account("987654321", "Test User", 10000.0, "1234");
+        CompletableFuture<HostReply> pending = remote.submit(TransactionType.BALANCE_INQUIRY, card, 0, null);
+        host.close();
+        assertThrows(ExecutionException.class, () -> pending.get(10, TimeUnit.SECONDS));
+
+        DailyLimitTracker tracker = new DailyLimitTracker(5, 10_000_000L);
+        ATMService service = new ATMService(card);
+        service.setBankHost(remote);
+        service.setDailyLimitTracker(tracker);
+        assertFalse(service.depositMoney(100.0));
+        assertEquals(0, tracker.getTransactionCount(card));
+        assertEquals(10000.0, service.checkBalance(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Test batches are refused while a remote host keeps the ledger or a transaction is unresolved")
+    void testBatchRefused() throws Exception {
+        connect(300_000, 0, 4, 50);
+        Account card = new Account("987654321", "Test User", 10000.0, "1234");
+        ATMService service = new ATMService(card);
+        service.setBankHost(remote);
+        TransactionBatch batch = new TransactionBatch().deposit(100.0);
+        assertEquals(List.of(BatchResult.REJECTED), service.submitBatch(batch));
+
+        assertFalse(service.withdrawMoney(500.0));
+        assertTrue(service.hasUnresolvedTransaction());
+        service.setBankHost(new LocalBankHost(null));
+        assertEquals(List.of(BatchResult.REJECTED), service.submitBatch(batch));
+        assertEquals(1_000_000L, card.getBalancePaise());
+
+        service.reconcile(false);
+        assertEquals(List.of(BatchResult.APPLIED), service.submitBatch(batch));
+        assertEquals(1_010_000L, card.getBalancePaise());
+    }
+
+    @Test
+    @DisplayName("Test timed-out requests give back their in-flight slots")
+    void testTimeoutReleasesSlot() throws Exception {
+        connect(300_000, 0, 2, 50);
+        Account card = new Account("987654321", "Test User", 10000.0, "1234");
+        for (int i = 0; i < 6; i++) {
+            CompletableFuture<HostReply> reply = remote.submit(TransactionType.BALANCE_INQUIRY, card, 0, null);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> reply.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(0, remote.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Test a timed-out withdrawal is held for reconciliation instead of rolled back")
+    void testTimeoutHeldForReconciliation() throws Exception {
+        connect(300_000, 0, 4, 50);
+        Account card = new Account("987654321", "Test User", 10000.0, "1234");
+        DailyLimitTracker tracker = new DailyLimitTracker(5, 10_000_000L);
+        ATMService service = new ATMService(card);
+        service.setBankHost(remote);
+        service.setDailyLimitTracker(tracker);
+
+        assertFalse(service.withdrawMoney(500.0));
+        assertTrue(service.hasUnresolvedTransaction());
+        assertEquals(1, tracker.getTransactionCount(card));
+        assertEquals(50_000L, tracker.getWithdrawnPaise(card));
+        assertFalse(service.depositMoney(100.0));
+
+        // The host applied it after all
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (hostAccounts.find("987654321").getBalancePaise() != 950_000L
+               && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(950_000L, hostAccounts.find("987654321").getBalancePaise());
+        service.reconcile(true);
+        assertFalse(service.hasUnresolvedTransaction());
+        assertEquals(1, tracker.getTransactionCount(card));
+        assertThrows(IllegalStateException.class, () -> service.reconcile(false));
+
+        assertFalse(service.withdrawMoney(200.0));
+        service.reconcile(false);
+        assertEquals(1, tracker.getTransactionCount(card));
+        assertEquals(50_000L, tracker.getWithdrawnPaise(card));
+    }
+}
@@ -0,0 +1,59 @@
+package atm;
+
+import java.time.ZoneOffset;
+import java.util.SplittableRandom;
+
+/**
+ * Benchmark for ReplenishmentForecaster
+ * Streams six months of withdrawals, in time order, through one forecaster
+ * and reports the cost per withdrawal and the heap retained afterwards,
+ * which should not grow with the length of the history
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class ReplenishmentForecastBenchmark {
+
+    private static final long DAY = 86_400_000L;
+    private static final int DAYS = 180;
+
+    public static void main(String[] args) {
+        for (int perDay : new int[] {10_000, 50_000}) {
+            run(perDay);
+        }
+    }
+
+    private static void run(int perDay) {
+        long asOf = System.currentTimeMillis();
+        long start = asOf - DAYS * DAY;
+        int steps = (int) (ATMConstants.MAX_WITHDRAWAL_AMOUNT / 100);
+        long withdrawals = (long) DAYS * perDay;
+        for (int round = 0; round < 3; round++) {
+            SplittableRandom random = new SplittableRandom(42);
+            long heapBefore = usedHeap();
+            ReplenishmentForecaster forecaster = new ReplenishmentForecaster("T1", CashInventory.standard(), asOf,
+                    ZoneOffset.UTC, ATMConstants.REPLENISH_HALF_LIFE_DAYS);
+            long began = System.nanoTime();
+            for (long i = 0; i < withdrawals; i++) {
+                long time = start + i * (DAYS * DAY / withdrawals);
+                forecaster.addWithdrawal(10_000L * (1 + random.nextInt(steps)), time);
+            }
+            ReplenishmentForecaster.RefillPlan plan = forecaster.forecast(ATMConstants.REPLENISH_HORIZON_DAYS,
+                    ATMConstants.REPLENISH_LEAD_DAYS, ATMConstants.REPLENISH_CYCLE_DAYS,
+                    ATMConstants.REPLENISH_SAFETY_PERCENT);
+            long nanos = System.nanoTime() - began;
+            long retained = usedHeap() - heapBefore;
+            System.out.printf("%,d withdrawals: %.1f ns each, %,d KB retained, refill %s%n",
+                    withdrawals, nanos / (double) withdrawals, Math.max(0L, retained) / 1024, plan.getRefillDate());
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,144 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JUnit test class for ReplenishmentForecaster and ReplenishmentJob functionality
+ * Tests weekday demand, depletion dates, refill sizing and routing history to terminals
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class ReplenishmentForecasterTest {
+
+    private static final int[] NOTES = {2000, 500, 200, 100};
+    private static final long DAY = 86_400_000L;
+    // Monday 2026-10-12, 09:00 UTC
+    private static final LocalDate MONDAY = LocalDate.of(2026, 10, 12);
+    private static final long AS_OF = MONDAY.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() + 9 * 3_600_000L;
+
+    private static long noonDaysAgo(int days) {
+        return MONDAY.minusDays(days).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() + DAY / 2;
+    }
+
+    private static ReplenishmentForecaster fourWeeks(CashInventory inventory) {
+        // Equal weights keep the expected demand exact
+        ReplenishmentForecaster forecaster = new ReplenishmentForecaster("T1", inventory, AS_OF, ZoneOffset.UTC,
+                                                                         Double.POSITIVE_INFINITY);
+        for (int days = 1; days <= 28; days++) {
+            long time = noonDaysAgo(days);
+            boolean saturday = MONDAY.minusDays(days).getDayOfWeek().getValue() == 6;
+            forecaster.addWithdrawal(saturday ? 1_000_000L : 260_000L, time);
+        }
+        return forecaster;
+    }
+
+    @Test
+    @DisplayName("Test demand is averaged per weekday and in notes")
+    void testWeekdayDemand() {
+        ReplenishmentForecaster forecaster = fourWeeks(new CashInventory(NOTES, new int[] {2500, 2500, 2500, 2500}));
+        ReplenishmentForecaster.RefillPlan plan = forecaster.forecast(60, 1, 7, 20);
+
+        assertEquals(28L, forecaster.getWithdrawals());
+        assertEquals(24 * 260_000L + 4 * 1_000_000L, forecaster.getWithdrawnPaise());
+        assertEquals(11 / 7.0, plan.getDailyDemand().get(2000), 1e-12);
+        assertEquals(6 / 7.0, plan.getDailyDemand().get(500), 1e-12);
+        assertEquals(0.0, plan.getDailyDemand().get(200), 1e-12);
+        assertEquals(6 / 7.0, plan.getDailyDemand().get(100), 1e-12);
+        assertNull(plan.getRefillDate());
+        assertTrue(plan.getRefillNotes().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test depletion date and refill sized to one cycle plus margin")
+    void testDepletionAndRefill() {
+        // 2000s go 1 a day and 5 on Saturday: 12 notes last until Tuesday of next week
+        ReplenishmentForecaster forecaster = fourWeeks(new CashInventory(NOTES, new int[] {12, 100, 100, 100}));
+        ReplenishmentForecaster.RefillPlan plan = forecaster.forecast(60, 1, 7, 20);
+
+        assertEquals(Map.of(2000, MONDAY.plusDays(8)), plan.getDepletion());
+        assertEquals(MONDAY.plusDays(7), plan.getRefillDate());
+        // One week needs 11 notes, 14 with the margin, and 1 is left
+        assertEquals(Map.of(2000, 13), plan.getRefillNotes());
+    }
+
+    @Test
+    @DisplayName("Test refill is capped by cassette capacity")
+    void testRefillCappedByCapacity() {
+        ReplenishmentForecaster forecaster = new ReplenishmentForecaster("T1",
+                new CashInventory(NOTES, new int[] {2500, 0, 0, 0}), AS_OF, ZoneOffset.UTC, Double.POSITIVE_INFINITY);
+        for (int days = 1; days <= 14; days++) {
+            for (int i = 0; i < 100; i++) {
+                forecaster.addWithdrawal(1_000_000L, noonDaysAgo(days));
+            }
+        }
+        ReplenishmentForecaster.RefillPlan plan = forecaster.forecast(60, 1, 7, 20);
+
+        assertEquals(MONDAY.plusDays(5), plan.getDepletion().get(2000));
+        assertEquals(MONDAY.plusDays(4), plan.getRefillDate());
+        assertEquals(Map.of(2000, ATMConstants.CASSETTE_CAPACITY - 500), plan.getRefillNotes());
+    }
+
+    @Test
+    @DisplayName("Test unplannable and future withdrawals are left out")
+    void testSkippedWithdrawals() {
+        ReplenishmentForecaster forecaster = new ReplenishmentForecaster("T1",
+                new CashInventory(NOTES, new int[] {10, 10, 10, 10}), AS_OF, ZoneOffset.UTC, 28.0);
+        forecaster.addWithdrawal(15_000L, noonDaysAgo(1));
+        forecaster.addWithdrawal(10_050L, noonDaysAgo(1));
+        forecaster.addWithdrawal(200_000L, AS_OF);
+        forecaster.accept(TransactionHistory.TYPE_DEPOSIT, 200_000L, 0L, noonDaysAgo(1));
+
+        assertEquals(2L, forecaster.getWithdrawals());
+        assertEquals(2L, forecaster.getUnplanned());
+        assertNull(forecaster.forecast(60, 1, 7, 20).getRefillDate());
+        assertThrows(IllegalArgumentException.class,
+                     () -> new ReplenishmentForecaster("T1", new CashInventory(NOTES, new int[4]), AS_OF,
+                                                       ZoneOffset.UTC, 0.0));
+    }
+
+    @Test
+    @DisplayName("Test job routes journal and account history to terminals")
+    void testJobRoutesHistory() throws IOException {
+        Path path = Files.createTempFile("journal", ".dat");
+        long now = System.currentTimeMillis();
+        try (TransactionJournal journal = new TransactionJournal(path, 0)) {
+            for (long time = now - 14 * DAY; time < now; time += DAY) {
+                journal.append(TransactionHistory.TYPE_WITHDRAWAL, "100000001", 1_000_000L, 0L, time, null);
+                journal.append(TransactionHistory.TYPE_WITHDRAWAL, "100000002", 200_000L, 0L, time, null);
+                journal.append(TransactionHistory.TYPE_DEPOSIT, "100000001", 500_000L, 0L, time, null);
+                journal.append(TransactionHistory.TYPE_WITHDRAWAL, "100000009", 500_000L, 0L, time, null);
+            }
+        }
+        Map<String, String> terminals = Map.of("100000001", "T-BUSY", "100000002", "T-QUIET", "100000003", "T-QUIET");
+        ReplenishmentJob job = new ReplenishmentJob(terminals::get, now + 2 * DAY, ZoneOffset.UTC);
+        job.addTerminal("T-QUIET", new CashInventory(NOTES, new int[] {2500, 2500, 2500, 2500}));
+        job.addTerminal("T-BUSY", new CashInventory(NOTES, new int[] {20, 2500, 2500, 2500}));
+        assertThrows(IllegalArgumentException.class,
+                     () -> job.addTerminal("T-BUSY", new CashInventory(NOTES, new int[4])));
+
+        assertEquals(28L, job.readJournal(path));
+        Account account = new Account("100000003", "Walk-in", 10_000.0, "1234");
+        assertTrue(account.withdraw(2000.0));
+        assertTrue(job.addHistory(account));
+        assertFalse(job.addHistory(new Account("100000004", "Elsewhere", 10_000.0, "1234")));
+
+        List<ReplenishmentForecaster.RefillPlan> plans = job.schedule();
+        assertEquals("T-BUSY", plans.get(0).getTerminalId());
+        assertNotNull(plans.get(0).getRefillDate());
+        assertEquals("T-QUIET", plans.get(1).getTerminalId());
+        assertNull(plans.get(1).getRefillDate());
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,61 @@
+package atm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark for SessionManager timing-wheel expiry
+ * Starts a growing number of sessions spread over twenty seconds, then
+ * measures a tick with nothing due, a tick of warnings, and the ticks that
+ * expire every session. The idle tick should not grow with the sessions
+ * alive, and expiry should cost the same per session at every size
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class SessionExpiryBenchmark {
+
+    private static final long TIMEOUT = 300_000L;
+    private static final long WARNING = 30_000L;
+    private static final long TICK = 1_000L;
+    private static final int SPREAD_TICKS = 20;
+
+    public static void main(String[] args) {
+        for (int sessions : new int[] {10_000, 10_000, 100_000, 500_000}) {
+            run(sessions);
+        }
+    }
+
+    private static void run(int count) {
+        AtomicLong clock = new AtomicLong();
+        SessionManager manager = new SessionManager(TIMEOUT, WARNING, TICK, null, clock::get);
+        int perTick = count / SPREAD_TICKS + 1;
+        for (int i = 0; i < count; i++) {
+            if (i % perTick == 0) {
+                clock.addAndGet(TICK);
+                manager.advance(clock.get());
+            }
+            manager.startSession("ACC" + i);
+        }
+
+        // Nothing is due for the next few minutes
+        long idleNanos = 0;
+        for (int i = 0; i < 100; i++) {
+            long start = System.nanoTime();
+            manager.advance(clock.addAndGet(TICK));
+            idleNanos += System.nanoTime() - start;
+        }
+
+        long start = System.nanoTime();
+        manager.advance(TIMEOUT - WARNING + SPREAD_TICKS * TICK + TICK);
+        long warnNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int expired = manager.advance(TIMEOUT + SPREAD_TICKS * TICK + TICK);
+        long expireNanos = System.nanoTime() - start;
+
+        System.out.printf("%,9d sessions: idle tick %,.0f ns, warn %.0f ns/session, expire %.0f ns/session (%,d expired)%n",
+                count, idleNanos / 100.0, warnNanos / (double) manager.getWarnedCount(),
+                expireNanos / (double) Math.max(1, expired), expired);
+    }
+}
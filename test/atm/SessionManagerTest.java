@@ -0,0 +1,145 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JUnit test class for SessionManager functionality
+ * Tests concurrent sessions, timing-wheel warnings and expiry, and activity resets
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class SessionManagerTest {
+
+    private static final long TIMEOUT = 300_000L;
+    private static final long WARNING = 30_000L;
+    private static final long TICK = 1_000L;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private final List<String> events = new ArrayList<>();
+
+    private SessionManager newManager() {
+        return new SessionManager(TIMEOUT, WARNING, TICK, new SessionManager.Listener() {
+            @Override
+            public void sessionWarned(SessionManager.Session session) {
+                events.add("warn " + session.getSessionId() + " at " + clock.get());
+            }
+
+            @Override
+            public void sessionExpired(SessionManager.Session session) {
+                events.add("expire " + session.getSessionId() + " at " + clock.get());
+            }
+        }, clock::get);
+    }
+
+    private void advanceTo(SessionManager manager, long millis) {
+        while (clock.get() < millis) {
+            clock.addAndGet(TICK);
+            manager.advance(clock.get());
+        }
+    }
+
+    @Test
+    @DisplayName("Test many sessions are tracked independently")
+    void testConcurrentSessions() {
+        SessionManager manager = newManager();
+        String first = manager.startSession("1234567890");
+        String second = manager.startSession("9876543210");
+
+        assertNotEquals(first, second);
+        assertEquals(2, manager.getActiveSessionCount());
+        assertEquals("9876543210", manager.getSession(second).getAccountNumber());
+        assertTrue(manager.endSession(first));
+        assertFalse(manager.endSession(first));
+        assertNull(manager.getSession(first));
+        assertTrue(manager.hasTimedOut(first));
+        assertFalse(manager.hasTimedOut(second));
+        assertEquals(1, manager.getActiveSessionCount());
+    }
+
+    @Test
+    @DisplayName("Test idle session is warned and then expired on time")
+    void testWarningThenExpiry() {
+        SessionManager manager = newManager();
+        long start = clock.get();
+        String id = manager.startSession("1234567890");
+
+        advanceTo(manager, start + TIMEOUT - WARNING - TICK);
+        assertTrue(events.isEmpty());
+        advanceTo(manager, start + TIMEOUT - WARNING);
+        assertEquals(List.of("warn " + id + " at " + (start + TIMEOUT - WARNING)), events);
+        advanceTo(manager, start + TIMEOUT - TICK);
+        assertEquals(1, events.size());
+        advanceTo(manager, start + TIMEOUT);
+        assertEquals("expire " + id + " at " + (start + TIMEOUT), events.get(1));
+        assertNull(manager.getSession(id));
+        assertFalse(manager.updateActivity(id));
+        assertEquals(1L, manager.getWarnedCount());
+        assertEquals(1L, manager.getExpiredCount());
+    }
+
+    @Test
+    @DisplayName("Test activity postpones expiry and rearms the warning")
+    void testActivityResetsTimer() {
+        SessionManager manager = newManager();
+        long start = clock.get();
+        String id = manager.startSession("1234567890");
+
+        advanceTo(manager, start + TIMEOUT - WARNING);
+        assertEquals(1, events.size());
+        assertTrue(manager.updateActivity(id));
+        long touched = clock.get();
+        advanceTo(manager, start + TIMEOUT + 60_000L);
+        assertEquals(1, events.size());
+        assertTrue(manager.getSession(id).isActive());
+
+        advanceTo(manager, touched + TIMEOUT);
+        assertEquals(List.of("warn " + id + " at " + (touched + TIMEOUT - WARNING),
+                             "expire " + id + " at " + (touched + TIMEOUT)), events.subList(1, 3));
+        assertEquals(0, manager.getActiveSessionCount());
+    }
+
+    @Test
+    @DisplayName("Test hundreds of thousands of sessions expire in their own ticks")
+    void testBulkExpiry() {
+        SessionManager manager = new SessionManager(TIMEOUT, 0L, TICK, null, clock::get);
+        long start = clock.get();
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            if (i % 1000 == 0) {
+                // Spread the starts over 200 seconds
+                clock.addAndGet(TICK);
+                manager.advance(clock.get());
+            }
+            ids.add(manager.startSession("ACC" + i));
+        }
+        assertEquals(200_000, ids.size());
+        assertEquals(200_000, manager.getActiveSessionCount());
+
+        clock.set(start + TIMEOUT);
+        assertEquals(0, manager.advance(clock.get()));
+        clock.set(start + TIMEOUT + TICK);
+        assertEquals(1000, manager.advance(clock.get()));
+        clock.set(start + TIMEOUT + 200 * TICK);
+        assertEquals(199_000, manager.advance(clock.get()));
+        assertEquals(0, manager.getActiveSessionCount());
+        assertEquals(0L, manager.getWarnedCount());
+    }
+
+    @Test
+    @DisplayName("Test invalid timeout settings are rejected")
+    void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new SessionManager(0L, 0L, TICK, null));
+        assertThrows(IllegalArgumentException.class, () -> new SessionManager(TIMEOUT, TIMEOUT, TICK, null));
+        assertThrows(IllegalArgumentException.class, () -> new SessionManager(TIMEOUT, WARNING, 0L, null));
+    }
+}
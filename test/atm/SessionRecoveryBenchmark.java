@@ -0,0 +1,60 @@
+package atm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Benchmark for SessionStateStore
+ * Records a busy terminal fleet's sessions, then reopens the store as a
+ * restarted process would and reports the cost per recorded change and
+ * the recovery time, for a growing number of sessions left open
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class SessionRecoveryBenchmark {
+
+    private static final int UPDATES_PER_SESSION = 10;
+
+    public static void main(String[] args) throws IOException {
+        for (int open : new int[] {1_000, 1_000, 10_000, 100_000}) {
+            run(open);
+        }
+    }
+
+    private static void run(int open) throws IOException {
+        Path path = Files.createTempFile("sessions", ".dat");
+        Files.delete(path);
+        SessionStateStore store = new SessionStateStore(path, false);
+        long records = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < open * 2; i++) {
+            String sessionId = IdGenerator.nextSessionId();
+            store.sessionStarted(sessionId, "1000" + (100_000 + i % 50_000), i);
+            for (int u = 0; u < UPDATES_PER_SESSION; u++) {
+                store.transactionBegun(sessionId, TransactionType.WITHDRAWAL, 10_000L, null, u, i + u);
+                store.transactionEnded(sessionId, u, i + u);
+            }
+            records += 1 + 2 * UPDATES_PER_SESSION;
+            // Half the sessions finish normally, the rest are open at the crash
+            if (i % 2 == 0) {
+                store.sessionEnded(sessionId);
+                records++;
+            }
+        }
+        long writeNanos = System.nanoTime() - start;
+        long fileBytes = store.getFileSize();
+
+        start = System.nanoTime();
+        SessionStateStore recovered = new SessionStateStore(path, false);
+        long recoverNanos = System.nanoTime() - start;
+        System.out.printf("%,7d open sessions: %.0f ns per record, %,d KB file, recovered %,d in %.1f ms%n",
+                open, writeNanos / (double) records, fileBytes / 1024, recovered.getRecovered().size(),
+                recoverNanos / 1e6);
+        recovered.close();
+        store.close();
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,183 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * JUnit test class for SessionStateStore functionality
+ * Tests recovery of open sessions, torn tails, compaction and resuming or rolling back after a crash
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class SessionStateStoreTest {
+
+    private static Path newPath() throws IOException {
+        Path path = Files.createTempFile("sessions", ".dat");
+        Files.delete(path);
+        return path;
+    }
+
+    @Test
+    @DisplayName("Test open sessions are recovered with their last state")
+    void testRecoverOpenSessions() throws IOException {
+        Path path = newPath();
+        SessionStateStore store = new SessionStateStore(path, false);
+        store.sessionStarted("SES1", "100000001", 1_000L);
+        store.sessionStarted("SES2", "100000002", 2_000L);
+        store.authenticated("SES1", 2, 3_000L);
+        store.activity("SES1", 4_000L);
+        store.sessionEnded("SES2");
+        // No close: the process dies here
+
+        SessionStateStore reopened = new SessionStateStore(path, false);
+        List<SessionStateStore.SessionState> recovered = reopened.getRecovered();
+        assertEquals(1, recovered.size());
+        SessionStateStore.SessionState state = recovered.get(0);
+        assertEquals("SES1", state.getSessionId());
+        assertEquals("100000001", state.getAccountNumber());
+        assertEquals(1_000L, state.getSessionStartTime());
+        assertEquals(4_000L, state.getLastActivityTime());
+        assertEquals(2, state.getFailedAttempts());
+        assertNull(state.getInFlight());
+        reopened.close();
+        store.close();
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    @DisplayName("Test a torn record at the end is ignored")
+    void testTornTail() throws IOException {
+        Path path = newPath();
+        SessionStateStore store = new SessionStateStore(path, true);
+        store.sessionStarted("SES1", "100000001", 1_000L);
+        store.transactionBegun("SES1", TransactionType.WITHDRAWAL, 200_000L, "TXN1", 7L, 2_000L);
+        store.close();
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+
+        SessionStateStore reopened = new SessionStateStore(path, false);
+        SessionStateStore.SessionState state = reopened.getRecovered().get(0);
+        assertNull(state.getInFlight());
+        assertEquals(1_000L, state.getLastActivityTime());
+        Files.write(path, new byte[] {0, 0, 0, 9, 1, 2}, StandardOpenOption.APPEND);
+        reopened.close();
+        assertEquals(1, new SessionStateStore(path, false).getRecovered().size());
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    @DisplayName("Test closed sessions are compacted away")
+    void testCompaction() throws IOException {
+        Path path = newPath();
+        SessionStateStore store = new SessionStateStore(path, false, 4096L);
+        store.sessionStarted("KEEP", "100000009", 1L);
+        for (int i = 0; i < 10_000; i++) {
+            store.sessionStarted("SES" + i, "100000001", i);
+            store.activity("SES" + i, i + 1);
+            store.sessionEnded("SES" + i);
+        }
+        assertTrue(store.getFileSize() < 16_384L, "file size " + store.getFileSize());
+        assertEquals(1, store.getLiveSessionCount());
+        store.close();
+
+        SessionStateStore reopened = new SessionStateStore(path, false);
+        assertEquals(1, reopened.getRecovered().size());
+        assertEquals("KEEP", reopened.getRecovered().get(0).getSessionId());
+        reopened.close();
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    @DisplayName("Test restart resumes idle sessions and rolls back in-flight ones")
+    void testResumeAndRollBack() throws IOException {
+        Path path = newPath();
+        DailyLimitTracker tracker = new DailyLimitTracker(10, 5_000_000L);
+        Account before = new Account("100000001", "Idle", 50_000.0, "1234");
+        Account payer = new Account("100000002", "Payer", 50_000.0, "1234");
+        Account remote = new Account("100000003", "Remote", 50_000.0, "1234");
+        SessionStateStore store = new SessionStateStore(path, false);
+        store.sessionStarted("IDLE", "100000001", System.currentTimeMillis());
+        store.authenticated("IDLE", 2, System.currentTimeMillis());
+        assertTrue(tracker.tryReserve(before, 1, 100_000L));
+        store.transactionEnded("IDLE", before.getDailyUsage(), System.currentTimeMillis());
+        store.sessionStarted("LOST", "100000002", System.currentTimeMillis());
+        assertTrue(tracker.tryReserve(payer, 1, 300_000L));
+        store.transactionBegun("LOST", TransactionType.WITHDRAWAL, 300_000L, "TXN-LOST", payer.getDailyUsage(),
+                               System.currentTimeMillis());
+        store.sessionStarted("DONE", "100000002", System.currentTimeMillis());
+        assertTrue(tracker.tryReserve(payer, 1, 0L));
+        store.transactionBegun("DONE", TransactionType.DEPOSIT, 50_000L, "TXN-DONE", payer.getDailyUsage(),
+                               System.currentTimeMillis());
+        store.sessionStarted("REMOTE", "100000003", System.currentTimeMillis());
+        assertTrue(tracker.tryReserve(remote, 1, 200_000L));
+        store.transactionBegun("REMOTE", TransactionType.WITHDRAWAL, 200_000L, null, remote.getDailyUsage(),
+                               System.currentTimeMillis());
+
+        // Restart: accounts come back from the journal without their daily usage
+        AccountRegistry registry = new AccountRegistry(4, 16);
+        Account idle = new Account("100000001", "Idle", 50_000.0, "1234");
+        Account restored = new Account("100000002", "Payer", 50_000.0, "1234");
+        Account restoredRemote = new Account("100000003", "Remote", 50_000.0, "1234");
+        // Another terminal withdrew the same amount; it must not be taken for the lost withdrawal
+        assertTrue(restored.withdrawPaise(300_000L));
+        assertTrue(new LocalBankHost(null).submit(TransactionType.DEPOSIT, restored, 50_000L, null, "TXN-DONE")
+                                          .join().isApproved());
+        registry.register(idle);
+        registry.register(restored);
+        registry.register(restoredRemote);
+        SessionManager manager = new SessionManager(300_000L, 30_000L, 1_000L, null);
+        SessionStateStore reopened = new SessionStateStore(path, false);
+
+        assertEquals(1, reopened.resume(manager, registry, tracker));
+        assertNotNull(manager.getSession("IDLE"));
+        assertNull(manager.getSession("LOST"));
+        assertEquals(1, reopened.getLiveSessionCount());
+        assertEquals(1, tracker.getTransactionCount(idle));
+        assertEquals(100_000L, tracker.getWithdrawnPaise(idle));
+        assertEquals(2, idle.getFailedPinAttempts());
+        // The lost withdrawal never reached the host; the deposit did
+        assertEquals(1, tracker.getTransactionCount(restored));
+        assertEquals(0L, tracker.getWithdrawnPaise(restored));
+        // A remote host's ledger cannot be checked here, so the reservation stays held
+        assertEquals(1, tracker.getTransactionCount(restoredRemote));
+        assertEquals(200_000L, tracker.getWithdrawnPaise(restoredRemote));
+        reopened.close();
+        store.close();
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    @DisplayName("Test ATMService records PIN attempts and resumes them")
+    void testServiceRecordsSession() throws IOException {
+        Path path = newPath();
+        Account account = new Account("100000001", "Holder", 50_000.0, "1234");
+        SessionStateStore store = new SessionStateStore(path, false);
+        store.sessionStarted("SES1", "100000001", System.currentTimeMillis());
+        ATMService service = new ATMService(account);
+        service.setSessionStore(store, "SES1");
+        assertFalse(service.authenticate("9999"));
+        assertTrue(service.depositMoney(100.0));
+
+        SessionStateStore reopened = new SessionStateStore(path, false);
+        SessionStateStore.SessionState state = reopened.getRecovered().get(0);
+        assertEquals(1, state.getFailedAttempts());
+        assertNull(state.getInFlight());
+        ATMService resumed = new ATMService(account);
+        resumed.resumeSession(reopened, state);
+        assertEquals(1, resumed.getFailedLoginAttempts());
+        assertThrows(IllegalArgumentException.class,
+                     () -> new ATMService(new Account("100000002", "Other", 0.0, "1234")).resumeSession(reopened, state));
+        reopened.close();
+        store.close();
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,75 @@
+package atm;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JUnit test class for TransactionHistory functionality
+ * Tests ring buffer growth, wrap-around and lazy rendering
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class TransactionHistoryTest {
+
+    private TransactionHistory history;
+
+    @BeforeEach
+    void setUp() {
+        history = new TransactionHistory(20);
+    }
+
+    @Test
+    @DisplayName("Test rendering of each posting type")
+    void testRenderFormat() {
+        history.record(TransactionHistory.TYPE_DEPOSIT, 150_005L, 1_150_005L, 0L, null);
+        history.record(TransactionHistory.TYPE_TRANSFER_OUT, 10_000L, 1_140_005L, 0L, "123456789");
+        history.record(TransactionHistory.TYPE_TRANSFER_IN, 5L, 1_140_010L, 0L, "12");
+
+        List<String> lines = history.render(10);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).startsWith("DEPOSIT | " + ATMConstants.CURRENCY_SYMBOL + "1500.05 | Balance: "
+                + ATMConstants.CURRENCY_SYMBOL + "11500.05 | "));
+        assertTrue(lines.get(1).startsWith("TRANSFER OUT to XXXXX6789 | "));
+        assertTrue(lines.get(2).startsWith("TRANSFER IN from XXXXX | " + ATMConstants.CURRENCY_SYMBOL + "0.05"));
+    }
+
+    @Test
+    @DisplayName("Test ring keeps only the newest postings in order")
+    void testWrapAround() {
+        for (int i = 1; i <= 55; i++) {
+            history.record(TransactionHistory.TYPE_DEPOSIT, i, i, i, null);
+        }
+        assertEquals(20, history.size());
+
+        List<Long> amounts = new ArrayList<>();
+        history.forEach((type, amountPaise, balanceAfterPaise, epochMillis) -> amounts.add(amountPaise));
+        assertEquals(36L, (long) amounts.get(0));
+        assertEquals(55L, (long) amounts.get(19));
+
+        List<String> lastTwo = history.render(2);
+        assertEquals(2, lastTwo.size());
+        assertTrue(lastTwo.get(0).contains(ATMConstants.CURRENCY_SYMBOL + "0.54"));
+        assertTrue(lastTwo.get(1).contains(ATMConstants.CURRENCY_SYMBOL + "0.55"));
+    }
+
+    @Test
+    @DisplayName("Test empty history renders nothing")
+    void testEmptyHistory() {
+        assertEquals(0, history.size());
+        assertTrue(history.render(5).isEmpty());
+        assertTrue(history.render(0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test invalid capacity throws exception")
+    void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new TransactionHistory(0));
+    }
+}
@@ -0,0 +1,75 @@
+package atm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Benchmark for TransactionJournal group commit
+ * Reports durable appends per second and p50/p99 append-to-durable latency
+ * for several batch windows
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class TransactionJournalBenchmark {
+
+    private static final int RUN_MILLIS = 3000;
+    private static final int MAX_SAMPLES_PER_THREAD = 1 << 18;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        long[] windows = {0, 100, 500, 2000};
+        for (long window : windows) {
+            run(threads, window);
+        }
+    }
+
+    private static void run(int threads, long windowMicros) throws IOException, InterruptedException {
+        Path path = Files.createTempFile("journal-bench", ".dat");
+        TransactionJournal journal = new TransactionJournal(path, windowMicros);
+        long[][] samples = new long[threads][];
+        int[] counts = new int[threads];
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + RUN_MILLIS * 1_000_000L;
+
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            String accountNumber = String.format("%09d", t);
+            new Thread(() -> {
+                long[] latencies = new long[MAX_SAMPLES_PER_THREAD];
+                int n = 0;
+                long now;
+                while ((now = System.nanoTime()) < deadline && n < latencies.length) {
+                    journal.appendAndSync(TransactionHistory.TYPE_WITHDRAWAL, accountNumber, 10000, 0,
+                                          System.currentTimeMillis(), null);
+                    latencies[n++] = System.nanoTime() - now;
+                }
+                samples[id] = latencies;
+                counts[id] = n;
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        journal.close();
+
+        int total = 0;
+        for (int c : counts) {
+            total += c;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(samples[t], 0, all, offset, counts[t]);
+            offset += counts[t];
+        }
+        Arrays.sort(all);
+        System.out.printf("window %5d us, %d threads: %,.0f appends/sec, %d forces, p50 %.0f us, p99 %.0f us%n",
+                windowMicros, threads, total * 1000.0 / RUN_MILLIS, journal.getForceCount(),
+                all[total / 2] / 1000.0, all[(int) (total * 0.99)] / 1000.0);
+        Files.deleteIfExists(path);
+    }
+}
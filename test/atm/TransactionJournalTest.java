@@ -0,0 +1,178 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.function.Executable;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JUnit test class for TransactionJournal functionality
+ * Tests record round trips, group commit and recovery from a torn tail
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class TransactionJournalTest {
+
+    @Test
+    @DisplayName("Test account mutations are journaled and read back in order")
+    void testAccountMutationsJournaled() throws IOException {
+        Path path = Files.createTempFile("journal", ".dat");
+        Account account = new Account("987654321", "Test User", 1000.0, "1234");
+        try (TransactionJournal journal = new TransactionJournal(path, 0)) {
+            account.setJournal(journal);
+            account.deposit(250.50);
+            assertTrue(account.withdraw(100.0));
+            assertTrue(account.changePin("1234", "5678"));
+            assertEquals(3, journal.getDurableSequence());
+        }
+
+        List<String> records = new ArrayList<>();
+        long last = TransactionJournal.read(path, (sequence, type, accountNumber, amountPaise,
+                                                   balanceAfterPaise, epochMillis, detail) ->
+            records.add(sequence + ":" + type + ":" + accountNumber + ":" + amountPaise + ":"
+                        + balanceAfterPaise + ":" + detail));
+
+        assertEquals(3, last);
+        assertEquals("1:1:987654321:25050:125050:null", records.get(0));
+        assertEquals("2:2:987654321:10000:115050:null", records.get(1));
+        // The PIN change carries the new salted hash, never the PIN
+        assertEquals("3:5:987654321:0:115050:" + account.getPinHash(), records.get(2));
+        assertFalse(records.get(2).contains("5678"));
+    }
+
+    @Test
+    @DisplayName("Test concurrent appends are grouped into fewer forces")
+    void testGroupCommit() throws Exception {
+        Path path = Files.createTempFile("journal", ".dat");
+        int threads = 8;
+        int perThread = 200;
+        TransactionJournal journal = new TransactionJournal(path, 2000);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            String accountNumber = "10000000" + t;
+            pool.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    journal.appendAndSync(TransactionHistory.TYPE_DEPOSIT, accountNumber, 100, 100 * (i + 1),
+                                          System.currentTimeMillis(), null);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        journal.close();
+
+        assertEquals(threads * perThread, journal.getDurableSequence());
+        assertTrue(journal.getForceCount() < threads * perThread);
+
+        long[] expected = {1};
+        long last = TransactionJournal.read(path, (sequence, type, accountNumber, amountPaise,
+                                                   balanceAfterPaise, epochMillis, detail) ->
+            assertEquals(expected[0]++, sequence));
+        assertEquals(threads * perThread, last);
+    }
+
+    @Test
+    @DisplayName("Test reading stops at a torn record")
+    void testTornTail() throws IOException {
+        Path path = Files.createTempFile("journal", ".dat");
+        try (TransactionJournal journal = new TransactionJournal(path, 0)) {
+            journal.appendAndSync(TransactionHistory.TYPE_DEPOSIT, "987654321", 100, 100, 0L, null);
+            journal.appendAndSync(TransactionHistory.TYPE_DEPOSIT, "987654321", 100, 200, 0L, null);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        int[] count = {0};
+        long last = TransactionJournal.read(path, (sequence, type, accountNumber, amountPaise,
+                                                   balanceAfterPaise, epochMillis, detail) -> count[0]++);
+        assertEquals(1, last);
+        assertEquals(1, count[0]);
+    }
+
+    @Test
+    @DisplayName("Test appending to a closed journal fails")
+    void testClosedJournal() throws IOException {
+        Path path = Files.createTempFile("journal", ".dat");
+        TransactionJournal journal = new TransactionJournal(path, 0);
+        journal.close();
+        assertThrows(IllegalStateException.class, () ->
+            journal.append(TransactionHistory.TYPE_DEPOSIT, "987654321", 100, 100, 0L, null));
+    }
+
+    @Test
+    @DisplayName("Test batch postings are journaled as consecutive records in one group")
+    void testBatchJournaledTogether() throws IOException {
+        Path path = Files.createTempFile("journal", ".dat");
+        Account account = new Account("987654321", "Test User", 10.0, "1234");
+        byte[] types = {TransactionHistory.TYPE_DEPOSIT, TransactionHistory.TYPE_WITHDRAWAL,
+                        TransactionHistory.TYPE_WITHDRAWAL};
+        long[] amounts = {500, 5000, 700};
+        boolean[] applied = new boolean[3];
+        try (TransactionJournal journal = new TransactionJournal(path, 0)) {
+            account.setJournal(journal);
+            assertEquals(2, account.postBatch(types, amounts, applied, 3));
+            assertEquals(2, journal.getDurableSequence());
+            assertEquals(1, journal.getForceCount());
+        }
+        assertTrue(applied[0]);
+        assertFalse(applied[1]);
+        assertTrue(applied[2]);
+
+        List<String> records = new ArrayList<>();
+        TransactionJournal.read(path, (sequence, type, accountNumber, amountPaise,
+                                       balanceAfterPaise, epochMillis, detail) ->
+            records.add(sequence + ":" + type + ":" + amountPaise + ":" + balanceAfterPaise));
+        assertEquals(List.of("1:1:500:1500", "2:2:700:800"), records);
+    }
+
+    @Test
+    @DisplayName("Test mutations whose journal write fails are undone")
+    void testFailedWriteUndone() throws IOException {
+        Path full = Path.of("/dev/full");
+        assumeTrue(Files.isWritable(full), "Needs a device that fails every write");
+        Account source = new Account("987654321", "Test User", 100.0, "1234");
+        Account target = new Account("123456789", "Target User", 0.0, "4321");
+        AccountRegistry registry = new AccountRegistry();
+        registry.register(source);
+        registry.register(target);
+        TransferEngine engine = new TransferEngine(registry);
+        boolean[] applied = new boolean[2];
+
+        failWrite(full, source, target, () -> source.depositPaise(500));
+        failWrite(full, source, target, () -> source.withdrawPaise(700));
+        failWrite(full, source, target, () -> engine.transfer(source, target, 2500));
+        failWrite(full, source, target, () -> source.postBatch(
+            new byte[] {TransactionHistory.TYPE_DEPOSIT, TransactionHistory.TYPE_WITHDRAWAL},
+            new long[] {500, 700}, applied, 2));
+        failWrite(full, source, target, () -> source.changePin("1234", "5678"));
+
+        assertEquals(10_000L, source.getBalancePaise());
+        assertEquals(0L, target.getBalancePaise());
+        assertTrue(source.validatePin("1234"));
+    }
+
+    private static void failWrite(Path path, Account source, Account target, Executable mutation)
+            throws IOException {
+        try (TransactionJournal journal = new TransactionJournal(path, 0)) {
+            source.setJournal(journal);
+            target.setJournal(journal);
+            assertThrows(UncheckedIOException.class, mutation);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package atm;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Benchmark comparing inline deposits with the pipelined processor
+ * Both modes journal every deposit, enforce daily limits, update ATMStatistics
+ * and write a log line; the inline mode does it all on the submitting thread
+ * Run with e.g. java -cp bin atm.TransactionPipelineBenchmark 8
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class TransactionPipelineBenchmark {
+
+    private static final int REQUESTS_PER_THREAD = 5_000;
+    private static final int ACCOUNTS = 64;
+    private static final long BATCH_WINDOW_MICROS = 200;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        run("inline", threads, false);
+        run("pipeline", threads, true);
+    }
+
+    private static void run(String mode, int threads, boolean pipelined) throws Exception {
+        Path path = Files.createTempFile("pipeline-bench", ".dat");
+        DailyLimitTracker tracker = new DailyLimitTracker(4000, 100_000_000L);
+        Account[] accounts = new Account[ACCOUNTS];
+        long[][] latencies = new long[threads][REQUESTS_PER_THREAD];
+        CountDownLatch done = new CountDownLatch(threads * REQUESTS_PER_THREAD);
+        long start;
+        try (TransactionJournal journal = new TransactionJournal(path, BATCH_WINDOW_MICROS);
+             TransactionPipeline pipeline = pipelined ? new TransactionPipeline(4096, tracker) : null) {
+            for (int i = 0; i < ACCOUNTS; i++) {
+                accounts[i] = new Account(String.valueOf(100000000 + i), "Holder " + i, 0.0, "1234");
+                accounts[i].setJournal(journal);
+            }
+            ATMStatistics statistics = ATMStatistics.getInstance();
+            start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                new Thread(() -> {
+                    for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                        Account account = accounts[(id * REQUESTS_PER_THREAD + i) % ACCOUNTS];
+                        long submitted = System.nanoTime();
+                        int index = i;
+                        if (pipelined) {
+                            pipeline.submit(TransactionType.DEPOSIT, account, 100, result -> {
+                                latencies[id][index] = System.nanoTime() - submitted;
+                                done.countDown();
+                            });
+                        } else {
+                            boolean success = tracker.tryReserve(account, 1, 0L);
+                            if (success) {
+                                account.depositPaise(100);
+                            }
+                            synchronized (statistics) {
+                                statistics.recordTransaction("DEPOSIT", 1.0, success);
+                            }
+                            ATMLogger.logTransaction(account.getAccountNumber(), "DEPOSIT", 1.0, success);
+                            latencies[id][index] = System.nanoTime() - submitted;
+                            done.countDown();
+                        }
+                    }
+                }).start();
+            }
+            done.await();
+        }
+        long nanos = System.nanoTime() - start;
+        Files.deleteIfExists(path);
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%-8s %d threads: %d deposits in %d ms (%.0f/sec), latency p50 %d us, p99 %d us, max %d us%n",
+                mode, threads, all.length, nanos / 1_000_000, all.length * 1e9 / nanos,
+                all[all.length / 2] / 1000, all[(int) (all.length * 0.99)] / 1000, all[all.length - 1] / 1000);
+    }
+}
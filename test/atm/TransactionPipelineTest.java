@@ -0,0 +1,194 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JUnit test class for TransactionPipeline functionality
+ * Tests per-request outcomes, ring wrap-around, journaled concurrent submission
+ * the rollback of requests that fail mid-pipeline and closing under load
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class TransactionPipelineTest {
+
+    @Test
+    @DisplayName("Test each request completes with its own outcome")
+    void testOutcomes() throws Exception {
+        Account account = new Account("987654321", "Test User", 100.0, "1234");
+        try (TransactionPipeline pipeline = new TransactionPipeline(8, new DailyLimitTracker(3, 1_000_000L))) {
+            CompletableFuture<BatchResult> deposit = pipeline.submit(TransactionType.DEPOSIT, account, 5000);
+            CompletableFuture<BatchResult> invalid = pipeline.submit(TransactionType.DEPOSIT, account, 0);
+            CompletableFuture<BatchResult> inquiry = pipeline.submit(TransactionType.BALANCE_INQUIRY, account, 100);
+            CompletableFuture<BatchResult> overdraw = pipeline.submit(TransactionType.WITHDRAWAL, account, 20000);
+
+            assertEquals(BatchResult.APPLIED, deposit.get(10, TimeUnit.SECONDS));
+            assertEquals(BatchResult.INVALID_AMOUNT, invalid.get(10, TimeUnit.SECONDS));
+            assertEquals(BatchResult.UNSUPPORTED_TYPE, inquiry.get(10, TimeUnit.SECONDS));
+            assertEquals(BatchResult.INSUFFICIENT_BALANCE, overdraw.get(10, TimeUnit.SECONDS));
+
+            // The rejected withdrawal gave its reservation back once it completed
+            CompletableFuture<BatchResult> withdraw = pipeline.submit(TransactionType.WITHDRAWAL, account, 1000);
+            CompletableFuture<BatchResult> overLimit = pipeline.submit(TransactionType.DEPOSIT, account, 100);
+            assertEquals(BatchResult.APPLIED, withdraw.get(10, TimeUnit.SECONDS));
+            assertEquals(BatchResult.APPLIED, overLimit.get(10, TimeUnit.SECONDS));
+            assertEquals(BatchResult.TRANSACTION_LIMIT_EXCEEDED,
+                         pipeline.submit(TransactionType.DEPOSIT, account, 100).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals((long) (10000 + 5000 - 1000 + 100), account.getBalancePaise());
+    }
+
+    @Test
+    @DisplayName("Test concurrent producers wrap a small ring and every posting is journaled")
+    void testConcurrentJournaledSubmission() throws Exception {
+        Path path = Files.createTempFile("pipeline", ".dat");
+        int threads = 4;
+        int perThread = 500;
+        List<Account> accounts = new ArrayList<>();
+        try (TransactionJournal journal = new TransactionJournal(path, 100);
+             TransactionPipeline pipeline = new TransactionPipeline(64, new DailyLimitTracker(4000, 100_000_000L))) {
+            for (int i = 0; i < threads; i++) {
+                Account account = new Account("10000000" + i, "Holder " + i, 0.0, "1234");
+                account.setJournal(journal);
+                accounts.add(account);
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<CompletableFuture<BatchResult>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                List<CompletableFuture<BatchResult>> mine = new ArrayList<>();
+                results.addAll(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        mine.add(pipeline.submit(TransactionType.DEPOSIT, accounts.get(i % threads), 100));
+                    }
+                    return mine;
+                }).get());
+            }
+            pool.shutdown();
+            for (CompletableFuture<BatchResult> result : results) {
+                assertEquals(BatchResult.APPLIED, result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals((long) (threads * perThread), journal.getDurableSequence());
+        }
+        for (Account account : accounts) {
+            assertEquals((long) (perThread * 100), account.getBalancePaise());
+        }
+        long[] records = {0};
+        TransactionJournal.read(path, (sequence, type, accountNumber, amountPaise,
+                                       balanceAfterPaise, epochMillis, detail) -> records[0]++);
+        assertEquals(threads * perThread, records[0]);
+    }
+
+    @Test
+    @DisplayName("Test a request whose validation throws rejects the rest of its batch unposted")
+    void testValidationFailureRejectsBatch() throws Exception {
+        Account faulty = new Account("111111111", "Faulty", 0.0, "1234");
+        Account account = new Account("987654321", "Test User", 0.0, "1234");
+        DailyLimitTracker tracker = new DailyLimitTracker(1000, 1_000_000L) {
+            @Override
+            public boolean tryReserve(Account target, int transactions, long withdrawalPaise) {
+                if (target == faulty) {
+                    throw new IllegalStateException("Limit store unavailable");
+                }
+                return super.tryReserve(target, transactions, withdrawalPaise);
+            }
+        };
+        List<CompletableFuture<BatchResult>> results = new ArrayList<>();
+        try (TransactionPipeline pipeline = new TransactionPipeline(64, tracker)) {
+            for (int i = 0; i < 50; i++) {
+                results.add(pipeline.submit(TransactionType.DEPOSIT, i % 10 == 0 ? faulty : account, 100));
+            }
+            int applied = 0;
+            for (int i = 0; i < results.size(); i++) {
+                BatchResult result = results.get(i).get(10, TimeUnit.SECONDS);
+                if (i % 10 == 0) {
+                    assertEquals(BatchResult.REJECTED, result);
+                } else if (result == BatchResult.APPLIED) {
+                    applied++;
+                } else {
+                    assertEquals(BatchResult.REJECTED, result);
+                }
+            }
+            // Every posting was validated and reserved exactly once
+            assertEquals(applied * 100L, account.getBalancePaise());
+            assertEquals(applied, tracker.getTransactionCount(account));
+        }
+        assertEquals(0L, faulty.getBalancePaise());
+    }
+
+    @Test
+    @DisplayName("Test a posting that cannot be journaled is taken back")
+    void testJournalFailureTakenBack() throws Exception {
+        Path path = Files.createTempFile("pipeline", ".dat");
+        Account account = new Account("987654321", "Test User", 100.0, "1234");
+        DailyLimitTracker tracker = new DailyLimitTracker(10, 1_000_000L);
+        TransactionJournal journal = new TransactionJournal(path, 0);
+        account.setJournal(journal);
+        journal.close();
+        try (TransactionPipeline pipeline = new TransactionPipeline(8, tracker)) {
+            assertEquals(BatchResult.JOURNAL_FAILED,
+                         pipeline.submit(TransactionType.DEPOSIT, account, 5000).get(10, TimeUnit.SECONDS));
+            assertEquals(BatchResult.JOURNAL_FAILED,
+                         pipeline.submit(TransactionType.WITHDRAWAL, account, 2000).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(10_000L, account.getBalancePaise());
+        assertEquals(0, tracker.getTransactionCount(account));
+        assertEquals(0L, tracker.getWithdrawnPaise(account));
+        assertTrue(account.getTransactionHistory().isEmpty());
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    @DisplayName("Test every request accepted while closing completes")
+    void testCloseCompletesAcceptedRequests() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            List<Account> accounts = new ArrayList<>();
+            TransactionPipeline pipeline = new TransactionPipeline(16, new DailyLimitTracker(4_000, 1_000_000L));
+            List<CompletableFuture<BatchResult>> accepted = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch started = new CountDownLatch(4);
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                Account account = new Account("10000000" + p, "Holder " + p, 0.0, "1234");
+                accounts.add(account);
+                Thread producer = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 4_000; i++) {
+                        try {
+                            accepted.add(pipeline.submit(TransactionType.DEPOSIT, account, 1));
+                        } catch (IllegalStateException e) {
+                            return; // Closed
+                        }
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            started.await();
+            pipeline.close();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            for (CompletableFuture<BatchResult> future : accepted) {
+                assertEquals(BatchResult.APPLIED, future.get(10, TimeUnit.SECONDS));
+            }
+            long balances = 0L;
+            for (Account account : accounts) {
+                balances += account.getBalancePaise();
+            }
+            assertEquals(accepted.size(), balances);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package atm;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark for TransferEngine under a hot-account-pair workload
+ * Every thread moves money back and forth between the same two accounts
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public class TransferEngineBenchmark {
+
+    private static final int RUN_MILLIS = 2000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+                                         : Runtime.getRuntime().availableProcessors() * 2;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            run(threads);
+        }
+    }
+
+    private static void run(int threads) throws InterruptedException {
+        AccountRegistry registry = new AccountRegistry();
+        Account first = new Account("987654321", "Hot User A", 1_000_000.0, "1234");
+        Account second = new Account("123456789", "Hot User B", 1_000_000.0, "1234");
+        registry.register(first);
+        registry.register(second);
+        TransferEngine engine = new TransferEngine(registry);
+
+        LongAdder transfers = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + RUN_MILLIS * 1_000_000L;
+        for (int t = 0; t < threads; t++) {
+            boolean forward = t % 2 == 0;
+            new Thread(() -> {
+                Account from = forward ? first : second;
+                Account to = forward ? second : first;
+                long count = 0;
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < 100; i++) {
+                        engine.transfer(from, to, 100);
+                        engine.transfer(to, from, 100);
+                    }
+                    count += 200;
+                }
+                transfers.add(count);
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        long total = first.getBalancePaise() + second.getBalancePaise();
+        System.out.printf("%2d threads: %,.0f transfers/sec, money conserved: %s%n",
+                threads, transfers.sum() * 1000.0 / RUN_MILLIS, total == 200_000_000L);
+    }
+}
@@ -0,0 +1,99 @@
+package atm;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JUnit test class for TransferEngine functionality
+ * Tests atomic two-account transfers and deadlock freedom under contention
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class TransferEngineTest {
+
+    private AccountRegistry registry;
+    private TransferEngine engine;
+    private Account source;
+    private Account target;
+
+    @BeforeEach
+    void setUp() {
+        registry = new AccountRegistry();
+        source = new Account("987654321", "Source User", 10000.0, "1234");
+        target = new Account("123456789", "Target User", 500.0, "4321");
+        registry.register(source);
+        registry.register(target);
+        engine = new TransferEngine(registry);
+    }
+
+    @Test
+    @DisplayName("Test transfer debits source and credits target")
+    void testTransferSuccess() {
+        assertTrue(engine.transfer("987654321", "123456789", 250_000L));
+        assertEquals(750_000L, source.getBalancePaise());
+        assertEquals(300_000L, target.getBalancePaise());
+        assertTrue(source.getTransactionHistory().get(0).startsWith("TRANSFER OUT"));
+        assertTrue(target.getTransactionHistory().get(0).startsWith("TRANSFER IN"));
+    }
+
+    @Test
+    @DisplayName("Test transfer with insufficient balance changes nothing")
+    void testTransferInsufficientBalance() {
+        assertFalse(engine.transfer("123456789", "987654321", 50_001L));
+        assertEquals(1_000_000L, source.getBalancePaise());
+        assertEquals(50_000L, target.getBalancePaise());
+        assertTrue(target.getTransactionHistory().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test transfer rejects unknown accounts, self transfers and invalid amounts")
+    void testTransferRejected() {
+        assertFalse(engine.transfer("987654321", "111222333", 100L));
+        assertFalse(engine.transfer("987654321", "987654321", 100L));
+        assertFalse(engine.transfer("987654321", "123456789", 0L));
+        assertFalse(engine.transfer("987654321", "123456789", -100L));
+        assertEquals(1_000_000L, source.getBalancePaise());
+    }
+
+    @Test
+    @DisplayName("Test concurrent overlapping transfers conserve money and never deadlock")
+    void testConcurrentTransfersConserveMoney() throws InterruptedException {
+        int accounts = 6;
+        AccountRegistry ring = new AccountRegistry();
+        for (int i = 0; i < accounts; i++) {
+            ring.register(new Account("10000000" + i, "Holder " + i, 1000.0, "1234"));
+        }
+        // Two stripes force many distinct accounts onto the same locks
+        TransferEngine contended = new TransferEngine(ring, 2);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20000; i++) {
+                    int from = random.nextInt(accounts);
+                    int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+                    contended.transfer("10000000" + from, "10000000" + to, 1 + random.nextInt(5000));
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS), "Transfers did not finish (deadlock?)");
+
+        long[] total = new long[1];
+        ring.forEach(account -> {
+            assertTrue(account.getBalancePaise() >= 0);
+            total[0] += account.getBalancePaise();
+        });
+        assertEquals(accounts * 100_000L, total[0]);
+    }
+}
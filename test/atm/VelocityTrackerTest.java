@@ -0,0 +1,93 @@
+package atm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JUnit test class for VelocityTracker functionality
+ * Tests window counts, sliding expiry, intervals and the SecurityUtil checks built on it
+ *
+ * @author ATM Machine Simulation Team
+ * @version 1.0
+ * @since 2026-10-16
+ */
+class VelocityTrackerTest {
+
+    @Test
+    @DisplayName("Test transactions are counted within the window and slide out")
+    void testSlidingWindow() {
+        AtomicLong now = new AtomicLong(1_000_000L);
+        VelocityTracker tracker = new VelocityTracker(60, 6, now::get);
+        Account account = new Account("987654321", "Test User", 1000.0, "1234");
+
+        assertEquals(0, tracker.countInWindow(account));
+        for (int i = 0; i < 3; i++) {
+            tracker.record(account);
+            now.addAndGet(15_000L);
+        }
+        assertEquals(3, tracker.countInWindow(account));
+
+        now.addAndGet(30_000L);
+        assertEquals(1, tracker.countInWindow(account));
+        now.addAndGet(60_000L);
+        assertEquals(0, tracker.countInWindow(account));
+    }
+
+    @Test
+    @DisplayName("Test interval since the previous transaction is reported")
+    void testIntervalSinceLast() {
+        AtomicLong now = new AtomicLong(5_000L);
+        VelocityTracker tracker = new VelocityTracker(60, 6, now::get);
+        Account account = new Account("987654321", "Test User", 1000.0, "1234");
+
+        assertEquals(Long.MAX_VALUE, tracker.millisSinceLast(account));
+        assertEquals(Long.MAX_VALUE, tracker.record(account));
+        now.addAndGet(4_000L);
+        assertEquals(4_000L, tracker.millisSinceLast(account));
+        assertEquals(4_000L, tracker.record(account));
+    }
+
+    @Test
+    @DisplayName("Test concurrent records are all counted")
+    void testConcurrentRecords() throws Exception {
+        VelocityTracker tracker = new VelocityTracker(3600, 6);
+        Account account = new Account("987654321", "Test User", 1000.0, "1234");
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    tracker.record(account);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(threads * 1000, tracker.countInWindow(account));
+        assertEquals(7, account.getVelocityWindow().length());
+    }
+
+    @Test
+    @DisplayName("Test SecurityUtil checks read the account's recorded activity")
+    void testSecurityUtilReadsTracker() {
+        Account account = new Account("987654321", "Test User", 100000.0, "1234");
+        ATMService service = new ATMService(account);
+        service.setDailyLimitTracker(new DailyLimitTracker(20, 5_000_000L));
+
+        assertFalse(SecurityUtil.isRapidTransaction(account));
+        assertTrue(service.depositMoney(100.0));
+        assertTrue(SecurityUtil.isRapidTransaction(account));
+        assertFalse(SecurityUtil.isSuspiciousActivity(account));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(service.withdrawMoney(100.0));
+        }
+        assertTrue(SecurityUtil.isSuspiciousActivity(account));
+    }
+}